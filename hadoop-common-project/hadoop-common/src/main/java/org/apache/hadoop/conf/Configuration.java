@@ -26,6 +26,7 @@
 import com.fasterxml.jackson.core.JsonGenerator;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.File;
@@ -221,6 +222,17 @@
  * <p> Properties marked with tags can be retrieved with <tt>conf
  * .getAllPropertiesByTag("HDFS")</tt> or <tt>conf.getAllPropertiesByTags
  * (Arrays.asList("YARN","SECURITY"))</tt>.</p>
+ *
+ * <h4 id="ParsedResourcesCache">Parsed Resources Cache</h4>
+ *
+ * <p>When the System property <tt>hadoop.conf.cache.enabled</tt> is
+ * <tt>true</tt>, the properties parsed from the classpath resources, like
+ * <tt>core-default.xml</tt>, are cached by the checksum of the resource, so
+ * each resource is parsed once per JVM. The resources outside jars are
+ * still read each time, so their edits are always seen. Setting the System
+ * property <tt>hadoop.conf.cache.dir</tt> to a directory also stores them
+ * there in a binary format, which new JVMs load without parsing the XML.
+ * The cache is disabled by default.</p>
  */
 @InterfaceAudience.Public
 @InterfaceStability.Stable
@@ -3091,8 +3103,14 @@ private Resource loadResource(Properties properties,
         overlay(properties, (Properties)resource);
       }
 
-      XMLStreamReader2 reader = getStreamReader(wrapper, quiet);
-      if (reader == null) {
+      List<ParsedItem> items;
+      if (resource instanceof String && ParsedResourceCache.isEnabled()) {
+        items = parseClasspathResource(wrapper, quiet);
+      } else {
+        XMLStreamReader2 reader = getStreamReader(wrapper, quiet);
+        items = reader == null ? null : parse(reader, wrapper, quiet);
+      }
+      if (items == null) {
         if (quiet) {
           return null;
         }
@@ -3103,12 +3121,10 @@ private Resource loadResource(Properties properties,
         toAddTo = new Properties();
       }
 
-      List<ParsedItem> items = new Parser(reader, wrapper, quiet).parse();
       for (ParsedItem item : items) {
         loadProperty(toAddTo, item.name, item.key, item.value,
             item.isFinal, item.sources);
       }
-      reader.close();
 
       if (returnCachedProperties) {
         overlay(properties, toAddTo);
@@ -3124,6 +3140,60 @@ private Resource loadResource(Properties properties,
     }
   }
 
+  private List<ParsedItem> parse(XMLStreamReader2 reader, Resource wrapper,
+      boolean quiet) throws IOException, XMLStreamException {
+    try {
+      return new Parser(reader, wrapper, quiet).parse();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Parse a classpath resource or get its properties from the
+   * {@link ParsedResourceCache}.
+   * @param wrapper the classpath resource.
+   * @param quiet if the errors are not logged.
+   * @return the items of the resource or null if it is not found.
+   */
+  private List<ParsedItem> parseClasspathResource(Resource wrapper,
+      boolean quiet) throws IOException, XMLStreamException {
+    URL url = getResource((String) wrapper.getResource());
+    if (url == null) {
+      return null;
+    }
+    boolean restricted = wrapper.isParserRestricted();
+    List<ParsedResourceCache.Property> cached =
+        ParsedResourceCache.get(url, restricted);
+    ParsedResourceCache.Content content = null;
+    if (cached == null) {
+      content = ParsedResourceCache.read(url, restricted);
+      cached = ParsedResourceCache.get(content);
+    }
+    if (cached != null) {
+      return new Parser(null, wrapper, quiet).replay(cached);
+    }
+
+    if (!quietmode && LOG.isDebugEnabled()) {
+      LOG.debug("parsing URL " + url);
+    }
+    XMLStreamReader2 reader = (XMLStreamReader2) parse(
+        new ByteArrayInputStream(content.getData()), url.toString(),
+        restricted);
+    try {
+      Parser parser = new Parser(reader, wrapper, quiet);
+      parser.recordProperties();
+      List<ParsedItem> items = parser.parse();
+      List<ParsedResourceCache.Property> parsed = parser.getProperties();
+      if (parsed != null) {
+        ParsedResourceCache.put(content, parsed);
+      }
+      return items;
+    } finally {
+      reader.close();
+    }
+  }
+
   private XMLStreamReader2 getStreamReader(Resource wrapper, boolean quiet)
       throws XMLStreamException, IOException {
     Object resource = wrapper.getResource();
@@ -3195,6 +3265,8 @@ private class Parser {
     private boolean parseToken = false;
     private List<String> confSource = new ArrayList<>();
     private List<ParsedItem> results = new ArrayList<>();
+    private List<ParsedResourceCache.Property> properties = null;
+    private boolean hasInclude = false;
 
     Parser(XMLStreamReader2 reader,
            Resource wrapper,
@@ -3285,6 +3357,7 @@ private void handleInclude() throws XMLStreamException, IOException {
       if (confInclude == null) {
         return;
       }
+      hasInclude = true;
       if (isRestricted) {
         throw new RuntimeException("Error parsing resource " + wrapper
             + ": XInclude is not supported for restricted resources");
@@ -3394,35 +3467,74 @@ void handleEndProperty() {
       if (confName == null || (!fallbackAllowed && fallbackEntered)) {
         return;
       }
+      String[] sources = confSource.isEmpty()
+          ? null : confSource.toArray(new String[confSource.size()]);
+      if (properties != null) {
+        properties.add(new ParsedResourceCache.Property(
+            confName, confValue, confFinal, confTag, sources));
+      }
+      addProperty(confName, confValue, confFinal, confTag, sources);
+    }
+
+    /**
+     * Add the items of the properties previously parsed from the resource.
+     * @param cached properties parsed from the resource.
+     * @return the items of the properties.
+     */
+    List<ParsedItem> replay(List<ParsedResourceCache.Property> cached) {
+      for (ParsedResourceCache.Property property : cached) {
+        addProperty(property.getName(), property.getValue(),
+            property.isFinal(), property.getTag(), property.getSources());
+      }
+      return results;
+    }
+
+    private void addProperty(String propName, String propValue,
+        boolean propFinal, String propTag, String[] sources) {
       String[] confSourceArray;
-      if (confSource.isEmpty()) {
+      if (sources == null) {
         confSourceArray = nameSingletonArray;
       } else {
-        confSource.add(name);
-        confSourceArray = confSource.toArray(new String[confSource.size()]);
+        confSourceArray = Arrays.copyOf(sources, sources.length + 1);
+        confSourceArray[sources.length] = name;
       }
 
       // Read tags and put them in propertyTagsMap
-      if (confTag != null) {
-        readTagFromConfig(confTag, confName, confValue, confSourceArray);
+      if (propTag != null) {
+        readTagFromConfig(propTag, propName, propValue, confSourceArray);
       }
 
       DeprecatedKeyInfo keyInfo =
-          deprecations.getDeprecatedKeyMap().get(confName);
+          deprecations.getDeprecatedKeyMap().get(propName);
 
       if (keyInfo != null) {
         keyInfo.clearAccessed();
         for (String key : keyInfo.newKeys) {
           // update new keys with deprecated key's value
           results.add(new ParsedItem(
-              name, key, confValue, confFinal, confSourceArray));
+              name, key, propValue, propFinal, confSourceArray));
         }
       } else {
-        results.add(new ParsedItem(name, confName, confValue, confFinal,
+        results.add(new ParsedItem(name, propName, propValue, propFinal,
             confSourceArray));
       }
     }
 
+    /**
+     * Record the properties of the resource to cache them.
+     */
+    void recordProperties() {
+      properties = new ArrayList<>();
+    }
+
+    /**
+     * @return the properties of the resource, null if they cannot be cached
+     *         because the resource includes other resources.
+     */
+    List<ParsedResourceCache.Property> getProperties() {
+      return hasInclude ? null : properties;
+    }
+
     void parseNext() throws IOException, XMLStreamException {
       switch (reader.next()) {
       case XMLStreamConstants.START_ELEMENT:
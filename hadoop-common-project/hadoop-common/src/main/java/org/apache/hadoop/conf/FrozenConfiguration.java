@@ -0,0 +1,354 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.conf;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * An immutable snapshot of a {@link Configuration} for code that reads the
+ * configuration in hot paths.
+ *
+ * The values are resolved once, when the snapshot is created: variables are
+ * expanded (including system properties and environment variables) and
+ * deprecated keys are mapped to their replacements on their first read. The
+ * reads are then lookups in a flat map and do not take any lock. The typed
+ * getters also cache the parsed value of each property.
+ *
+ * Any method modifying the values throws
+ * {@link UnsupportedOperationException}, and the snapshot ignores the default
+ * resources added after it was created. Use
+ * {@link Configuration#Configuration(Configuration)} to get a mutable copy.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Unstable
+public class FrozenConfiguration extends Configuration {
+
+  /** Resolved value of a property. */
+  private static final class Value {
+    private final String value;
+    private final String trimmed;
+    /** Last value parsed by a typed getter. */
+    private volatile Object parsed;
+
+    Value(String value) {
+      this.value = value;
+      this.trimmed = value == null ? null : value.trim();
+    }
+  }
+
+  /** Property name -> resolved value. */
+  private final Map<String, Value> values = new ConcurrentHashMap<>();
+  /** Properties whose variables cannot be expanded. */
+  private final Set<String> unresolved = new HashSet<>();
+
+  /**
+   * Create a snapshot of the current values of a configuration.
+   *
+   * @param other the configuration to freeze.
+   */
+  public FrozenConfiguration(Configuration other) {
+    super(other);
+    Properties props = getProps();
+    List<String> names = new ArrayList<>(props.size());
+    synchronized (this) {
+      for (Map.Entry<Object, Object> entry : props.entrySet()) {
+        if (entry.getKey() instanceof String &&
+            entry.getValue() instanceof String) {
+          names.add((String) entry.getKey());
+        }
+      }
+    }
+    for (String name : names) {
+      // Deprecated keys are resolved on their first read to log the warning
+      if (!isDeprecated(name)) {
+        try {
+          values.put(name, new Value(super.get(name)));
+        } catch (IllegalStateException e) {
+          // Fail on every read like Configuration does
+          unresolved.add(name);
+        }
+      }
+    }
+  }
+
+  private Value getValue(String name) {
+    String key = name.trim();
+    Value value = values.get(key);
+    if (value == null) {
+      if (unresolved.contains(key)) {
+        return new Value(super.get(key));
+      }
+      if (isDeprecated(key)) {
+        value = values.computeIfAbsent(key, k -> new Value(super.get(k)));
+      }
+    }
+    return value;
+  }
+
+  /**
+   * See {@link Configuration#get(String)}.
+   */
+  @Override
+  public String get(String name) {
+    Value value = getValue(name);
+    return value == null ? null : value.value;
+  }
+
+  /**
+   * See {@link Configuration#get(String, String)}.
+   */
+  @Override
+  public String get(String name, String defaultValue) {
+    Value value = getValue(name);
+    if (value != null && value.value != null) {
+      return value.value;
+    }
+    if (defaultValue != null && defaultValue.contains("${")) {
+      // Expand the variables of the default value
+      return super.get(name, defaultValue);
+    }
+    return defaultValue;
+  }
+
+  /**
+   * See {@link Configuration#getTrimmed(String)}.
+   */
+  @Override
+  public String getTrimmed(String name) {
+    Value value = getValue(name);
+    return value == null ? null : value.trimmed;
+  }
+
+  /**
+   * See {@link Configuration#getInt(String, int)}.
+   */
+  @Override
+  public int getInt(String name, int defaultValue) {
+    Value value = getValue(name);
+    if (value == null || value.trimmed == null) {
+      return defaultValue;
+    }
+    Object parsed = value.parsed;
+    if (parsed instanceof Integer) {
+      return (Integer) parsed;
+    }
+    int result = super.getInt(name, defaultValue);
+    value.parsed = result;
+    return result;
+  }
+
+  /**
+   * See {@link Configuration#getLong(String, long)}.
+   */
+  @Override
+  public long getLong(String name, long defaultValue) {
+    Value value = getValue(name);
+    if (value == null || value.trimmed == null) {
+      return defaultValue;
+    }
+    Object parsed = value.parsed;
+    if (parsed instanceof Long) {
+      return (Long) parsed;
+    }
+    long result = super.getLong(name, defaultValue);
+    value.parsed = result;
+    return result;
+  }
+
+  /**
+   * See {@link Configuration#getFloat(String, float)}.
+   */
+  @Override
+  public float getFloat(String name, float defaultValue) {
+    Value value = getValue(name);
+    if (value == null || value.trimmed == null) {
+      return defaultValue;
+    }
+    Object parsed = value.parsed;
+    if (parsed instanceof Float) {
+      return (Float) parsed;
+    }
+    float result = super.getFloat(name, defaultValue);
+    value.parsed = result;
+    return result;
+  }
+
+  /**
+   * See {@link Configuration#getDouble(String, double)}.
+   */
+  @Override
+  public double getDouble(String name, double defaultValue) {
+    Value value = getValue(name);
+    if (value == null || value.trimmed == null) {
+      return defaultValue;
+    }
+    Object parsed = value.parsed;
+    if (parsed instanceof Double) {
+      return (Double) parsed;
+    }
+    double result = super.getDouble(name, defaultValue);
+    value.parsed = result;
+    return result;
+  }
+
+  /**
+   * See {@link Configuration#getBoolean(String, boolean)}.
+   */
+  @Override
+  public boolean getBoolean(String name, boolean defaultValue) {
+    Value value = getValue(name);
+    if (value == null || value.trimmed == null) {
+      return defaultValue;
+    }
+    Object parsed = value.parsed;
+    if (parsed instanceof Boolean) {
+      return (Boolean) parsed;
+    }
+    if (StringUtils.equalsIgnoreCase("true", value.trimmed)) {
+      value.parsed = Boolean.TRUE;
+      return true;
+    } else if (StringUtils.equalsIgnoreCase("false", value.trimmed)) {
+      value.parsed = Boolean.FALSE;
+      return false;
+    }
+    // Invalid values log a warning on every read
+    return super.getBoolean(name, defaultValue);
+  }
+
+  private static UnsupportedOperationException frozen() {
+    return new UnsupportedOperationException("The configuration is frozen");
+  }
+
+  @Override
+  public void set(String name, String value, String source) {
+    throw frozen();
+  }
+
+  @Override
+  public synchronized void unset(String name) {
+    throw frozen();
+  }
+
+  @Override
+  public synchronized void setIfUnset(String name, String value) {
+    throw frozen();
+  }
+
+  @Override
+  public void clear() {
+    throw frozen();
+  }
+
+  @Override
+  public void setDeprecatedProperties() {
+    throw frozen();
+  }
+
+  @Override
+  public void setAllowNullValueProperties(boolean val) {
+    throw frozen();
+  }
+
+  @Override
+  public void setRestrictSystemProps(boolean val) {
+    throw frozen();
+  }
+
+  @Override
+  public void setRestrictSystemProperties(boolean val) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(String name) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(String name, boolean restrictedParser) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(URL url) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(URL url, boolean restrictedParser) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(Path file) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(Path file, boolean restrictedParser) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(InputStream in) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(InputStream in, boolean restrictedParser) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(InputStream in, String name) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(InputStream in, String name,
+      boolean restrictedParser) {
+    throw frozen();
+  }
+
+  @Override
+  public void addResource(Configuration conf) {
+    throw frozen();
+  }
+
+  /**
+   * The snapshot keeps the values it was created with, the new default
+   * resources are not loaded.
+   */
+  @Override
+  public synchronized void reloadConfiguration() {
+  }
+}
@@ -0,0 +1,506 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.conf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.util.StringInterner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the properties parsed from the classpath resources of
+ * {@link Configuration}, keyed by the checksum of the resource content.
+ *
+ * The cache is disabled unless the system property
+ * {@link #CACHE_ENABLED_PROPERTY} is true. The properties are kept in memory,
+ * so each resource is parsed only once per JVM and not once per
+ * Configuration. The resources in jars are not read again while the jar
+ * keeps its modification time and length; the other resources are read and
+ * looked up by the checksum of their content, so an edit is never missed.
+ * If the system property
+ * {@link #CACHE_DIR_PROPERTY} is set, they are also stored in that directory
+ * in a binary format that new JVMs load without parsing the XML.
+ *
+ * The cached properties are the ones in the XML, the deprecations and the
+ * tags are applied when loading them.
+ */
+@InterfaceAudience.Private
+final class ParsedResourceCache {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ParsedResourceCache.class);
+
+  /** System property with the directory of the binary cache. */
+  static final String CACHE_DIR_PROPERTY = "hadoop.conf.cache.dir";
+  /** System property to enable the cache. */
+  static final String CACHE_ENABLED_PROPERTY = "hadoop.conf.cache.enabled";
+
+  /** Number of cached resources after which the cache is cleared. */
+  private static final int MAX_ENTRIES = 256;
+
+  private static final int MAGIC = 0x48434643;
+  private static final int FORMAT_VERSION = 1;
+  private static final String SUFFIX = ".bin";
+  private static final String INDEX_SUFFIX = ".idx";
+
+  /** Writes the content of a file of the cache. */
+  @FunctionalInterface
+  private interface CacheWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  /** A property as it is in the resource. */
+  static final class Property {
+    private final String name;
+    private final String value;
+    private final boolean isFinal;
+    private final String tag;
+    /** Sources in the XML or null if none. */
+    private final String[] sources;
+
+    Property(String name, String value, boolean isFinal, String tag,
+        String[] sources) {
+      this.name = name;
+      this.value = value;
+      this.isFinal = isFinal;
+      this.tag = tag;
+      this.sources = sources;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getValue() {
+      return value;
+    }
+
+    boolean isFinal() {
+      return isFinal;
+    }
+
+    String getTag() {
+      return tag;
+    }
+
+    String[] getSources() {
+      return sources;
+    }
+  }
+
+  /** Content of a resource. */
+  static final class Content {
+    private final String url;
+    private final String version;
+    private final byte[] data;
+    private final String key;
+
+    Content(String url, String version, byte[] data, boolean restricted) {
+      this.url = url;
+      this.version = version;
+      this.data = data;
+      this.key = getKey(data, restricted);
+    }
+
+    byte[] getData() {
+      return data;
+    }
+  }
+
+  /** Properties of a version of a resource. */
+  private static final class Version {
+    private final String version;
+    private final List<Property> properties;
+
+    Version(String version, List<Property> properties) {
+      this.version = version;
+      this.properties = properties;
+    }
+  }
+
+  /** Checksum key -> properties. */
+  private static final Map<String, List<Property>> CACHE =
+      new ConcurrentHashMap<>();
+  /** Resource URL -> properties of its last version. */
+  private static final Map<String, Version> VERSIONS =
+      new ConcurrentHashMap<>();
+
+  private ParsedResourceCache() {
+  }
+
+  /**
+   * @return if the properties of the resources are cached.
+   */
+  static boolean isEnabled() {
+    return "true".equalsIgnoreCase(
+        System.getProperty(CACHE_ENABLED_PROPERTY));
+  }
+
+  /**
+   * Get the properties of a resource if the file containing it did not
+   * change since it was cached, without reading it.
+   * @param url location of the resource.
+   * @param restricted if the resource is parsed in restricted mode.
+   * @return properties of the resource or null if they are not cached.
+   */
+  static List<Property> get(URL url, boolean restricted) {
+    String version = getVersion(url);
+    if (version == null) {
+      return null;
+    }
+    String name = url + (restricted ? "-r" : "");
+    Version cached = VERSIONS.get(name);
+    if (cached != null && cached.version.equals(version)) {
+      return cached.properties;
+    }
+    // Without opening the file, like the jars in a new JVM
+    File dir = getCacheDir();
+    if (dir != null) {
+      String key = readIndex(dir, name, version);
+      List<Property> properties = key == null ? null : get(key);
+      if (properties != null) {
+        putVersion(name, version, properties);
+        return properties;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Read the content of a resource.
+   * @param url location of the resource.
+   * @param restricted if the resource is parsed in restricted mode.
+   * @return content of the resource.
+   * @throws IOException if the resource cannot be read.
+   */
+  static Content read(URL url, boolean restricted) throws IOException {
+    // Get the version first, so a concurrent change is read next time
+    String version = getVersion(url);
+    URLConnection connection = url.openConnection();
+    if (connection instanceof JarURLConnection) {
+      // Do not share the JarFile with other users
+      connection.setUseCaches(false);
+    }
+    try (InputStream in = connection.getInputStream()) {
+      return new Content(url + (restricted ? "-r" : ""), version,
+          IOUtils.toByteArray(in), restricted);
+    }
+  }
+
+  /**
+   * Get the key of a resource in the cache.
+   * @param data content of the resource.
+   * @param restricted if the resource is parsed in restricted mode.
+   * @return key of the resource.
+   */
+  static String getKey(byte[] data, boolean restricted) {
+    // Two checksums, avoid the initialization of the MessageDigest providers
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, data.length);
+    Adler32 adler = new Adler32();
+    adler.update(data, 0, data.length);
+    return Long.toHexString(crc.getValue() << 32 | adler.getValue()) + "-" +
+        data.length + (restricted ? "-r" : "");
+  }
+
+  /**
+   * Get the properties of a resource from memory or from the binary cache.
+   * @param content content of the resource.
+   * @return properties of the resource or null if they are not cached.
+   */
+  static List<Property> get(Content content) {
+    List<Property> properties = get(content.key);
+    if (properties != null) {
+      putVersion(content, properties);
+      writeIndex(content);
+    }
+    return properties;
+  }
+
+  @VisibleForTesting
+  static List<Property> get(String key) {
+    List<Property> properties = CACHE.get(key);
+    File dir = getCacheDir();
+    if (properties == null && dir != null) {
+      File file = new File(dir, key + SUFFIX);
+      if (file.isFile()) {
+        try {
+          properties = readProperties(file);
+          putInMemory(key, properties);
+        } catch (IOException e) {
+          LOG.warn("Cannot read the cached configuration {}", file, e);
+        }
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Cache the properties of a resource.
+   * @param content content of the resource.
+   * @param properties properties parsed from the content.
+   */
+  static void put(Content content, List<Property> properties) {
+    List<Property> unmodifiable = Collections.unmodifiableList(properties);
+    putInMemory(content.key, unmodifiable);
+    putVersion(content, unmodifiable);
+    File dir = getCacheDir();
+    if (dir != null) {
+      File file = new File(dir, content.key + SUFFIX);
+      if (!file.exists()) {
+        try {
+          writeAtomically(dir, file, out -> writeProperties(out, unmodifiable));
+        } catch (IOException e) {
+          LOG.warn("Cannot cache the configuration in {}", file, e);
+        }
+      }
+      writeIndex(content);
+    }
+  }
+
+  @VisibleForTesting
+  static void clear() {
+    CACHE.clear();
+    VERSIONS.clear();
+  }
+
+  @VisibleForTesting
+  static int size() {
+    return CACHE.size();
+  }
+
+  private static void putInMemory(String key, List<Property> properties) {
+    if (CACHE.size() >= MAX_ENTRIES) {
+      // The resources changed many times, forget the old versions
+      CACHE.clear();
+    }
+    CACHE.put(key, properties);
+  }
+
+  private static void putVersion(Content content, List<Property> properties) {
+    if (content.version != null) {
+      putVersion(content.url, content.version, properties);
+    }
+  }
+
+  private static void putVersion(String name, String version,
+      List<Property> properties) {
+    if (VERSIONS.size() >= MAX_ENTRIES) {
+      VERSIONS.clear();
+    }
+    VERSIONS.put(name, new Version(version, properties));
+  }
+
+  /**
+   * The index files map the version of a resource to the key of its
+   * properties in the binary cache.
+   */
+  private static File getIndexFile(File dir, String name) {
+    return new File(dir, "index-" +
+        getKey(name.getBytes(StandardCharsets.UTF_8), false) + INDEX_SUFFIX);
+  }
+
+  private static String readIndex(File dir, String name, String version) {
+    File file = getIndexFile(dir, name);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(file.toPath())))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      String indexedName = readString(in);
+      String indexedVersion = readString(in);
+      String key = readString(in);
+      return name.equals(indexedName) && version.equals(indexedVersion)
+          ? key : null;
+    } catch (IOException e) {
+      LOG.debug("Cannot read the index {}", file, e);
+      return null;
+    }
+  }
+
+  private static void writeIndex(Content content) {
+    File dir = getCacheDir();
+    if (dir == null || content.version == null) {
+      return;
+    }
+    File file = getIndexFile(dir, content.url);
+    try {
+      writeAtomically(dir, file, out -> {
+        writeString(out, content.url);
+        writeString(out, content.version);
+        writeString(out, content.key);
+      });
+    } catch (IOException e) {
+      LOG.warn("Cannot write the index {}", file, e);
+    }
+  }
+
+  /**
+   * Get the version of the local jar containing a resource, its
+   * modification time and length. A file edited in place, like a
+   * *-site.xml, can keep both, so it has no version and is always read.
+   * @param url location of the resource.
+   * @return version of the jar or null if the resource is not in a jar.
+   */
+  private static String getVersion(URL url) {
+    try {
+      if (!"jar".equals(url.getProtocol())) {
+        return null;
+      }
+      String path = url.getPath();
+      int separator = path.indexOf("!/");
+      if (separator < 0) {
+        return null;
+      }
+      URL fileUrl = new URL(path.substring(0, separator));
+      if (!"file".equals(fileUrl.getProtocol())) {
+        return null;
+      }
+      File file = new File(fileUrl.toURI());
+      long modified = file.lastModified();
+      return modified == 0 ? null : modified + ":" + file.length();
+    } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static File getCacheDir() {
+    String dir = System.getProperty(CACHE_DIR_PROPERTY);
+    return dir == null || dir.isEmpty() ? null : new File(dir);
+  }
+
+  private static List<Property> readProperties(File file)
+      throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(file.toPath())))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Unknown format");
+      }
+      int count = in.readInt();
+      List<Property> properties = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        String name = readString(in);
+        String value = readString(in);
+        boolean isFinal = in.readBoolean();
+        String tag = readString(in);
+        String[] sources = null;
+        int numSources = in.readInt();
+        if (numSources >= 0) {
+          sources = new String[numSources];
+          for (int j = 0; j < numSources; j++) {
+            sources[j] = readString(in);
+          }
+        }
+        properties.add(new Property(name, value, isFinal, tag, sources));
+      }
+      return Collections.unmodifiableList(properties);
+    }
+  }
+
+  private static void writeProperties(DataOutputStream out,
+      List<Property> properties) throws IOException {
+    out.writeInt(properties.size());
+    for (Property property : properties) {
+      writeString(out, property.name);
+      writeString(out, property.value);
+      out.writeBoolean(property.isFinal);
+      writeString(out, property.tag);
+      if (property.sources == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(property.sources.length);
+        for (String source : property.sources) {
+          writeString(out, source);
+        }
+      }
+    }
+  }
+
+  private static void writeAtomically(File dir, File file, CacheWriter writer)
+      throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+      throw new IOException("Cannot create " + dir);
+    }
+    // Write to a temporary file so the readers never see a partial file
+    File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+    try {
+      try (OutputStream os = Files.newOutputStream(tmp.toPath());
+           DataOutputStream out =
+               new DataOutputStream(new BufferedOutputStream(os))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writer.write(out);
+      }
+      Files.move(tmp.toPath(), file.toPath(),
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp.toPath());
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return StringInterner.weakIntern(
+        new String(bytes, StandardCharsets.UTF_8));
+  }
+
+  private static void writeString(DataOutputStream out, String str)
+      throws IOException {
+    if (str == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+}
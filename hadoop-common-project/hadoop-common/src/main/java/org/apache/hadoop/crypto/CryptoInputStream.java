@@ -23,12 +23,19 @@
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 
 import org.apache.hadoop.util.Preconditions;
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -39,6 +46,7 @@
 import org.apache.hadoop.fs.CanSetReadahead;
 import org.apache.hadoop.fs.CanUnbuffer;
 import org.apache.hadoop.fs.FSExceptionMessages;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.HasEnhancedByteBufferAccess;
 import org.apache.hadoop.fs.HasFileDescriptor;
 import org.apache.hadoop.fs.PositionedReadable;
@@ -50,6 +58,8 @@
 import org.apache.hadoop.fs.statistics.IOStatisticsSource;
 import org.apache.hadoop.io.ByteBufferPool;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.functional.FutureIO;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import static org.apache.hadoop.fs.statistics.IOStatisticsSupport.retrieveIOStatistics;
 
@@ -63,6 +73,10 @@
  * padding = pos%(algorithm blocksize); 
  * <p>
  * The underlying stream offset is maintained as state.
+ * <p>
+ * With the JCE codecs, the large reads are decrypted in place in the buffer
+ * of the caller: the AES intrinsics of the JVM then process them in a single
+ * call, without copies through the direct buffers of the stream.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
@@ -107,6 +121,13 @@ public class CryptoInputStream extends FilterInputStream implements
   private byte[] iv;
   private final boolean isByteBufferReadable;
   private final boolean isReadableByteChannel;
+  /** Whether the decryptors can decrypt the data in place. */
+  private final boolean inPlaceDecryption;
+  /**
+   * The positioned reads larger than this size are decrypted in parallel,
+   * 0 to disable.
+   */
+  private final int parallelDecryptionSize;
   
   /** DirectBuffer pool */
   private final Queue<ByteBuffer> bufferPool = 
@@ -136,6 +157,9 @@ public CryptoInputStream(InputStream in, CryptoCodec codec,
     inBuffer = ByteBuffer.allocateDirect(this.bufferSize);
     outBuffer = ByteBuffer.allocateDirect(this.bufferSize);
     decryptor = getDecryptor();
+    inPlaceDecryption = decryptor instanceof JceCtrCryptoCodec.JceCtrCipher;
+    parallelDecryptionSize =
+        CryptoStreamUtils.getParallelDecryptionSize(codec.getConf());
     resetStreamOffset(streamOffset);
   }
   
@@ -152,7 +176,9 @@ public InputStream getWrappedStream() {
    * Decryption is buffer based.
    * If there is data in {@link #outBuffer}, then read it out of this buffer.
    * If there is no data in {@link #outBuffer}, then read more from the 
-   * underlying stream and do the decryption.
+   * underlying stream and do the decryption. The reads of at least
+   * {@link #bufferSize} bytes are decrypted in place in b when the
+   * decryptor supports it.
    * @param b the buffer into which the decrypted data is read.
    * @param off the buffer offset.
    * @param len the maximum number of decrypted data bytes to read.
@@ -175,6 +201,16 @@ public int read(byte[] b, int off, int len) throws IOException {
       int n = Math.min(len, remaining);
       outBuffer.get(b, off, n);
       return n;
+    } else if (inPlaceDecryption && len >= bufferSize) {
+      final int n = in.read(b, off, len);
+      if (n > 0) {
+        decryptInPlace(decryptor, streamOffset, padding, ByteBuffer.wrap(b),
+            off, n, iv);
+        streamOffset += n; // Read n bytes
+        inBuffer.clear();
+        padding = afterDecryption(decryptor, inBuffer, streamOffset, iv);
+      }
+      return n;
     } else {
       int n = 0;
       
@@ -285,6 +321,48 @@ private byte afterDecryption(Decryptor decryptor, ByteBuffer inBuffer,
     return padding;
   }
   
+  /**
+   * Decrypt in place length bytes of buf starting at start, the data at
+   * position in the file. The decryptor must be initialized for the block of
+   * the first byte, at padding in this block. The end of this block is
+   * decrypted through a small array, then the rest of the data with a single
+   * call to the cipher.
+   * {@code buf.position()} and {@code buf.limit()} are unchanged.
+   */
+  private void decryptInPlace(Decryptor decryptor, long position,
+      byte padding, ByteBuffer buf, int start, int length, byte[] iv)
+      throws IOException {
+    final JceCtrCryptoCodec.JceCtrCipher cipher =
+        (JceCtrCryptoCodec.JceCtrCipher) decryptor;
+    final ByteBuffer data = buf.duplicate();
+    data.limit(start + length);
+    data.position(start);
+    if (padding > 0) {
+      final int n = Math.min(length,
+          codec.getCipherSuite().getAlgorithmBlockSize() - padding);
+      final byte[] block = new byte[padding + n];
+      data.get(block, padding, n);
+      cipher.process(block, 0, block.length, block, 0);
+      data.position(start);
+      data.put(block, padding, n);
+      if (data.hasRemaining() && cipher.isContextReset()) {
+        // The rest of the data starts at the next block
+        updateDecryptor(decryptor, position + n, iv);
+      }
+    }
+    if (!data.hasRemaining()) {
+      return;
+    }
+    if (data.hasArray()) {
+      final int offset = data.arrayOffset() + data.position();
+      cipher.process(data.array(), offset, data.remaining(), data.array(),
+          offset);
+    } else {
+      // Cipher#update accepts two views of the same buffer
+      cipher.process(data, data.duplicate());
+    }
+  }
+
   private long getCounter(long position) {
     return position / codec.getCipherSuite().getAlgorithmBlockSize();
   }
@@ -394,6 +472,10 @@ public void readFully(long position, final ByteBuffer buf)
    */
   private void decrypt(long position, byte[] buffer, int offset, int length) 
       throws IOException {
+    if (inPlaceDecryption || isParallelDecryption(length)) {
+      decrypt(position, ByteBuffer.wrap(buffer), length, offset);
+      return;
+    }
     ByteBuffer localInBuffer = null;
     ByteBuffer localOutBuffer = null;
     Decryptor decryptor = null;
@@ -424,6 +506,99 @@ private void decrypt(long position, byte[] buffer, int offset, int length)
     }
   }
 
+  /**
+   * Decrypts the given {@link ByteBuffer} in place. {@code length} bytes are
+   * decrypted from {@code buf} starting at {@code start}.
+   * {@code buf.position()} and {@code buf.limit()} are unchanged after this
+   * method returns. This method is thread-safe.
+   *
+   * @param filePosition the current position of the file being read
+   * @param buf the {@link ByteBuffer} to decrypt
+   * @param length the number of bytes in {@code buf} to decrypt
+   * @param start the position in {@code buf} to start decrypting data from
+   */
+  private void decrypt(long filePosition, ByteBuffer buf, int length, int start)
+      throws IOException {
+    if (isParallelDecryption(length)) {
+      decryptInParallel(filePosition, buf, length, start);
+    } else {
+      decryptChunk(filePosition, buf, length, start);
+    }
+  }
+
+  private boolean isParallelDecryption(int length) {
+    return parallelDecryptionSize > 0 && length > parallelDecryptionSize;
+  }
+
+  /**
+   * Split the data in chunks of at most {@link #parallelDecryptionSize}
+   * bytes and decrypt them in parallel, each with its own decryptor. The
+   * calling thread decrypts the first chunk and waits for the others.
+   */
+  private void decryptInParallel(long filePosition, ByteBuffer buf,
+      int length, int start) throws IOException {
+    final int chunks = (length - 1) / parallelDecryptionSize + 1;
+    final int chunkSize = (length - 1) / chunks + 1;
+    final List<Future<Void>> futures = new ArrayList<>(chunks - 1);
+    for (int offset = chunkSize; offset < length; offset += chunkSize) {
+      final long chunkPosition = filePosition + offset;
+      final int chunkLength = Math.min(chunkSize, length - offset);
+      final int chunkStart = start + offset;
+      futures.add(DecryptionExecutor.EXECUTOR.submit(() -> {
+        decryptChunk(chunkPosition, buf, chunkLength, chunkStart);
+        return null;
+      }));
+    }
+    // Wait for all the chunks before returning the buffer to the caller
+    IOException failure = null;
+    try {
+      decryptChunk(filePosition, buf, chunkSize, start);
+    } catch (IOException e) {
+      failure = e;
+    }
+    for (Future<Void> future : futures) {
+      try {
+        FutureIO.awaitFuture(future);
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /** Decrypt a chunk of a positioned read. It is thread-safe. */
+  private void decryptChunk(long filePosition, ByteBuffer buf, int length,
+      int start) throws IOException {
+    if (!inPlaceDecryption) {
+      decryptWithBuffers(filePosition, buf, length, start);
+      return;
+    }
+    Decryptor localDecryptor = null;
+    try {
+      localDecryptor = getDecryptor();
+      byte[] localIV = initIV.clone();
+      updateDecryptor(localDecryptor, filePosition, localIV);
+      decryptInPlace(localDecryptor, filePosition, getPadding(filePosition),
+          buf, start, length, localIV);
+    } finally {
+      returnDecryptor(localDecryptor);
+    }
+  }
+
+  /** The pool decrypting the chunks of the large positioned reads. */
+  private static final class DecryptionExecutor {
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("CryptoInputStream decryption #%d")
+            .build());
+  }
+
   /**
    * Decrypts the given {@link ByteBuffer} in place. {@code length} bytes are
    * decrypted from {@code buf} starting at {@code start}.
@@ -453,8 +628,8 @@ private void decrypt(long position, byte[] buffer, int offset, int length)
    * @param length the number of bytes in {@code buf} to decrypt
    * @param start the position in {@code buf} to start decrypting data from
    */
-  private void decrypt(long filePosition, ByteBuffer buf, int length, int start)
-          throws IOException {
+  private void decryptWithBuffers(long filePosition, ByteBuffer buf,
+      int length, int start) throws IOException {
     ByteBuffer localInBuffer = null;
     ByteBuffer localOutBuffer = null;
 
@@ -519,6 +694,39 @@ public void readFully(long position, byte[] buffer) throws IOException {
     readFully(position, buffer, 0, buffer.length);
   }
 
+  /**
+   * Vectored read. The ranges are read by the wrapped stream, and each range
+   * is decrypted as soon as its data is available.
+   */
+  @Override
+  public void readVectored(List<? extends FileRange> ranges,
+      IntFunction<ByteBuffer> allocate) throws IOException {
+    checkStream();
+    if (!(in instanceof PositionedReadable)) {
+      throw new UnsupportedOperationException(in.getClass().getCanonicalName()
+          + " does not support vectored reads.");
+    }
+    final List<FileRange> encryptedRanges = new ArrayList<>(ranges.size());
+    for (FileRange range : ranges) {
+      encryptedRanges.add(FileRange.createFileRange(range.getOffset(),
+          range.getLength(), range.getReference()));
+    }
+    ((PositionedReadable) in).readVectored(encryptedRanges, allocate);
+    for (int i = 0; i < ranges.size(); i++) {
+      final long position = ranges.get(i).getOffset();
+      ranges.get(i).setData(encryptedRanges.get(i).getData().thenApply(
+          buffer -> {
+            try {
+              decrypt(position, buffer, buffer.remaining(),
+                  buffer.position());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            return buffer;
+          }));
+    }
+  }
+
   /** Seek to a position. */
   @Override
   public void seek(long pos) throws IOException {
@@ -644,10 +852,17 @@ public int read(ByteBuffer buf) throws IOException {
    * {@code buf.position()} and {@code buf.limit()} are unchanged after this
    * method returns.
    *
-   * @see #decrypt(long, ByteBuffer, int, int)
+   * @see #decryptWithBuffers(long, ByteBuffer, int, int)
    */
   private void decrypt(ByteBuffer buf, int length, int start)
       throws IOException {
+    if (inPlaceDecryption) {
+      decryptInPlace(decryptor, streamOffset - length, padding, buf, start,
+          length, iv);
+      inBuffer.clear();
+      padding = afterDecryption(decryptor, inBuffer, streamOffset, iv);
+      return;
+    }
     buf = buf.duplicate();
     int decryptedBytes = 0;
     while (decryptedBytes < length) {
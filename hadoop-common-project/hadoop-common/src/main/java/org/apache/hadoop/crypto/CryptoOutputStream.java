@@ -57,6 +57,11 @@ public class CryptoOutputStream extends FilterOutputStream implements
   private final CryptoCodec codec;
   private final Encryptor encryptor;
   private final int bufferSize;
+  /**
+   * Whether the encryptor can read the data from the arrays of the callers,
+   * without copying it to {@link #inBuffer}.
+   */
+  private final boolean arrayEncryption;
   
   /**
    * Input data buffer. The data starts at inBuffer.position() and ends at 
@@ -114,6 +119,7 @@ public CryptoOutputStream(OutputStream out, CryptoCodec codec,
     } catch (GeneralSecurityException e) {
       throw new IOException(e);
     }
+    arrayEncryption = encryptor instanceof JceCtrCryptoCodec.JceCtrCipher;
     updateEncryptor();
   }
   
@@ -142,7 +148,9 @@ public OutputStream getWrappedStream() {
    * Encryption is buffer based.
    * If there is enough room in {@link #inBuffer}, then write to this buffer.
    * If {@link #inBuffer} is full, then do encryption and write data to the
-   * underlying stream.
+   * underlying stream. When {@link #inBuffer} is empty, without padding, and
+   * the encryptor supports it, the full buffers of data are encrypted
+   * straight from b.
    * @param b the data.
    * @param off the start offset in the data.
    * @param len the number of bytes to write.
@@ -162,6 +170,10 @@ public synchronized void write(byte[] b, int off, int len) throws IOException {
       if (len < remaining) {
         inBuffer.put(b, off, len);
         len = 0;
+      } else if (arrayEncryption && inBuffer.position() == 0) {
+        encrypt(b, off, remaining);
+        off += remaining;
+        len -= remaining;
       } else {
         inBuffer.put(b, off, remaining);
         off += remaining;
@@ -216,6 +228,25 @@ private void encrypt() throws IOException {
     }
   }
   
+  /**
+   * Encrypt len bytes of b, at most {@link #bufferSize}, and write them to
+   * the underlying stream. {@link #inBuffer} must not hold any data or
+   * padding.
+   */
+  private void encrypt(byte[] b, int off, int len) throws IOException {
+    final JceCtrCryptoCodec.JceCtrCipher cipher =
+        (JceCtrCryptoCodec.JceCtrCipher) encryptor;
+    final byte[] tmp = getTmpBuf();
+    cipher.process(b, off, len, tmp, 0);
+    out.write(tmp, 0, len);
+
+    streamOffset += len;
+    if (encryptor.isContextReset()) {
+      // See encrypt()
+      updateEncryptor();
+    }
+  }
+
   /** Update the {@link #encryptor}: calculate counter and {@link #padding}. */
   private void updateEncryptor() throws IOException {
     final long counter =
@@ -19,6 +19,8 @@
 
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_BUFFER_SIZE_DEFAULT;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_BUFFER_SIZE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_KEY;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -67,6 +69,20 @@ public static int getBufferSize(Configuration conf) {
         HADOOP_SECURITY_CRYPTO_BUFFER_SIZE_DEFAULT);
   }
 
+  /**
+   * Read the size above which the positioned reads are decrypted in parallel.
+   *
+   * @param conf configuration, may be null.
+   * @return hadoop.security.crypto.parallel.decryption.size.
+   */
+  public static int getParallelDecryptionSize(Configuration conf) {
+    if (conf == null) {
+      return HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_DEFAULT;
+    }
+    return conf.getInt(HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_KEY,
+        HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_DEFAULT);
+  }
+
   /**
    * AES/CTR/NoPadding or SM4/CTR/NoPadding is required.
    *
@@ -167,6 +167,35 @@ public void process(ByteBuffer inBuffer, ByteBuffer outBuffer)
       }
     }
 
+    /**
+     * Encrypt or decrypt a range of a byte array. The input and the output
+     * can be the same array: the data is then processed in place. The AES
+     * intrinsics of the JVM work on arrays, so large ranges are processed
+     * without the intermediate copies of the {@link ByteBuffer} variant.
+     *
+     * @param input the input array.
+     * @param inputOffset the offset of the data in the input array.
+     * @param length the number of bytes to process.
+     * @param output the output array.
+     * @param outputOffset the offset of the result in the output array.
+     * @throws IOException if the cipher fails.
+     */
+    public void process(byte[] input, int inputOffset, int length,
+        byte[] output, int outputOffset) throws IOException {
+      try {
+        // Cipher#update will maintain crypto context.
+        int n = cipher.update(input, inputOffset, length, output,
+            outputOffset);
+        if (n < length) {
+          // See process(ByteBuffer, ByteBuffer)
+          contextReset = true;
+          cipher.doFinal(output, outputOffset + n);
+        }
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    }
+
     public boolean isContextReset() {
       return contextReset;
     }
@@ -184,6 +184,25 @@ public class CommonConfigurationKeys extends CommonConfigurationKeysPublic {
   public static final boolean IO_COMPRESSION_CODEC_LZ4_USELZ4HC_DEFAULT =
       false;
 
+  /**
+   * Number of blocks of a gzip or zstd output stream compressed in parallel,
+   * 0 to compress on the writer thread. The blocks of all the streams are
+   * compressed by a shared pool with one thread per processor.
+   */
+  public static final String IO_COMPRESSION_CODEC_PARALLEL_THREADS_KEY =
+      "io.compression.codec.parallel.threads";
+
+  /** Default value for IO_COMPRESSION_CODEC_PARALLEL_THREADS_KEY. */
+  public static final int IO_COMPRESSION_CODEC_PARALLEL_THREADS_DEFAULT = 0;
+
+  /** Size of the blocks of uncompressed data compressed in parallel. */
+  public static final String IO_COMPRESSION_CODEC_PARALLEL_BLOCK_SIZE_KEY =
+      "io.compression.codec.parallel.block.size";
+
+  /** Default value for IO_COMPRESSION_CODEC_PARALLEL_BLOCK_SIZE_KEY. */
+  public static final int IO_COMPRESSION_CODEC_PARALLEL_BLOCK_SIZE_DEFAULT =
+      1024 * 1024;
+
 
 
   /**
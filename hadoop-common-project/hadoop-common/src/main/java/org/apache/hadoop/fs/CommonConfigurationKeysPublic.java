@@ -372,6 +372,24 @@ public class CommonConfigurationKeysPublic {
     "tfile.fs.output.buffer.size";
   /** Default value for TFILE_FS_OUTPUT_BUFFER_SIZE_KEY */
   public static final int     TFILE_FS_OUTPUT_BUFFER_SIZE_DEFAULT = 256*1024;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String  TFILE_FS_READAHEAD_SIZE_KEY =
+    "tfile.fs.readahead.size";
+  /** Default value for TFILE_FS_READAHEAD_SIZE_KEY */
+  public static final int     TFILE_FS_READAHEAD_SIZE_DEFAULT = 0;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String  TFILE_INDEX_CACHE_SIZE_KEY =
+    "tfile.index.cache.size";
+  /** Default value for TFILE_INDEX_CACHE_SIZE_KEY */
+  public static final int     TFILE_INDEX_CACHE_SIZE_DEFAULT = 0;
 
   public static final String  HADOOP_CALLER_CONTEXT_ENABLED_KEY =
       "hadoop.caller.context.enabled";
@@ -614,6 +632,50 @@ public class CommonConfigurationKeysPublic {
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
    * core-default.xml</a>
    */
+  public static final String
+      HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE =
+          "hadoop.security.groups.cache.background.reload.batch.size";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final int
+      HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE_DEFAULT = 1;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_FILE =
+      "hadoop.security.groups.cache.snapshot.file";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String
+      HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_FILE_DEFAULT = "";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String
+      HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_INTERVAL_SECS =
+          "hadoop.security.groups.cache.snapshot.interval.secs";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final long
+      HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_INTERVAL_SECS_DEFAULT = 300;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
   public static final String HADOOP_SECURITY_GROUP_SHELL_COMMAND_TIMEOUT_KEY =
       "hadoop.security.groups.shell.command.timeout";
   /**
@@ -789,6 +851,17 @@ public class CommonConfigurationKeysPublic {
     "hadoop.security.crypto.buffer.size";
   /** Defalt value for HADOOP_SECURITY_CRYPTO_BUFFER_SIZE_KEY */
   public static final int HADOOP_SECURITY_CRYPTO_BUFFER_SIZE_DEFAULT = 8192;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String
+      HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_KEY =
+      "hadoop.security.crypto.parallel.decryption.size";
+  /** Default value for HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_KEY. */
+  public static final int
+      HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_DEFAULT = 0;
   /** Class to override Impersonation provider */
   public static final String  HADOOP_SECURITY_IMPERSONATION_PROVIDER_CLASS =
     "hadoop.security.impersonation.provider.class";
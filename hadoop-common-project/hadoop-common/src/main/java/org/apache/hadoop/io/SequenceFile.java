@@ -23,6 +23,11 @@
 import java.util.*;
 import java.rmi.server.UID;
 import java.security.MessageDigest;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.util.Options;
@@ -48,6 +53,7 @@
 import org.apache.hadoop.util.MergeSort;
 import org.apache.hadoop.util.PriorityQueue;
 import org.apache.hadoop.util.Time;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -721,6 +727,132 @@ public void writeCompressedBytes(DataOutputStream outStream)
     }
 
   } // CompressedBytes
+
+  /**
+   * Reusable buffers with the raw keys and values of a batch of records,
+   * read with {@link Reader#nextBatch(RecordBatch)}. The keys and the values
+   * are stored uncompressed and contiguously, the record <i>i</i> is a range
+   * of {@link #getKeyData()} and a range of {@link #getValueData()}.
+   */
+  public static class RecordBatch {
+    /** Default maximum number of records in a batch. */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** Default number of bytes after which a batch is full. */
+    public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    private final int capacity;
+    private final int maxBytes;
+    private final DataOutputBuffer keys = new DataOutputBuffer();
+    private final DataOutputBuffer values = new DataOutputBuffer();
+    /** End offset of each key and value. */
+    private final int[] keyEnds;
+    private final int[] valueEnds;
+    private int size;
+
+    public RecordBatch() {
+      this(DEFAULT_CAPACITY, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param capacity maximum number of records in the batch.
+     * @param maxBytes number of bytes of keys and values after which the
+     *                 batch is full, a single record can be larger.
+     */
+    public RecordBatch(int capacity, int maxBytes) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException(
+            "Invalid batch capacity " + capacity);
+      }
+      this.capacity = capacity;
+      this.maxBytes = maxBytes;
+      this.keyEnds = new int[capacity];
+      this.valueEnds = new int[capacity];
+    }
+
+    /** @return the number of records in the batch. */
+    public int size() {
+      return size;
+    }
+
+    /** @return the buffer with the keys of the records. */
+    public byte[] getKeyData() {
+      return keys.getData();
+    }
+
+    /**
+     * @param i index of the record.
+     * @return offset of the key of the record in {@link #getKeyData()}.
+     */
+    public int getKeyOffset(int i) {
+      return i == 0 ? 0 : keyEnds[i - 1];
+    }
+
+    /**
+     * @param i index of the record.
+     * @return length of the key of the record.
+     */
+    public int getKeyLength(int i) {
+      return keyEnds[i] - getKeyOffset(i);
+    }
+
+    /** @return the buffer with the values of the records. */
+    public byte[] getValueData() {
+      return values.getData();
+    }
+
+    /**
+     * @param i index of the record.
+     * @return offset of the value of the record in {@link #getValueData()}.
+     */
+    public int getValueOffset(int i) {
+      return i == 0 ? 0 : valueEnds[i - 1];
+    }
+
+    /**
+     * @param i index of the record.
+     * @return length of the value of the record.
+     */
+    public int getValueLength(int i) {
+      return valueEnds[i] - getValueOffset(i);
+    }
+
+    /**
+     * Set a buffer to deserialize the key of a record.
+     * @param i index of the record.
+     * @param key the buffer to reset to the key.
+     */
+    public void getKey(int i, DataInputBuffer key) {
+      key.reset(getKeyData(), getKeyOffset(i), getKeyLength(i));
+    }
+
+    /**
+     * Set a buffer to deserialize the value of a record.
+     * @param i index of the record.
+     * @param value the buffer to reset to the value.
+     */
+    public void getValue(int i, DataInputBuffer value) {
+      value.reset(getValueData(), getValueOffset(i), getValueLength(i));
+    }
+
+    /** Remove all the records. */
+    public void clear() {
+      keys.reset();
+      values.reset();
+      size = 0;
+    }
+
+    private boolean isFull() {
+      return size == capacity ||
+          keys.getLength() + values.getLength() >= maxBytes;
+    }
+
+    /** Mark the end of the key and the value of a new record. */
+    private void addRecord() {
+      keyEnds[size] = keys.getLength();
+      valueEnds[size] = values.getLength();
+      size++;
+    }
+  } // RecordBatch
   
   /**
    * The class encapsulating with the metadata of a file.
@@ -1744,6 +1876,7 @@ public static class Reader implements java.io.Closeable {
     private String filename;
     private FSDataInputStream in;
     private DataOutputBuffer outBuf = new DataOutputBuffer();
+    private byte[] batchBuffer = null;
 
     private byte version;
 
@@ -2789,6 +2922,99 @@ public synchronized int nextRawValue(ValueBytes val)
       
     }
 
+    /**
+     * Read the next records in a batch, with their raw keys and uncompressed
+     * values. With block compression, a batch holds records of a single block
+     * whose keys and values are decompressed in bulk. The per record methods
+     * like {@link #getCurrentValue(Writable)} must not be used on the records
+     * read in a batch.
+     * @param batch the batch to read the records into, it is cleared first.
+     * @return the number of records read, 0 at end of file.
+     * @throws IOException raised on errors performing I/O.
+     */
+    public synchronized int nextBatch(RecordBatch batch) throws IOException {
+      batch.clear();
+      if (blockCompressed) {
+        syncSeen = false;
+        if (noBufferedKeys == 0) {
+          if (in.getPos() >= end) {
+            return 0;
+          }
+          try {
+            readBlock();
+          } catch (EOFException eof) {
+            return 0;
+          }
+        }
+        readBlockBatch(batch);
+      } else {
+        while (!batch.isFull()) {
+          int length = readRecordLength();
+          if (length == -1) {
+            break;
+          }
+          int keyLength = in.readInt();
+          int valLength = length - keyLength;
+          batch.keys.write(in, keyLength);
+          if (decompress) {
+            // Decompress the value of the record
+            outBuf.reset();
+            outBuf.write(in, valLength);
+            valBuffer.reset(outBuf.getData(), 0, valLength);
+            valInFilter.resetState();
+            if (batchBuffer == null) {
+              batchBuffer = new byte[8192];
+            }
+            int read;
+            while ((read = valIn.read(batchBuffer)) > 0) {
+              batch.values.write(batchBuffer, 0, read);
+            }
+          } else {
+            batch.values.write(in, valLength);
+          }
+          batch.addRecord();
+        }
+      }
+      return batch.size();
+    }
+
+    /** Read the buffered records of the current block in a batch. */
+    private void readBlockBatch(RecordBatch batch) throws IOException {
+      // Decompress the values and skip the ones of the keys already read
+      if (lazyDecompress && !valuesDecompressed) {
+        readBuffer(valLenBuffer, valLenInFilter);
+        readBuffer(valBuffer, valInFilter);
+        noBufferedValues = noBufferedRecords;
+        valuesDecompressed = true;
+      }
+      int skipValBytes = 0;
+      for (; noBufferedValues > noBufferedKeys; --noBufferedValues) {
+        skipValBytes += WritableUtils.readVInt(valLenIn);
+      }
+      if (valIn.skipBytes(skipValBytes) != skipValBytes) {
+        throw new IOException("Failed to skip the read values!");
+      }
+
+      int count = Math.min(noBufferedKeys, batch.capacity);
+      int keyBytes = 0;
+      int valBytes = 0;
+      for (int i = 0; i < count; i++) {
+        int keyLength = WritableUtils.readVInt(keyLenIn);
+        if (keyLength < 0) {
+          throw new IOException("zero length key found!");
+        }
+        keyBytes += keyLength;
+        batch.keyEnds[i] = keyBytes;
+        valBytes += WritableUtils.readVInt(valLenIn);
+        batch.valueEnds[i] = valBytes;
+      }
+      batch.keys.write(keyIn, keyBytes);
+      batch.values.write(valIn, valBytes);
+      batch.size = count;
+      noBufferedKeys -= count;
+      noBufferedValues -= count;
+    }
+
     private void handleChecksumException(ChecksumException e)
       throws IOException {
       if (this.conf.getBoolean(
@@ -2882,6 +3108,106 @@ public String toString() {
 
   }
 
+  /**
+   * Reads the records of a {@link Reader} in {@link RecordBatch}es, optionally
+   * reading and decompressing the next batch in a background thread while the
+   * current batch is processed.
+   */
+  public static class BatchReader implements java.io.Closeable {
+    private final Reader reader;
+    private final ExecutorService executor;
+    private RecordBatch current;
+    private RecordBatch next;
+    private Future<RecordBatch> pending;
+
+    /**
+     * @param reader the reader of the records, closed with this reader.
+     * @param prefetch if the next batch is read in a background thread.
+     */
+    public BatchReader(Reader reader, boolean prefetch) {
+      this(reader, new RecordBatch(), new RecordBatch(), prefetch);
+    }
+
+    /**
+     * @param reader the reader of the records, closed with this reader.
+     * @param first the first batch to read the records into.
+     * @param second the second batch, used when prefetching.
+     * @param prefetch if the next batch is read in a background thread.
+     */
+    public BatchReader(Reader reader, RecordBatch first, RecordBatch second,
+        boolean prefetch) {
+      this.reader = reader;
+      this.current = first;
+      this.next = second;
+      this.executor = prefetch ? Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              // the name is a format, escape the '%' of the file name
+              .setNameFormat("SequenceFile prefetch "
+                  + reader.toString().replace("%", "%%"))
+              .build()) : null;
+    }
+
+    /**
+     * Read the next batch of records. The batch returned before is reused,
+     * the caller must be done with it.
+     * @return the next batch or null at end of file.
+     * @throws IOException raised on errors performing I/O.
+     */
+    public RecordBatch next() throws IOException {
+      if (executor == null) {
+        return reader.nextBatch(current) > 0 ? current : null;
+      }
+      if (pending == null) {
+        pending = prefetch(current);
+      }
+      RecordBatch batch;
+      try {
+        batch = pending.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw (IOException) new InterruptedIOException(
+            "Interrupted reading " + reader).initCause(e);
+      } catch (ExecutionException e) {
+        pending = null;
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException(cause);
+      }
+      if (batch.size() == 0) {
+        return null;
+      }
+      // Read the next batch while the caller processes this one
+      RecordBatch free = batch == current ? next : current;
+      pending = prefetch(free);
+      return batch;
+    }
+
+    private Future<RecordBatch> prefetch(RecordBatch batch) {
+      return executor.submit(() -> {
+        reader.nextBatch(batch);
+        return batch;
+      });
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (executor != null) {
+        // Do not interrupt the reads, it may close the input stream
+        executor.shutdown();
+        try {
+          // Wait for the read in progress before closing the reader
+          executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      reader.close();
+    }
+  }
+
   /** Sorts key/value pairs in a sequence-format file.
    *
    * <p>For best performance, applications should make sure that the {@link
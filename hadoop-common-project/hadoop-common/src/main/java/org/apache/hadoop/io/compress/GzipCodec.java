@@ -44,6 +44,9 @@ public class GzipCodec extends DefaultCodec {
   @Override
   public CompressionOutputStream createOutputStream(OutputStream out) 
     throws IOException {
+    if (ParallelCompressorStream.isEnabled(conf)) {
+      return new ParallelCompressorStream(this, conf, out);
+    }
     return CompressionCodec.Util.
         createOutputStreamWithCodecPool(this, conf, out);
   }
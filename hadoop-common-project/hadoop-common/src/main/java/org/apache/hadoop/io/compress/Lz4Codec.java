@@ -31,7 +31,8 @@
 /**
  * This class creates lz4 compressors/decompressors.
  */
-public class Lz4Codec implements Configurable, CompressionCodec {
+public class Lz4Codec implements Configurable, CompressionCodec,
+    DirectDecompressionCodec {
 
   Configuration conf;
 
@@ -184,4 +185,12 @@ public Decompressor createDecompressor() {
   public String getDefaultExtension() {
     return CodecConstants.LZ4_CODEC_EXTENSION;
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectDecompressor createDirectDecompressor() {
+    return new Lz4Decompressor.Lz4DirectDecompressor();
+  }
 }
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link CompressionOutputStream} compressing on a pool of threads. The
+ * data is split in blocks which are compressed as independent streams of the
+ * codec and written in order. This is only valid for the formats where the
+ * concatenation of streams is a stream, like gzip members and zstd frames.
+ *
+ * The blocks of all the streams are compressed by a shared pool with one
+ * thread per processor, a stream has at most twice its configured number of
+ * threads of blocks in flight. {@link #flush()} compresses the current block
+ * even if it is not full.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class ParallelCompressorStream extends CompressionOutputStream {
+
+  private final CompressionCodec codec;
+  private final Configuration conf;
+  private final int threads;
+  private final int blockSize;
+  /** Blocks being compressed, in the order of the data. */
+  private final Deque<PendingBlock> pending = new ArrayDeque<>();
+  /** Blocks already compressed, reused for the next ones. */
+  private final Deque<byte[]> freeBlocks = new ArrayDeque<>();
+  private byte[] block;
+  private int blockLen;
+  /** If a block was written since the creation or the last reset. */
+  private boolean written;
+  private boolean closed;
+
+  /**
+   * @param conf configuration.
+   * @return if the codecs compress their output streams in parallel.
+   */
+  public static boolean isEnabled(Configuration conf) {
+    return conf != null && conf.getInt(
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_PARALLEL_THREADS_KEY,
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_PARALLEL_THREADS_DEFAULT)
+        > 0;
+  }
+
+  public ParallelCompressorStream(CompressionCodec codec, Configuration conf,
+      OutputStream out) {
+    super(out);
+    this.codec = codec;
+    this.conf = conf;
+    this.threads = conf.getInt(
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_PARALLEL_THREADS_KEY,
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_PARALLEL_THREADS_DEFAULT);
+    this.blockSize = conf.getInt(
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_PARALLEL_BLOCK_SIZE_KEY,
+        CommonConfigurationKeys
+            .IO_COMPRESSION_CODEC_PARALLEL_BLOCK_SIZE_DEFAULT);
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Illegal number of threads "
+          + threads);
+    }
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Illegal block size " + blockSize);
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    checkOpen();
+    if (block == null) {
+      block = newBlock();
+    }
+    block[blockLen++] = (byte) b;
+    if (blockLen == blockSize) {
+      submitBlock();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    checkOpen();
+    if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (len > 0) {
+      if (block == null) {
+        block = newBlock();
+      }
+      int n = Math.min(len, blockSize - blockLen);
+      System.arraycopy(b, off, block, blockLen, n);
+      blockLen += n;
+      off += n;
+      len -= n;
+      if (blockLen == blockSize) {
+        submitBlock();
+      }
+    }
+  }
+
+  /**
+   * Compress the current block and write all the compressed blocks.
+   */
+  @Override
+  public void flush() throws IOException {
+    checkOpen();
+    if (blockLen > 0) {
+      submitBlock();
+    }
+    writeCompressed(0);
+    out.flush();
+  }
+
+  @Override
+  public void finish() throws IOException {
+    checkOpen();
+    if (blockLen > 0 || !written) {
+      // An empty stream is still a valid stream of the codec
+      submitBlock();
+    }
+    writeCompressed(0);
+  }
+
+  @Override
+  public void resetState() throws IOException {
+    // The blocks do not share state
+    written = false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      super.close();
+    } finally {
+      closed = true;
+      // Do not interrupt the shared threads, the running blocks complete
+      for (PendingBlock pendingBlock : pending) {
+        pendingBlock.compressed.cancel(false);
+      }
+      pending.clear();
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private byte[] newBlock() {
+    byte[] newBlock = freeBlocks.pollFirst();
+    return newBlock != null ? newBlock : new byte[blockSize];
+  }
+
+  private void submitBlock() throws IOException {
+    final byte[] data = block != null ? block : newBlock();
+    final int len = blockLen;
+    pending.addLast(new PendingBlock(data,
+        CompressionExecutor.EXECUTOR.submit(() -> compress(data, len))));
+    block = null;
+    blockLen = 0;
+    written = true;
+    // Bound the memory used by the blocks waiting to be written
+    writeCompressed(2 * threads);
+  }
+
+  /**
+   * Compress a block as a complete stream of the codec.
+   */
+  private byte[] compress(byte[] data, int len) throws IOException {
+    Compressor compressor = CodecPool.getCompressor(codec, conf);
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(len / 2 + 64);
+      CompressionOutputStream stream =
+          codec.createOutputStream(bytes, compressor);
+      stream.write(data, 0, len);
+      stream.finish();
+      return bytes.toByteArray();
+    } finally {
+      CodecPool.returnCompressor(compressor);
+    }
+  }
+
+  /**
+   * Write the compressed blocks in order until at most maxPending blocks are
+   * left.
+   */
+  private void writeCompressed(int maxPending) throws IOException {
+    while (pending.size() > maxPending) {
+      PendingBlock pendingBlock = pending.peekFirst();
+      byte[] compressed;
+      try {
+        compressed = pendingBlock.compressed.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "Interrupted waiting for a compressed block");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        throw cause instanceof IOException ? (IOException) cause
+            : new IOException("Cannot compress a block", cause);
+      }
+      pending.removeFirst();
+      freeBlocks.addLast(pendingBlock.data);
+      out.write(compressed);
+    }
+  }
+
+  /**
+   * The threads shared by all the streams, created on the first use. They are
+   * daemon threads, so the pool is never shut down.
+   */
+  private static final class CompressionExecutor {
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("Parallel compressor #%d")
+            .build());
+  }
+
+  /** A block of data and its compression. */
+  private static final class PendingBlock {
+    private final byte[] data;
+    private final Future<byte[]> compressed;
+
+    PendingBlock(byte[] data, Future<byte[]> compressed) {
+      this.data = data;
+      this.compressed = compressed;
+    }
+  }
+}
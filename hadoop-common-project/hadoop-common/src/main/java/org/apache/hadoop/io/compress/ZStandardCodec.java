@@ -23,6 +23,8 @@
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.io.compress.zstd.ZStandardCompressor;
 import org.apache.hadoop.io.compress.zstd.ZStandardDecompressor;
+import org.apache.hadoop.io.compress.zstd.ZStandardJniCompressor;
+import org.apache.hadoop.io.compress.zstd.ZStandardJniDecompressor;
 import org.apache.hadoop.util.NativeCodeLoader;
 
 import java.io.IOException;
@@ -33,7 +35,9 @@
 import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_BUFFER_SIZE_KEY;
 
 /**
- * This class creates zstd compressors/decompressors.
+ * This class creates zstd compressors/decompressors. They use libhadoop when
+ * it was built with zstd, and the zstd-jni library otherwise. Both write the
+ * same zstd frames.
  */
 public class ZStandardCodec implements
     Configurable, CompressionCodec, DirectDecompressionCodec  {
@@ -81,6 +85,34 @@ public static boolean isNativeCodeLoaded() {
         && ZStandardDecompressor.isNativeCodeLoaded();
   }
 
+  /**
+   * @return if zstd can be used, through libhadoop or the zstd-jni library.
+   */
+  public static boolean isAvailable() {
+    return isNativeCodeLoaded() || ZStandardJniCompressor.isLoaded();
+  }
+
+  /**
+   * Check that zstd is available.
+   *
+   * @return true to use libhadoop, false to use the zstd-jni library.
+   */
+  private static boolean useNativeCode() {
+    if (isNativeCodeLoaded()) {
+      return true;
+    }
+    if (ZStandardJniCompressor.isLoaded()) {
+      return false;
+    }
+    try {
+      checkNativeCodeLoaded();
+    } catch (RuntimeException e) {
+      throw new RuntimeException(e.getMessage() + " The zstd-jni library is"
+          + " not in the classpath either.", e);
+    }
+    return true;
+  }
+
   public static String getLibraryName() {
     return ZStandardCompressor.getLibraryName();
   }
@@ -93,16 +125,22 @@ public static int getCompressionLevel(Configuration conf) {
 
   public static int getCompressionBufferSize(Configuration conf) {
     int bufferSize = getBufferSize(conf);
-    return bufferSize == 0 ?
+    if (bufferSize != 0) {
+      return bufferSize;
+    }
+    return useNativeCode() ?
         ZStandardCompressor.getRecommendedBufferSize() :
-        bufferSize;
+        ZStandardJniCompressor.getRecommendedBufferSize();
   }
 
   public static int getDecompressionBufferSize(Configuration conf) {
     int bufferSize = getBufferSize(conf);
-    return bufferSize == 0 ?
+    if (bufferSize != 0) {
+      return bufferSize;
+    }
+    return useNativeCode() ?
         ZStandardDecompressor.getRecommendedBufferSize() :
-        bufferSize;
+        ZStandardJniDecompressor.getRecommendedBufferSize();
   }
 
   private static int getBufferSize(Configuration conf) {
@@ -121,6 +159,9 @@ private static int getBufferSize(Configuration conf) {
   @Override
   public CompressionOutputStream createOutputStream(OutputStream out)
       throws IOException {
+    if (ParallelCompressorStream.isEnabled(conf)) {
+      return new ParallelCompressorStream(this, conf, out);
+    }
     return Util.
         createOutputStreamWithCodecPool(this, conf, out);
   }
@@ -138,7 +179,7 @@ public CompressionOutputStream createOutputStream(OutputStream out)
   public CompressionOutputStream createOutputStream(OutputStream out,
       Compressor compressor)
       throws IOException {
-    checkNativeCodeLoaded();
+    useNativeCode();
     return new CompressorStream(out, compressor,
         getCompressionBufferSize(conf));
   }
@@ -150,8 +191,8 @@ public CompressionOutputStream createOutputStream(OutputStream out,
    */
   @Override
   public Class<? extends Compressor> getCompressorType() {
-    checkNativeCodeLoaded();
-    return ZStandardCompressor.class;
+    return useNativeCode() ?
+        ZStandardCompressor.class : ZStandardJniCompressor.class;
   }
 
   /**
@@ -161,8 +202,11 @@ public Class<? extends Compressor> getCompressorType() {
    */
   @Override
   public Compressor createCompressor() {
-    checkNativeCodeLoaded();
-    return new ZStandardCompressor(
+    if (useNativeCode()) {
+      return new ZStandardCompressor(
+          getCompressionLevel(conf), getCompressionBufferSize(conf));
+    }
+    return new ZStandardJniCompressor(
         getCompressionLevel(conf), getCompressionBufferSize(conf));
   }
 
@@ -195,7 +239,7 @@ public CompressionInputStream createInputStream(InputStream in)
   public CompressionInputStream createInputStream(InputStream in,
                                                   Decompressor decompressor)
       throws IOException {
-    checkNativeCodeLoaded();
+    useNativeCode();
     return new DecompressorStream(in, decompressor,
         getDecompressionBufferSize(conf));
   }
@@ -208,8 +252,8 @@ public CompressionInputStream createInputStream(InputStream in,
    */
   @Override
   public Class<? extends Decompressor> getDecompressorType() {
-    checkNativeCodeLoaded();
-    return ZStandardDecompressor.class;
+    return useNativeCode() ?
+        ZStandardDecompressor.class : ZStandardJniDecompressor.class;
   }
 
   /**
@@ -219,8 +263,10 @@ public Class<? extends Decompressor> getDecompressorType() {
    */
   @Override
   public Decompressor createDecompressor() {
-    checkNativeCodeLoaded();
-    return new ZStandardDecompressor(getDecompressionBufferSize(conf));
+    if (useNativeCode()) {
+      return new ZStandardDecompressor(getDecompressionBufferSize(conf));
+    }
+    return new ZStandardJniDecompressor(getDecompressionBufferSize(conf));
   }
 
   /**
@@ -235,7 +281,12 @@ public String getDefaultExtension() {
 
   @Override
   public DirectDecompressor createDirectDecompressor() {
-    return new ZStandardDecompressor.ZStandardDirectDecompressor(
+    if (useNativeCode()) {
+      return new ZStandardDecompressor.ZStandardDirectDecompressor(
+          getDecompressionBufferSize(conf)
+      );
+    }
+    return new ZStandardJniDecompressor.ZStandardJniDirectDecompressor(
         getDecompressionBufferSize(conf)
     );
   }
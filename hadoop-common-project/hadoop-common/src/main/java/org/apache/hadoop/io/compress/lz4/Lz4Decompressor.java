@@ -26,6 +26,7 @@
 import net.jpountz.lz4.LZ4SafeDecompressor;
 
 import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.DirectDecompressor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -284,4 +285,57 @@ private int decompressDirectBuf() {
       return size;
     }
   }
+
+  int decompressDirect(ByteBuffer src, ByteBuffer dst) {
+    assert (this instanceof Lz4DirectDecompressor);
+
+    int originalPosition = dst.position();
+    // LZ4 always consumes the whole block or throws an exception
+    lz4Decompressor.decompress(src, dst);
+    finished = true;
+    return dst.position() - originalPosition;
+  }
+
+  /**
+   * A {@link DirectDecompressor} for LZ4 blocks. lz4-java reads and writes
+   * the buffers in place.
+   */
+  public static class Lz4DirectDecompressor extends Lz4Decompressor
+      implements DirectDecompressor {
+
+    @Override
+    public synchronized boolean finished() {
+      return (endOfInput && super.finished());
+    }
+
+    @Override
+    public synchronized void reset() {
+      super.reset();
+      endOfInput = true;
+    }
+
+    private boolean endOfInput;
+
+    @Override
+    public synchronized void decompress(ByteBuffer src, ByteBuffer dst)
+        throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      assert dst.remaining() > 0 : "dst.remaining() > 0";
+      this.decompressDirect(src, dst);
+      endOfInput = !src.hasRemaining();
+    }
+
+    @Override
+    public synchronized void setDictionary(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectDecompressor");
+    }
+
+    @Override
+    public synchronized int decompress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectDecompressor");
+    }
+  }
 }
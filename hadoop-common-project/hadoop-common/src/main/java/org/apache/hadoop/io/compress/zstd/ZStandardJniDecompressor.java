@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io.compress.zstd;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.DirectDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Decompressor} based on the zStandard compression algorithm using
+ * the zstd-jni library, which does not need libhadoop.
+ * https://github.com/luben/zstd-jni
+ */
+public class ZStandardJniDecompressor implements Decompressor {
+
+  private ZstdDecompressCtx ctx;
+  /** Input not decompressed yet, in read mode. */
+  private ByteBuffer compressedDirectBuf = null;
+  /** Output not returned yet, in read mode. */
+  private ByteBuffer uncompressedDirectBuf = null;
+  private byte[] userBuf = null;
+  private int userBufOff = 0, userBufferBytesToConsume = 0;
+  private boolean finished;
+
+  public static int getRecommendedBufferSize() {
+    return (int) ZstdInputStreamNoFinalizer.recommendedDOutSize();
+  }
+
+  public ZStandardJniDecompressor() {
+    this(getRecommendedBufferSize());
+  }
+
+  /**
+   * Creates a new decompressor.
+   * @param bufferSize bufferSize.
+   */
+  public ZStandardJniDecompressor(int bufferSize) {
+    compressedDirectBuf = ByteBuffer.allocateDirect(bufferSize);
+    uncompressedDirectBuf = ByteBuffer.allocateDirect(bufferSize);
+    ctx = new ZstdDecompressCtx();
+    reset();
+  }
+
+  @Override
+  public void setInput(byte[] b, int off, int len) {
+    if (b == null) {
+      throw new NullPointerException();
+    }
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+
+    this.userBuf = b;
+    this.userBufOff = off;
+    this.userBufferBytesToConsume = len;
+
+    setInputFromSavedData();
+  }
+
+  private void setInputFromSavedData() {
+    compressedDirectBuf.compact();
+    int len = Math.min(userBufferBytesToConsume,
+        compressedDirectBuf.remaining());
+    compressedDirectBuf.put(userBuf, userBufOff, len);
+    compressedDirectBuf.flip();
+
+    userBufOff += len;
+    userBufferBytesToConsume -= len;
+  }
+
+  // dictionary is not supported
+  @Override
+  public void setDictionary(byte[] b, int off, int len) {
+    throw new UnsupportedOperationException(
+        "Dictionary support is not enabled");
+  }
+
+  @Override
+  public boolean needsInput() {
+    // Consume remaining compressed data?
+    if (uncompressedDirectBuf.remaining() > 0) {
+      return false;
+    }
+
+    // Check if we have consumed all input
+    if (compressedDirectBuf.remaining() <= 0) {
+      // Check if we have consumed all user-input
+      if (userBufferBytesToConsume <= 0) {
+        return true;
+      } else {
+        setInputFromSavedData();
+      }
+    }
+    return false;
+  }
+
+  // dictionary is not supported.
+  @Override
+  public boolean needsDictionary() {
+    return false;
+  }
+
+  @Override
+  public boolean finished() {
+    // finished == true at the end of a frame, also check we have nothing
+    // left in our buffer
+    return (finished && uncompressedDirectBuf.remaining() == 0);
+  }
+
+  @Override
+  public int decompress(byte[] b, int off, int len)
+      throws IOException {
+    checkStream();
+    if (b == null) {
+      throw new NullPointerException();
+    }
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+
+    // Check if there is uncompressed data
+    int n = uncompressedDirectBuf.remaining();
+    if (n > 0) {
+      return populateUncompressedBuffer(b, off, len, n);
+    }
+    if (finished) {
+      // The rest of the input is the next frame, after a reset
+      return 0;
+    }
+    if (compressedDirectBuf.remaining() <= 0 && userBufferBytesToConsume > 0) {
+      setInputFromSavedData();
+    }
+
+    // Decompress data
+    uncompressedDirectBuf.clear();
+    if (inflate(compressedDirectBuf, uncompressedDirectBuf)) {
+      finished = true;
+    }
+    uncompressedDirectBuf.flip();
+
+    // Get at most 'len' bytes
+    return populateUncompressedBuffer(b, off, len,
+        uncompressedDirectBuf.remaining());
+  }
+
+  /**
+   * <p>Returns the number of bytes remaining in the input buffers;
+   * normally called when finished() is true to determine amount of post-stream
+   * data.</p>
+   *
+   * @return the total (non-negative) number of unprocessed bytes in input
+   */
+  @Override
+  public int getRemaining() {
+    checkStream();
+    // userBuf + compressedDirectBuf
+    return userBufferBytesToConsume + compressedDirectBuf.remaining();
+  }
+
+  /**
+   * Resets everything including the input buffers (user and direct).
+   */
+  @Override
+  public void reset() {
+    checkStream();
+    ctx.reset();
+    finished = false;
+    compressedDirectBuf.clear();
+    compressedDirectBuf.limit(0);
+    uncompressedDirectBuf.clear();
+    uncompressedDirectBuf.limit(0);
+    userBufOff = 0;
+    userBufferBytesToConsume = 0;
+  }
+
+  @Override
+  public void end() {
+    if (ctx != null) {
+      ctx.close();
+      ctx = null;
+    }
+  }
+
+  private void checkStream() {
+    if (ctx == null) {
+      throw new NullPointerException("Stream not initialized");
+    }
+  }
+
+  private int populateUncompressedBuffer(byte[] b, int off, int len, int n) {
+    n = Math.min(n, len);
+    uncompressedDirectBuf.get(b, off, n);
+    return n;
+  }
+
+  /**
+   * Decompress from src to dst, advancing the positions of both.
+   * @return if the end of a frame was reached.
+   */
+  private boolean inflate(ByteBuffer src, ByteBuffer dst) throws IOException {
+    try {
+      return ctx.decompressDirectByteBufferStream(dst, src);
+    } catch (RuntimeException e) {
+      // ZstdException on corrupted input
+      throw new IOException(e);
+    }
+  }
+
+  int inflateDirect(ByteBuffer src, ByteBuffer dst) throws IOException {
+    assert (this instanceof ZStandardJniDirectDecompressor);
+
+    checkStream();
+    int originalPosition = dst.position();
+    if (inflate(src, dst)) {
+      finished = true;
+    }
+    return dst.position() - originalPosition;
+  }
+
+  /**
+   * A {@link DirectDecompressor} for ZStandard using the zstd-jni library.
+   * It reads and writes the direct buffers in place.
+   */
+  public static class ZStandardJniDirectDecompressor
+      extends ZStandardJniDecompressor implements DirectDecompressor {
+
+    public ZStandardJniDirectDecompressor(int directBufferSize) {
+      super(directBufferSize);
+    }
+
+    @Override
+    public boolean finished() {
+      return (endOfInput && super.finished());
+    }
+
+    @Override
+    public void reset() {
+      super.reset();
+      endOfInput = true;
+    }
+
+    private boolean endOfInput;
+
+    @Override
+    public void decompress(ByteBuffer src, ByteBuffer dst)
+        throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      assert dst.remaining() > 0 : "dst.remaining() > 0";
+      this.inflateDirect(src, dst);
+      endOfInput = !src.hasRemaining();
+    }
+
+    @Override
+    public void setDictionary(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectDecompressor");
+    }
+
+    @Override
+    public int decompress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectDecompressor");
+    }
+  }
+}
@@ -17,6 +17,7 @@
 
 package org.apache.hadoop.io.file.tfile;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.DataInput;
 import java.io.DataInputStream;
@@ -495,17 +496,30 @@ static private final class RBlockState {
 
       public RBlockState(Algorithm compressionAlgo, FSDataInputStream fsin,
           BlockRegion region, Configuration conf) throws IOException {
+        this(compressionAlgo, new BoundedRangeFileInputStream(fsin, region
+            .getOffset(), region.getCompressedSize()), region, TFile
+            .getFSInputBufferSize(conf));
+      }
+
+      /**
+       * Constructor from the compressed bytes of a block, already read in
+       * memory.
+       */
+      public RBlockState(Algorithm compressionAlgo, byte[] compressed,
+          BlockRegion region) throws IOException {
+        this(compressionAlgo, new ByteArrayInputStream(compressed), region, 0);
+      }
+
+      private RBlockState(Algorithm compressionAlgo, InputStream compressed,
+          BlockRegion region, int bufferSize) throws IOException {
         this.compressAlgo = compressionAlgo;
         this.region = region;
         this.decompressor = compressionAlgo.getDecompressor();
 
         try {
           this.in =
-              compressAlgo
-                  .createDecompressionStream(new BoundedRangeFileInputStream(
-                      fsin, this.region.getOffset(), this.region
-                          .getCompressedSize()), decompressor, TFile
-                      .getFSInputBufferSize(conf));
+              compressAlgo.createDecompressionStream(compressed, decompressor,
+                  bufferSize);
         } catch (IOException e) {
           compressAlgo.returnDecompressor(decompressor);
           throw e;
@@ -644,6 +658,29 @@ public Reader(FSDataInputStream fin, long fileLength, Configuration conf)
       }
     }
 
+    /**
+     * Constructor sharing the indexes of a BCFile read before.
+     *
+     * @param fin
+     *          FS input stream.
+     * @param version
+     *          Version of the BCFile.
+     * @param metaIndex
+     *          Index of the meta blocks.
+     * @param dataIndex
+     *          Index of the data blocks.
+     * @param conf
+     *          Configuration.
+     */
+    Reader(FSDataInputStream fin, Version version, MetaIndex metaIndex,
+        DataIndex dataIndex, Configuration conf) {
+      this.in = fin;
+      this.conf = conf;
+      this.version = version;
+      this.metaIndex = metaIndex;
+      this.dataIndex = dataIndex;
+    }
+
     /**
      * Get the name of the default compression algorithm.
      * 
@@ -727,6 +764,49 @@ public BlockReader getDataBlock(int blockIndex) throws IOException {
       return createReader(dataIndex.getDefaultCompressionAlgorithm(), region);
     }
 
+    /**
+     * Stream access to a Data Block whose compressed bytes were read with
+     * {@link #readDataBlock(int)}.
+     * 
+     * @param blockIndex
+     *          0-based data block index.
+     * @param compressed
+     *          compressed bytes of the data block.
+     * @return BlockReader input stream for reading the data block.
+     * @throws IOException
+     */
+    BlockReader getDataBlock(int blockIndex, byte[] compressed)
+        throws IOException {
+      BlockRegion region = getDataBlockRegion(blockIndex);
+      return new BlockReader(new RBlockState(
+          dataIndex.getDefaultCompressionAlgorithm(), compressed, region));
+    }
+
+    /**
+     * Read the compressed bytes of a Data Block with a positioned read, it
+     * does not move the position of the input stream and can be called
+     * concurrently with the reads of other blocks.
+     * 
+     * @param blockIndex
+     *          0-based data block index.
+     * @return the compressed bytes of the data block.
+     * @throws IOException
+     */
+    byte[] readDataBlock(int blockIndex) throws IOException {
+      BlockRegion region = getDataBlockRegion(blockIndex);
+      byte[] compressed = new byte[(int) region.getCompressedSize()];
+      in.readFully(region.getOffset(), compressed);
+      return compressed;
+    }
+
+    BlockRegion getDataBlockRegion(int blockIndex) {
+      if (blockIndex < 0 || blockIndex >= getBlockCount()) {
+        throw new IndexOutOfBoundsException(String.format(
+            "blockIndex=%d, numBlocks=%d", blockIndex, getBlockCount()));
+      }
+      return dataIndex.getBlockRegionList().get(blockIndex);
+    }
+
     private BlockReader createReader(Algorithm compressAlgo, BlockRegion region)
         throws IOException {
       RBlockState rbs = new RBlockState(compressAlgo, in, region, conf);
@@ -25,15 +25,25 @@
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.io.BoundedByteArrayOutputStream;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.DataInputBuffer;
@@ -49,9 +59,15 @@
 import org.apache.hadoop.io.file.tfile.CompareUtils.MemcmpRawComparator;
 import org.apache.hadoop.io.file.tfile.Utils.Version;
 import org.apache.hadoop.io.serializer.JavaSerializationComparator;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.TFILE_FS_READAHEAD_SIZE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.TFILE_FS_READAHEAD_SIZE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.TFILE_INDEX_CACHE_SIZE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.TFILE_INDEX_CACHE_SIZE_KEY;
+
 /**
  * A TFile is a container of key-value pairs. Both keys and values are type-less
  * bytes. Keys are restricted to 64KB, value length is not restricted
@@ -94,6 +110,15 @@
  * FSDataOutputStream. Integer (in bytes). Default to 256KB.
  * <li><b>tfile.fs.input.buffer.size</b>: Buffer size used for
  * FSDataInputStream. Integer (in bytes). Default to 256KB.
+ * <li><b>tfile.fs.readahead.size</b>: Maximum compressed size of the next
+ * block read ahead by a scanner on a background thread. Integer (in bytes).
+ * Default to 0, no readahead.
+ * <li><b>tfile.index.cache.size</b>: Number of files whose indexes are cached
+ * and shared by the readers created with
+ * {@link Reader#Reader(FSDataInputStream, FileStatus, Configuration)}.
+ * Integer. Default to 0, no cache. The cache is shared by the process and
+ * sized by the configuration of the first reader using it, the readers
+ * created later only choose whether they use it.
  * </ul>
  * <p>
  * Suggestions on performance optimization.
@@ -112,7 +137,10 @@
  * shown to be much faster than positioned-read call in single thread mode.
  * However, it also means that if multiple threads attempt to access the same
  * TFile (using multiple scanners) simultaneously, the actual I/O is carried out
- * sequentially even if they access different DFS blocks.
+ * sequentially even if they access different DFS blocks. The blocks read ahead
+ * use positioned reads and are not serialized with the other reads. A file
+ * can be scanned in parallel with the scanners of
+ * {@link Reader#createScannersByBlockRanges(int)}.
  * <li>Compression codec. Use "none" if the data is not very compressable (by
  * compressable, I mean a compression ratio at least 2:1). Generally, use "lzo"
  * as the starting point for experimenting. "gz" overs slightly better
@@ -152,6 +180,16 @@ static int getFSOutputBufferSize(Configuration conf) {
     return conf.getInt(FS_OUTPUT_BUF_SIZE_ATTR, 256 * 1024);
   }
 
+  static int getFSReadaheadSize(Configuration conf) {
+    return conf.getInt(TFILE_FS_READAHEAD_SIZE_KEY,
+        TFILE_FS_READAHEAD_SIZE_DEFAULT);
+  }
+
+  static int getIndexCacheSize(Configuration conf) {
+    return conf.getInt(TFILE_INDEX_CACHE_SIZE_KEY,
+        TFILE_INDEX_CACHE_SIZE_DEFAULT);
+  }
+
   private static final int MAX_KEY_SIZE = 64 * 1024; // 64KB
   static final Version API_VERSION = new Version((short) 1, (short) 0);
 
@@ -689,6 +727,10 @@ public static class Reader implements Closeable {
     TFileIndex tfileIndex = null;
     final TFileMeta tfileMeta;
     final BytesComparator comparator;
+    // indexes shared with the other readers of the file, null if not cached.
+    private final TFileIndexCache.Indexes indexes;
+    // maximum compressed size of the blocks read ahead, 0 for no readahead.
+    private final int readaheadSize;
 
     // global begin and end locations.
     private final Location begin;
@@ -801,15 +843,54 @@ public boolean equals(Object obj) {
      */
     public Reader(FSDataInputStream fsdis, long fileLength, Configuration conf)
         throws IOException {
-      readerBCF = new BCFile.Reader(fsdis, fileLength, conf);
+      this(fsdis, fileLength, conf, null);
+    }
 
-      // first, read TFile meta
-      BlockReader brMeta = readerBCF.getMetaBlock(TFileMeta.BLOCK_NAME);
-      try {
-        tfileMeta = new TFileMeta(brMeta);
-      } finally {
-        brMeta.close();
+    /**
+     * Constructor sharing the indexes of the TFile with the other readers of
+     * the same file, they are read once when the file is opened for the first
+     * time. The file must not be modified without changing its length or its
+     * modification time.
+     * 
+     * @param fsdis
+     *          FS input stream of the TFile.
+     * @param status
+     *          Status of the TFile.
+     * @param conf configuration.
+     * @throws IOException raised on errors performing I/O.
+     */
+    public Reader(FSDataInputStream fsdis, FileStatus status,
+        Configuration conf) throws IOException {
+      this(fsdis, status.getLen(), conf,
+          TFileIndexCache.getKey(status, conf));
+    }
+
+    private Reader(FSDataInputStream fsdis, long fileLength,
+        Configuration conf, String cacheKey) throws IOException {
+      TFileIndexCache.Indexes cached =
+          cacheKey == null ? null : TFileIndexCache.get(cacheKey, conf);
+      if (cached == null) {
+        readerBCF = new BCFile.Reader(fsdis, fileLength, conf);
+
+        // first, read TFile meta
+        BlockReader brMeta = readerBCF.getMetaBlock(TFileMeta.BLOCK_NAME);
+        try {
+          tfileMeta = new TFileMeta(brMeta);
+        } finally {
+          brMeta.close();
+        }
+
+        if (cacheKey != null) {
+          cached = new TFileIndexCache.Indexes(readerBCF, tfileMeta);
+          TFileIndexCache.put(cacheKey, cached, conf);
+        }
+      } else {
+        readerBCF = new BCFile.Reader(fsdis, cached.version,
+            cached.metaIndex, cached.dataIndex, conf);
+        tfileMeta = cached.tfileMeta;
       }
+      indexes = cached;
+      readaheadSize = getFSReadaheadSize(conf);
 
       comparator = tfileMeta.getComparator();
       // Set begin and end locations.
@@ -880,6 +961,9 @@ public long getEntryCount() {
      * @throws IOException
      */
     synchronized void checkTFileDataIndex() throws IOException {
+      if (tfileIndex == null && indexes != null) {
+        tfileIndex = indexes.tfileIndex;
+      }
       if (tfileIndex == null) {
         BlockReader brIndex = readerBCF.getMetaBlock(TFileIndex.BLOCK_NAME);
         try {
@@ -889,6 +973,9 @@ synchronized void checkTFileDataIndex() throws IOException {
         } finally {
           brIndex.close();
         }
+        if (indexes != null) {
+          indexes.tfileIndex = tfileIndex;
+        }
       }
     }
 
@@ -1201,6 +1288,49 @@ public Scanner createScannerByRecordNum(long beginRecNum, long endRecNum)
           getLocationByRecordNum(endRecNum));
     }
 
+    /**
+     * Get scanners over consecutive ranges of compressed blocks, covering the
+     * whole TFile with ranges of about the same compressed size. The scanners
+     * may be used from different threads to scan the TFile in parallel.
+     * 
+     * @param count
+     *          The maximum number of scanners.
+     * @return The scanners in the order of the TFile. There are fewer scanners
+     *         than requested if the TFile does not have enough blocks, and
+     *         none if the TFile is empty.
+     * @throws IOException raised on errors performing I/O.
+     */
+    public List<Scanner> createScannersByBlockRanges(int count)
+        throws IOException {
+      if (count <= 0) {
+        throw new IllegalArgumentException("count=" + count);
+      }
+      int blockCount = readerBCF.getBlockCount();
+      long totalSize = 0;
+      for (int i = 0; i < blockCount; i++) {
+        totalSize += readerBCF.getDataBlockRegion(i).getCompressedSize();
+      }
+      List<Scanner> scanners = new ArrayList<Scanner>();
+      try {
+        int first = 0;
+        long size = 0;
+        for (int i = 0; i < blockCount; i++) {
+          size += readerBCF.getDataBlockRegion(i).getCompressedSize();
+          boolean last = (i == blockCount - 1);
+          // end the range once the scanners reach their share of the file
+          if (last || size * count >= totalSize * (scanners.size() + 1)) {
+            scanners.add(new Scanner(this, new Location(first, 0),
+                last ? new Location(end) : new Location(i + 1, 0)));
+            first = i + 1;
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        IOUtils.cleanupWithLogger(LOG, scanners.toArray(new Closeable[0]));
+        throw e;
+      }
+      return scanners;
+    }
+
     /**
      * The TFile Scanner. The Scanner has an implicit cursor, which, upon
      * creation, points to the first key-value pair in the scan range. If the
@@ -1225,6 +1355,9 @@ public static class Scanner implements Closeable {
       final Reader reader;
       // current block (null if reaching end)
       private BlockReader blkReader;
+      // compressed bytes of the next block being read ahead (null if none)
+      private Future<byte[]> readahead;
+      private int readaheadBlock;
 
       Location beginLocation;
       Location endLocation;
@@ -1554,13 +1687,47 @@ private void initBlock(int blockIndex) throws IOException {
             blkReader = null;
           }
         }
-        blkReader = reader.getBlockReader(blockIndex);
+        blkReader = openBlock(blockIndex);
         currentLocation.set(blockIndex, 0);
+        if (endLocation.compareTo(blockIndex + 1, 0) > 0) {
+          readahead = reader.readAhead(blockIndex + 1);
+          readaheadBlock = blockIndex + 1;
+        }
+      }
+
+      /**
+       * Open a compressed block, from the bytes read ahead if available.
+       */
+      private BlockReader openBlock(int blockIndex) throws IOException {
+        Future<byte[]> pending = readahead;
+        readahead = null;
+        if (pending != null) {
+          if (readaheadBlock != blockIndex) {
+            pending.cancel(false);
+          } else {
+            try {
+              return reader.getBlockReader(blockIndex, pending.get());
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw (IOException) new InterruptedIOException(
+                  "Interrupted reading block " + blockIndex).initCause(e);
+            } catch (ExecutionException e) {
+              // read the block again, the error is raised if it persists
+              LOG.debug("Failed to read ahead block {}", blockIndex,
+                  e.getCause());
+            }
+          }
+        }
+        return reader.getBlockReader(blockIndex);
       }
 
       private void parkCursorAtEnd() throws IOException {
         klen = -1;
         currentLocation.set(endLocation);
+        if (readahead != null) {
+          readahead.cancel(false);
+          readahead = null;
+        }
         if (blkReader != null) {
           try {
             blkReader.close();
@@ -2035,6 +2202,51 @@ long getBlockEntryCount(int curBid) {
     BlockReader getBlockReader(int blockIndex) throws IOException {
       return readerBCF.getDataBlock(blockIndex);
     }
+
+    BlockReader getBlockReader(int blockIndex, byte[] compressed)
+        throws IOException {
+      return readerBCF.getDataBlock(blockIndex, compressed);
+    }
+
+    /**
+     * Start reading the compressed bytes of a block on a background thread.
+     * 
+     * @return the pending read, or null if the block is not read ahead.
+     */
+    Future<byte[]> readAhead(final int blockIndex) {
+      if (readaheadSize <= 0 || readerBCF.getDataBlockRegion(blockIndex)
+          .getCompressedSize() > readaheadSize) {
+        return null;
+      }
+      try {
+        return ReadaheadExecutor.EXECUTOR.submit(
+            () -> readerBCF.readDataBlock(blockIndex));
+      } catch (RejectedExecutionException e) {
+        // too many blocks already read ahead, the scanner reads this one
+        return null;
+      }
+    }
+
+    /**
+     * Threads reading the blocks ahead, shared by all the readers. There is at
+     * most one block read ahead per scanner, one thread per processor and as
+     * many queued reads; the blocks beyond are read by their scanners.
+     */
+    private static final class ReadaheadExecutor {
+      static final ExecutorService EXECUTOR = newExecutor(
+          Runtime.getRuntime().availableProcessors());
+
+      private static ExecutorService newExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(threads),
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("TFile readahead #%d")
+                .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+      }
+    }
   }
 
   /**
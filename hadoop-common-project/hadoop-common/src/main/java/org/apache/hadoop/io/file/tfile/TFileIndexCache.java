@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.io.file.tfile;
+
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.io.file.tfile.BCFile.DataIndex;
+import org.apache.hadoop.io.file.tfile.BCFile.MetaIndex;
+import org.apache.hadoop.io.file.tfile.TFile.TFileIndex;
+import org.apache.hadoop.io.file.tfile.TFile.TFileMeta;
+import org.apache.hadoop.io.file.tfile.Utils.Version;
+import org.apache.hadoop.thirdparty.com.google.common.cache.Cache;
+import org.apache.hadoop.thirdparty.com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the indexes of the TFiles, shared by the readers of the same file.
+ * The files are identified by their path, length and modification time, a
+ * file rewritten in place gets a new entry. The cache is shared by the
+ * process: its size is read from the configuration of the first reader using
+ * it, the later readers only choose whether they use it.
+ */
+final class TFileIndexCache {
+
+  /**
+   * The indexes read when opening a TFile. The data index of the TFile is
+   * loaded lazily, on the first scan of the file.
+   */
+  static final class Indexes {
+    final Version version;
+    final MetaIndex metaIndex;
+    final DataIndex dataIndex;
+    final TFileMeta tfileMeta;
+    volatile TFileIndex tfileIndex;
+
+    Indexes(BCFile.Reader reader, TFileMeta tfileMeta) {
+      this.version = reader.version;
+      this.metaIndex = reader.metaIndex;
+      this.dataIndex = reader.dataIndex;
+      this.tfileMeta = tfileMeta;
+    }
+  }
+
+  private static volatile Cache<String, Indexes> cache;
+
+  /**
+   * Prevent the instantiation of TFileIndexCache objects.
+   */
+  private TFileIndexCache() {
+    // nothing
+  }
+
+  /**
+   * Get the key of a file in the cache.
+   *
+   * @param status status of the file.
+   * @param conf configuration.
+   * @return the key of the file, null if the cache is disabled.
+   */
+  static String getKey(FileStatus status, Configuration conf) {
+    if (TFile.getIndexCacheSize(conf) <= 0) {
+      return null;
+    }
+    return status.getPath() + "#" + status.getLen() + "#"
+        + status.getModificationTime();
+  }
+
+  static Indexes get(String key, Configuration conf) {
+    return getCache(conf).getIfPresent(key);
+  }
+
+  static void put(String key, Indexes indexes, Configuration conf) {
+    getCache(conf).put(key, indexes);
+  }
+
+  /**
+   * Drop the cache, the next reader using it sizes a new one.
+   */
+  @VisibleForTesting
+  static synchronized void clear() {
+    Cache<String, Indexes> c = cache;
+    cache = null;
+    if (c != null) {
+      c.invalidateAll();
+    }
+  }
+
+  private static Cache<String, Indexes> getCache(Configuration conf) {
+    Cache<String, Indexes> c = cache;
+    if (c == null) {
+      synchronized (TFileIndexCache.class) {
+        c = cache;
+        if (c == null) {
+          c = CacheBuilder.newBuilder()
+              .maximumSize(TFile.getIndexCacheSize(conf))
+              .build();
+          cache = c;
+        }
+      }
+    }
+    return c;
+  }
+}
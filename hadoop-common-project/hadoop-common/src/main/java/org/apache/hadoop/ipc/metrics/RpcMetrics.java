@@ -33,6 +33,7 @@
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableQuantiles;
 import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.metrics2.lib.MutableStripedRate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,25 +84,27 @@ public class RpcMetrics {
           new MutableQuantiles[intervals.length];
       for (int i = 0; i < intervals.length; i++) {
         int interval = intervals[i];
-        rpcEnQueueTimeQuantiles[i] = registry.newQuantiles("rpcEnQueueTime"
-            + interval + "s", "rpc enqueue time in " + metricsTimeUnit, "ops",
+        rpcEnQueueTimeQuantiles[i] = registry.newHistogramQuantiles(
+            "rpcEnQueueTime" + interval + "s",
+            "rpc enqueue time in " + metricsTimeUnit, "ops",
             "latency", interval);
-        rpcQueueTimeQuantiles[i] = registry.newQuantiles("rpcQueueTime"
-            + interval + "s", "rpc queue time in " + metricsTimeUnit, "ops",
+        rpcQueueTimeQuantiles[i] = registry.newHistogramQuantiles(
+            "rpcQueueTime" + interval + "s",
+            "rpc queue time in " + metricsTimeUnit, "ops",
             "latency", interval);
-        rpcLockWaitTimeQuantiles[i] = registry.newQuantiles(
+        rpcLockWaitTimeQuantiles[i] = registry.newHistogramQuantiles(
             "rpcLockWaitTime" + interval + "s",
             "rpc lock wait time in " + metricsTimeUnit, "ops",
             "latency", interval);
-        rpcProcessingTimeQuantiles[i] = registry.newQuantiles(
+        rpcProcessingTimeQuantiles[i] = registry.newHistogramQuantiles(
             "rpcProcessingTime" + interval + "s",
             "rpc processing time in " + metricsTimeUnit, "ops",
             "latency", interval);
-        rpcResponseTimeQuantiles[i] = registry.newQuantiles(
+        rpcResponseTimeQuantiles[i] = registry.newHistogramQuantiles(
             "rpcResponseTime" + interval + "s",
             "rpc response time in " + metricsTimeUnit, "ops",
             "latency", interval);
-        deferredRpcProcessingTimeQuantiles[i] = registry.newQuantiles(
+        deferredRpcProcessingTimeQuantiles[i] = registry.newHistogramQuantiles(
             "deferredRpcProcessingTime" + interval + "s",
             "deferred rpc processing time in " + metricsTimeUnit, "ops",
             "latency", interval);
@@ -119,17 +122,18 @@ public static RpcMetrics create(Server server, Configuration conf) {
 
   @Metric("Number of received bytes") MutableCounterLong receivedBytes;
   @Metric("Number of sent bytes") MutableCounterLong sentBytes;
-  @Metric("EQueue time") MutableRate rpcEnQueueTime;
+  @Metric("EQueue time") MutableStripedRate rpcEnQueueTime;
   MutableQuantiles[] rpcEnQueueTimeQuantiles;
-  @Metric("Queue time") MutableRate rpcQueueTime;
+  @Metric("Queue time") MutableStripedRate rpcQueueTime;
   MutableQuantiles[] rpcQueueTimeQuantiles;
-  @Metric("Lock wait time") MutableRate rpcLockWaitTime;
+  @Metric("Lock wait time") MutableStripedRate rpcLockWaitTime;
   MutableQuantiles[] rpcLockWaitTimeQuantiles;
-  @Metric("Processing time") MutableRate rpcProcessingTime;
+  @Metric("Processing time") MutableStripedRate rpcProcessingTime;
   MutableQuantiles[] rpcProcessingTimeQuantiles;
-  @Metric("Response time") MutableRate rpcResponseTime;
+  @Metric("Response time") MutableStripedRate rpcResponseTime;
   MutableQuantiles[] rpcResponseTimeQuantiles;
-  @Metric("Deferred Processing time") MutableRate deferredRpcProcessingTime;
+  @Metric("Deferred Processing time")
+  MutableStripedRate deferredRpcProcessingTime;
   MutableQuantiles[] deferredRpcProcessingTimeQuantiles;
   @Metric("Number of authentication failures")
   MutableCounterLong rpcAuthenticationFailures;
@@ -227,6 +227,31 @@ public synchronized MutableQuantiles newQuantiles(String name, String desc,
     return ret;
   }
 
+  /**
+   * Create a mutable metric that estimates quantiles of a stream of values
+   * with a histogram, without taking any lock to add the values
+   * @param name of the metric
+   * @param desc metric description
+   * @param sampleName of the metric (e.g., "Ops")
+   * @param valueName of the metric (e.g., "Time" or "Latency")
+   * @param interval rollover interval of estimator in seconds
+   * @return a new quantile estimator object
+   * @throws MetricsException if interval is not a positive integer
+   */
+  public synchronized MutableHistogramQuantiles newHistogramQuantiles(
+      String name, String desc, String sampleName, String valueName,
+      int interval) {
+    checkMetricName(name);
+    if (interval <= 0) {
+      throw new MetricsException("Interval should be positive.  Value passed" +
+          " is: " + interval);
+    }
+    MutableHistogramQuantiles ret = new MutableHistogramQuantiles(name, desc,
+        sampleName, valueName, interval);
+    metricsMap.put(name, ret);
+    return ret;
+  }
+
   /**
    * Create a mutable inverse metric that estimates inverse quantiles of a stream of values
    * @param name of the metric
@@ -328,6 +353,29 @@ public synchronized MutableRate newRate(String name, String desc,
     return ret;
   }
 
+  /**
+   * Create a mutable rate metric whose updates do not take any lock.
+   * @param name  of the metric
+   * @param desc  description
+   * @param extended  produce extended stat (stdev/min/max etc.) if true
+   * @return a new or the existing mutable rate metric object
+   */
+  public synchronized MutableStripedRate newStripedRate(String name,
+      String desc, boolean extended) {
+    MutableMetric rate = metricsMap.get(name);
+    if (rate != null) {
+      if (rate instanceof MutableStripedRate) {
+        return (MutableStripedRate) rate;
+      }
+      throw new MetricsException("Unexpected metrics type "+ rate.getClass()
+                                 +" for "+ name);
+    }
+    checkMetricName(name);
+    MutableStripedRate ret = new MutableStripedRate(name, desc, extended);
+    metricsMap.put(name, ret);
+    return ret;
+  }
+
   public synchronized MutableRatesWithAggregation newRatesWithAggregation(
       String name) {
     checkMetricName(name);
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.lib;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.metrics2.util.LogLinearHistogram;
+import org.apache.hadoop.metrics2.util.QuantileEstimator;
+
+/**
+ * A {@link MutableQuantiles} estimating the quantiles with a
+ * {@link LogLinearHistogram}, for the values added by many threads at high
+ * rates. The values are added without taking any lock, and the histogram
+ * uses a fixed amount of memory. The estimated quantiles have a relative
+ * error below 3%.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class MutableHistogramQuantiles extends MutableQuantiles {
+
+  private volatile LogLinearHistogram histogram;
+
+  /**
+   * Instantiates a new {@link MutableHistogramQuantiles} for a metric that
+   * rolls itself over on the specified time interval.
+   *
+   * @param name          of the metric
+   * @param description   long-form textual description of the metric
+   * @param sampleName    type of items in the stream (e.g., "Ops")
+   * @param valueName     type of the values
+   * @param interval      rollover interval (in seconds) of the estimator
+   */
+  public MutableHistogramQuantiles(String name, String description,
+      String sampleName, String valueName, int interval) {
+    super(name, description, sampleName, valueName, interval);
+    setEstimator(new LogLinearHistogram(getQuantiles()));
+  }
+
+  @Override
+  public void add(long value) {
+    LogLinearHistogram current = histogram;
+    if (current != null) {
+      current.insert(value);
+    } else {
+      super.add(value);
+    }
+  }
+
+  /**
+   * Set the quantile estimator. The values are added without lock only to a
+   * {@link LogLinearHistogram}.
+   *
+   * @param quantileEstimator the quantile estimator.
+   */
+  @Override
+  public synchronized void setEstimator(QuantileEstimator quantileEstimator) {
+    super.setEstimator(quantileEstimator);
+    histogram = quantileEstimator instanceof LogLinearHistogram ?
+        (LogLinearHistogram) quantileEstimator : null;
+  }
+
+  @Override
+  void rollover() {
+    LogLinearHistogram current = histogram;
+    if (current == null) {
+      super.rollover();
+      return;
+    }
+    // Swap out the counts of the interval without blocking the writers
+    LogLinearHistogram interval = current.drain();
+    setPreviousSnapshot(interval.getCount(), interval.snapshot());
+    setChanged();
+  }
+}
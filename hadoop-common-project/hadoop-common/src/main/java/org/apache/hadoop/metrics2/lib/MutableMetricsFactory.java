@@ -68,6 +68,10 @@ MutableMetric newForField(Field field, Metric annotation,
       return registry.newRate(info.name(), info.description(),
                               annotation.always());
     }
+    if (cls == MutableStripedRate.class) {
+      return registry.newStripedRate(info.name(), info.description(),
+                                     annotation.always());
+    }
     if (cls == MutableRates.class) {
       return new MutableRates(registry);
     }
@@ -87,6 +91,11 @@ MutableMetric newForField(Field field, Metric annotation,
       return registry.newQuantiles(info.name(), annotation.about(),
           annotation.sampleName(), annotation.valueName(), annotation.interval());
     }
+    if (cls == MutableHistogramQuantiles.class) {
+      return registry.newHistogramQuantiles(info.name(), annotation.about(),
+          annotation.sampleName(), annotation.valueName(),
+          annotation.interval());
+    }
     throw new MetricsException("Unsupported metric field "+ field.getName() +
                                " of type "+ field.getType().getName());
   }
@@ -225,6 +225,30 @@ public synchronized void setEstimator(QuantileEstimator quantileEstimator) {
     this.estimator = quantileEstimator;
   }
 
+  /**
+   * Roll over the estimator at the end of an interval.
+   */
+  void rollover() {
+    synchronized (this) {
+      previousCount = estimator.getCount();
+      previousSnapshot = estimator.snapshot();
+      estimator.clear();
+    }
+    setChanged();
+  }
+
+  /**
+   * Set the values of the last interval.
+   *
+   * @param count number of values.
+   * @param snapshot estimated quantiles, null if there is no value.
+   */
+  synchronized void setPreviousSnapshot(long count,
+      Map<Quantile, Long> snapshot) {
+    previousCount = count;
+    previousSnapshot = snapshot;
+  }
+
   /**
    * Runnable used to periodically roll over the internal
    * {@link SampleQuantiles} every interval.
@@ -239,12 +263,7 @@ public RolloverSample(MutableQuantiles parent) {
 
     @Override
     public void run() {
-      synchronized (parent) {
-        parent.previousCount = parent.estimator.getCount();
-        parent.previousSnapshot = parent.estimator.snapshot();
-        parent.estimator.clear();
-      }
-      parent.setChanged();
+      parent.rollover();
     }
 
   }
@@ -45,9 +45,9 @@ public class MutableStat extends MutableMetric {
   private final MetricsInfo maxInfo;
   private final MetricsInfo iNumInfo;
 
-  private final SampleStat intervalStat = new SampleStat();
+  final SampleStat intervalStat = new SampleStat();
   private final SampleStat prevStat = new SampleStat();
-  private final SampleStat.MinMax minMax = new SampleStat.MinMax();
+  final SampleStat.MinMax minMax = new SampleStat.MinMax();
   private long numSamples = 0;
   private long snapshotTimeStamp = 0;
   private boolean extended = false;
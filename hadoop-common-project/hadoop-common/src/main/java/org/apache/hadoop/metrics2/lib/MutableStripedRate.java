@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.lib;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.util.SampleStat;
+
+/**
+ * A {@link MutableRate} whose updates do not take any lock, for the rates
+ * updated by many threads at high rates.
+ *
+ * The samples are recorded in striped counters, which are merged into the
+ * stats of the interval when they are read. A snapshot taken while the rate
+ * is updated may count a sample without its value in the sum, or its value
+ * without the sample, until the next snapshot.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class MutableStripedRate extends MutableRate {
+  // Running totals, never reset to not lose the concurrent updates
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final DoubleAdder squaresTotal = new DoubleAdder();
+  // Min and max of the samples since the last merge
+  private final LongAccumulator min =
+      new LongAccumulator(Math::min, Long.MAX_VALUE);
+  private final LongAccumulator max =
+      new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+  // Totals merged in the stats so far
+  private long mergedCount = 0;
+  private long mergedTotal = 0;
+  private double mergedSquaresTotal = 0;
+
+  MutableStripedRate(String name, String description, boolean extended) {
+    super(name, description, extended);
+  }
+
+  /**
+   * Add a number of samples and their sum to the running stat. The min and
+   * max are not evaluated.
+   * @param numSamples  number of samples
+   * @param sum of the samples
+   */
+  @Override
+  public void add(long numSamples, long sum) {
+    if (numSamples <= 0) {
+      return;
+    }
+    count.add(numSamples);
+    total.add(sum);
+    squaresTotal.add((double) sum * sum / numSamples);
+    markChanged();
+  }
+
+  /**
+   * Add a snapshot to the metric.
+   * @param value of the metric
+   */
+  @Override
+  public void add(long value) {
+    count.increment();
+    total.add(value);
+    squaresTotal.add((double) value * value);
+    min.accumulate(value);
+    max.accumulate(value);
+    markChanged();
+  }
+
+  private void markChanged() {
+    // Avoid writing the shared flag on every update
+    if (!changed()) {
+      setChanged();
+    }
+  }
+
+  /**
+   * Merge the samples recorded since the last merge into the stats of the
+   * interval.
+   */
+  private synchronized void merge() {
+    long newMin = min.getThenReset();
+    long newMax = max.getThenReset();
+    long newCount = count.sum();
+    long newTotal = total.sum();
+    double newSquaresTotal = squaresTotal.sum();
+    long n = newCount - mergedCount;
+    if (n > 0) {
+      // The min and max are unknown if all the samples came with their sum
+      intervalStat.add(n, newTotal - mergedTotal,
+          newSquaresTotal - mergedSquaresTotal, newMin, newMax);
+      if (newMin <= newMax) {
+        minMax.add(newMin);
+        minMax.add(newMax);
+      }
+      mergedCount = newCount;
+      mergedTotal = newTotal;
+      mergedSquaresTotal = newSquaresTotal;
+    }
+  }
+
+  @Override
+  public synchronized void snapshot(MetricsRecordBuilder builder,
+      boolean all) {
+    merge();
+    super.snapshot(builder, all);
+  }
+
+  @Override
+  public synchronized SampleStat lastStat() {
+    merge();
+    return super.lastStat();
+  }
+}
@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.util.Preconditions;
+
+/**
+ * A histogram of non-negative long values with log-linear buckets: the
+ * values below 2^precision have their own bucket, and each power of two
+ * above is split in 2^precision buckets of the same width. The relative
+ * error of the estimated values is below 2^-precision, 3% by default.
+ *
+ * The histogram uses a fixed amount of memory (8 bytes per bucket, 15KB by
+ * default) whatever the number of values. The values are inserted without
+ * taking any lock, and histograms with the same precision can be merged.
+ * The negative values are counted as 0.
+ */
+@InterfaceAudience.Private
+public class LogLinearHistogram implements QuantileEstimator {
+
+  /** Default number of bits of precision of the buckets. */
+  public static final int DEFAULT_PRECISION = 5;
+
+  private final int precision;
+  private final Quantile[] quantiles;
+  private final AtomicLongArray counts;
+
+  /**
+   * Create a histogram with the default precision.
+   * @param quantiles the quantiles returned by {@link #snapshot()}.
+   */
+  public LogLinearHistogram(Quantile[] quantiles) {
+    this(DEFAULT_PRECISION, quantiles);
+  }
+
+  /**
+   * Create a histogram.
+   * @param precision number of bits of precision of the buckets, from 1 to
+   *                  16.
+   * @param quantiles the quantiles returned by {@link #snapshot()}.
+   */
+  public LogLinearHistogram(int precision, Quantile[] quantiles) {
+    Preconditions.checkArgument(precision >= 1 && precision <= 16,
+        "Invalid precision: %s", precision);
+    this.precision = precision;
+    this.quantiles = quantiles;
+    this.counts = new AtomicLongArray((64 - precision) << precision);
+  }
+
+  /**
+   * Get the bucket of a value.
+   * @param value the value.
+   * @param precision number of bits of precision of the buckets.
+   * @return the index of the bucket.
+   */
+  static int bucket(long value, int precision) {
+    if (value < (1L << precision)) {
+      return value < 0 ? 0 : (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - precision;
+    int subBucket = (int) (value >>> shift) & ((1 << precision) - 1);
+    return ((shift + 1) << precision) + subBucket;
+  }
+
+  /**
+   * Get the lowest value of a bucket.
+   * @param bucket the index of the bucket.
+   * @param precision number of bits of precision of the buckets.
+   * @return the lowest value counted in the bucket.
+   */
+  static long lowestValue(int bucket, int precision) {
+    if (bucket < (1 << precision)) {
+      return bucket;
+    }
+    int shift = (bucket >>> precision) - 1;
+    long subBucket = bucket & ((1 << precision) - 1);
+    return ((1L << precision) | subBucket) << shift;
+  }
+
+  /**
+   * Get the value representing a bucket: the middle of its range.
+   */
+  private long value(int bucket) {
+    long low = lowestValue(bucket, precision);
+    int shift = (bucket >>> precision) - 1;
+    return shift <= 0 ? low : low + (1L << (shift - 1));
+  }
+
+  @Override
+  public void insert(long value) {
+    counts.incrementAndGet(bucket(value, precision));
+  }
+
+  @Override
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Get the estimated values of the quantiles.
+   * @return the values of the quantiles, null if the histogram is empty.
+   */
+  @Override
+  public Map<Quantile, Long> snapshot() {
+    long[] values = new long[counts.length()];
+    long count = 0;
+    for (int i = 0; i < values.length; i++) {
+      values[i] = counts.get(i);
+      count += values[i];
+    }
+    if (count == 0) {
+      return null;
+    }
+    Map<Quantile, Long> snapshot = new TreeMap<Quantile, Long>();
+    for (Quantile quantile : quantiles) {
+      snapshot.put(quantile, getQuantile(values, count, quantile.quantile));
+    }
+    return snapshot;
+  }
+
+  /**
+   * Get the estimated value of a quantile.
+   * @param quantile the quantile, between 0 and 1.
+   * @return the estimated value, 0 if the histogram is empty.
+   */
+  public long getQuantile(double quantile) {
+    long[] values = new long[counts.length()];
+    long count = 0;
+    for (int i = 0; i < values.length; i++) {
+      values[i] = counts.get(i);
+      count += values[i];
+    }
+    return count == 0 ? 0 : getQuantile(values, count, quantile);
+  }
+
+  private long getQuantile(long[] values, long count, double quantile) {
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int i = 0; i < values.length; i++) {
+      seen += values[i];
+      if (seen >= rank) {
+        return value(i);
+      }
+    }
+    return value(values.length - 1);
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+  }
+
+  /**
+   * Move the values of this histogram to a new histogram. The values
+   * inserted concurrently are either moved or kept in this histogram.
+   * @return a histogram with the values of this histogram.
+   */
+  public LogLinearHistogram drain() {
+    LogLinearHistogram drained = new LogLinearHistogram(precision, quantiles);
+    for (int i = 0; i < counts.length(); i++) {
+      if (counts.get(i) != 0) {
+        drained.counts.set(i, counts.getAndSet(i, 0));
+      }
+    }
+    return drained;
+  }
+
+  /**
+   * Add the values of another histogram to this histogram.
+   * @param other a histogram with the same precision.
+   */
+  public void merge(LogLinearHistogram other) {
+    Preconditions.checkArgument(other.precision == precision,
+        "Cannot merge histograms with the precisions %s and %s",
+        precision, other.precision);
+    for (int i = 0; i < counts.length(); i++) {
+      long count = other.counts.get(i);
+      if (count != 0) {
+        counts.addAndGet(i, count);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "LogLinearHistogram(precision=" + precision + ", count="
+        + getCount() + ")";
+  }
+}
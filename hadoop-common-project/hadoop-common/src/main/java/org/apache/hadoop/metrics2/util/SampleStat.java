@@ -93,6 +93,37 @@ public SampleStat add(long nSamples, double xTotal) {
     return this;
   }
 
+  /**
+   * Add the aggregates of some samples to the running stat. The min/max is
+   * not evaluated when xMin is greater than xMax.
+   * @param nSamples  number of samples
+   * @param xTotal the sum of the samples
+   * @param xSquaresTotal the sum of the squares of the samples
+   * @param xMin the minimum sample
+   * @param xMax the maximum sample
+   * @return  self
+   */
+  public SampleStat add(long nSamples, double xTotal, double xSquaresTotal,
+      double xMin, double xMax) {
+    if (nSamples <= 0) {
+      return this;
+    }
+    // merge the variance of the samples with the parallel algorithm, see
+    // https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance
+    double x = xTotal / nSamples;
+    double xs = Math.max(0.0, xSquaresTotal - xTotal * x);
+    long numSamplesOld = numSamples;
+    numSamples += nSamples;
+    double delta = x - mean;
+    mean += delta * nSamples / numSamples;
+    s += xs + delta * delta * numSamplesOld * nSamples / numSamples;
+    if (xMin <= xMax) {
+      minmax.add(xMin);
+      minmax.add(xMax);
+    }
+    return this;
+  }
+
   /**
    * @return  the total number of samples
    */
@@ -18,8 +18,11 @@
 package org.apache.hadoop.security;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -66,4 +69,21 @@ default Set<String> getGroupsSet(String user) throws IOException {
     //Override to form the set directly to avoid another conversion
     return new LinkedHashSet<>(getGroups(user));
   }
+
+  /**
+   * Get all various group memberships of many users.
+   * The users that do not exist are mapped to an EMPTY set.
+   * @param users Users' names
+   * @return map of the users to their set of group memberships
+   * @throws IOException raised on errors performing I/O.
+   */
+  default Map<String, Set<String>> getGroupsSets(Collection<String> users)
+      throws IOException {
+    //Override to look up the groups of many users in fewer requests
+    Map<String, Set<String>> groups = new LinkedHashMap<>();
+    for (String user : users) {
+      groups.put(user, getGroupsSet(user));
+    }
+    return groups;
+  }
 }
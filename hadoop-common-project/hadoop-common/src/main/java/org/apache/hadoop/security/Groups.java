@@ -17,17 +17,30 @@
  */
 package org.apache.hadoop.security;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -47,6 +60,7 @@
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ListenableFuture;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ListeningExecutorService;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.MoreExecutors;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.SettableFuture;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.apache.hadoop.HadoopIllegalArgumentException;
@@ -57,6 +71,7 @@
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Time;
 import org.apache.hadoop.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +83,11 @@
  * of a given user via the {@link #getGroups(String)} call, thus ensuring 
  * a consistent user-to-groups mapping and protects against vagaries of 
  * different mappings on servers and clients in a Hadoop cluster. 
+ *
+ * The concurrent lookups of a user who is not cached wait for a single
+ * lookup. The expired users can be refreshed in the background, in batches
+ * looked up together by the mappings supporting it, and the cache can be
+ * saved to a local file to be prewarmed when the service restarts.
  */
 @InterfaceAudience.LimitedPrivate({"HDFS", "MapReduce"})
 @InterfaceStability.Evolving
@@ -87,6 +107,9 @@ public class Groups {
   private Set<String> negativeCache;
   private final boolean reloadGroupsInBackground;
   private final int reloadGroupsThreadCount;
+  private final int reloadGroupsBatchSize;
+  private final File snapshotFile;
+  private ScheduledExecutorService snapshotExecutor;
 
   private final AtomicLong backgroundRefreshSuccess =
       new AtomicLong(0);
@@ -129,6 +152,17 @@ public Groups(Configuration conf, final Timer timer) {
               HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS,
           CommonConfigurationKeys.
               HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS_DEFAULT);
+    reloadGroupsBatchSize = conf.getInt(
+        CommonConfigurationKeys.
+            HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE,
+        CommonConfigurationKeys.
+            HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE_DEFAULT);
+    String snapshotPath =
+      conf.getTrimmed(
+          CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_FILE,
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_FILE_DEFAULT);
+    snapshotFile = snapshotPath.isEmpty() ? null : new File(snapshotPath);
     parseStaticMapping(conf);
 
     this.timer = timer;
@@ -146,6 +180,15 @@ public Groups(Configuration conf, final Timer timer) {
       negativeCache = Collections.newSetFromMap(tempMap.asMap());
     }
 
+    if (snapshotFile != null) {
+      startSnapshots(conf.getTimeDuration(
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_INTERVAL_SECS,
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_INTERVAL_SECS_DEFAULT,
+          TimeUnit.SECONDS, TimeUnit.MILLISECONDS));
+    }
+
     if(LOG.isDebugEnabled())
       LOG.debug("Group mapping impl=" + impl.getClass().getName() + 
           "; cacheTimeout=" + cacheTimeout + "; warningDeltaMs=" +
@@ -257,12 +300,243 @@ private Set<String> getGroupInternal(final String user) throws IOException {
     }
 
     try {
-      return cache.get(user);
+      if (cache.asMap().containsKey(user)) {
+        return cache.get(user);
+      }
+      // Wait for the lookup of the user, or for a concurrent lookup of the
+      // same user
+      long startMs = timer.monotonicNow();
+      try {
+        return cache.get(user);
+      } finally {
+        UserGroupInformation.metrics.addGetGroupsBlocked(
+            timer.monotonicNow() - startMs);
+      }
     } catch (ExecutionException e) {
       throw (IOException)e.getCause();
     }
   }
 
+  /**
+   * Get the group memberships of many users. The users who are not cached
+   * are looked up together, with fewer requests if the group mapping
+   * supports it, and are then cached.
+   * @param users Users' names
+   * @return the group memberships of the users, without the users who do not
+   * exist
+   * @throws IOException if the groups of the users cannot be looked up
+   */
+  public Map<String, Set<String>> getGroupsSets(Collection<String> users)
+      throws IOException {
+    Map<String, Set<String>> groups = new LinkedHashMap<>();
+    List<String> missing = new ArrayList<>();
+    Map<String, Set<String>> staticUserToGroupsMap = staticMapRef.get();
+    for (String user : users) {
+      Set<String> userGroups = staticUserToGroupsMap == null ? null :
+          staticUserToGroupsMap.get(user);
+      if (userGroups == null) {
+        if (isNegativeCacheEnabled() && negativeCache.contains(user)) {
+          continue;
+        }
+        userGroups = cache.getIfPresent(user);
+      }
+      if (userGroups != null) {
+        groups.put(user, Collections.unmodifiableSet(userGroups));
+      } else {
+        missing.add(user);
+      }
+    }
+    if (!missing.isEmpty()) {
+      for (Map.Entry<String, Set<String>> entry :
+          loadGroupsSets(missing).entrySet()) {
+        groups.put(entry.getKey(),
+            Collections.unmodifiableSet(entry.getValue()));
+      }
+    }
+    return groups;
+  }
+
+  /**
+   * Look up the groups of many users and cache them. The users who are
+   * already cached keep their groups if the lookup finds none, like after a
+   * failed reload: a group mapping like LDAP returns no groups when the
+   * lookup fails.
+   * @return the groups of the users who exist
+   */
+  private Map<String, Set<String>> loadGroupsSets(Collection<String> users)
+      throws IOException {
+    Map<String, Set<String>> groups = fetchGroupsSets(users);
+    Map<String, Set<String>> found = new LinkedHashMap<>();
+    for (String user : users) {
+      Set<String> userGroups = groups.get(user);
+      if (userGroups == null || userGroups.isEmpty()) {
+        if (cache.getIfPresent(user) != null) {
+          LOG.debug("Keeping the cached groups of {}, no groups found", user);
+        } else if (isNegativeCacheEnabled()) {
+          negativeCache.add(user);
+        }
+      } else {
+        cache.put(user, userGroups);
+        found.put(user, userGroups);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Queries impl for groups belonging to many users.
+   * This could involve I/O and take awhile.
+   */
+  private Map<String, Set<String>> fetchGroupsSets(Collection<String> users)
+      throws IOException {
+    long startMs = timer.monotonicNow();
+    Map<String, Set<String>> groups = impl.getGroupsSets(users);
+    long endMs = timer.monotonicNow();
+    long deltaMs = endMs - startMs;
+    UserGroupInformation.metrics.addGetGroups(deltaMs);
+    if (deltaMs > warningDeltaMs) {
+      LOG.warn("Potential performance problem: getGroups of {} users took " +
+          "{} milliseconds.", users.size(), deltaMs);
+    }
+    return groups;
+  }
+
+  private void startSnapshots(long intervalMs) {
+    ThreadFactory threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("Group-Cache-Snapshot")
+        .setDaemon(true)
+        .build();
+    snapshotExecutor = Executors.newSingleThreadScheduledExecutor(
+        threadFactory);
+    List<String> users = loadSnapshot();
+    if (!users.isEmpty()) {
+      // The snapshot may be stale, look up the prewarmed users again
+      snapshotExecutor.execute(() -> {
+        try {
+          loadGroupsSets(users);
+        } catch (IOException e) {
+          LOG.warn("Error refreshing the groups of the prewarmed users", e);
+        }
+      });
+    }
+    if (intervalMs > 0) {
+      snapshotExecutor.scheduleWithFixedDelay(this::saveSnapshot,
+          intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    } else {
+      // Only prewarm, let the thread exit after the refresh
+      snapshotExecutor.shutdown();
+    }
+  }
+
+  /**
+   * Stop saving the cache to the snapshot file, when this instance is
+   * replaced by a new one saving to the same file.
+   */
+  @VisibleForTesting
+  void stopSnapshots() {
+    if (snapshotExecutor != null) {
+      snapshotExecutor.shutdownNow();
+    }
+  }
+
+  @VisibleForTesting
+  ScheduledExecutorService getSnapshotExecutor() {
+    return snapshotExecutor;
+  }
+
+  /**
+   * Prewarm the cache from the snapshot file.
+   * @return the users added to the cache
+   */
+  @VisibleForTesting
+  List<String> loadSnapshot() {
+    List<String> users = new ArrayList<>();
+    if (!snapshotFile.isFile()) {
+      return users;
+    }
+    long ageMs = Time.now() - snapshotFile.lastModified();
+    if (ageMs > 10 * cacheTimeout) {
+      LOG.info("Ignoring the groups cache snapshot {} saved {} ms ago",
+          snapshotFile, ageMs);
+      return users;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(
+        snapshotFile.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        // user TAB group TAB group...
+        String[] fields = line.split("\t");
+        if (fields.length > 1) {
+          cache.put(fields[0], new LinkedHashSet<>(
+              Arrays.asList(fields).subList(1, fields.length)));
+          users.add(fields[0]);
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Error loading the groups cache snapshot " + snapshotFile, e);
+    }
+    LOG.info("Prewarmed the groups cache with {} users from {}",
+        users.size(), snapshotFile);
+    return users;
+  }
+
+  /**
+   * Save the cache to the snapshot file, only readable by the current user.
+   */
+  @VisibleForTesting
+  void saveSnapshot() {
+    Path tmpFile = null;
+    try {
+      // A unique file, so that concurrent saves do not write the same file
+      Path dir = snapshotFile.getAbsoluteFile().getParentFile().toPath();
+      String prefix = snapshotFile.getName() + ".";
+      try {
+        tmpFile = Files.createTempFile(dir, prefix, ".tmp", PosixFilePermissions
+            .asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+      } catch (UnsupportedOperationException e) {
+        tmpFile = Files.createTempFile(dir, prefix, ".tmp");
+      }
+      int count = 0;
+      try (Writer writer = Files.newBufferedWriter(tmpFile,
+          StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, Set<String>> entry :
+            cache.asMap().entrySet()) {
+          if (isSnapshotName(entry.getKey()) &&
+              entry.getValue().stream().allMatch(Groups::isSnapshotName)) {
+            writer.write(entry.getKey());
+            for (String group : entry.getValue()) {
+              writer.write('\t');
+              writer.write(group);
+            }
+            writer.write('\n');
+            count++;
+          }
+        }
+      }
+      Files.move(tmpFile, snapshotFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      tmpFile = null;
+      LOG.debug("Saved {} users to the groups cache snapshot {}", count,
+          snapshotFile);
+    } catch (IOException e) {
+      LOG.warn("Error saving the groups cache snapshot " + snapshotFile, e);
+    } finally {
+      if (tmpFile != null) {
+        try {
+          Files.deleteIfExists(tmpFile);
+        } catch (IOException e) {
+          LOG.debug("Error deleting {}", tmpFile, e);
+        }
+      }
+    }
+  }
+
+  private static boolean isSnapshotName(String name) {
+    return !name.isEmpty() && name.indexOf('\t') < 0 &&
+        name.indexOf('\n') < 0 && name.indexOf('\r') < 0;
+  }
+
   public long getBackgroundRefreshSuccess() {
     return backgroundRefreshSuccess.get();
   }
@@ -279,6 +553,16 @@ public long getBackgroundRefreshRunning() {
     return backgroundRefreshRunning.get();
   }
 
+  private void addBackgroundRefreshQueued(long delta) {
+    backgroundRefreshQueued.addAndGet(delta);
+    UserGroupInformation.metrics.groupsRefreshQueued.incr(delta);
+  }
+
+  private void addBackgroundRefreshRunning(long delta) {
+    backgroundRefreshRunning.addAndGet(delta);
+    UserGroupInformation.metrics.groupsRefreshRunning.incr(delta);
+  }
+
   /**
    * Convert millisecond times from hadoop's timer to guava's nanosecond ticker.
    */
@@ -302,6 +586,10 @@ public long read() {
   private class GroupCacheLoader extends CacheLoader<String, Set<String>> {
 
     private ListeningExecutorService executorService;
+    // Users waiting for a batch reload
+    private final Map<String, SettableFuture<Set<String>>> pendingReloads =
+        new LinkedHashMap<>();
+    private int scheduledBatchReloads = 0;
 
     GroupCacheLoader() {
       if (reloadGroupsInBackground) {
@@ -382,12 +670,15 @@ public ListenableFuture<Set<String>> reload(final String key,
       if (!reloadGroupsInBackground) {
         return super.reload(key, oldValue);
       }
+      if (reloadGroupsBatchSize > 1) {
+        return reloadInBatch(key);
+      }
 
-      backgroundRefreshQueued.incrementAndGet();
+      addBackgroundRefreshQueued(1);
       ListenableFuture<Set<String>> listenableFuture =
           executorService.submit(() -> {
-            backgroundRefreshQueued.decrementAndGet();
-            backgroundRefreshRunning.incrementAndGet();
+            addBackgroundRefreshQueued(-1);
+            addBackgroundRefreshRunning(1);
             Set<String> results = load(key);
             return results;
           });
@@ -395,17 +686,90 @@ public ListenableFuture<Set<String>> reload(final String key,
         @Override
         public void onSuccess(Set<String> result) {
           backgroundRefreshSuccess.incrementAndGet();
-          backgroundRefreshRunning.decrementAndGet();
+          addBackgroundRefreshRunning(-1);
         }
         @Override
         public void onFailure(Throwable t) {
           backgroundRefreshException.incrementAndGet();
-          backgroundRefreshRunning.decrementAndGet();
+          addBackgroundRefreshRunning(-1);
         }
       }, MoreExecutors.directExecutor());
       return listenableFuture;
     }
 
+    /**
+     * Queue the reload of a user, to be looked up with the other queued
+     * users. A new batch is scheduled when the scheduled batches cannot take
+     * all the queued users.
+     */
+    private ListenableFuture<Set<String>> reloadInBatch(String user) {
+      SettableFuture<Set<String>> future = SettableFuture.create();
+      boolean schedule;
+      synchronized (pendingReloads) {
+        SettableFuture<Set<String>> pending =
+            pendingReloads.putIfAbsent(user, future);
+        if (pending != null) {
+          return pending;
+        }
+        schedule = pendingReloads.size() >
+            scheduledBatchReloads * reloadGroupsBatchSize;
+        if (schedule) {
+          scheduledBatchReloads++;
+        }
+      }
+      addBackgroundRefreshQueued(1);
+      if (schedule) {
+        executorService.execute(this::reloadBatch);
+      }
+      return future;
+    }
+
+    private void reloadBatch() {
+      Map<String, SettableFuture<Set<String>>> batch = new LinkedHashMap<>();
+      synchronized (pendingReloads) {
+        scheduledBatchReloads--;
+        Iterator<Map.Entry<String, SettableFuture<Set<String>>>> it =
+            pendingReloads.entrySet().iterator();
+        while (it.hasNext() && batch.size() < reloadGroupsBatchSize) {
+          Map.Entry<String, SettableFuture<Set<String>>> entry = it.next();
+          batch.put(entry.getKey(), entry.getValue());
+          it.remove();
+        }
+      }
+      if (batch.isEmpty()) {
+        return;
+      }
+      LOG.debug("GroupCacheLoader - reload {} users.", batch.size());
+      addBackgroundRefreshQueued(-batch.size());
+      addBackgroundRefreshRunning(batch.size());
+      try {
+        Map<String, Set<String>> groups = fetchGroupsSets(batch.keySet());
+        for (Map.Entry<String, SettableFuture<Set<String>>> entry :
+            batch.entrySet()) {
+          String user = entry.getKey();
+          Set<String> userGroups = groups.get(user);
+          if (userGroups == null || userGroups.isEmpty()) {
+            if (isNegativeCacheEnabled()) {
+              negativeCache.add(user);
+            }
+            backgroundRefreshException.incrementAndGet();
+            entry.getValue().setException(noGroupsForUser(user));
+          } else {
+            backgroundRefreshSuccess.incrementAndGet();
+            entry.getValue().set(userGroups);
+          }
+        }
+      } catch (Throwable t) {
+        for (SettableFuture<Set<String>> future : batch.values()) {
+          if (future.setException(t)) {
+            backgroundRefreshException.incrementAndGet();
+          }
+        }
+      } finally {
+        addBackgroundRefreshRunning(-batch.size());
+      }
+    }
+
     /**
      * Queries impl for groups belonging to the user.
      * This could involve I/O and take awhile.
@@ -490,12 +854,18 @@ public static synchronized Groups getUserToGroupsMappingService(
       getUserToGroupsMappingServiceWithLoadedConfiguration(
           Configuration conf) {
 
+    if (GROUPS != null) {
+      GROUPS.stopSnapshots();
+    }
     GROUPS = new Groups(conf);
     return GROUPS;
   }
 
   @VisibleForTesting
-  public static void reset() {
+  public static synchronized void reset() {
+    if (GROUPS != null) {
+      GROUPS.stopSnapshots();
+    }
     GROUPS = null;
   }
 }
@@ -32,13 +32,19 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.HashSet;
 import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.naming.AuthenticationException;
 import javax.naming.Context;
@@ -90,6 +96,10 @@
  * is used for searching users or groups which returns more results than are
  * allowed by the server, an exception will be thrown.
  * 
+ * The groups of many users are looked up with one search of the users, when
+ * the user search filter matches the name of the user with an attribute,
+ * e.g. (sAMAccountName={0}).
+ *
  * The implementation attempts to resolve group hierarchies,
  * to a configurable limit.
  * If the limit is 0, in order to be considered a member of a group,
@@ -293,6 +303,19 @@
   public static final String LDAP_CTX_FACTORY_CLASS_DEFAULT =
       "com.sun.jndi.ldap.LdapCtxFactory";
 
+  /*
+   * Maximum number of users searched with one LDAP query
+   */
+  public static final String BULK_SEARCH_SIZE_KEY =
+      LDAP_CONFIG_PREFIX + ".bulk.search.size";
+  public static final int BULK_SEARCH_SIZE_DEFAULT = 100;
+
+  /**
+   * The attribute of the user name in the user search filter.
+   */
+  private static final Pattern USER_NAME_ATTR_PATTERN =
+      Pattern.compile("\\(\\s*([\\w.;-]+)\\s*=\\s*\\{0\\}\\s*\\)");
+
   /**
    * The env key used for specifying a custom socket factory to be used for
    * creating connections to the LDAP server. This is not a Hadoop conf key.
@@ -343,6 +366,8 @@
   private volatile int numAttemptsBeforeFailover;
   private volatile String ldapCtxFactoryClassName;
   private volatile String[] groupSearchFilterParams;
+  private volatile String userNameAttr;
+  private volatile int bulkSearchSize;
 
   /**
    * Returns list of groups for a user.
@@ -520,7 +545,85 @@ Set<String> doGetGroups(String user, int goUpHierarchy)
       return Collections.emptySet();
     }
     SearchResult result = results.nextElement();
+    Set<String> groups = getGroups(result, c, goUpHierarchy);
+    LOG.debug("doGetGroups({}) returned {}", user, groups);
+    return groups;
+  }
 
+  /**
+   * Perform LDAP queries to get group names of many users.
+   *
+   * Perform one LDAP query to get the user objects of all the users, then
+   * get the groups of each user like {@link #doGetGroups(String, int)}.
+   *
+   * @param users user names
+   * @return the users mapped to their group names. The users that can not be
+   * found are mapped to an empty set.
+   * @throws NamingException if unable to get group names
+   */
+  Map<String, Set<String>> doGetGroupsSets(List<String> users,
+      int goUpHierarchy) throws NamingException {
+    DirContext c = getDirContext();
+
+    // Search for all the users at once
+    StringBuilder filter = new StringBuilder("(|");
+    Map<String, String> names = new HashMap<>();
+    for (int i = 0; i < users.size(); i++) {
+      filter.append(userSearchFilter.replace("{0}", "{" + i + "}"));
+      names.put(users.get(i).toLowerCase(Locale.ROOT), users.get(i));
+    }
+    filter.append(")");
+    NamingEnumeration<SearchResult> results = c.search(userbaseDN,
+        filter.toString(), users.toArray(), getBulkSearchControls());
+    // Read all the users before the next queries on the same context
+    Map<String, SearchResult> userResults = new HashMap<>();
+    while (results.hasMoreElements()) {
+      SearchResult result = results.nextElement();
+      Attribute nameAttr = result.getAttributes().get(userNameAttr);
+      if (nameAttr == null) {
+        throw new NamingException("The user object does not have '" +
+            userNameAttr + "' attribute." +
+            "Returned user object: " + result.toString());
+      }
+      String user = names.get(
+          nameAttr.get().toString().toLowerCase(Locale.ROOT));
+      if (user != null) {
+        // Only look at the first result of each user
+        userResults.putIfAbsent(user, result);
+      }
+    }
+
+    Map<String, Set<String>> groups = new LinkedHashMap<>();
+    for (String user : users) {
+      SearchResult result = userResults.get(user);
+      groups.put(user, result == null ? Collections.emptySet() :
+          getGroups(result, c, goUpHierarchy));
+    }
+    LOG.debug("doGetGroupsSets({}) returned {}", users, groups);
+    return groups;
+  }
+
+  private SearchControls getBulkSearchControls() {
+    String[] attributes = SEARCH_CONTROLS.getReturningAttributes();
+    if (attributes != null) {
+      attributes = Arrays.copyOf(attributes, attributes.length + 1);
+      attributes[attributes.length - 1] = userNameAttr;
+    }
+    return new SearchControls(SEARCH_CONTROLS.getSearchScope(),
+        SEARCH_CONTROLS.getCountLimit(), SEARCH_CONTROLS.getTimeLimit(),
+        attributes, SEARCH_CONTROLS.getReturningObjFlag(),
+        SEARCH_CONTROLS.getDerefLinkFlag());
+  }
+
+  /**
+   * Get the group names of a user object.
+   *
+   * If one-query is enabled, retrieve the group names from the user object.
+   * If one-query is disabled, or if it failed, perform the second query to
+   * get the groups.
+   */
+  private Set<String> getGroups(SearchResult result, DirContext c,
+      int goUpHierarchy) throws NamingException {
     Set<String> groups = Collections.emptySet();
     if (useOneQuery) {
       try {
@@ -552,7 +655,6 @@ Set<String> doGetGroups(String user, int goUpHierarchy)
     if (groups.isEmpty() || goUpHierarchy > 0) {
       groups = lookupGroup(result, c, goUpHierarchy);
     }
-    LOG.debug("doGetGroups({}) returned {}", user, groups);
     return groups;
   }
 
@@ -725,6 +827,10 @@ public void cacheGroupsAdd(List<String> groups) {
 
   @Override
   public Set<String> getGroupsSet(String user) {
+    return lookupGroupsSet(user);
+  }
+
+  private Set<String> lookupGroupsSet(String user) {
     /*
      * Normal garbage collection takes care of removing Context instances when
      * they are no longer in use. Connections used by Context instances being
@@ -759,6 +865,67 @@ public Set<String> getGroupsSet(String user) {
     return Collections.emptySet();
   }
 
+  /**
+   * Returns the groups of many users, searching up to
+   * {@link #BULK_SEARCH_SIZE_KEY} users with one LDAP query.
+   *
+   * @param users get groups for these users
+   * @return the users mapped to their groups
+   */
+  @Override
+  public Map<String, Set<String>> getGroupsSets(Collection<String> users) {
+    Map<String, Set<String>> groups = new LinkedHashMap<>();
+    if (userNameAttr == null || bulkSearchSize <= 1) {
+      for (String user : users) {
+        groups.put(user, lookupGroupsSet(user));
+      }
+      return groups;
+    }
+    List<String> batch = new ArrayList<>(bulkSearchSize);
+    for (String user : new LinkedHashSet<>(users)) {
+      batch.add(user);
+      if (batch.size() == bulkSearchSize) {
+        groups.putAll(lookupGroupsSets(batch));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      groups.putAll(lookupGroupsSets(batch));
+    }
+    return groups;
+  }
+
+  private Map<String, Set<String>> lookupGroupsSets(List<String> users) {
+    // Retry and fail over like lookupGroupsSet
+    int atemptsBeforeFailover = 1;
+
+    for (int attempt = 1; attempt <= numAttempts; attempt++,
+        atemptsBeforeFailover++) {
+      try {
+        return doGetGroupsSets(users, groupHierarchyLevels);
+      } catch (AuthenticationException e) {
+        switchBindUser(e);
+      } catch (NamingException e) {
+        LOG.warn("Failed to get groups for {} users (attempt={}/{}) using " +
+            "{}. Exception: ", users.size(), attempt, numAttempts,
+            currentLdapUrl, e);
+
+        if (failover(atemptsBeforeFailover, numAttemptsBeforeFailover)) {
+          atemptsBeforeFailover = 0;
+        }
+      }
+
+      // Reset ctx so that new DirContext can be created with new connection
+      this.ctx = null;
+    }
+
+    Map<String, Set<String>> groups = new LinkedHashMap<>();
+    for (String user : users) {
+      groups.put(user, Collections.emptySet());
+    }
+    return groups;
+  }
+
   @Override
   public synchronized Configuration getConf() {
     return conf;
@@ -797,6 +964,10 @@ public synchronized void setConf(Configuration conf) {
         conf.get(USER_SEARCH_FILTER_KEY, USER_SEARCH_FILTER_DEFAULT);
     isPosix = groupSearchFilter.contains(POSIX_GROUP) && userSearchFilter
         .contains(POSIX_ACCOUNT);
+    Matcher userNameMatcher = USER_NAME_ATTR_PATTERN.matcher(userSearchFilter);
+    userNameAttr = userNameMatcher.find() ? userNameMatcher.group(1) : null;
+    bulkSearchSize = conf.getInt(BULK_SEARCH_SIZE_KEY,
+        BULK_SEARCH_SIZE_DEFAULT);
     memberOfAttr =
         conf.get(MEMBEROF_ATTR_KEY, MEMBEROF_ATTR_DEFAULT);
     // if memberOf attribute is set, resolve group names from the attribute
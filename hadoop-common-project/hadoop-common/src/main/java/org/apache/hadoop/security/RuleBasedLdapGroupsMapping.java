@@ -24,8 +24,10 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -90,7 +92,18 @@ public synchronized List<String> getGroups(String user) {
   }
 
   public synchronized Set<String> getGroupsSet(String user) {
-    Set<String> groups = super.getGroupsSet(user);
+    return applyRule(super.getGroupsSet(user));
+  }
+
+  @Override
+  public synchronized Map<String, Set<String>> getGroupsSets(
+      Collection<String> users) {
+    Map<String, Set<String>> groups = super.getGroupsSets(users);
+    groups.replaceAll((user, userGroups) -> applyRule(userGroups));
+    return groups;
+  }
+
+  private Set<String> applyRule(Set<String> groups) {
     switch (rule) {
     case TO_UPPER:
       return groups.stream().map(StringUtils::toUpperCase).collect(
@@ -139,6 +139,13 @@ static class UgiMetrics {
     MutableRate loginFailure;
     @Metric("GetGroups") MutableRate getGroups;
     MutableQuantiles[] getGroupsQuantiles;
+    @Metric("Lookups waiting for the groups of a user not in the cache and " +
+        "latency (milliseconds)")
+    MutableRate getGroupsBlocked;
+    @Metric("Groups cache refreshes waiting for a thread")
+    MutableGaugeLong groupsRefreshQueued;
+    @Metric("Groups cache refreshes in progress")
+    MutableGaugeLong groupsRefreshRunning;
     @Metric("Renewal failures since startup")
     private MutableGaugeLong renewalFailuresTotal;
     @Metric("Renewal failures since last successful login")
@@ -161,6 +168,10 @@ void addGetGroups(long latency) {
       }
     }
 
+    void addGetGroupsBlocked(long latency) {
+      getGroupsBlocked.add(latency);
+    }
+
     MutableGaugeInt getRenewalFailures() {
       return renewalFailures;
     }
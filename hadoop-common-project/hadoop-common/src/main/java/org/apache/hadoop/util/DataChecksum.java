@@ -22,10 +22,15 @@
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
 import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.fs.ChecksumException;
 import org.slf4j.Logger;
@@ -52,6 +57,13 @@ public class DataChecksum implements Checksum {
 
   private static final Logger LOG = LoggerFactory.getLogger(DataChecksum.class);
   private static volatile boolean useJava9Crc32C = Shell.isJavaVersionAtLeast(9);
+
+  /**
+   * Buffers of at least this many bytes are checksummed by several threads
+   * when the native library is not loaded.
+   */
+  static final int PARALLEL_MIN_BYTES_DEFAULT = 4 * 1024 * 1024;
+  private static volatile int parallelMinBytes = PARALLEL_MIN_BYTES_DEFAULT;
  
   /** The checksum types */
   public enum Type {
@@ -111,6 +123,27 @@ static Checksum newCrc32C() {
     }
   }
 
+  /**
+   * Create a Checksum object for a CRC type.
+   *
+   * @param type CRC32 or CRC32C.
+   * @return Checksum.
+   */
+  private static Checksum newCrc(Type type) {
+    return type == Type.CRC32C ? newCrc32C() : newCrc32();
+  }
+
+  /**
+   * Set the size from which the bulk operations split the data in ranges of
+   * chunks checksummed in parallel.
+   *
+   * @param minBytes minimum number of bytes, 0 to always run in parallel.
+   */
+  @VisibleForTesting
+  static void setParallelMinBytes(int minBytes) {
+    parallelMinBytes = minBytes;
+  }
+
   /**
    * getCrcPolynomialForType.
    *
@@ -400,34 +433,90 @@ public void verifyChunkedSums(ByteBuffer data, ByteBuffer checksums,
       String fileName, long basePos) throws ChecksumException {
     if (type.size == 0) return;
 
-    if (data.hasArray() && checksums.hasArray()) {
-      final int dataOffset = data.arrayOffset() + data.position();
-      final int crcsOffset = checksums.arrayOffset() + checksums.position();
-
-      if (NativeCrc32.isAvailable()) {
+    if (NativeCrc32.isAvailable()) {
+      if (data.hasArray() && checksums.hasArray()) {
         NativeCrc32.verifyChunkedSumsByteArray(bytesPerChecksum, type.id,
-                checksums.array(), crcsOffset, data.array(), dataOffset,
-                data.remaining(), fileName, basePos);
-      } else {
-        verifyChunked(type, summer, data.array(), dataOffset, data.remaining(),
-                bytesPerChecksum, checksums.array(), crcsOffset, fileName,
-                basePos);
+            checksums.array(), checksums.arrayOffset() + checksums.position(),
+            data.array(), data.arrayOffset() + data.position(),
+            data.remaining(), fileName, basePos);
+        return;
+      }
+      if (data.isDirect()) {
+        NativeCrc32.verifyChunkedSums(bytesPerChecksum, type.id, checksums,
+            data, fileName, basePos);
+        return;
       }
-      return;
     }
-    if (NativeCrc32.isAvailable() && data.isDirect()) {
-      NativeCrc32.verifyChunkedSums(bytesPerChecksum, type.id, checksums, data,
-          fileName, basePos);
+    if (isParallel(data.remaining())) {
+      verifyChunkedParallel(data, checksums, fileName, basePos);
     } else {
       verifyChunked(type, summer, data, bytesPerChecksum, checksums, fileName,
           basePos);
     }
   }
 
+  /**
+   * Verify the checksums of ranges of whole chunks in the common fork join
+   * pool. Each range uses its own Checksum object.
+   */
+  private void verifyChunkedParallel(ByteBuffer data, ByteBuffer checksums,
+      String fileName, long basePos) throws ChecksumException {
+    final int dataLength = data.remaining();
+    final int rangeLength = getParallelRangeLength(dataLength);
+    List<ForkJoinTask<ChecksumException>> tasks = new ArrayList<>();
+    for (int off = 0; off < dataLength; off += rangeLength) {
+      final ByteBuffer rangeData = slice(data, off,
+          Math.min(rangeLength, dataLength - off));
+      final ByteBuffer rangeSums = slice(checksums,
+          off / bytesPerChecksum * type.size,
+          checksums.remaining() - off / bytesPerChecksum * type.size);
+      final long rangePos = basePos + off;
+      tasks.add(ForkJoinPool.commonPool().submit(() -> {
+        try {
+          verifyChunked(type, newCrc(type), rangeData, bytesPerChecksum,
+              rangeSums, fileName, rangePos);
+          return null;
+        } catch (ChecksumException e) {
+          return e;
+        }
+      }));
+    }
+    // Report the first mismatch in the data like the sequential path
+    ChecksumException first = null;
+    for (ForkJoinTask<ChecksumException> task : tasks) {
+      ChecksumException e = task.join();
+      if (first == null) {
+        first = e;
+      }
+    }
+    if (first != null) {
+      throw first;
+    }
+  }
+
+  /**
+   * Verify the checksums of a buffer. Heap buffers go through the byte
+   * array implementation.
+   */
   static void verifyChunked(final Type type, final Checksum algorithm,
       final ByteBuffer data, final int bytesPerCrc, final ByteBuffer crcs,
       final String filename, final long basePos) throws ChecksumException {
-    final byte[] bytes = new byte[bytesPerCrc];
+    if (data.hasArray() && crcs.hasArray()) {
+      verifyChunked(type, algorithm, data.array(),
+          data.arrayOffset() + data.position(), data.remaining(), bytesPerCrc,
+          crcs.array(), crcs.arrayOffset() + crcs.position(), filename,
+          basePos);
+    } else {
+      verifyChunkedBuffer(type, algorithm, data, bytesPerCrc, crcs, filename,
+          basePos);
+    }
+  }
+
+  private static void verifyChunkedBuffer(final Type type,
+      final Checksum algorithm, final ByteBuffer data, final int bytesPerCrc,
+      final ByteBuffer crcs, final String filename, final long basePos)
+      throws ChecksumException {
+    final byte[] bytes = updatesBuffer(algorithm) ? null : new byte[bytesPerCrc];
     final int dataOffset = data.position();
     final int dataLength = data.remaining();
     data.mark();
@@ -436,9 +525,8 @@ static void verifyChunked(final Type type, final Checksum algorithm,
     try {
       int i = 0;
       for(final int n = dataLength - bytesPerCrc + 1; i < n; i += bytesPerCrc) {
-        data.get(bytes);
         algorithm.reset();
-        algorithm.update(bytes, 0, bytesPerCrc);
+        update(algorithm, data, bytes, bytesPerCrc);
         final int computed = (int)algorithm.getValue();
         final int expected = crcs.getInt();
 
@@ -451,9 +539,8 @@ static void verifyChunked(final Type type, final Checksum algorithm,
 
       final int remainder = dataLength - i;
       if (remainder > 0) {
-        data.get(bytes, 0, remainder);
         algorithm.reset();
-        algorithm.update(bytes, 0, remainder);
+        update(algorithm, data, bytes, remainder);
         final int computed = (int)algorithm.getValue();
         final int expected = crcs.getInt();
 
@@ -543,21 +630,11 @@ public void calculateChunkedSums(ByteBuffer data, ByteBuffer checksums) {
           checksums, data);
       return;
     }
-    
-    data.mark();
-    checksums.mark();
-    try {
-      byte[] buf = new byte[bytesPerChecksum];
-      while (data.remaining() > 0) {
-        int n = Math.min(data.remaining(), bytesPerChecksum);
-        data.get(buf, 0, n);
-        summer.reset();
-        summer.update(buf, 0, n);
-        checksums.putInt((int)summer.getValue());
-      }
-    } finally {
-      data.reset();
-      checksums.reset();
+
+    if (isParallel(data.remaining())) {
+      calculateChunkedParallel(data, checksums);
+    } else {
+      calculateChunked(summer, data, bytesPerChecksum, checksums);
     }
   }
 
@@ -582,14 +659,76 @@ public void calculateChunkedSums(
       return;
     }
 
+    if (isParallel(dataLength)) {
+      calculateChunkedParallel(ByteBuffer.wrap(data, dataOffset, dataLength),
+          ByteBuffer.wrap(sums, sumsOffset, sums.length - sumsOffset));
+    } else {
+      calculateChunked(summer, data, dataOffset, dataLength, bytesPerChecksum,
+          sums, sumsOffset);
+    }
+  }
+
+  /**
+   * Calculate the checksums of ranges of whole chunks in the common fork join
+   * pool. Each range uses its own Checksum object.
+   */
+  private void calculateChunkedParallel(ByteBuffer data,
+      ByteBuffer checksums) {
+    final int dataLength = data.remaining();
+    final int rangeLength = getParallelRangeLength(dataLength);
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (int off = 0; off < dataLength; off += rangeLength) {
+      final ByteBuffer rangeData = slice(data, off,
+          Math.min(rangeLength, dataLength - off));
+      final ByteBuffer rangeSums = slice(checksums,
+          off / bytesPerChecksum * type.size,
+          checksums.remaining() - off / bytesPerChecksum * type.size);
+      tasks.add(ForkJoinPool.commonPool().submit(() -> {
+        if (rangeData.hasArray() && rangeSums.hasArray()) {
+          calculateChunked(newCrc(type), rangeData.array(),
+              rangeData.arrayOffset() + rangeData.position(),
+              rangeData.remaining(), bytesPerChecksum, rangeSums.array(),
+              rangeSums.arrayOffset() + rangeSums.position());
+        } else {
+          calculateChunked(newCrc(type), rangeData, bytesPerChecksum,
+              rangeSums);
+        }
+      }));
+    }
+    for (ForkJoinTask<?> task : tasks) {
+      task.join();
+    }
+  }
+
+  private static void calculateChunked(Checksum algorithm, ByteBuffer data,
+      int bytesPerCrc, ByteBuffer checksums) {
+    data.mark();
+    checksums.mark();
+    try {
+      byte[] buf = updatesBuffer(algorithm) ? null : new byte[bytesPerCrc];
+      while (data.remaining() > 0) {
+        int n = Math.min(data.remaining(), bytesPerCrc);
+        algorithm.reset();
+        update(algorithm, data, buf, n);
+        checksums.putInt((int)algorithm.getValue());
+      }
+    } finally {
+      data.reset();
+      checksums.reset();
+    }
+  }
+
+  private static void calculateChunked(Checksum algorithm,
+      byte[] data, int dataOffset, int dataLength, int bytesPerCrc,
+      byte[] sums, int sumsOffset) {
     int remaining = dataLength;
     while (remaining > 0) {
-      int n = Math.min(remaining, bytesPerChecksum);
-      summer.reset();
-      summer.update(data, dataOffset, n);
+      int n = Math.min(remaining, bytesPerCrc);
+      algorithm.reset();
+      algorithm.update(data, dataOffset, n);
       dataOffset += n;
       remaining -= n;
-      long calculated = summer.getValue();
+      long calculated = algorithm.getValue();
       sums[sumsOffset++] = (byte) (calculated >> 24);
       sums[sumsOffset++] = (byte) (calculated >> 16);
       sums[sumsOffset++] = (byte) (calculated >> 8);
@@ -597,6 +736,65 @@ public void calculateChunkedSums(
     }
   }
 
+  /**
+   * @return if a bulk operation on this many bytes should run in parallel.
+   */
+  private boolean isParallel(int dataLength) {
+    return dataLength >= parallelMinBytes && dataLength > bytesPerChecksum
+        && ForkJoinPool.getCommonPoolParallelism() > 1;
+  }
+
+  /**
+   * @return the length of the ranges of whole chunks, one per thread of the
+   *     common pool.
+   */
+  private int getParallelRangeLength(int dataLength) {
+    final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+    final int chunks = (dataLength - 1) / bytesPerChecksum + 1;
+    return ((chunks - 1) / parallelism + 1) * bytesPerChecksum;
+  }
+
+  /**
+   * @return a view of length bytes of the buffer from position + offset.
+   */
+  private static ByteBuffer slice(ByteBuffer buf, int offset, int length) {
+    ByteBuffer dup = buf.duplicate();
+    dup.position(buf.position() + offset);
+    dup.limit(dup.position() + length);
+    return dup;
+  }
+
+  /**
+   * @return if the checksum reads ByteBuffers in place. The JDK CRC32 and
+   *     CRC32C use their intrinsics on direct buffers too.
+   */
+  private static boolean updatesBuffer(Checksum algorithm) {
+    return algorithm instanceof CRC32
+        || (useJava9Crc32C && Java9Crc32CFactory.isInstance(algorithm));
+  }
+
+  /**
+   * Update the checksum with the next len bytes of the buffer, through the
+   * copy buffer when the checksum cannot read ByteBuffers.
+   */
+  private static void update(Checksum algorithm, ByteBuffer data,
+      byte[] copyBuf, int len) {
+    if (copyBuf != null) {
+      data.get(copyBuf, 0, len);
+      algorithm.update(copyBuf, 0, len);
+    } else if (algorithm instanceof CRC32) {
+      final int limit = data.limit();
+      data.limit(data.position() + len);
+      ((CRC32) algorithm).update(data);
+      data.limit(limit);
+    } else {
+      final int limit = data.limit();
+      data.limit(data.position() + len);
+      Java9Crc32CFactory.update(algorithm, data);
+      data.limit(limit);
+    }
+  }
+
   @Override
   public boolean equals(Object other) {
     if (!(other instanceof DataChecksum)) {
@@ -642,21 +840,48 @@ public void update(int b) {}
    * Holds constructor handle to let it be initialized on demand.
    */
   private static class Java9Crc32CFactory {
+    private static final Class<?> CRC32C_CLASS;
     private static final MethodHandle NEW_CRC32C_MH;
+    private static final MethodHandle UPDATE_BUFFER_MH;
 
     static {
+      Class<?> crc32C = null;
       MethodHandle newCRC32C = null;
+      MethodHandle updateBuffer = null;
       try {
+        crc32C = Class.forName("java.util.zip.CRC32C");
         newCRC32C = MethodHandles.publicLookup()
             .findConstructor(
-                Class.forName("java.util.zip.CRC32C"),
+                crc32C,
                 MethodType.methodType(void.class)
             );
+        updateBuffer = MethodHandles.publicLookup()
+            .findVirtual(
+                crc32C, "update",
+                MethodType.methodType(void.class, ByteBuffer.class)
+            ).asType(MethodType.methodType(
+                void.class, Checksum.class, ByteBuffer.class));
       } catch (ReflectiveOperationException e) {
         // Should not reach here.
         throw new RuntimeException(e);
       }
+      CRC32C_CLASS = crc32C;
       NEW_CRC32C_MH = newCRC32C;
+      UPDATE_BUFFER_MH = updateBuffer;
+    }
+
+    public static boolean isInstance(Checksum checksum) {
+      return CRC32C_CLASS.isInstance(checksum);
+    }
+
+    public static void update(Checksum checksum, ByteBuffer buf) {
+      try {
+        // Should throw nothing
+        UPDATE_BUFFER_MH.invokeExact(checksum, buf);
+      } catch (Throwable t) {
+        throw (t instanceof RuntimeException) ? (RuntimeException) t
+            : new RuntimeException(t);
+      }
     }
 
     public static Checksum createChecksum() {
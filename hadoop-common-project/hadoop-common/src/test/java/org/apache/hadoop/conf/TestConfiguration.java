@@ -32,6 +32,8 @@
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -47,7 +49,9 @@
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarOutputStream;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
 import static java.util.concurrent.TimeUnit.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -199,6 +203,158 @@ public void testInputStreamResource() throws Exception {
     assertEquals("A", conf.get("prop"));
   }
 
+  @Test
+  public void testParsedResourceCache() throws Exception {
+    System.setProperty(ParsedResourceCache.CACHE_ENABLED_PROPERTY, "true");
+    try {
+      File file = new File(CONFIG);
+      String resource = file.getName();
+      ClassLoader classLoader = new URLClassLoader(
+          new URL[] {file.getParentFile().toURI().toURL()}, null);
+      Configuration.addDeprecation("test.cache.old", "test.cache.new");
+      out = new BufferedWriter(new FileWriter(CONFIG));
+      startConfig();
+      appendProperty("test.cache.a", "a", true, "source");
+      appendProperty("test.cache.old", "old");
+      appendPropertyByTag("test.cache.tagged", "tagged", "CACHETAG");
+      endConfig();
+
+      // The second configuration loads the parsed properties
+      ParsedResourceCache.clear();
+      for (int i = 0; i < 2; i++) {
+        Configuration cached = new Configuration(false);
+        cached.setClassLoader(classLoader);
+        cached.addResource(resource);
+        assertEquals("a", cached.get("test.cache.a"));
+        assertTrue(cached.getFinalParameters().contains("test.cache.a"));
+        assertArrayEquals(new String[] {"source", resource},
+            cached.getPropertySources("test.cache.a"));
+        assertEquals("old", cached.get("test.cache.new"));
+        assertEquals("tagged", cached.getAllPropertiesByTag("CACHETAG")
+            .getProperty("test.cache.tagged"));
+        assertEquals(1, ParsedResourceCache.size());
+      }
+
+      // A modified resource is parsed again
+      out = new BufferedWriter(new FileWriter(CONFIG));
+      startConfig();
+      appendProperty("test.cache.a", "b");
+      endConfig();
+      Configuration modified = new Configuration(false);
+      modified.setClassLoader(classLoader);
+      modified.addResource(resource);
+      assertEquals("b", modified.get("test.cache.a"));
+      assertEquals(2, ParsedResourceCache.size());
+
+      // The binary cache is used by new processes
+      File cacheDir = GenericTestUtils.getTestDir("testParsedResourceCache");
+      FileUtil.fullyDelete(cacheDir);
+      System.setProperty(ParsedResourceCache.CACHE_DIR_PROPERTY,
+          cacheDir.getAbsolutePath());
+      try {
+        ParsedResourceCache.clear();
+        String key = ParsedResourceCache.getKey(
+            Files.readAllBytes(file.toPath()), false);
+        assertNull(ParsedResourceCache.get(key));
+        modified = new Configuration(false);
+        modified.setClassLoader(classLoader);
+        modified.addResource(resource);
+        assertEquals("b", modified.get("test.cache.a"));
+        // The properties, a plain file has no index of its versions
+        assertEquals(1, cacheDir.list().length);
+
+        ParsedResourceCache.clear();
+        List<ParsedResourceCache.Property> properties =
+            ParsedResourceCache.get(key);
+        assertEquals(1, properties.size());
+        assertEquals("test.cache.a", properties.get(0).getName());
+        assertEquals("b", properties.get(0).getValue());
+        // A plain file has no version, it is always read
+        assertNull(
+            ParsedResourceCache.get(classLoader.getResource(resource), false));
+      } finally {
+        System.clearProperty(ParsedResourceCache.CACHE_DIR_PROPERTY);
+        FileUtil.fullyDelete(cacheDir);
+      }
+    } finally {
+      System.clearProperty(ParsedResourceCache.CACHE_ENABLED_PROPERTY);
+      ParsedResourceCache.clear();
+    }
+  }
+
+  @Test
+  public void testParsedResourceCacheSeesSameLengthEdits() throws Exception {
+    File file = new File(CONFIG);
+    String resource = file.getName();
+    ClassLoader classLoader = new URLClassLoader(
+        new URL[] {file.getParentFile().toURI().toURL()}, null);
+    System.setProperty(ParsedResourceCache.CACHE_ENABLED_PROPERTY, "true");
+    try {
+      ParsedResourceCache.clear();
+      out = new BufferedWriter(new FileWriter(CONFIG));
+      startConfig();
+      appendProperty("test.cache.num", "1");
+      endConfig();
+      long modified = file.lastModified();
+      Configuration conf = new Configuration(false);
+      conf.setClassLoader(classLoader);
+      conf.addResource(resource);
+      assertEquals("1", conf.get("test.cache.num"));
+
+      // Same length and modification time, like an edit within the
+      // granularity of the file system
+      out = new BufferedWriter(new FileWriter(CONFIG));
+      startConfig();
+      appendProperty("test.cache.num", "2");
+      endConfig();
+      assertTrue(file.setLastModified(modified));
+      conf.reloadConfiguration();
+      assertEquals("2", conf.get("test.cache.num"));
+    } finally {
+      System.clearProperty(ParsedResourceCache.CACHE_ENABLED_PROPERTY);
+      ParsedResourceCache.clear();
+    }
+  }
+
+  @Test
+  public void testParsedResourceCacheJarVersion() throws Exception {
+    File jar = new File(GenericTestUtils.getTestDir(),
+        "testParsedResourceCacheJarVersion.jar");
+    try (JarOutputStream jarOut =
+        new JarOutputStream(new FileOutputStream(jar))) {
+      jarOut.putNextEntry(new ZipEntry("cache-site.xml"));
+      jarOut.write(("<configuration><property><name>test.cache.jar</name>"
+          + "<value>j</value></property></configuration>")
+          .getBytes(StandardCharsets.UTF_8));
+    }
+    ClassLoader classLoader = new URLClassLoader(
+        new URL[] {jar.toURI().toURL()}, null);
+    URL url = classLoader.getResource("cache-site.xml");
+    System.setProperty(ParsedResourceCache.CACHE_ENABLED_PROPERTY, "true");
+    try {
+      ParsedResourceCache.clear();
+      assertNull(ParsedResourceCache.get(url, false));
+      Configuration conf = new Configuration(false);
+      conf.setClassLoader(classLoader);
+      conf.addResource("cache-site.xml");
+      assertEquals("j", conf.get("test.cache.jar"));
+      // The unchanged jar is not read again
+      assertEquals(1, ParsedResourceCache.get(url, false).size());
+    } finally {
+      System.clearProperty(ParsedResourceCache.CACHE_ENABLED_PROPERTY);
+      ParsedResourceCache.clear();
+      jar.delete();
+    }
+  }
+
+  @Test
+  public void testParsedResourceCacheDisabledByDefault() throws Exception {
+    assertFalse(ParsedResourceCache.isEnabled());
+    ParsedResourceCache.clear();
+    new Configuration().size();
+    assertEquals(0, ParsedResourceCache.size());
+  }
+
   @Test
   public void testFinalWarnings() throws Exception {
     // Make a configuration file with a final property
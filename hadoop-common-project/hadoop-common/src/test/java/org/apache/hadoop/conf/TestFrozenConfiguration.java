@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.conf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.test.LambdaTestUtils;
+import org.junit.Test;
+
+/**
+ * Test the immutable snapshots of {@link Configuration}.
+ */
+public class TestFrozenConfiguration {
+
+  @Test
+  public void testSameValues() {
+    Configuration conf = new Configuration();
+    conf.set("test.frozen.value", "  value  ");
+    FrozenConfiguration frozen = new FrozenConfiguration(conf);
+    for (Map.Entry<String, String> entry : conf) {
+      String name = entry.getKey();
+      assertEquals(name, conf.get(name), frozen.get(name));
+      assertEquals(name, conf.getTrimmed(name), frozen.getTrimmed(name));
+    }
+    assertEquals(conf.size(), frozen.size());
+    assertEquals("value", frozen.getTrimmed(" test.frozen.value "));
+    assertNull(frozen.get("test.frozen.missing"));
+    assertEquals("default", frozen.get("test.frozen.missing", "default"));
+  }
+
+  @Test
+  public void testVariableExpansion() {
+    Configuration conf = new Configuration(false);
+    conf.set("test.frozen.a", "${test.frozen.b}-a");
+    conf.set("test.frozen.b", "b");
+    FrozenConfiguration frozen = new FrozenConfiguration(conf);
+    assertEquals("b-a", frozen.get("test.frozen.a"));
+    assertEquals("b-c",
+        frozen.get("test.frozen.missing", "${test.frozen.b}-c"));
+
+    // The snapshot keeps the values of when it was created
+    conf.set("test.frozen.b", "changed");
+    assertEquals("b-a", frozen.get("test.frozen.a"));
+    assertEquals("changed-a", conf.get("test.frozen.a"));
+  }
+
+  @Test
+  public void testDeprecation() {
+    Configuration.addDeprecation("test.frozen.old", "test.frozen.new");
+    Configuration conf = new Configuration(false);
+    conf.set("test.frozen.old", "5");
+    FrozenConfiguration frozen = new FrozenConfiguration(conf);
+    assertEquals("5", frozen.get("test.frozen.new"));
+    assertEquals("5", frozen.get("test.frozen.old"));
+    assertEquals(5, frozen.getInt("test.frozen.old", 0));
+  }
+
+  @Test
+  public void testTypedGetters() throws Exception {
+    Configuration conf = new Configuration(false);
+    conf.set("test.frozen.int", " 0x10 ");
+    conf.set("test.frozen.long", "-1234567890123");
+    conf.set("test.frozen.float", "1.5");
+    conf.set("test.frozen.bool", " TRUE ");
+    conf.set("test.frozen.invalid", "invalid");
+    FrozenConfiguration frozen = new FrozenConfiguration(conf);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(16, frozen.getInt("test.frozen.int", 0));
+      assertEquals(16L, frozen.getLong("test.frozen.int", 0));
+      assertEquals(-1234567890123L, frozen.getLong("test.frozen.long", 0));
+      assertEquals(1.5f, frozen.getFloat("test.frozen.float", 0), 0);
+      assertEquals(1.5, frozen.getDouble("test.frozen.float", 0), 0);
+      assertTrue(frozen.getBoolean("test.frozen.bool", false));
+      assertFalse(frozen.getBoolean("test.frozen.invalid", false));
+      assertEquals(3, frozen.getInt("test.frozen.missing", 3));
+      LambdaTestUtils.intercept(NumberFormatException.class,
+          () -> frozen.getInt("test.frozen.invalid", 0));
+    }
+  }
+
+  @Test
+  public void testImmutable() throws Exception {
+    Configuration conf = new Configuration(false);
+    conf.set("test.frozen.value", "value");
+    FrozenConfiguration frozen = new FrozenConfiguration(conf);
+    LambdaTestUtils.intercept(UnsupportedOperationException.class,
+        () -> frozen.set("test.frozen.value", "changed"));
+    LambdaTestUtils.intercept(UnsupportedOperationException.class,
+        () -> frozen.setInt("test.frozen.value", 1));
+    LambdaTestUtils.intercept(UnsupportedOperationException.class,
+        () -> frozen.unset("test.frozen.value"));
+    LambdaTestUtils.intercept(UnsupportedOperationException.class,
+        () -> frozen.clear());
+    LambdaTestUtils.intercept(UnsupportedOperationException.class,
+        () -> frozen.addResource("core-site.xml"));
+    Configuration.reloadExistingConfigurations();
+    assertEquals("value", frozen.get("test.frozen.value"));
+
+    // The copies can be modified
+    Configuration copy = new Configuration(frozen);
+    copy.set("test.frozen.value", "changed");
+    assertEquals("changed", copy.get("test.frozen.value"));
+    assertEquals("value", frozen.get("test.frozen.value"));
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    Configuration conf = new Configuration(false);
+    for (int i = 0; i < 100; i++) {
+      conf.setInt("test.frozen.key" + i, i);
+    }
+    FrozenConfiguration frozen = new FrozenConfiguration(conf);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          for (int n = 0; n < 1000; n++) {
+            int i = n % 100;
+            assertEquals(i, frozen.getInt("test.frozen.key" + i, -1));
+            assertEquals(Integer.toString(i),
+                frozen.getTrimmed("test.frozen.key" + i));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -23,14 +23,19 @@
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Random;
+import java.util.function.IntFunction;
 
 import org.apache.hadoop.fs.ByteBufferPositionedReadable;
 import org.apache.hadoop.fs.ByteBufferReadable;
 import org.apache.hadoop.fs.CanUnbuffer;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FSExceptionMessages;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.HasEnhancedByteBufferAccess;
 import org.apache.hadoop.fs.PositionedReadable;
 import org.apache.hadoop.fs.ReadOption;
@@ -40,6 +45,7 @@
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.RandomDatum;
 import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.util.functional.FutureIO;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -763,6 +769,38 @@ public void testByteBufferPread() throws Exception {
     }
   }
   
+  /** Test vectored read into heap and direct buffers. */
+  @Test(timeout=120000)
+  public void testVectoredRead() throws Exception {
+    try (OutputStream out = getOutputStream(defaultBufferSize)) {
+      writeData(out);
+    }
+
+    try (InputStream in = getInputStream(defaultBufferSize)) {
+      vectoredReadCheck((PositionedReadable) in, ByteBuffer::allocate);
+      vectoredReadCheck((PositionedReadable) in, ByteBuffer::allocateDirect);
+    }
+  }
+
+  private void vectoredReadCheck(PositionedReadable in,
+      IntFunction<ByteBuffer> allocate) throws Exception {
+    List<FileRange> ranges = new ArrayList<>();
+    ranges.add(FileRange.createFileRange(dataLen / 2, dataLen / 4));
+    ranges.add(FileRange.createFileRange(3, 100));
+    ranges.add(FileRange.createFileRange(dataLen / 3 + 7, 5000));
+    in.readVectored(ranges, allocate);
+
+    for (FileRange range : ranges) {
+      ByteBuffer buf = FutureIO.awaitFuture(range.getData());
+      byte[] readData = new byte[range.getLength()];
+      buf.get(readData);
+      int pos = (int) range.getOffset();
+      byte[] expectedData =
+          Arrays.copyOfRange(data, pos, pos + range.getLength());
+      Assert.assertArrayEquals(expectedData, readData);
+    }
+  }
+
   @Test(timeout=120000)
   public void testCombinedOp() throws Exception {
     OutputStream out = getOutputStream(defaultBufferSize);
@@ -23,7 +23,9 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.Random;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.ByteBufferPositionedReadable;
@@ -31,6 +33,7 @@
 import org.apache.hadoop.fs.CanSetDropBehind;
 import org.apache.hadoop.fs.CanSetReadahead;
 import org.apache.hadoop.fs.CanUnbuffer;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
 import org.apache.hadoop.fs.HasEnhancedByteBufferAccess;
 import org.apache.hadoop.fs.HasFileDescriptor;
 import org.apache.hadoop.fs.PositionedReadable;
@@ -41,7 +44,10 @@
 import org.apache.hadoop.io.ByteBufferPool;
 import org.apache.hadoop.io.DataInputBuffer;
 import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.junit.AfterClass;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -502,4 +508,78 @@ public void testHasCapability() throws Exception {
         }
     );
   }
+
+  /** Test the positioned reads decrypted in parallel chunks. */
+  @Test(timeout = 120000)
+  public void testParallelDecryption() throws Exception {
+    try (OutputStream out = getOutputStream(defaultBufferSize)) {
+      writeData(out);
+    }
+    final int dataLen = getDataLen();
+    byte[] expectedData = new byte[dataLen];
+    try (InputStream in = getInputStream(defaultBufferSize)) {
+      IOUtils.readFully(in, expectedData, 0, dataLen);
+    }
+
+    Configuration conf = new Configuration();
+    conf.setInt(CommonConfigurationKeysPublic
+        .HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_KEY, 1000);
+    CryptoCodec parallelCodec =
+        ReflectionUtils.newInstance(codec.getClass(), conf);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(buf, 0, bufLen);
+    try (CryptoInputStream cin = new CryptoInputStream(
+        new FakeInputStream(in), parallelCodec, defaultBufferSize, key, iv)) {
+      byte[] result = new byte[dataLen + 3];
+      cin.readFully(0, result, 3, dataLen);
+      Assert.assertArrayEquals(expectedData,
+          Arrays.copyOfRange(result, 3, dataLen + 3));
+
+      cin.readFully(17, result, 0, dataLen - 17);
+      Assert.assertArrayEquals(
+          Arrays.copyOfRange(expectedData, 17, dataLen),
+          Arrays.copyOf(result, dataLen - 17));
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(dataLen - 17);
+      cin.readFully(17, direct);
+      direct.flip();
+      byte[] readData = new byte[dataLen - 17];
+      direct.get(readData);
+      Assert.assertArrayEquals(
+          Arrays.copyOfRange(expectedData, 17, dataLen), readData);
+    }
+  }
+
+  /**
+   * Test the streams starting in the middle of a block, with large reads
+   * and writes.
+   */
+  @Test(timeout = 120000)
+  public void testUnalignedStreamOffset() throws Exception {
+    byte[] data = new byte[3 * defaultBufferSize + 11];
+    new Random().nextBytes(data);
+    DataOutputBuffer aligned = new DataOutputBuffer();
+    try (OutputStream out = new CryptoOutputStream(aligned, codec,
+        defaultBufferSize, key, iv, 0, false)) {
+      out.write(data);
+    }
+    DataOutputBuffer unaligned = new DataOutputBuffer();
+    try (OutputStream out = new CryptoOutputStream(unaligned, codec,
+        defaultBufferSize, key, iv, 5, false)) {
+      out.write(data, 5, data.length - 5);
+    }
+    Assert.assertArrayEquals(
+        Arrays.copyOfRange(aligned.getData(), 5, data.length),
+        Arrays.copyOf(unaligned.getData(), unaligned.getLength()));
+
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(unaligned.getData(), unaligned.getLength());
+    try (InputStream cin = new CryptoInputStream(in, codec,
+        defaultBufferSize, key, iv, 5)) {
+      byte[] result = new byte[data.length - 5];
+      IOUtils.readFully(cin, result, 0, result.length);
+      Assert.assertArrayEquals(
+          Arrays.copyOfRange(data, 5, data.length), result);
+    }
+  }
 }
@@ -121,6 +121,11 @@ public void testByteBufferRead() throws IOException {}
   @Test(timeout=10000)
   public void testByteBufferPread() throws IOException {}
   
+  @Ignore("Wrapped stream doesn't support PositionedRead")
+  @Override
+  @Test(timeout=10000)
+  public void testVectoredRead() throws IOException {}
+
   @Ignore("Wrapped stream doesn't support ByteBufferRead, Seek")
   @Override
   @Test(timeout=10000)
@@ -61,6 +61,76 @@ public void testZlibSequenceFile() throws Exception {
     LOG.info("Successfully tested SequenceFile with DefaultCodec");
   }
 
+  @Test
+  public void testBatchRead() throws Exception {
+    int count = 1024 * 10;
+    int seed = new Random().nextInt();
+    LOG.info("Seed = " + seed);
+    Path file = new Path(GenericTestUtils.getTempPath("test.batch.seq"));
+    FileSystem fs = FileSystem.getLocal(conf);
+    try {
+      for (CompressionType type : CompressionType.values()) {
+        writeTest(fs, count, seed, file, type, new DefaultCodec());
+        batchReadTest(fs, count, seed, file, 0, false);
+        batchReadTest(fs, count, seed, file, 0, true);
+        // Mix the per record and the batch reads
+        batchReadTest(fs, count, seed, file, 7, false);
+        batchReadTest(fs, count, seed, file, 7, true);
+      }
+    } finally {
+      fs.delete(file, true);
+    }
+  }
+
+  @Test
+  public void testBatchReadFileNameWithPercent() throws Exception {
+    // the file name is part of the name of the prefetch thread
+    Path file = new Path(GenericTestUtils.getTempPath("test.batch%d%s.seq"));
+    FileSystem fs = FileSystem.getLocal(conf);
+    try {
+      writeTest(fs, 1000, 1, file, CompressionType.BLOCK, new DefaultCodec());
+      batchReadTest(fs, 1000, 1, file, 0, true);
+    } finally {
+      fs.delete(file, true);
+    }
+  }
+
+  private void batchReadTest(FileSystem fs, int count, int seed, Path file,
+      int skip, boolean prefetch) throws IOException {
+    SequenceFile.Reader reader =
+        new SequenceFile.Reader(conf, SequenceFile.Reader.file(file));
+    RandomDatum.Generator generator = new RandomDatum.Generator(seed);
+    RandomDatum k = new RandomDatum();
+    RandomDatum v = new RandomDatum();
+    for (int i = 0; i < skip; i++) {
+      generator.next();
+      assertNotNull(reader.next(k));
+      assertEquals(generator.getKey(), k);
+    }
+
+    DataInputBuffer buffer = new DataInputBuffer();
+    int read = skip;
+    try (SequenceFile.BatchReader batches = new SequenceFile.BatchReader(
+        reader, new SequenceFile.RecordBatch(100, 64 * 1024),
+        new SequenceFile.RecordBatch(100, 64 * 1024), prefetch)) {
+      SequenceFile.RecordBatch batch;
+      while ((batch = batches.next()) != null) {
+        assertTrue(batch.size() > 0 && batch.size() <= 100);
+        for (int i = 0; i < batch.size(); i++) {
+          generator.next();
+          batch.getKey(i, buffer);
+          k.readFields(buffer);
+          assertEquals("wrong key at " + read, generator.getKey(), k);
+          batch.getValue(i, buffer);
+          v.readFields(buffer);
+          assertEquals("wrong value at " + read, generator.getValue(), v);
+          read++;
+        }
+      }
+    }
+    assertEquals(count, read);
+  }
+
   @SuppressWarnings("deprecation")
   public void testSorterProperties() throws IOException {
     // Test to ensure that deprecated properties have no default
@@ -521,7 +521,7 @@ public void testSequenceFileBZip2Codec() throws IOException, ClassNotFoundExcept
 
   @Test(timeout=20000)
   public void testSequenceFileZStandardCodec() throws Exception {
-    assumeTrue(ZStandardCodec.isNativeCodeLoaded());
+    assumeTrue(ZStandardCodec.isAvailable());
     Configuration conf = new Configuration();
     sequenceFileCodecTest(conf, 0,
         "org.apache.hadoop.io.compress.ZStandardCodec", 100);
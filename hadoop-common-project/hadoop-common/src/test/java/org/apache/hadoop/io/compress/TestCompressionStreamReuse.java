@@ -62,7 +62,7 @@ public void testGzipCompressStreamReuse() throws IOException {
 
   @Test
   public void testZStandardCompressStreamReuse() throws IOException {
-    assumeTrue(ZStandardCodec.isNativeCodeLoaded());
+    assumeTrue(ZStandardCodec.isAvailable());
     resetStateTest(conf, seed, count,
         "org.apache.hadoop.io.compress.ZStandardCodec");
   }
@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Test the compression of output streams on a pool of threads.
+ */
+public class TestParallelCompressorStream {
+
+  private static final int BLOCK_SIZE = 10000;
+
+  private Configuration conf;
+  private byte[] data;
+
+  @Before
+  public void setup() {
+    conf = new Configuration();
+    conf.setInt(
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_PARALLEL_THREADS_KEY, 3);
+    conf.setInt(
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_PARALLEL_BLOCK_SIZE_KEY,
+        BLOCK_SIZE);
+    Random random = new Random(0);
+    data = new byte[BLOCK_SIZE * 20 + 123];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) ('a' + random.nextInt(8));
+    }
+  }
+
+  @Test
+  public void testGzip() throws IOException {
+    GzipCodec codec = new GzipCodec();
+    codec.setConf(conf);
+    byte[] compressed = compress(codec, data);
+
+    // Standard decoders read the concatenated members
+    try (InputStream in =
+        new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      assertArrayEquals(data, readFully(in));
+    }
+    assertArrayEquals(data, decompress(codec, compressed));
+  }
+
+  @Test
+  public void testZStandard() throws IOException {
+    assumeTrue(ZStandardCodec.isAvailable());
+    ZStandardCodec codec = new ZStandardCodec();
+    codec.setConf(conf);
+    byte[] compressed = compress(codec, data);
+    assertArrayEquals(data, decompress(codec, compressed));
+  }
+
+  @Test
+  public void testEmptyStream() throws IOException {
+    GzipCodec codec = new GzipCodec();
+    codec.setConf(conf);
+    byte[] compressed = compress(codec, new byte[0]);
+    assertTrue(compressed.length > 0);
+    assertEquals(0, decompress(codec, compressed).length);
+  }
+
+  @Test
+  public void testFlushAndSingleBytes() throws IOException {
+    GzipCodec codec = new GzipCodec();
+    codec.setConf(conf);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CompressionOutputStream out = codec.createOutputStream(bytes);
+    assertTrue(out instanceof ParallelCompressorStream);
+    out.write(data, 0, 100);
+    for (int i = 100; i < 200; i++) {
+      out.write(data[i]);
+    }
+    // The data written so far can be read after a flush
+    out.flush();
+    byte[] flushed = new byte[200];
+    System.arraycopy(data, 0, flushed, 0, flushed.length);
+    assertArrayEquals(flushed, decompress(codec, bytes.toByteArray()));
+    out.write(data, 200, data.length - 200);
+    out.close();
+    assertArrayEquals(data, decompress(codec, bytes.toByteArray()));
+  }
+
+  @Test
+  public void testStreamsShareThreads() throws IOException {
+    GzipCodec codec = new GzipCodec();
+    codec.setConf(conf);
+    List<ByteArrayOutputStream> outputs = new ArrayList<>();
+    List<CompressionOutputStream> streams = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      outputs.add(bytes);
+      streams.add(codec.createOutputStream(bytes));
+    }
+    for (CompressionOutputStream out : streams) {
+      out.write(data);
+    }
+    // Closing a stream does not stop the compression of the others
+    streams.get(0).close();
+    for (int i = 1; i < streams.size(); i++) {
+      streams.get(i).close();
+      assertArrayEquals(data, decompress(codec, outputs.get(i).toByteArray()));
+    }
+
+    int compressorThreads = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("Parallel compressor")) {
+        assertTrue(thread.isDaemon());
+        compressorThreads++;
+      }
+    }
+    assertTrue("Too many threads: " + compressorThreads,
+        compressorThreads <= Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    GzipCodec codec = new GzipCodec();
+    codec.setConf(new Configuration());
+    CompressionOutputStream out =
+        codec.createOutputStream(new ByteArrayOutputStream());
+    assertFalse(out instanceof ParallelCompressorStream);
+    out.close();
+  }
+
+  private static byte[] compress(CompressionCodec codec, byte[] data)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (CompressionOutputStream out = codec.createOutputStream(bytes)) {
+      assertTrue(out instanceof ParallelCompressorStream);
+      // Writes not aligned on the blocks
+      int off = 0;
+      while (off < data.length) {
+        int len = Math.min(data.length - off, 7777);
+        out.write(data, off, len);
+        off += len;
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] decompress(CompressionCodec codec, byte[] compressed)
+      throws IOException {
+    try (InputStream in =
+        codec.createInputStream(new ByteArrayInputStream(compressed))) {
+      return readFully(in);
+    }
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    IOUtils.copyBytes(in, bytes, 4096, false);
+    return bytes.toByteArray();
+  }
+}
@@ -25,6 +25,7 @@
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 import org.apache.hadoop.conf.Configuration;
@@ -223,6 +224,32 @@ public void testCompressDecompress() {
   }
 
   // test compress/decompress with empty stream
+  @Test
+  public void testLz4DirectDecompress() throws Exception {
+    int byteSize = 1024 * 54;
+    byte[] bytes = generate(byteSize);
+    Lz4Compressor compressor = new Lz4Compressor();
+    compressor.setInput(bytes, 0, bytes.length);
+    compressor.finish();
+    byte[] compressed = new byte[byteSize * 2];
+    int cSize = compressor.compress(compressed, 0, compressed.length);
+
+    ByteBuffer src = ByteBuffer.allocateDirect(cSize);
+    src.put(compressed, 0, cSize);
+    src.flip();
+    ByteBuffer dst = ByteBuffer.allocateDirect(byteSize);
+    Lz4Decompressor.Lz4DirectDecompressor decompressor =
+        new Lz4Decompressor.Lz4DirectDecompressor();
+    decompressor.decompress(src, dst);
+    assertTrue(decompressor.finished());
+    assertFalse(src.hasRemaining());
+    assertEquals(byteSize, dst.position());
+    dst.flip();
+    byte[] decompressed = new byte[byteSize];
+    dst.get(decompressed);
+    assertArrayEquals(bytes, decompressed);
+  }
+
   @Test
   public void testCompressorDecompressorEmptyStreamLogic() {
     ByteArrayInputStream bytesIn = null;
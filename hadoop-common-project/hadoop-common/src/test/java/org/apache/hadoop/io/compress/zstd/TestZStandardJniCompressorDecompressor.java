@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress.zstd;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.CompressorStream;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.DecompressorStream;
+import org.apache.hadoop.io.compress.ZStandardCodec;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_DEFAULT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Test the zstd compressor and decompressor using the zstd-jni library.
+ */
+public class TestZStandardJniCompressorDecompressor {
+  private static final Random RANDOM = new Random(12345L);
+  private static File compressedFile;
+  private static File uncompressedFile;
+
+  private ZStandardCodec codec;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    uncompressedFile = new File(TestZStandardJniCompressorDecompressor.class
+        .getResource("/zstd/test_file.txt").toURI());
+    compressedFile = new File(TestZStandardJniCompressorDecompressor.class
+        .getResource("/zstd/test_file.txt.zst").toURI());
+  }
+
+  @Before
+  public void before() throws Exception {
+    assumeTrue(ZStandardJniCompressor.isLoaded());
+    codec = new ZStandardCodec();
+    codec.setConf(new Configuration());
+  }
+
+  @Test
+  public void testCodecWithoutNativeCode() throws Exception {
+    assumeTrue(!ZStandardCodec.isNativeCodeLoaded());
+    assertTrue(ZStandardCodec.isAvailable());
+    assertEquals(ZStandardJniCompressor.class, codec.getCompressorType());
+    assertEquals(ZStandardJniDecompressor.class, codec.getDecompressorType());
+    assertTrue(codec.createDirectDecompressor()
+        instanceof ZStandardJniDecompressor.ZStandardJniDirectDecompressor);
+  }
+
+  @Test
+  public void testCompressionCompressesCorrectly() throws Exception {
+    byte[] bytes = FileUtils.readFileToByteArray(uncompressedFile);
+    Compressor compressor = new ZStandardJniCompressor();
+    byte[] compressed = compress(bytes, compressor, true);
+    assertEquals(bytes.length, compressor.getBytesRead());
+    assertEquals(compressed.length, compressor.getBytesWritten());
+    assertTrue(compressor.finished());
+    assertTrue(compressed.length < bytes.length);
+
+    assertArrayEquals(bytes, decompress(new ByteArrayInputStream(compressed),
+        new ZStandardJniDecompressor(IO_FILE_BUFFER_SIZE_DEFAULT)));
+  }
+
+  @Test
+  public void testCompressingWithOneByteOutputBuffer() throws Exception {
+    byte[] bytes = FileUtils.readFileToByteArray(uncompressedFile);
+    Compressor compressor =
+        new ZStandardJniCompressor(3, IO_FILE_BUFFER_SIZE_DEFAULT, 1);
+    byte[] compressed = compress(bytes, compressor, false);
+    assertEquals(bytes.length, compressor.getBytesRead());
+    assertTrue(compressor.finished());
+
+    assertArrayEquals(bytes, decompress(new ByteArrayInputStream(compressed),
+        new ZStandardJniDecompressor(IO_FILE_BUFFER_SIZE_DEFAULT)));
+  }
+
+  @Test
+  public void testDecompressingNativeOutput() throws Exception {
+    // The file was compressed with the native zstd library
+    byte[] expected = FileUtils.readFileToByteArray(uncompressedFile);
+    assertArrayEquals(expected, decompress(
+        FileUtils.openInputStream(compressedFile),
+        new ZStandardJniDecompressor(IO_FILE_BUFFER_SIZE_DEFAULT)));
+  }
+
+  @Test
+  public void testCompressorDecompressorWithFinish() throws Exception {
+    int byteSize = 1024 * 100;
+    byte[] bytes = generate(byteSize);
+    int firstLength = 1024 * 30;
+
+    // Three frames, one per finish
+    DataOutputBuffer compressedDataBuffer = new DataOutputBuffer();
+    CompressionOutputStream deflateFilter = new CompressorStream(
+        compressedDataBuffer, new ZStandardJniCompressor(),
+        IO_FILE_BUFFER_SIZE_DEFAULT);
+    deflateFilter.write(bytes, 0, firstLength);
+    deflateFilter.finish();
+    deflateFilter.resetState();
+    deflateFilter.write(bytes, firstLength, firstLength);
+    deflateFilter.finish();
+    deflateFilter.resetState();
+    deflateFilter.write(bytes, firstLength * 2, byteSize - firstLength * 2);
+    deflateFilter.finish();
+
+    DataInputBuffer deCompressedDataBuffer = new DataInputBuffer();
+    deCompressedDataBuffer.reset(compressedDataBuffer.getData(), 0,
+        compressedDataBuffer.getLength());
+    assertArrayEquals(bytes, decompress(deCompressedDataBuffer,
+        new ZStandardJniDecompressor(IO_FILE_BUFFER_SIZE_DEFAULT)));
+  }
+
+  @Test
+  public void testZStandardJniDirectCompressDecompress() throws Exception {
+    int[] size = {1, 4, 16, 4 * 1024, 64 * 1024, 128 * 1024, 1024 * 1024};
+    for (int aSize : size) {
+      byte[] rawData = generate(aSize);
+      byte[] compressed =
+          compress(rawData, new ZStandardJniCompressor(3, 4096), false);
+      ZStandardJniDecompressor.ZStandardJniDirectDecompressor decompressor =
+          new ZStandardJniDecompressor.ZStandardJniDirectDecompressor(4096);
+
+      ByteBuffer inBuf = ByteBuffer.allocateDirect(compressed.length);
+      inBuf.put(compressed);
+      inBuf.flip();
+      ByteBuffer outBuf = ByteBuffer.allocateDirect(8096);
+      ByteBuffer expected = ByteBuffer.wrap(rawData);
+      while (!decompressor.finished()) {
+        decompressor.decompress(inBuf, outBuf);
+        outBuf.flip();
+        while (outBuf.remaining() > 0) {
+          assertEquals(expected.get(), outBuf.get());
+        }
+        outBuf.clear();
+      }
+      assertEquals(0, expected.remaining());
+      decompressor.end();
+    }
+  }
+
+  @Test
+  public void testDecompressReturnsWhenNothingToDecompress() throws Exception {
+    ZStandardJniDecompressor decompressor =
+        new ZStandardJniDecompressor(IO_FILE_BUFFER_SIZE_DEFAULT);
+    assertEquals(0, decompressor.decompress(new byte[10], 0, 10));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecompressCorruptedData() throws Exception {
+    byte[] bytes = generate(1024);
+    decompress(new ByteArrayInputStream(bytes),
+        new ZStandardJniDecompressor(IO_FILE_BUFFER_SIZE_DEFAULT));
+  }
+
+  private byte[] compress(byte[] bytes, Compressor compressor,
+      boolean byteByByte) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (CompressionOutputStream outputStream =
+        codec.createOutputStream(baos, compressor)) {
+      if (byteByByte) {
+        for (byte aByte : bytes) {
+          outputStream.write(aByte);
+        }
+      } else {
+        outputStream.write(bytes);
+      }
+      outputStream.finish();
+    }
+    return baos.toByteArray();
+  }
+
+  private static byte[] decompress(InputStream in, Decompressor decompressor)
+      throws IOException {
+    try (CompressionInputStream inputStream = new DecompressorStream(in,
+        decompressor, IO_FILE_BUFFER_SIZE_DEFAULT);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+      byte[] buffer = new byte[100];
+      int n;
+      while ((n = inputStream.read(buffer, 0, buffer.length)) != -1) {
+        baos.write(buffer, 0, n);
+      }
+      return baos.toByteArray();
+    }
+  }
+
+  private static byte[] generate(int size) {
+    byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte) RANDOM.nextInt(16);
+    }
+    return data;
+  }
+}
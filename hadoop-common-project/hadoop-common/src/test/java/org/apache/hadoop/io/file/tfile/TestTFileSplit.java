@@ -17,15 +17,24 @@
 package org.apache.hadoop.io.file.tfile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
@@ -178,6 +187,140 @@ void checkRecNums() throws IOException {
     }
   }
 
+  /* Scans the file in parallel with the scanners over the block ranges,
+   * reading the next blocks ahead.
+   */
+  void readBlockRanges(int numScanners) throws Exception {
+    Configuration readConf = new Configuration(conf);
+    readConf.setInt(CommonConfigurationKeysPublic.TFILE_FS_READAHEAD_SIZE_KEY,
+        4 * BLOCK_SIZE);
+    Reader reader = new Reader(fs.open(path),
+        fs.getFileStatus(path).getLen(), readConf);
+    List<Scanner> scanners = reader.createScannersByBlockRanges(numScanners);
+    assertTrue(scanners.size() > 1 && scanners.size() <= numScanners);
+    ExecutorService executor = Executors.newFixedThreadPool(scanners.size());
+    try {
+      List<Future<Long>> counts = new ArrayList<>();
+      for (Scanner scanner : scanners) {
+        counts.add(executor.submit(() -> {
+          long count = 0;
+          long recNum = scanner.getRecordNum();
+          BytesWritable key = new BytesWritable();
+          BytesWritable value = new BytesWritable();
+          while (!scanner.atEnd()) {
+            scanner.entry().get(key, value);
+            assertEquals(composeSortedKey(KEY, 0, (int) (recNum + count)),
+                new String(key.getBytes(), 0, key.getLength()));
+            ++count;
+            scanner.advance();
+          }
+          scanner.close();
+          return count;
+        }));
+      }
+      long rowCount = 0;
+      for (int i = 0; i < scanners.size(); i++) {
+        long count = counts.get(i).get();
+        assertTrue(count > 0);
+        rowCount += count;
+      }
+      assertEquals(reader.getEntryCount(), rowCount);
+    } finally {
+      executor.shutdownNow();
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testBlockRanges() throws Exception {
+    createFile(100000, Compression.Algorithm.NONE.getName());
+    readBlockRanges(4);
+    fs.delete(path, true);
+    createFile(200000, Compression.Algorithm.GZ.getName());
+    readBlockRanges(7);
+    fs.delete(path, true);
+  }
+
+  @Test
+  public void testIndexCache() throws IOException {
+    createFile(10000, Compression.Algorithm.GZ.getName());
+    TFileIndexCache.clear();
+    FileStatus status = fs.getFileStatus(path);
+    // The cache is disabled by default
+    Reader uncached = new Reader(fs.open(path), status, conf);
+    Reader uncached2 = new Reader(fs.open(path), status, conf);
+    assertNotSame(uncached.tfileMeta, uncached2.tfileMeta);
+    uncached.close();
+    uncached2.close();
+
+    Configuration cacheConf = new Configuration(conf);
+    cacheConf.setInt(CommonConfigurationKeysPublic.TFILE_INDEX_CACHE_SIZE_KEY,
+        16);
+    Reader reader1 = new Reader(fs.open(path), status, cacheConf);
+    Reader reader2 = new Reader(fs.open(path), status, cacheConf);
+    assertSame(reader1.readerBCF.dataIndex, reader2.readerBCF.dataIndex);
+    assertSame(reader1.tfileMeta, reader2.tfileMeta);
+    reader1.createScanner().close();
+    reader2.createScanner().close();
+    assertSame(reader1.tfileIndex, reader2.tfileIndex);
+    assertEquals(10000, reader2.getEntryCount());
+    reader1.close();
+    reader2.close();
+
+    // A file rewritten in place is read again
+    createFile(20000, Compression.Algorithm.GZ.getName());
+    status = fs.getFileStatus(path);
+    Reader reader3 = new Reader(fs.open(path), status, cacheConf);
+    assertNotSame(reader1.tfileMeta, reader3.tfileMeta);
+    assertEquals(20000, reader3.getEntryCount());
+    reader3.close();
+    fs.delete(path, true);
+  }
+
+  @Test
+  public void testIndexCacheSize() throws IOException {
+    createFile(1000, Compression.Algorithm.GZ.getName());
+    Path path2 = new Path(path.getParent(), path.getName() + ".2");
+    fs.rename(path, path2);
+    createFile(1000, Compression.Algorithm.GZ.getName());
+    FileStatus status = fs.getFileStatus(path);
+    FileStatus status2 = fs.getFileStatus(path2);
+    TFileIndexCache.clear();
+
+    // The first reader using the cache sizes it to a single file
+    Configuration smallConf = new Configuration(conf);
+    smallConf.setInt(CommonConfigurationKeysPublic.TFILE_INDEX_CACHE_SIZE_KEY,
+        1);
+    Configuration largeConf = new Configuration(conf);
+    largeConf.setInt(CommonConfigurationKeysPublic.TFILE_INDEX_CACHE_SIZE_KEY,
+        100);
+    Reader reader1 = new Reader(fs.open(path), status, smallConf);
+    reader1.close();
+    Reader reader2 = new Reader(fs.open(path2), status2, largeConf);
+    reader2.close();
+    // The larger size of the second reader is ignored, the first file was
+    // evicted
+    Reader reader3 = new Reader(fs.open(path), status, largeConf);
+    reader3.close();
+    assertNotSame(reader1.tfileMeta, reader3.tfileMeta);
+    Reader reader4 = new Reader(fs.open(path), status, largeConf);
+    reader4.close();
+    assertSame(reader3.tfileMeta, reader4.tfileMeta);
+
+    // A new cache is sized by its first reader
+    TFileIndexCache.clear();
+    reader1 = new Reader(fs.open(path), status, largeConf);
+    reader1.close();
+    reader2 = new Reader(fs.open(path2), status2, smallConf);
+    reader2.close();
+    reader3 = new Reader(fs.open(path), status, smallConf);
+    reader3.close();
+    assertSame(reader1.tfileMeta, reader3.tfileMeta);
+    TFileIndexCache.clear();
+    fs.delete(path, true);
+    fs.delete(path2, true);
+  }
+
   @Test
   public void testSplit() throws IOException {
     System.out.println("testSplit");
@@ -398,6 +398,51 @@ public void testLargeMutableStatAdd() {
     assertGauge("TestStdevVal", 0.0, rb);
   }
 
+  /**
+   * Ensure that {@link MutableStripedRate} has the same stats as
+   * {@link MutableRate} when the values are added by many threads.
+   */
+  @Test(timeout = 30000)
+  public void testMutableStripedRate() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry("test");
+    MutableRate rate = registry.newRate("Rate", "Rate", true);
+    MutableStripedRate striped = registry.newStripedRate("Striped", "Striped",
+        true);
+    assertSame(striped, registry.newStripedRate("Striped", "Striped", true));
+
+    final int threads = 4;
+    final CountDownLatch latch = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      final long offset = t * 10;
+      new Thread(() -> {
+        for (long i = 1; i <= SAMPLE_COUNT; i++) {
+          rate.add(i + offset);
+          striped.add(i + offset);
+        }
+        rate.add(10, 1000);
+        striped.add(10, 1000);
+        latch.countDown();
+      }).start();
+    }
+    latch.await();
+
+    MetricsRecordBuilder rb = mockMetricsRecordBuilder();
+    registry.snapshot(rb, false);
+    long count = threads * (SAMPLE_COUNT + 10);
+    assertCounter("RateNumOps", count, rb);
+    assertCounter("StripedNumOps", count, rb);
+    assertEquals(getDoubleGauge("RateAvgTime", rb),
+        getDoubleGauge("StripedAvgTime", rb), 1e-6);
+    assertEquals(getDoubleGauge("RateStdevTime", rb),
+        getDoubleGauge("StripedStdevTime", rb), 1e-6);
+    assertGauge("StripedIMinTime", getDoubleGauge("RateIMinTime", rb), rb);
+    assertGauge("StripedIMaxTime", getDoubleGauge("RateIMaxTime", rb), rb);
+    assertGauge("StripedMinTime", getDoubleGauge("RateMinTime", rb), rb);
+    assertGauge("StripedMaxTime", getDoubleGauge("RateMaxTime", rb), rb);
+    assertEquals(rate.lastStat().numSamples(),
+        striped.lastStat().numSamples());
+  }
+
   /**
    * Ensure that quantile estimates from {@link MutableQuantiles} are within
    * specified error bounds.
@@ -532,6 +577,38 @@ public void testMutableQuantilesRollover() throws Exception {
     }
   }
 
+  /**
+   * Ensure that the quantiles of {@link MutableHistogramQuantiles} are within
+   * specified error bounds and reset on rollover.
+   */
+  @Test
+  public void testMutableHistogramQuantiles() {
+    MetricsRegistry registry = new MetricsRegistry("test");
+    MutableHistogramQuantiles quantiles = registry.newHistogramQuantiles(
+        "foo", "stat", "Ops", "Latency", 3600);
+    String name = "Foo%dthPercentileLatency";
+    String desc = "%d percentile latency with 3600 second interval for stat";
+    for (int i = 1; i <= 2; i++) {
+      for (long j = 1; j <= SAMPLE_COUNT; j++) {
+        quantiles.add(j * i);
+      }
+      quantiles.rollover();
+      MetricsRecordBuilder mb = mockMetricsRecordBuilder();
+      registry.snapshot(mb, false);
+      verify(mb).addGauge(info("FooNumOps",
+          "Number of ops for stat with 3600s interval"), (long) SAMPLE_COUNT);
+      for (Quantile q : MutableQuantiles.QUANTILES) {
+        int percentile = (int) (100 * q.quantile);
+        String n = String.format(name, percentile);
+        String d = String.format(desc, percentile);
+        long expected = (long) (q.quantile * SAMPLE_COUNT * i);
+        verify(mb).addGauge(eq(info(n, d)), leq(expected + expected / 30));
+        verify(mb).addGauge(eq(info(n, d)), geq(expected - expected / 30));
+      }
+    }
+    quantiles.stop();
+  }
+
   /**
    * Test that {@link MutableInverseQuantiles} rolls the window over at the specified
    * interval.
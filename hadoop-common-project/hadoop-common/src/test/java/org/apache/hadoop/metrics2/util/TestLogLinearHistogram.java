@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestLogLinearHistogram {
+
+  static final Quantile[] quantiles = { new Quantile(0.50, 0.050),
+      new Quantile(0.75, 0.025), new Quantile(0.90, 0.010),
+      new Quantile(0.95, 0.005), new Quantile(0.99, 0.001) };
+
+  LogLinearHistogram histogram;
+
+  @Before
+  public void init() {
+    histogram = new LogLinearHistogram(quantiles);
+  }
+
+  /**
+   * Check that the buckets cover all the values without any gap.
+   */
+  @Test
+  public void testBuckets() {
+    for (int precision : new int[] {1, 5, 16}) {
+      long previous = -1;
+      int last = (64 - precision) << precision;
+      for (int bucket = 0; bucket < last; bucket++) {
+        long low = LogLinearHistogram.lowestValue(bucket, precision);
+        assertThat(low).isGreaterThan(previous);
+        assertThat(LogLinearHistogram.bucket(low, precision))
+            .isEqualTo(bucket);
+        if (bucket > 0) {
+          assertThat(LogLinearHistogram.bucket(low - 1, precision))
+              .isEqualTo(bucket - 1);
+        }
+        previous = low;
+      }
+    }
+    assertThat(LogLinearHistogram.bucket(-1, 5)).isEqualTo(0);
+    assertThat(LogLinearHistogram.bucket(Long.MAX_VALUE, 5))
+        .isEqualTo((59 << 5) - 1);
+  }
+
+  /**
+   * Check that the count is incremented and cleared.
+   */
+  @Test
+  public void testCount() {
+    assertThat(histogram.getCount()).isZero();
+    assertThat(histogram.snapshot()).isNull();
+    assertThat(histogram.getQuantile(0.5)).isZero();
+    for (int i = 0; i < 1000; i++) {
+      histogram.insert(i * 1000L);
+    }
+    assertThat(histogram.getCount()).isEqualTo(1000);
+    histogram.clear();
+    assertThat(histogram.getCount()).isZero();
+    assertThat(histogram.snapshot()).isNull();
+  }
+
+  /**
+   * Check that the estimated quantiles have a relative error below 3%.
+   */
+  @Test
+  public void testQuantileError() {
+    Random rnd = new Random(0xDEADBEEF);
+    for (long range : new long[] {100, 100000, 1L << 40}) {
+      histogram.clear();
+      long[] values = new long[10000];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (long) (rnd.nextDouble() * range);
+        histogram.insert(values[i]);
+      }
+      Arrays.sort(values);
+      Map<Quantile, Long> snapshot = histogram.snapshot();
+      for (Quantile q : quantiles) {
+        long expected = values[(int) Math.ceil(q.quantile * values.length)
+            - 1];
+        assertThat(snapshot.get(q))
+            .isBetween((long) (expected * 0.97), (long) (expected * 1.03));
+      }
+    }
+  }
+
+  /**
+   * Check that the values are moved by drain and added by merge.
+   */
+  @Test
+  public void testDrainAndMerge() {
+    for (long i = 1; i <= 1000; i++) {
+      histogram.insert(i);
+    }
+    LogLinearHistogram drained = histogram.drain();
+    assertThat(histogram.getCount()).isZero();
+    assertThat(drained.getCount()).isEqualTo(1000);
+
+    LogLinearHistogram other = new LogLinearHistogram(quantiles);
+    for (long i = 1; i <= 1000; i++) {
+      other.insert(i + 1000);
+    }
+    drained.merge(other);
+    assertThat(drained.getCount()).isEqualTo(2000);
+    assertThat(drained.getQuantile(0.5)).isBetween(970L, 1030L);
+    assertThat(other.getCount()).isEqualTo(1000);
+  }
+
+  /**
+   * Check that no value is lost when the histogram is drained while the
+   * values are inserted.
+   */
+  @Test
+  public void testConcurrentInsert() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          for (long i = 0; i < 100000; i++) {
+            histogram.insert(i);
+          }
+        }));
+      }
+      long count = 0;
+      while (!futures.stream().allMatch(Future::isDone)) {
+        count += histogram.drain().getCount();
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      count += histogram.drain().getCount();
+      assertThat(count).isEqualTo(400000);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -17,16 +17,23 @@
  */
 package org.apache.hadoop.security;
 
+import java.io.File;
 import java.io.IOException;
 
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.hadoop.test.GenericTestUtils;
@@ -43,6 +50,7 @@
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FileUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +78,7 @@ public static class FakeGroupMapping extends ShellBasedUnixGroupsMapping {
     private static Set<String> allGroups = new LinkedHashSet<String>();
     private static Set<String> blackList = new HashSet<String>();
     private static int requestCount = 0;
+    private static int bulkRequestCount = 0;
     private static long getGroupsDelayMs = 0;
     private static boolean throwException;
     private static volatile CountDownLatch latch = null;
@@ -96,6 +105,26 @@ public List<String> getGroups(String user) throws IOException {
       return new ArrayList<>(getGroupsSet(user));
     }
 
+    @Override
+    public Map<String, Set<String>> getGroupsSets(Collection<String> users)
+        throws IOException {
+      TESTLOG.info("Getting groups for " + users);
+      delayIfNecessary();
+
+      bulkRequestCount++;
+
+      if (throwException) {
+        throw new IOException("For test");
+      }
+
+      Map<String, Set<String>> groups = new LinkedHashMap<>();
+      for (String user : users) {
+        groups.put(user, blackList.contains(user) ?
+            Collections.emptySet() : new LinkedHashSet<>(allGroups));
+      }
+      return groups;
+    }
+
     /**
      * Delay returning on a latch or a specific amount of time.
      */
@@ -157,6 +186,11 @@ public static int getRequestCount() {
 
     public static void resetRequestCount() {
       requestCount = 0;
+      bulkRequestCount = 0;
+    }
+
+    public static int getBulkRequestCount() {
+      return bulkRequestCount;
     }
 
     public static void setGetGroupsDelayMs(long delayMs) {
@@ -721,6 +755,163 @@ public Boolean get() {
     }
   }
 
+  @Test
+  public void testBackgroundRefreshInBatches()
+      throws IOException, InterruptedException {
+    conf.setLong(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SECS, 1);
+    conf.setLong(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_NEGATIVE_CACHE_SECS, 10);
+    conf.setBoolean(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD,
+        true);
+    conf.setInt(
+        CommonConfigurationKeys.
+            HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS,
+        2);
+    conf.setInt(
+        CommonConfigurationKeys.
+            HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_BATCH_SIZE,
+        10);
+    FakeTimer timer = new FakeTimer();
+    final Groups groups = new Groups(conf, timer);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.clearBlackList();
+
+    // populate the cache
+    String[] users = {"one", "two", "three", "four", "five"};
+    for (String user : users) {
+      groups.getGroupsSet(user);
+    }
+    int startingRequestCount = FakeGroupMapping.getRequestCount();
+
+    // expire the cache
+    timer.advance(2 * 1000);
+    FakeGroupMapping.pause();
+
+    // At most one batch is queued while the 2 threads are busy
+    for (String user : users) {
+      assertThat(groups.getGroupsSet(user).size()).isEqualTo(2);
+    }
+    FakeGroupMapping.resume();
+    waitForGroupCounters(groups, 0, 0, 5, 0);
+    assertThat(FakeGroupMapping.getBulkRequestCount()).isBetween(1, 3);
+    assertEquals(startingRequestCount, FakeGroupMapping.getRequestCount());
+
+    // The users without groups are added to the negative cache
+    FakeGroupMapping.addToBlackList("five");
+    timer.advance(2 * 1000);
+    for (String user : users) {
+      groups.getGroupsSet(user);
+    }
+    waitForGroupCounters(groups, 0, 0, 9, 1);
+    assertTrue(groups.getNegativeCache().contains("five"));
+  }
+
+  @Test
+  public void testBulkLookup() throws Exception {
+    conf.setLong(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_NEGATIVE_CACHE_SECS, 10);
+    conf.set(CommonConfigurationKeys.HADOOP_USER_GROUP_STATIC_OVERRIDES,
+        "static=staticgrp");
+    Groups groups = new Groups(conf);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.clearBlackList();
+    FakeGroupMapping.addToBlackList("nogroups");
+
+    groups.getGroupsSet("cached");
+    assertEquals(1, FakeGroupMapping.getRequestCount());
+    Map<String, Set<String>> result = groups.getGroupsSets(Arrays.asList(
+        "static", "cached", "one", "two", "nogroups"));
+    assertThat(result.keySet())
+        .containsExactly("static", "cached", "one", "two");
+    assertThat(result.get("static")).containsExactly("staticgrp");
+    assertThat(result.get("two")).containsExactly(myGroups);
+    assertEquals(1, FakeGroupMapping.getBulkRequestCount());
+    assertTrue(groups.getNegativeCache().contains("nogroups"));
+
+    // The users looked up together are cached
+    assertThat(groups.getGroupsSet("two")).containsExactly(myGroups);
+    assertThat(groups.getGroupsSets(Arrays.asList("one", "two", "nogroups"))
+        .keySet()).containsExactly("one", "two");
+    assertEquals(1, FakeGroupMapping.getRequestCount());
+    assertEquals(1, FakeGroupMapping.getBulkRequestCount());
+  }
+
+  @Test
+  public void testCacheSnapshot() throws Exception {
+    File dir = GenericTestUtils.getRandomizedTestDir();
+    assertTrue(dir.mkdirs());
+    File snapshot = new File(dir, "groups.snapshot");
+    conf.set(CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_FILE,
+        snapshot.getPath());
+    conf.setLong(CommonConfigurationKeys.
+        HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_INTERVAL_SECS, 0);
+    try {
+      Groups groups = new Groups(conf);
+      groups.cacheGroupsAdd(Arrays.asList(myGroups));
+      groups.getGroupsSet("me");
+      groups.getGroupsSet("you");
+      groups.saveSnapshot();
+      assertTrue(snapshot.isFile());
+      if (Files.getFileStore(snapshot.toPath())
+          .supportsFileAttributeView("posix")) {
+        assertEquals("rw-------", PosixFilePermissions.toString(
+            Files.getPosixFilePermissions(snapshot.toPath())));
+      }
+
+      // A new service is prewarmed from the snapshot, and looks up the
+      // prewarmed users again in the background
+      FakeGroupMapping.resetRequestCount();
+      FakeGroupMapping.pause();
+      groups = new Groups(conf);
+      assertThat(groups.getGroupsSet("me")).containsExactly(myGroups);
+      assertThat(groups.getGroupsSet("you")).containsExactly(myGroups);
+      assertEquals(0, FakeGroupMapping.getRequestCount());
+      // A failing lookup, like LDAP, finds no groups: the cache is kept
+      FakeGroupMapping.addToBlackList("you");
+      FakeGroupMapping.resume();
+      assertTrue(groups.getSnapshotExecutor()
+          .awaitTermination(10, TimeUnit.SECONDS));
+      assertEquals(1, FakeGroupMapping.getBulkRequestCount());
+      assertThat(groups.getGroupsSet("you")).containsExactly(myGroups);
+      assertFalse(groups.getNegativeCache().contains("you"));
+
+      // A stale snapshot is ignored
+      assertTrue(snapshot.setLastModified(System.currentTimeMillis() -
+          20 * 1000 * CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_SECS_DEFAULT));
+      assertThat(groups.loadSnapshot()).isEmpty();
+    } finally {
+      FakeGroupMapping.resume();
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
+  @Test
+  public void testReplacedServiceStopsSnapshots() throws Exception {
+    File dir = GenericTestUtils.getRandomizedTestDir();
+    assertTrue(dir.mkdirs());
+    conf.set(CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_FILE,
+        new File(dir, "groups.snapshot").getPath());
+    try {
+      Groups groups =
+          Groups.getUserToGroupsMappingServiceWithLoadedConfiguration(conf);
+      assertFalse(groups.getSnapshotExecutor().isShutdown());
+      Groups newGroups =
+          Groups.getUserToGroupsMappingServiceWithLoadedConfiguration(conf);
+      assertTrue(groups.getSnapshotExecutor().isShutdown());
+      assertFalse(newGroups.getSnapshotExecutor().isShutdown());
+      Groups.reset();
+      assertTrue(newGroups.getSnapshotExecutor().isShutdown());
+    } finally {
+      Groups.reset();
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
   @Test
   public void testExceptionCallingLoadWithoutBackgroundRefreshReturnsOldValue()
       throws Exception {
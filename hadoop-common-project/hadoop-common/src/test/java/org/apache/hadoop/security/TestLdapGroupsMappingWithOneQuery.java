@@ -21,11 +21,15 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
 import javax.naming.directory.DirContext;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
@@ -33,6 +37,7 @@
 import org.apache.hadoop.conf.Configuration;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.stubbing.Stubber;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -158,6 +163,87 @@ private void doTestGetGroupsWithFallback()
             any(Object[].class), any(SearchControls.class));
   }
 
+  @Test
+  public void testGetGroupsSets() throws NamingException {
+    // given users whose objects are returned by one query, return the groups
+    // of each user from their "memberOf" properties.
+    DirContext ctx = mockUserSearch(
+        userResult("Alice", "CN=abc,DC=foo,DC=com", "CN=xyz,DC=foo,DC=com"),
+        userResult("bob", "CN=sss,DC=foo,DC=com"));
+    Configuration conf = getBaseConf("ldap://test", ctx);
+    conf.set(LdapGroupsMapping.MEMBEROF_ATTR_KEY, "memberOf");
+
+    TestLdapGroupsMapping groupsMapping = new TestLdapGroupsMapping();
+    groupsMapping.setConf(conf);
+    Map<String, Set<String>> groups =
+        groupsMapping.getGroupsSets(Arrays.asList("alice", "bob", "carol"));
+
+    Assert.assertEquals(Arrays.asList("alice", "bob", "carol"),
+        new ArrayList<>(groups.keySet()));
+    Assert.assertEquals(Arrays.asList("abc", "xyz"),
+        new ArrayList<>(groups.get("alice")));
+    Assert.assertEquals(Arrays.asList("sss"),
+        new ArrayList<>(groups.get("bob")));
+    Assert.assertTrue(groups.get("carol").isEmpty());
+    Assert.assertFalse("Second LDAP query should NOT have been called.",
+        groupsMapping.isSecondaryQueryCalled());
+
+    // All the users were searched with one query
+    ArgumentCaptor<String> filter = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+    ArgumentCaptor<SearchControls> controls =
+        ArgumentCaptor.forClass(SearchControls.class);
+    verify(ctx, times(1)).search(anyString(), filter.capture(),
+        args.capture(), controls.capture());
+    Assert.assertEquals("(|(&(objectClass=user)(sAMAccountName={0}))" +
+        "(&(objectClass=user)(sAMAccountName={1}))" +
+        "(&(objectClass=user)(sAMAccountName={2})))", filter.getValue());
+    Assert.assertArrayEquals(new Object[] {"alice", "bob", "carol"},
+        args.getValue());
+    Assert.assertTrue(Arrays.asList(controls.getValue()
+        .getReturningAttributes()).contains("sAMAccountName"));
+
+    // The users are split in queries of the bulk search size
+    ctx = mockUserSearch(userResult("alice", "CN=abc,DC=foo,DC=com"));
+    conf = getBaseConf("ldap://test", ctx);
+    conf.set(LdapGroupsMapping.MEMBEROF_ATTR_KEY, "memberOf");
+    conf.setInt(LdapGroupsMapping.BULK_SEARCH_SIZE_KEY, 2);
+    groupsMapping = new TestLdapGroupsMapping();
+    groupsMapping.setConf(conf);
+    groups =
+        groupsMapping.getGroupsSets(Arrays.asList("alice", "bob", "carol"));
+    Assert.assertEquals(3, groups.size());
+    verify(ctx, times(2)).search(anyString(), anyString(),
+        any(Object[].class), any(SearchControls.class));
+  }
+
+  private static DirContext mockUserSearch(SearchResult... results)
+      throws NamingException {
+    DirContext ctx = mock(DirContext.class);
+    NamingEnumeration<SearchResult> users = mock(NamingEnumeration.class);
+    // true for each result, then false
+    Boolean[] hasMore = new Boolean[results.length];
+    Arrays.fill(hasMore, true);
+    hasMore[results.length - 1] = false;
+    when(users.hasMoreElements()).thenReturn(true, hasMore);
+    when(users.nextElement()).thenReturn(results[0],
+        Arrays.copyOfRange(results, 1, results.length));
+    when(ctx.search(anyString(), anyString(), any(Object[].class),
+        any(SearchControls.class))).thenReturn(users);
+    return ctx;
+  }
+
+  private static SearchResult userResult(String user, String... groupDNs) {
+    Attributes attributes = new BasicAttributes(true);
+    attributes.put(new BasicAttribute("sAMAccountName", user));
+    Attribute memberOf = new BasicAttribute("memberOf");
+    for (String groupDN : groupDNs) {
+      memberOf.add(groupDN);
+    }
+    attributes.put(memberOf);
+    return new SearchResult("CN=" + user, null, attributes);
+  }
+
   private static final class TestLdapGroupsMapping extends LdapGroupsMapping {
     private boolean secondaryQueryCalled = false;
     public boolean isSecondaryQueryCalled() {
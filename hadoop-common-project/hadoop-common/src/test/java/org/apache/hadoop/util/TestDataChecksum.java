@@ -55,6 +55,25 @@ public void testBulkOps() throws Exception {
     }
   }
 
+  @Test
+  public void testParallelBulkOps() throws Exception {
+    DataChecksum.setParallelMinBytes(0);
+    try {
+      for (DataChecksum.Type type : CHECKSUM_TYPES) {
+        DataChecksum checksum = DataChecksum.newDataChecksum(
+            type, BYTES_PER_CHUNK);
+        for (boolean useDirect : new boolean[]{false, true}) {
+          doBulkTest(checksum, 1025, useDirect);
+          doBulkTest(checksum, BYTES_PER_CHUNK * 37, useDirect);
+          doBulkTest(checksum, BYTES_PER_CHUNK * 37 + 1, useDirect);
+        }
+      }
+    } finally {
+      DataChecksum.setParallelMinBytes(
+          DataChecksum.PARALLEL_MIN_BYTES_DEFAULT);
+    }
+  }
+
   private static class Harness {
     final DataChecksum checksum;
     final int dataLength, sumsLength, numSums;
@@ -246,6 +246,7 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
       new DFSHedgedReadMetrics();
   private static ThreadPoolExecutor HEDGED_READ_THREAD_POOL;
   private static volatile ThreadPoolExecutor STRIPED_READ_THREAD_POOL;
+  private static volatile ThreadPoolExecutor LISTING_PREFETCH_THREAD_POOL;
   private final long serverDefaultsValidityPeriod;
 
   /**
@@ -409,6 +410,10 @@ public DFSClient(URI nameNodeUri, ClientProtocol rpcNamenode,
 
     this.initThreadsNumForStripedReads(dfsClientConf.
         getStripedReadThreadpoolSize());
+    if (dfsClientConf.getListingPrefetchThreadpoolSize() > 0) {
+      this.initThreadsNumForListingPrefetch(dfsClientConf.
+          getListingPrefetchThreadpoolSize());
+    }
     this.saslClient = new SaslDataTransferClient(
         conf, DataTransferSaslUtil.getSaslPropertiesResolver(conf),
         TrustedChannelResolver.getInstance(conf), nnFallbackToSimpleAuth);
@@ -3159,6 +3164,30 @@ private void initThreadsNumForStripedReads(int numThreads) {
     }
   }
 
+  /**
+   * Create thread pool for fetching the next batch of a directory listing
+   * ahead of the iterator, LISTING_PREFETCH_THREAD_POOL, if it does not
+   * already exist.
+   * @param numThreads Number of threads for listing prefetch thread pool.
+   */
+  private void initThreadsNumForListingPrefetch(int numThreads) {
+    assert numThreads > 0;
+    if (LISTING_PREFETCH_THREAD_POOL != null) {
+      return;
+    }
+    synchronized (DFSClient.class) {
+      if (LISTING_PREFETCH_THREAD_POOL == null) {
+        // Rejected prefetches are not run by the caller; the iterator falls
+        // back to a synchronous listPaths call instead.
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(1,
+            numThreads, 60, "ListingPrefetch-", false);
+        threadPool.allowCoreThreadTimeOut(true);
+        LISTING_PREFETCH_THREAD_POOL = threadPool;
+        LOG.debug("Using listing prefetch; pool threads={}", numThreads);
+      }
+    }
+  }
+
   ThreadPoolExecutor getHedgedReadsThreadPool() {
     return HEDGED_READ_THREAD_POOL;
   }
@@ -3167,6 +3196,14 @@ ThreadPoolExecutor getStripedReadsThreadPool() {
     return STRIPED_READ_THREAD_POOL;
   }
 
+  /**
+   * @return the thread pool used to prefetch directory listings, or null if
+   * prefetching is disabled.
+   */
+  ThreadPoolExecutor getListingPrefetchThreadPool() {
+    return LISTING_PREFETCH_THREAD_POOL;
+  }
+
   boolean isHedgedReadsEnabled() {
     return (HEDGED_READ_THREAD_POOL != null) &&
         HEDGED_READ_THREAD_POOL.getMaximumPoolSize() > 0;
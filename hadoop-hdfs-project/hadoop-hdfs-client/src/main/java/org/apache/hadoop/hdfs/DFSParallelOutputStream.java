@@ -0,0 +1,334 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.StreamCapabilities;
+import org.apache.hadoop.fs.Syncable;
+import org.apache.hadoop.util.Daemon;
+import org.apache.hadoop.util.Preconditions;
+import org.apache.hadoop.util.functional.FunctionRaisingIOE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An output stream that writes consecutive blocks of a replicated file
+ * through independent pipelines.
+ * <p>
+ * The data is cut into segments of one block. A segment is buffered in
+ * memory until it is full and is then written by a background thread: the
+ * first segment to the target file, which was created by the caller, and
+ * every following segment to a hidden file in the same directory. At most
+ * {@code numStreams} segments are buffered or being written at a time, so
+ * the stream holds up to {@code numStreams} blocks of heap. On
+ * {@link #close()} all segments are completed and the hidden files are
+ * concatenated to the target in order. The hidden files are never
+ * overwritten, and if any segment fails the hidden files and the target are
+ * deleted. If the segments were written but cannot be concatenated, for
+ * example because a snapshot was taken or a quota was reached meanwhile, the
+ * target and the hidden files are kept and the exception names them.
+ * <p>
+ * hflush and hsync are not supported because the data of a segment does not
+ * reach the datanodes before the segment is full: they throw
+ * {@link UnsupportedOperationException}.
+ */
+@InterfaceAudience.Private
+class DFSParallelOutputStream extends OutputStream
+    implements Syncable, StreamCapabilities {
+  static final Logger LOG =
+      LoggerFactory.getLogger(DFSParallelOutputStream.class);
+
+  /** Suffix of the hidden files holding the segments after the first. */
+  static final String SEGMENT_SUFFIX = "._PARALLEL_";
+  private static final int CHUNK_SIZE = 1 << 20;
+
+  private final DFSClient dfsClient;
+  private final DFSOutputStream first;
+  private final String src;
+  private final long segmentSize;
+  private final FunctionRaisingIOE<String, DFSOutputStream> segmentCreator;
+  private final ExecutorService executor;
+  /** Limits the number of segments buffered or being written. */
+  private final Semaphore permits;
+  /** The paths of the segments after the first, in order. */
+  private final List<String> segmentPaths = new ArrayList<>();
+  /** The segment files created by the background threads. */
+  private final Queue<String> createdSegments = new ConcurrentLinkedQueue<>();
+  private final List<Future<Void>> pending = new ArrayList<>();
+
+  private Segment current;
+  private int numSegments;
+  private boolean failed;
+  private boolean closed;
+
+  /**
+   * @param first the stream of the newly created target file.
+   * @param numStreams the maximum number of segments written in parallel.
+   * @param segmentCreator creates the file of a segment after the first,
+   *        failing if it exists.
+   */
+  DFSParallelOutputStream(DFSClient dfsClient, DFSOutputStream first,
+      long blockSize, int numStreams,
+      FunctionRaisingIOE<String, DFSOutputStream> segmentCreator) {
+    Preconditions.checkArgument(numStreams > 0,
+        "numStreams must be positive: %s", numStreams);
+    this.dfsClient = dfsClient;
+    this.first = first;
+    this.src = first.getSrc();
+    this.segmentSize = blockSize;
+    this.segmentCreator = segmentCreator;
+    this.executor = Executors.newFixedThreadPool(numStreams,
+        new Daemon.DaemonFactory());
+    this.permits = new Semaphore(numStreams);
+  }
+
+  @VisibleForTesting
+  static String getSegmentPath(String src, int index) {
+    Path path = new Path(src);
+    return new Path(path.getParent(),
+        "." + path.getName() + SEGMENT_SUFFIX + index).toUri().getPath();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len)
+      throws IOException {
+    checkClosed();
+    while (len > 0) {
+      if (current == null) {
+        current = nextSegment();
+      }
+      int n = current.append(b, off, len);
+      off += n;
+      len -= n;
+      if (current.length == segmentSize) {
+        submit(current);
+        current = null;
+      }
+    }
+  }
+
+  private void checkClosed() throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+  }
+
+  /** Wait for a free stream, failing if a segment could not be written. */
+  private Segment nextSegment() throws IOException {
+    for (Future<Void> f : pending) {
+      if (f.isDone()) {
+        getResult(f);
+      }
+    }
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      throw (IOException) new InterruptedIOException(
+          "Interrupted waiting for a stream of " + src).initCause(e);
+    }
+    int index = numSegments++;
+    String path = null;
+    if (index > 0) {
+      path = getSegmentPath(src, index);
+      segmentPaths.add(path);
+    }
+    return new Segment(index, path);
+  }
+
+  private void submit(final Segment segment) {
+    pending.add(executor.submit(() -> {
+      try {
+        writeSegment(segment);
+      } finally {
+        permits.release();
+      }
+      return null;
+    }));
+  }
+
+  private void writeSegment(Segment segment) throws IOException {
+    DFSOutputStream out = first;
+    if (segment.index > 0) {
+      out = segmentCreator.apply(segment.path);
+      createdSegments.add(segment.path);
+    }
+    try {
+      long remaining = segment.length;
+      for (byte[] chunk : segment.chunks) {
+        int n = (int) Math.min(chunk.length, remaining);
+        out.write(chunk, 0, n);
+        remaining -= n;
+      }
+      segment.chunks.clear();
+      out.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to write segment {} of {}", segment.index, src, e);
+      out.abort();
+      throw e;
+    }
+  }
+
+  private void getResult(Future<Void> f) throws IOException {
+    try {
+      f.get();
+    } catch (ExecutionException e) {
+      failed = true;
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to write " + src, e.getCause());
+    } catch (InterruptedException e) {
+      failed = true;
+      throw (IOException) new InterruptedIOException(
+          "Interrupted writing " + src).initCause(e);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (!failed) {
+        if (current != null) {
+          submit(current);
+          current = null;
+        } else if (numSegments == 0) {
+          first.close();
+        }
+      } else if (current != null && current.index == 0) {
+        first.abort();
+      }
+      IOException failure = null;
+      for (Future<Void> f : pending) {
+        try {
+          getResult(f);
+        } catch (IOException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+      if (failure == null && failed) {
+        failure = new IOException("Failed to write " + src);
+      }
+      if (failure == null && !segmentPaths.isEmpty()) {
+        try {
+          dfsClient.concat(src, segmentPaths.toArray(new String[0]));
+          return;
+        } catch (IOException e) {
+          // All the data is written, keep it for the caller to recover
+          throw new IOException("Failed to concatenate the segments "
+              + segmentPaths + " to " + src + ", the files are kept", e);
+        }
+      }
+      if (failure != null) {
+        deleteFiles();
+        throw failure;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Delete the segment files and the partial target after a failure. */
+  private void deleteFiles() {
+    List<String> paths = new ArrayList<>(createdSegments);
+    paths.add(src);
+    for (String path : paths) {
+      try {
+        dfsClient.delete(path, false);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete {} after failing to write {}", path, src,
+            e);
+      }
+    }
+  }
+
+  @Override
+  public void hflush() {
+    throw new UnsupportedOperationException(
+        "hflush is not supported when writing blocks in parallel: " + src);
+  }
+
+  @Override
+  public void hsync() {
+    throw new UnsupportedOperationException(
+        "hsync is not supported when writing blocks in parallel: " + src);
+  }
+
+  @Override
+  public boolean hasCapability(String capability) {
+    return false;
+  }
+
+  /** The buffered data of one block. */
+  private final class Segment {
+    private final int index;
+    /** The path of the hidden file of the segment, null for the first. */
+    private final String path;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private long length;
+
+    private Segment(int index, String path) {
+      this.index = index;
+      this.path = path;
+    }
+
+    /** @return the number of bytes appended, at most up to a full segment. */
+    private int append(byte[] b, int off, int len) {
+      int appended = 0;
+      while (appended < len && length < segmentSize) {
+        int pos = (int) (length % CHUNK_SIZE);
+        if (pos == 0) {
+          chunks.add(new byte[(int) Math.min(CHUNK_SIZE,
+              segmentSize - length)]);
+        }
+        byte[] chunk = chunks.get(chunks.size() - 1);
+        int n = Math.min(len - appended, chunk.length - pos);
+        System.arraycopy(b, off + appended, chunk, pos, n);
+        appended += n;
+        length += n;
+      }
+      return appended;
+    }
+  }
+}
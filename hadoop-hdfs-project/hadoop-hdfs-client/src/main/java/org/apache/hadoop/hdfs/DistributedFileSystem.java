@@ -111,11 +111,13 @@
 import org.apache.hadoop.hdfs.protocol.SnapshotStatus;
 import org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenIdentifier;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.ipc.CallerContext;
 import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.security.token.DelegationTokenIssuer;
 import org.apache.hadoop.util.Lists;
 import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.functional.FutureIO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -134,6 +136,9 @@
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static org.apache.hadoop.fs.impl.PathCapabilitiesSupport.validatePathCapabilityArgs;
 
@@ -723,6 +728,39 @@ public FSDataOutputStream next(final FileSystem fs, final Path p)
     }.resolve(this, absF);
   }
 
+  /**
+   * Write a newly created file through a {@link DFSParallelOutputStream}.
+   * The blocks after the first are written to hidden files in the same
+   * directory, created with the given parameters, and are concatenated to
+   * the file on close.
+   *
+   * @param out the stream returned for the newly created file.
+   * @return the given stream if the file is erasure coded or encrypted.
+   */
+  private FSDataOutputStream createParallelOutputStream(
+      final HdfsDataOutputStream out, final FsPermission permission,
+      final EnumSet<CreateFlag> flag, final int bufferSize,
+      final short replication, final long blockSize,
+      final Progressable progress, final ChecksumOpt checksumOpt,
+      final InetSocketAddress[] favoredNodes, final String storagePolicy,
+      final int streams) {
+    if (!(out.getWrappedStream() instanceof DFSOutputStream)
+        || out.getWrappedStream() instanceof DFSStripedOutputStream) {
+      DFSParallelOutputStream.LOG.debug("Not writing {} in parallel",
+          out.getWrappedStream());
+      return out;
+    }
+    // Never overwrite an existing file with a segment
+    final EnumSet<CreateFlag> segmentFlag = EnumSet.copyOf(flag);
+    segmentFlag.add(CreateFlag.CREATE);
+    segmentFlag.remove(CreateFlag.OVERWRITE);
+    return new FSDataOutputStream(new DFSParallelOutputStream(dfs,
+        (DFSOutputStream) out.getWrappedStream(), blockSize, streams,
+        src -> dfs.create(src, permission, segmentFlag, false, replication,
+            blockSize, progress, bufferSize, checksumOpt, favoredNodes, null,
+            storagePolicy)), statistics);
+  }
+
   // Private helper to ensure the wrapped inner stream is closed safely
   // upon IOException throw during wrap.
   // Assuming the caller owns the inner stream which needs to be closed upon
@@ -1274,6 +1312,8 @@ public RemoteIterator<FileStatus> next(final FileSystem fs, final Path p)
     private T curStat = null;
     private PathFilter filter;
     private boolean needLocation;
+    /** The next batch of entries, fetched while this batch is consumed. */
+    private Future<DirectoryListing> nextListing;
 
     private DirListingIterator(Path p, PathFilter filter,
         boolean needLocation) throws IOException {
@@ -1294,6 +1334,7 @@ private DirListingIterator(Path p, PathFilter filter,
         throw new FileNotFoundException("File " + p + " does not exist.");
       }
       i = 0;
+      prefetchNextListing();
     }
 
     private DirListingIterator(Path p, boolean needLocation)
@@ -1329,17 +1370,51 @@ private boolean hasNextNoFilter() throws IOException {
       if (i >= thisListing.getPartialListing().length
           && thisListing.hasMore()) {
         // current listing is exhausted & fetch a new listing
-        thisListing = dfs.listPaths(src, thisListing.getLastName(),
-            needLocation);
+        if (nextListing != null) {
+          Future<DirectoryListing> future = nextListing;
+          nextListing = null;
+          thisListing = FutureIO.awaitFuture(future);
+        } else {
+          thisListing = dfs.listPaths(src, thisListing.getLastName(),
+              needLocation);
+        }
         statistics.incrementReadOps(1);
         if (thisListing == null) {
           throw new FileNotFoundException("File " + p + " does not exist.");
         }
         i = 0;
+        prefetchNextListing();
       }
       return (i < thisListing.getPartialListing().length);
     }
 
+    /**
+     * Start fetching the batch following the current one if listing prefetch
+     * is enabled, so that the RPC overlaps with the consumption of the
+     * current batch.
+     */
+    private void prefetchNextListing() {
+      final ThreadPoolExecutor pool = dfs.getListingPrefetchThreadPool();
+      if (pool == null || !thisListing.hasMore()) {
+        return;
+      }
+      final byte[] startAfter = thisListing.getLastName();
+      final CallerContext callerContext = CallerContext.getCurrent();
+      try {
+        nextListing = pool.submit(() -> {
+          CallerContext.setCurrent(callerContext);
+          try {
+            return dfs.listPaths(src, startAfter, needLocation);
+          } finally {
+            CallerContext.setCurrent(null);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // all prefetch threads are busy, fetch the batch when it is needed
+        nextListing = null;
+      }
+    }
+
     @Override
     public T next() throws IOException {
       if (hasNext()) {
@@ -3705,6 +3780,7 @@ DFSOpsCountStatistics getDFSOpsCountStatistics() {
     private InetSocketAddress[] favoredNodes = null;
     private String ecPolicyName = null;
     private String storagePolicyName = null;
+    private int parallelStreams = 1;
 
     /**
      * Construct a HdfsDataOutputStream builder for a file.
@@ -3854,6 +3930,23 @@ protected EnumSet<CreateFlag> getFlags() {
       return super.getFlags();
     }
 
+    /**
+     * Write up to the given number of consecutive blocks of a new replicated
+     * file in parallel, each through its own pipeline. Every block is
+     * buffered in memory before it is written, so the stream uses up to
+     * {@code streams} times the block size of heap. The returned stream
+     * does not support hflush or hsync. Erasure coded and encrypted files
+     * are always written by a single stream.
+     *
+     * @param streams the number of blocks written in parallel, 1 to disable.
+     */
+    public HdfsDataOutputStreamBuilder parallelStreams(int streams) {
+      Preconditions.checkArgument(streams > 0,
+          "The number of parallel streams must be positive: %s", streams);
+      parallelStreams = streams;
+      return this;
+    }
+
     /**
      * Build HdfsDataOutputStream to write.
      *
@@ -3864,17 +3957,25 @@ protected EnumSet<CreateFlag> getFlags() {
     public FSDataOutputStream build() throws IOException {
       if (getFlags().contains(CreateFlag.CREATE) ||
           getFlags().contains(CreateFlag.OVERWRITE)) {
+        final HdfsDataOutputStream out;
         if (isRecursive()) {
-          return dfs.create(getPath(), getPermission(), getFlags(),
+          out = dfs.create(getPath(), getPermission(), getFlags(),
               getBufferSize(), getReplication(), getBlockSize(),
               getProgress(), getChecksumOpt(), getFavoredNodes(),
               getEcPolicyName(), getStoragePolicyName());
         } else {
-          return dfs.createNonRecursive(getPath(), getPermission(), getFlags(),
+          out = dfs.createNonRecursive(getPath(), getPermission(), getFlags(),
               getBufferSize(), getReplication(), getBlockSize(), getProgress(),
               getChecksumOpt(), getFavoredNodes(), getEcPolicyName(),
               getStoragePolicyName());
         }
+        if (parallelStreams > 1) {
+          return dfs.createParallelOutputStream(out, getPermission(),
+              getFlags(), getBufferSize(), getReplication(), getBlockSize(),
+              getProgress(), getChecksumOpt(), getFavoredNodes(),
+              getStoragePolicyName(), parallelStreams);
+        }
+        return out;
       } else if (getFlags().contains(CreateFlag.APPEND)) {
         return dfs.append(getPath(), getFlags(), getBufferSize(), getProgress(),
             getFavoredNodes());
@@ -534,6 +534,18 @@ interface StripedRead {
     int     THREADPOOL_SIZE_DEFAULT = 18;
   }
 
+  /** dfs.client.listing configuration properties */
+  interface Listing {
+    String PREFIX = HdfsClientConfigKeys.PREFIX + "listing.";
+
+    /**
+     * Number of threads used to fetch the next batch of a directory listing
+     * while the current batch is consumed. 0 disables prefetching.
+     */
+    String  PREFETCH_THREADPOOL_SIZE_KEY = PREFIX + "prefetch.threadpool.size";
+    int     PREFETCH_THREADPOOL_SIZE_DEFAULT = 0;
+  }
+
   /** dfs.http.client configuration properties */
   interface HttpClient {
     String  PREFIX = "dfs.http.client.";
@@ -160,6 +160,8 @@ public class DfsClientConf {
 
   private final int stripedReadThreadpoolSize;
 
+  private final int listingPrefetchThreadpoolSize;
+
   private final boolean dataTransferTcpNoDelay;
 
   private final boolean readUseCachePriority;
@@ -295,6 +297,9 @@ public DfsClientConf(Configuration conf) {
     Preconditions.checkArgument(stripedReadThreadpoolSize > 0, "The value of " +
         HdfsClientConfigKeys.StripedRead.THREADPOOL_SIZE_KEY +
         " must be greater than 0.");
+    listingPrefetchThreadpoolSize = conf.getInt(
+        HdfsClientConfigKeys.Listing.PREFETCH_THREADPOOL_SIZE_KEY,
+        HdfsClientConfigKeys.Listing.PREFETCH_THREADPOOL_SIZE_DEFAULT);
     replicaAccessorBuilderClasses = loadReplicaAccessorBuilderClasses(conf);
 
     leaseHardLimitPeriod =
@@ -690,6 +695,13 @@ public int getStripedReadThreadpoolSize() {
     return stripedReadThreadpoolSize;
   }
 
+  /**
+   * @return the listingPrefetchThreadpoolSize
+   */
+  public int getListingPrefetchThreadpoolSize() {
+    return listingPrefetchThreadpoolSize;
+  }
+
   /**
    * @return the deadNodeDetectionEnabled
    */
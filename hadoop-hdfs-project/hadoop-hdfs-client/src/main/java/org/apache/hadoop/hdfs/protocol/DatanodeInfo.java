@@ -48,8 +48,8 @@ public class DatanodeInfo extends DatanodeID implements Node {
   private long blockPoolUsed;
   private long cacheCapacity;
   private long cacheUsed;
-  private long lastUpdate;
-  private long lastUpdateMonotonic;
+  private volatile long lastUpdate;
+  private volatile long lastUpdateMonotonic;
   private int xceiverCount;
   private volatile String location = NetworkTopology.DEFAULT_RACK;
   private String softwareVersion;
@@ -235,6 +235,18 @@ public class PBHelperClient {
       AclEntryScope.values();
   private static final FsAction[] FSACTION_VALUES =
       FsAction.values();
+  /**
+   * Protobuf messages are immutable, so the permission of every entry in a
+   * listing can share one instance per permission value.
+   */
+  private static final FsPermissionProto[] FSPERMISSION_PROTOS =
+      new FsPermissionProto[01777 + 1];
+  static {
+    for (int i = 0; i < FSPERMISSION_PROTOS.length; i++) {
+      FSPERMISSION_PROTOS[i] =
+          FsPermissionProto.newBuilder().setPerm(i).build();
+    }
+  }
 
   private static ByteString getFixedByteString(String key) {
     return ShadedProtobufHelper.getFixedByteString(key);
@@ -1759,7 +1771,11 @@ public static DatanodeIDProto[] convert(DatanodeID[] did) {
   }
 
   public static FsPermissionProto convert(FsPermission p) {
-    return FsPermissionProto.newBuilder().setPerm(p.toShort()).build();
+    final short perm = p.toShort();
+    if (perm >= 0 && perm < FSPERMISSION_PROTOS.length) {
+      return FSPERMISSION_PROTOS[perm];
+    }
+    return FsPermissionProto.newBuilder().setPerm(perm).build();
   }
 
   public static HdfsFileStatus convert(HdfsFileStatusProto fs) {
@@ -40,6 +40,12 @@ public interface FederationRPCMBean {
 
   double getProcessingAvg();
 
+  /**
+   * Get the average time to get a connection to the NNs from the pools.
+   * @return Average time to get a connection in nanoseconds.
+   */
+  double getConnectionWaitAvg();
+
   long getProxyOpFailureCommunicate();
 
   long getProxyOpFailureStandby();
@@ -113,6 +119,12 @@ public interface FederationRPCMBean {
    */
   String getRpcClientConnections();
 
+  /**
+   * JSON representation of the RPC connections from the Router to each NN.
+   * @return JSON string representation.
+   */
+  String getRpcClientConnectionsPerNamenode();
+
   /**
    * JSON representation of the available handler per Ns.
    * @return JSON string representation.
@@ -30,6 +30,7 @@
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.metrics2.lib.MutableStat;
 
 /**
  * Implementation of the RPC metrics collector.
@@ -50,6 +51,8 @@ public class FederationRPCMetrics implements FederationRPCMBean {
   private MutableRate proxy;
   @Metric("Number of operations the Router proxied to a Namenode")
   private MutableCounterLong proxyOp;
+  @Metric("Time for the Router to get a connection to the Namenodes")
+  private MutableRate connectionWait;
   @Metric("Number of operations the Router proxied to a Active Namenode")
   private MutableCounterLong activeProxyOp;
   @Metric("Number of operations the Router proxied to a Observer Namenode")
@@ -79,11 +82,21 @@ public class FederationRPCMetrics implements FederationRPCMBean {
   @Metric("Number of operations to hit permit limits")
   private MutableCounterLong proxyOpPermitRejected;
 
+  /** Number of subclusters merged for each listing. */
+  private final MutableStat listingMerge;
+  @Metric("Entries fetched from the subclusters for merged listings")
+  private MutableCounterLong listingMergeFetchedEntries;
+  @Metric("Entries returned by merged listings")
+  private MutableCounterLong listingMergeReturnedEntries;
+
   public FederationRPCMetrics(Configuration conf, RouterRpcServer rpcServer) {
     this.rpcServer = rpcServer;
 
     registry.tag(SessionId, "RouterRPCSession");
     registry.tag(ProcessName, "Router");
+    listingMerge = registry.newStat("ListingMerge",
+        "Number of subclusters merged for each listing", "Ops", "Subclusters",
+        false);
   }
 
   public static FederationRPCMetrics create(Configuration conf,
@@ -245,6 +258,11 @@ public String getRpcClientConnections() {
     return rpcServer.getRPCClient().getJSON();
   }
 
+  @Override
+  public String getRpcClientConnectionsPerNamenode() {
+    return rpcServer.getRPCClient().getJSONPerNamenode();
+  }
+
   @Override
   public String getAvailableHandlerOnPerNs() {
     return rpcServer.getRPCClient().
@@ -312,6 +330,39 @@ public long getProcessingOps() {
     return processingOp.value();
   }
 
+  /**
+   * Add the time to get a connection to a Namenode from the pools.
+   * @param time Time to get the connection in nanoseconds.
+   */
+  public void addConnectionWaitTime(long time) {
+    connectionWait.add(time);
+  }
+
+  @Override
+  public double getConnectionWaitAvg() {
+    return connectionWait.lastStat().mean();
+  }
+
+  /**
+   * Add a listing merged from multiple subclusters.
+   * @param subclusters Number of subclusters merged.
+   * @param fetched Entries fetched from the subclusters.
+   * @param returned Entries returned to the client.
+   */
+  public void addListingMerge(int subclusters, long fetched, long returned) {
+    listingMerge.add(subclusters);
+    listingMergeFetchedEntries.incr(fetched);
+    listingMergeReturnedEntries.incr(returned);
+  }
+
+  public long getListingMergeFetchedEntries() {
+    return listingMergeFetchedEntries.value();
+  }
+
+  public long getListingMergeReturnedEntries() {
+    return listingMergeReturnedEntries.value();
+  }
+
   public void incrProxyOpPermitRejected() {
     proxyOpPermitRejected.incr();
   }
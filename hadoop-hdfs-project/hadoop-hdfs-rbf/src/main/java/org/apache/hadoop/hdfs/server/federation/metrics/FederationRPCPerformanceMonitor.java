@@ -262,6 +262,13 @@ public void routerFailureReadOnly() {
     }
   }
 
+  @Override
+  public void connectionWait(long time) {
+    if (metrics != null) {
+      metrics.addConnectionWaitTime(time);
+    }
+  }
+
   @Override
   public void routerFailureLocked() {
     if (metrics != null) {
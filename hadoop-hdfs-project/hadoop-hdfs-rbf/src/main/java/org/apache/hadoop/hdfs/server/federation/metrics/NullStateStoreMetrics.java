@@ -43,6 +43,21 @@ public long getFailureOps() {
   public double getFailureAvg() {
     return -1;
   }
+  public void addReadRecords(int records, long bytes) {}
+  public long getReadRecords() {
+    return -1;
+  }
+  public long getReadBytes() {
+    return -1;
+  }
+  public void addReusedRecords(int records) {}
+  public long getReusedRecords() {
+    return -1;
+  }
+  public void addWriteBytes(long bytes) {}
+  public long getWriteBytes() {
+    return -1;
+  }
   public void addRemove(long latency) {}
   public long getRemoveOps() {
     return -1;
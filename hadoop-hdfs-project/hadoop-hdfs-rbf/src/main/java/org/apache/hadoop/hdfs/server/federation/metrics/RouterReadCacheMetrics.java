@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.metrics;
+
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+
+/**
+ * Metrics of the read cache of the Router for one mount point.
+ */
+@Metrics(name = "RouterReadCacheActivity", about = "Router read cache",
+    context = "dfs")
+public class RouterReadCacheMetrics {
+
+  public final static String ROUTER_READ_CACHE_METRICS_PREFIX =
+      "RouterReadCache-";
+
+  private final String name;
+  private final MetricsRegistry registry =
+      new MetricsRegistry("RouterReadCacheActivity");
+
+  @Metric("Number of reads served from the cache")
+  private MutableCounterLong cacheHit;
+  @Metric("Number of reads not in the cache")
+  private MutableCounterLong cacheMiss;
+  @Metric("Number of cached reads older than the state of the client")
+  private MutableCounterLong cacheStale;
+
+  private RouterReadCacheMetrics(String mountPoint) {
+    this.name = ROUTER_READ_CACHE_METRICS_PREFIX + mountPoint;
+    registry.tag("mount", "Mount point", mountPoint);
+  }
+
+  public static RouterReadCacheMetrics create(String mountPoint) {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    return ms.register(ROUTER_READ_CACHE_METRICS_PREFIX + mountPoint,
+        "HDFS Federation Router read cache metrics",
+        new RouterReadCacheMetrics(mountPoint));
+  }
+
+  /**
+   * Unregister the metrics of the mount point.
+   */
+  public void close() {
+    DefaultMetricsSystem.instance().unregisterSource(name);
+  }
+
+  public void incrCacheHit() {
+    cacheHit.incr();
+  }
+
+  public long getCacheHit() {
+    return cacheHit.value();
+  }
+
+  public void incrCacheMiss() {
+    cacheMiss.incr();
+  }
+
+  public long getCacheMiss() {
+    return cacheMiss.value();
+  }
+
+  public void incrCacheStale() {
+    cacheStale.incr();
+  }
+
+  public long getCacheStale() {
+    return cacheStale.value();
+  }
+}
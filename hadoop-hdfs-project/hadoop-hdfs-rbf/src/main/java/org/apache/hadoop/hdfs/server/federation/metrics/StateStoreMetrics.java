@@ -30,6 +30,7 @@
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
 import org.apache.hadoop.metrics2.lib.MutableRate;
@@ -53,6 +54,14 @@ public class StateStoreMetrics implements StateStoreMBean {
   private MutableRate removes;
   @Metric("Failed transactions")
   private MutableRate failures;
+  @Metric("Bytes read from the State Store")
+  private MutableCounterLong readBytes;
+  @Metric("Bytes written to the State Store")
+  private MutableCounterLong writeBytes;
+  @Metric("Records read from the State Store")
+  private MutableCounterLong readRecords;
+  @Metric("Records unchanged since the previous read")
+  private MutableCounterLong reusedRecords;
 
   private Map<String, MutableGaugeInt> cacheSizes;
   private final Map<String, MutableRate> cacheLoadMetrics = new HashMap<>();
@@ -111,6 +120,51 @@ public double getFailureAvg() {
     return failures.lastStat().mean();
   }
 
+  /**
+   * Add the records read from the State Store.
+   *
+   * @param records Number of records read.
+   * @param bytes Size of the records read.
+   */
+  public void addReadRecords(int records, long bytes) {
+    readRecords.incr(records);
+    readBytes.incr(bytes);
+  }
+
+  public long getReadRecords() {
+    return readRecords.value();
+  }
+
+  public long getReadBytes() {
+    return readBytes.value();
+  }
+
+  /**
+   * Add the records that did not need to be read again from the State Store.
+   *
+   * @param records Number of records.
+   */
+  public void addReusedRecords(int records) {
+    reusedRecords.incr(records);
+  }
+
+  public long getReusedRecords() {
+    return reusedRecords.value();
+  }
+
+  /**
+   * Add the bytes written to the State Store.
+   *
+   * @param bytes Size of the records written.
+   */
+  public void addWriteBytes(long bytes) {
+    writeBytes.incr(bytes);
+  }
+
+  public long getWriteBytes() {
+    return writeBytes.value();
+  }
+
   public void addRemove(long latency) {
     removes.add(latency);
   }
@@ -38,10 +38,9 @@
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -76,7 +75,8 @@
  * {@link org.apache.hadoop.hdfs.server.federation.router.Router Router} to map
  * the global HDFS view to the remote namespaces. This is similar to
  * {@link org.apache.hadoop.fs.viewfs.ViewFs ViewFs}.
- * This is implemented as a tree.
+ * This is implemented as a tree. The lookups go through a trie of the path
+ * components, which does not require any lock.
  */
 public class MountTableResolver
     implements FileSubclusterResolver, StateStoreCache {
@@ -97,6 +97,13 @@
   private boolean disabled = false;
   /** Path -> Remote HDFS location. */
   private final TreeMap<String, MountTable> tree = new TreeMap<>();
+  /**
+   * Path components -> Remote HDFS location, to find the deepest mount point
+   * of a path. It is replaced as a whole when refreshing the mount table.
+   */
+  private volatile MountTableTrie trie = new MountTableTrie();
+  /** Incremented when the mount table changes, before the invalidation. */
+  private final AtomicLong generation = new AtomicLong();
   /** Path -> Remote location. */
   private final Cache<String, PathLocation> locationCache;
   private final LongAdder locCacheMiss = new LongAdder();
@@ -107,7 +114,10 @@
   /** If use default nameservice to read and write files. */
   private boolean defaultNSEnable = true;
 
-  /** Synchronization for both the tree and the cache. */
+  /**
+   * Synchronization for the tree and the updates of the trie and the cache.
+   * The lookups of locations do not take it.
+   */
   private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
   private final Lock readLock = readWriteLock.readLock();
   private final Lock writeLock = readWriteLock.writeLock();
@@ -228,6 +238,8 @@ public void addEntry(final MountTable entry) {
     try {
       String srcPath = entry.getSourcePath();
       this.tree.put(srcPath, entry);
+      this.trie.put(entry);
+      this.generation.incrementAndGet();
       invalidateLocationCache(srcPath);
     } finally {
       writeLock.unlock();
@@ -244,6 +256,8 @@ public void removeEntry(final String srcPath) {
     writeLock.lock();
     try {
       this.tree.remove(srcPath);
+      this.trie.remove(srcPath);
+      this.generation.incrementAndGet();
       invalidateLocationCache(srcPath);
     } finally {
       writeLock.unlock();
@@ -313,10 +327,11 @@ public void refreshEntries(final Collection<MountTable> entries) {
       }
 
       // Entries that need to be removed
+      List<String> changedPaths = new ArrayList<>();
       for (String srcPath : oldEntries) {
         if (!newEntries.containsKey(srcPath)) {
           this.tree.remove(srcPath);
-          invalidateLocationCache(srcPath);
+          changedPaths.add(srcPath);
           LOG.info("Removed stale mount point {} from resolver", srcPath);
         }
       }
@@ -327,7 +342,7 @@ public void refreshEntries(final Collection<MountTable> entries) {
         if (!oldEntries.contains(srcPath)) {
           // Add node, it does not exist
           this.tree.put(srcPath, entry);
-          invalidateLocationCache(srcPath);
+          changedPaths.add(srcPath);
           LOG.info("Added new mount point {} to resolver", srcPath);
         } else {
           // Node exists, check for updates
@@ -336,11 +351,24 @@ public void refreshEntries(final Collection<MountTable> entries) {
             LOG.info("Entry has changed from \"{}\" to \"{}\"",
                 existingEntry, entry);
             this.tree.put(srcPath, entry);
-            invalidateLocationCache(srcPath);
+            changedPaths.add(srcPath);
             LOG.info("Updated mount point {} in resolver", srcPath);
           }
         }
       }
+
+      // Publish the new mount table at once and then invalidate the cache
+      if (!changedPaths.isEmpty()) {
+        MountTableTrie newTrie = new MountTableTrie();
+        for (MountTable entry : this.tree.values()) {
+          newTrie.put(entry);
+        }
+        this.trie = newTrie;
+        this.generation.incrementAndGet();
+        for (String srcPath : changedPaths) {
+          invalidateLocationCache(srcPath);
+        }
+      }
     } finally {
       writeLock.unlock();
     }
@@ -356,6 +384,9 @@ public void refreshEntries(final Collection<MountTable> entries) {
    */
   @VisibleForTesting
   public static boolean isTrashPath(String path) throws IOException {
+    if (!path.startsWith(FileSystem.USER_HOME_PREFIX)) {
+      return false;
+    }
     Pattern pattern = Pattern.compile(
         "^" + getTrashRoot() + TRASH_PATTERN);
     return pattern.matcher(path).find();
@@ -433,10 +464,12 @@ public void clear() {
     LOG.info("Clearing all mount location caches");
     writeLock.lock();
     try {
+      this.tree.clear();
+      this.trie = new MountTableTrie();
+      this.generation.incrementAndGet();
       if (this.locationCache != null) {
         this.locationCache.invalidateAll();
       }
-      this.tree.clear();
     } finally {
       writeLock.unlock();
     }
@@ -446,46 +479,40 @@ public void clear() {
   public PathLocation getDestinationForPath(final String path)
       throws IOException {
     verifyMountTable();
+    String src = processTrashPath(path);
     PathLocation res;
-    readLock.lock();
-    try {
-      if (this.locationCache == null) {
-        res = lookupLocation(processTrashPath(path));
-      } else {
-        Callable<? extends PathLocation> meh = (Callable<PathLocation>) () -> {
-          this.getLocCacheMiss().increment();
-          return lookupLocation(processTrashPath(path));
-        };
-        res = this.locationCache.get(processTrashPath(path), meh);
-        this.getLocCacheAccess().increment();
-      }
-      if (isTrashPath(path)) {
-        List<RemoteLocation> remoteLocations = new ArrayList<>();
-        for (RemoteLocation remoteLocation : res.getDestinations()) {
-          remoteLocations.add(new RemoteLocation(remoteLocation, path));
+    if (this.locationCache == null) {
+      res = lookupLocation(src);
+    } else {
+      res = this.locationCache.getIfPresent(src);
+      if (res == null) {
+        this.getLocCacheMiss().increment();
+        long gen = this.generation.get();
+        res = lookupLocation(src);
+        if (res != null) {
+          this.locationCache.put(src, res);
+          // The mount table changed meanwhile and the location may be stale
+          if (this.generation.get() != gen) {
+            this.locationCache.invalidate(src);
+          }
         }
-        return new PathLocation(path, remoteLocations,
-            res.getDestinationOrder());
-      } else {
-        return res;
       }
-    } catch (ExecutionException e) {
-      Throwable cause = e.getCause();
-      final IOException ioe;
-      if (cause instanceof IOException) {
-        ioe = (IOException) cause;
-      } else {
-        ioe = new IOException(cause);
+      this.getLocCacheAccess().increment();
+    }
+    if (!src.equals(path)) {
+      List<RemoteLocation> remoteLocations = new ArrayList<>();
+      for (RemoteLocation remoteLocation : res.getDestinations()) {
+        remoteLocations.add(new RemoteLocation(remoteLocation, path));
       }
-      throw ioe;
-    } finally {
-      readLock.unlock();
+      return new PathLocation(path, remoteLocations,
+          res.getDestinationOrder());
+    } else {
+      return res;
     }
   }
 
   /**
-   * Build the path location to insert into the cache atomically. It must hold
-   * the read lock.
+   * Build the path location to insert into the cache.
    * @param str Path to check/insert.
    * @return New remote location.
    * @throws IOException If it cannot find the location.
@@ -627,19 +654,7 @@ public String getDefaultNamespace() {
    * @return Mount table entry.
    */
   private MountTable findDeepest(final String path) {
-    readLock.lock();
-    try {
-      Entry<String, MountTable> entry = this.tree.floorEntry(path);
-      while (entry != null && !isParentEntry(path, entry.getKey())) {
-        entry = this.tree.lowerEntry(entry.getKey());
-      }
-      if (entry == null) {
-        return null;
-      }
-      return entry.getValue();
-    } finally {
-      readLock.unlock();
-    }
+    return this.trie.findDeepest(path);
   }
 
   /**
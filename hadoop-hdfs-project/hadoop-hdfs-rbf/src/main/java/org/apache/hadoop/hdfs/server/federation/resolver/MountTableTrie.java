@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.resolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+
+/**
+ * Index of the mount table entries by path component. Finding the deepest
+ * mount point of a path takes one lookup per component of the path,
+ * independently of the number of mount points.
+ * <p>
+ * Lookups do not take any lock and can run concurrently with a single
+ * writer: every update is visible to the readers once it completes. The
+ * writers must be synchronized externally.
+ */
+class MountTableTrie {
+
+  /** Node for one path component. */
+  private static final class Node {
+    /** Path component -> child node. */
+    private final Map<String, Node> children = new ConcurrentHashMap<>();
+    /** Mount table entry at this path, if any. */
+    private volatile MountTable entry;
+
+    private boolean isEmpty() {
+      return entry == null && children.isEmpty();
+    }
+  }
+
+  /** Node of the root path. */
+  private final Node root = new Node();
+
+  /**
+   * Add or replace a mount table entry.
+   *
+   * @param entry Mount table entry.
+   */
+  void put(final MountTable entry) {
+    Node node = root;
+    for (String component : getComponents(entry.getSourcePath())) {
+      node = node.children.computeIfAbsent(component, c -> new Node());
+    }
+    node.entry = entry;
+  }
+
+  /**
+   * Remove a mount table entry and the nodes that do not lead to any other
+   * entry anymore.
+   *
+   * @param srcPath Source path of the entry.
+   */
+  void remove(final String srcPath) {
+    List<String> components = getComponents(srcPath);
+    List<Node> nodes = new ArrayList<>(components.size() + 1);
+    Node node = root;
+    nodes.add(node);
+    for (String component : components) {
+      node = node.children.get(component);
+      if (node == null) {
+        return;
+      }
+      nodes.add(node);
+    }
+    node.entry = null;
+    for (int i = components.size(); i > 0 && nodes.get(i).isEmpty(); i--) {
+      nodes.get(i - 1).children.remove(components.get(i - 1));
+    }
+  }
+
+  /**
+   * Find the deepest mount point for a path.
+   *
+   * @param path Normalized absolute path.
+   * @return Mount table entry the path belongs to, null if none.
+   */
+  MountTable findDeepest(final String path) {
+    Node node = root;
+    MountTable deepest = node.entry;
+    int start = 0;
+    while (start < path.length()) {
+      int end = path.indexOf(Path.SEPARATOR_CHAR, start);
+      if (end < 0) {
+        end = path.length();
+      }
+      if (end > start) {
+        node = node.children.get(path.substring(start, end));
+        if (node == null) {
+          break;
+        }
+        MountTable entry = node.entry;
+        if (entry != null) {
+          deepest = entry;
+        }
+      }
+      start = end + 1;
+    }
+    return deepest;
+  }
+
+  /**
+   * Get the non empty components of a path.
+   *
+   * @param path Path to split.
+   * @return Components of the path.
+   */
+  private static List<String> getComponents(final String path) {
+    List<String> components = new ArrayList<>();
+    for (String component : path.split(Path.SEPARATOR)) {
+      if (!component.isEmpty()) {
+        components.add(component);
+      }
+    }
+    return components;
+  }
+}
@@ -119,6 +119,15 @@ public synchronized boolean isIdle() {
     return !isActive() && !isClosed();
   }
 
+  /**
+   * Get the number of threads using this connection.
+   *
+   * @return Number of threads using this connection.
+   */
+  public synchronized int getNumThreads() {
+    return this.numThreads;
+  }
+
   /**
    * Get the connection client.
    *
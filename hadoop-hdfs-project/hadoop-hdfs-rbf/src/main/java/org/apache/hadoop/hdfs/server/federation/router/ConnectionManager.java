@@ -58,6 +58,8 @@ public class ConnectionManager {
   private final int maxSize;
   /** Min ratio of active connections per user + nn. */
   private final float minActiveRatio;
+  /** Max number of connections per nn for all the users, 0 for no limit. */
+  private final int maxConnectionsPerNamenode;
 
   /** How often we close a pool for a particular user + nn. */
   private final long poolCleanupPeriodMs;
@@ -109,6 +111,9 @@ public ConnectionManager(Configuration config, RouterStateIdContext routerStateI
     this.minActiveRatio = this.conf.getFloat(
         RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_MIN_ACTIVE_RATIO,
         RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_MIN_ACTIVE_RATIO_DEFAULT);
+    this.maxConnectionsPerNamenode = this.conf.getInt(
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_MAX_PER_NAMENODE,
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_MAX_PER_NAMENODE_DEFAULT);
 
     // Map with the connections indexed by UGI and Namenode
     this.pools = new HashMap<>();
@@ -119,7 +124,7 @@ public ConnectionManager(Configuration config, RouterStateIdContext routerStateI
         RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_CREATOR_QUEUE_SIZE_DEFAULT
         );
     this.creatorQueue = new ArrayBlockingQueue<>(this.creatorQueueMaxSize);
-    this.creator = new ConnectionCreator(this.creatorQueue);
+    this.creator = new ConnectionCreator(this.creatorQueue, this);
     this.creator.setDaemon(true);
 
     // Cleanup periods
@@ -216,6 +221,8 @@ public ConnectionContext getConnection(UserGroupInformation ugi,
       try {
         pool = this.pools.get(connectionId);
         if (pool == null) {
+          // The new pool opens its min connections right away
+          reserveConnections(nnAddress, null, this.minSize);
           pool = new ConnectionPool(
               this.conf, nnAddress, ugi, this.minSize, this.maxSize,
               this.minActiveRatio, protocol,
@@ -334,6 +341,85 @@ public int getNumActiveConnectionsRecently() {
     return total;
   }
 
+  /**
+   * Check if a pool can get a new connection without going over the max
+   * number of connections to its Namenode. If the Namenode is at the max,
+   * it closes an idle connection of the least recently used pool of the same
+   * Namenode to make room. Otherwise, the requests of the pool keep sharing
+   * its current connections.
+   *
+   * @param pool Connection pool to add a connection to.
+   * @return If the pool can get a new connection.
+   */
+  @VisibleForTesting
+  boolean reserveConnection(ConnectionPool pool) {
+    return reserveConnections(pool.getNamenodeAddress(), pool, 1) > 0;
+  }
+
+  /**
+   * Make room for new connections to a Namenode without going over the max
+   * number of connections to it. It closes idle connections of the least
+   * recently used pools of the Namenode, keeping their min connections.
+   *
+   * @param nnAddress Address of the Namenode.
+   * @param pool Connection pool the connections are for, null for a new one.
+   * @param num Number of connections needed.
+   * @return Number of connections that can be added, at most num.
+   */
+  private int reserveConnections(String nnAddress, ConnectionPool pool,
+      int num) {
+    if (this.maxConnectionsPerNamenode <= 0) {
+      return num;
+    }
+    int total = 0;
+    List<ConnectionPool> others = new LinkedList<>();
+    readLock.lock();
+    try {
+      for (ConnectionPool other : this.pools.values()) {
+        if (nnAddress.equals(other.getNamenodeAddress())) {
+          total += other.getNumConnections();
+          if (other != pool) {
+            others.add(other);
+          }
+        }
+      }
+    } finally {
+      readLock.unlock();
+    }
+    int room = this.maxConnectionsPerNamenode - total;
+    while (room < num) {
+      ConnectionPool leastRecentlyUsed = null;
+      for (ConnectionPool other : others) {
+        if (other.getNumConnections() > other.getMinSize() &&
+            other.getNumIdleConnections() > 0 &&
+            (leastRecentlyUsed == null || other.getLastActiveTime() <
+                leastRecentlyUsed.getLastActiveTime())) {
+          leastRecentlyUsed = other;
+        }
+      }
+      if (leastRecentlyUsed == null) {
+        break;
+      }
+      List<ConnectionContext> removed =
+          leastRecentlyUsed.removeConnections(1);
+      if (removed.isEmpty()) {
+        others.remove(leastRecentlyUsed);
+        continue;
+      }
+      for (ConnectionContext conn : removed) {
+        conn.close();
+      }
+      room++;
+      LOG.debug("Moved a connection to {} from {} to {}", nnAddress,
+          leastRecentlyUsed, pool == null ? "a new pool" : pool);
+    }
+    if (room < num) {
+      LOG.debug("Cannot add more than {} connections to {}",
+          this.maxConnectionsPerNamenode, nnAddress);
+    }
+    return Math.max(0, Math.min(num, room));
+  }
+
   /**
    * Get the number of connections to be created.
    *
@@ -364,6 +450,29 @@ public String getJSON() {
     return JSON.toString(info);
   }
 
+  /**
+   * Get a JSON representation of the connections to each Namenode.
+   *
+   * @return JSON representation of the connections per Namenode.
+   */
+  public String getJSONPerNamenode() {
+    final Map<String, Map<String, Integer>> info = new TreeMap<>();
+    readLock.lock();
+    try {
+      for (ConnectionPool pool : this.pools.values()) {
+        Map<String, Integer> nnInfo = info.computeIfAbsent(
+            pool.getNamenodeAddress(), k -> new TreeMap<>());
+        nnInfo.merge("pools", 1, Integer::sum);
+        nnInfo.merge("total", pool.getNumConnections(), Integer::sum);
+        nnInfo.merge("active", pool.getNumActiveConnections(), Integer::sum);
+        nnInfo.merge("idle", pool.getNumIdleConnections(), Integer::sum);
+      }
+    } finally {
+      readLock.unlock();
+    }
+    return JSON.toString(info);
+  }
+
   @VisibleForTesting
   Map<ConnectionPoolId, ConnectionPool> getPools() {
     return this.pools;
@@ -376,7 +485,20 @@ Map<ConnectionPoolId, ConnectionPool> getPools() {
    */
   @VisibleForTesting
   void cleanup(ConnectionPool pool) {
-    if (pool.getNumConnections() > pool.getMinSize()) {
+    if (pool.isAdaptiveSize()) {
+      // Shrink the pool to the requests in flight in the last period
+      int excess = pool.getNumConnections() - pool.getTargetSize();
+      if (excess > 0) {
+        List<ConnectionContext> connections = pool.removeConnections(excess);
+        for (ConnectionContext conn : connections) {
+          conn.close();
+        }
+        LOG.debug("Removed {} connections from {}. Pool has {}/{} connections",
+            connections.size(), pool.getConnectionPoolId(),
+            pool.getNumConnections(), pool.getMaxSize());
+      }
+      pool.resetPeakInFlight();
+    } else if (pool.getNumConnections() > pool.getMinSize()) {
       // Check if the pool hasn't been active in a while or not 50% are used
       long timeSinceLastActive = Time.now() - pool.getLastActiveTime();
       int total = pool.getNumConnections();
@@ -463,10 +585,18 @@ static class ConnectionCreator extends Thread {
     private boolean running = true;
     /** Queue to push work to. */
     private BlockingQueue<ConnectionPool> queue;
+    /** Manager to check the connections to each Namenode, may be null. */
+    private final ConnectionManager manager;
 
     ConnectionCreator(BlockingQueue<ConnectionPool> blockingQueue) {
+      this(blockingQueue, null);
+    }
+
+    ConnectionCreator(BlockingQueue<ConnectionPool> blockingQueue,
+        ConnectionManager connectionManager) {
       super("Connection creator");
       this.queue = blockingQueue;
+      this.manager = connectionManager;
     }
 
     @Override
@@ -475,16 +605,13 @@ public void run() {
         try {
           ConnectionPool pool = this.queue.take();
           try {
-            int total = pool.getNumConnections();
-            int active = pool.getNumActiveConnectionsRecently();
-            float poolMinActiveRatio = pool.getMinActiveRatio();
-            if (pool.getNumConnections() < pool.getMaxSize() &&
-                active >= poolMinActiveRatio * total) {
+            if (pool.shouldAddConnection() &&
+                (manager == null || manager.reserveConnection(pool))) {
               ConnectionContext conn = pool.newConnection();
               pool.addConnection(conn);
             } else {
-              LOG.debug("Cannot add more than {} connections to {}",
-                  pool.getMaxSize(), pool);
+              LOG.debug("Not adding a connection to {} with {}/{} connections",
+                  pool, pool.getNumConnections(), pool.getMaxSize());
             }
           } catch (IOException e) {
             LOG.error("Cannot create a new connection for {} {}", pool, e);
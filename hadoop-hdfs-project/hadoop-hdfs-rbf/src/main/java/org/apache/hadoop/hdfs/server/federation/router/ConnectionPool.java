@@ -109,6 +109,12 @@ public class ConnectionPool {
 
   /** Enable using multiple physical socket or not. **/
   private final boolean enableMultiSocket;
+  /** Size the pool from the requests in flight instead of the active ratio. */
+  private final boolean adaptiveSize;
+  /** The maximum number of requests that a connection handles concurrently. */
+  private final int maxConcurrencyPerConn;
+  /** Most requests in flight at the same time since the last cleanup. */
+  private final AtomicInteger peakInFlight = new AtomicInteger(0);
   /** StateID alignment context. */
   private final PoolAlignmentContext alignmentContext;
 
@@ -160,6 +166,12 @@ protected ConnectionPool(Configuration config, String address,
     this.enableMultiSocket = conf.getBoolean(
         RBFConfigKeys.DFS_ROUTER_NAMENODE_ENABLE_MULTIPLE_SOCKET_KEY,
         RBFConfigKeys.DFS_ROUTER_NAMENODE_ENABLE_MULTIPLE_SOCKET_DEFAULT);
+    this.adaptiveSize = conf.getBoolean(
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_ADAPTIVE_SIZE_ENABLE,
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_ADAPTIVE_SIZE_ENABLE_DEFAULT);
+    this.maxConcurrencyPerConn = Math.max(1, conf.getInt(
+        RBFConfigKeys.DFS_ROUTER_MAX_CONCURRENCY_PER_CONNECTION_KEY,
+        RBFConfigKeys.DFS_ROUTER_MAX_CONCURRENCY_PER_CONNECTION_DEFAULT));
 
     this.alignmentContext = alignmentContext;
 
@@ -199,6 +211,59 @@ protected float getMinActiveRatio() {
     return this.minActiveRatio;
   }
 
+  /**
+   * Get the address of the Namenode this pool connects to.
+   *
+   * @return Address of the Namenode.
+   */
+  protected String getNamenodeAddress() {
+    return this.namenodeAddress;
+  }
+
+  /**
+   * Check if the size of this pool follows the requests in flight.
+   *
+   * @return If the size of this pool is adaptive.
+   */
+  protected boolean isAdaptiveSize() {
+    return this.adaptiveSize;
+  }
+
+  /**
+   * Get the number of connections this pool needs for the most requests in
+   * flight since the last cleanup. By Little's law, the requests in flight
+   * are the request rate times the latency of the Namenode, so this follows
+   * both.
+   *
+   * @return Number of connections needed, between the min and max sizes.
+   */
+  protected int getTargetSize() {
+    int needed = (this.peakInFlight.get() + this.maxConcurrencyPerConn - 1)
+        / this.maxConcurrencyPerConn;
+    return Math.max(this.minSize, Math.min(this.maxSize, needed));
+  }
+
+  /**
+   * Start a new period to track the requests in flight.
+   */
+  protected void resetPeakInFlight() {
+    this.peakInFlight.set(getNumInFlight());
+  }
+
+  /**
+   * Check if this pool should get a new connection.
+   *
+   * @return If a new connection should be added to this pool.
+   */
+  protected boolean shouldAddConnection() {
+    int total = getNumConnections();
+    if (this.adaptiveSize) {
+      return total < getTargetSize();
+    }
+    int active = getNumActiveConnectionsRecently();
+    return total < this.maxSize && active >= this.minActiveRatio * total;
+  }
+
   /**
    * Get the connection pool identifier.
    *
@@ -232,6 +297,10 @@ public PoolAlignmentContext getPoolAlignmentContext() {
    */
   protected ConnectionContext getConnection() {
     this.lastActiveTime = Time.now();
+    if (this.adaptiveSize) {
+      // The request asking for this connection is also in flight
+      this.peakInFlight.accumulateAndGet(getNumInFlight() + 1, Math::max);
+    }
     List<ConnectionContext> tmpConnections = this.connections;
     for (ConnectionContext tmpConnection : tmpConnections) {
       if (tmpConnection != null && tmpConnection.isUsable()) {
@@ -331,6 +400,20 @@ protected int getNumActiveConnections() {
     return ret;
   }
 
+  /**
+   * Number of requests in flight in the connections of the pool.
+   *
+   * @return Number of requests in flight.
+   */
+  protected int getNumInFlight() {
+    int ret = 0;
+    List<ConnectionContext> tmpConnections = this.connections;
+    for (ConnectionContext conn : tmpConnections) {
+      ret += conn.getNumThreads();
+    }
+    return ret;
+  }
+
   /**
    * Number of usable i.e. no active thread connections.
    *
@@ -389,6 +472,9 @@ public String getJSON() {
         Integer.toString(getNumActiveConnectionsRecently()));
     info.put("idle", Integer.toString(getNumIdleConnections()));
     info.put("total", Integer.toString(getNumConnections()));
+    if (this.adaptiveSize) {
+      info.put("target", Integer.toString(getTargetSize()));
+    }
     if (LOG.isDebugEnabled()) {
       List<ConnectionContext> tmpConnections = this.connections;
       for (int i=0; i<tmpConnections.size(); i++) {
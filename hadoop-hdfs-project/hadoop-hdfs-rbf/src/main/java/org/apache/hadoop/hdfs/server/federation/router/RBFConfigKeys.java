@@ -148,6 +148,14 @@ public class RBFConfigKeys extends CommonConfigurationKeysPublic {
   public static final String DFS_ROUTER_MAX_CONCURRENCY_PER_CONNECTION_KEY =
       FEDERATION_ROUTER_PREFIX + "max.concurrency.per.connection";
   public static final int DFS_ROUTER_MAX_CONCURRENCY_PER_CONNECTION_DEFAULT = 1;
+  public static final String DFS_ROUTER_NAMENODE_CONNECTION_ADAPTIVE_SIZE_ENABLE =
+      FEDERATION_ROUTER_PREFIX + "connection.adaptive-size.enable";
+  public static final boolean
+      DFS_ROUTER_NAMENODE_CONNECTION_ADAPTIVE_SIZE_ENABLE_DEFAULT = false;
+  public static final String DFS_ROUTER_NAMENODE_CONNECTION_MAX_PER_NAMENODE =
+      FEDERATION_ROUTER_PREFIX + "connection.max-per-namenode";
+  public static final int
+      DFS_ROUTER_NAMENODE_CONNECTION_MAX_PER_NAMENODE_DEFAULT = 0;
 
   // HDFS Router RPC client
   public static final String DFS_ROUTER_CLIENT_THREADS_SIZE =
@@ -245,6 +253,8 @@ public class RBFConfigKeys extends CommonConfigurationKeysPublic {
       FEDERATION_STORE_ROUTER_EXPIRATION_MS + ".deletion";
   public static final long
       FEDERATION_STORE_ROUTER_EXPIRATION_DELETION_MS_DEFAULT = -1;
+  public static final String FEDERATION_STORE_CHANGE_NOTIFICATION_RECORDS =
+      FEDERATION_STORE_PREFIX + "change-notification.records";
 
   // HDFS Router-based federation State Store ZK DRIVER
   public static final String FEDERATION_STORE_ZK_DRIVER_PREFIX =
@@ -257,6 +267,13 @@ public class RBFConfigKeys extends CommonConfigurationKeysPublic {
       FEDERATION_STORE_ZK_DRIVER_PREFIX + "async.max.threads";
   public static final int FEDERATION_STORE_ZK_ASYNC_MAX_THREADS_DEFAULT =
       -1;
+  public static final String FEDERATION_STORE_ZK_INCREMENTAL_SYNC_ENABLE =
+      FEDERATION_STORE_ZK_DRIVER_PREFIX + "incremental-sync.enable";
+  public static final boolean
+      FEDERATION_STORE_ZK_INCREMENTAL_SYNC_ENABLE_DEFAULT = false;
+  public static final String FEDERATION_STORE_ZK_BATCH_SIZE =
+      FEDERATION_STORE_ZK_DRIVER_PREFIX + "batch.size";
+  public static final int FEDERATION_STORE_ZK_BATCH_SIZE_DEFAULT = 0;
 
   // HDFS Router-based federation File based store implementation specific configs
   public static final String FEDERATION_STORE_FILE_ASYNC_THREADS =
@@ -367,6 +384,19 @@ public class RBFConfigKeys extends CommonConfigurationKeysPublic {
       FEDERATION_ROUTER_PREFIX + "dn-report.cache-expire";
   public static final long DN_REPORT_CACHE_EXPIRE_MS_DEFAULT =
       TimeUnit.SECONDS.toMillis(10);
+  public static final String DN_REPORT_CACHE_CLIENT_ENABLE =
+      FEDERATION_ROUTER_PREFIX + "dn-report.cache.client.enable";
+  public static final boolean DN_REPORT_CACHE_CLIENT_ENABLE_DEFAULT = false;
+  public static final String DFS_ROUTER_READ_CACHE_ENABLE =
+      FEDERATION_ROUTER_PREFIX + "read-cache.enable";
+  public static final boolean DFS_ROUTER_READ_CACHE_ENABLE_DEFAULT = false;
+  public static final String DFS_ROUTER_READ_CACHE_EXPIRE =
+      FEDERATION_ROUTER_PREFIX + "read-cache.expire";
+  public static final long DFS_ROUTER_READ_CACHE_EXPIRE_MS_DEFAULT =
+      TimeUnit.SECONDS.toMillis(10);
+  public static final String DFS_ROUTER_READ_CACHE_MAX_SIZE =
+      FEDERATION_ROUTER_PREFIX + "read-cache.max-size";
+  public static final long DFS_ROUTER_READ_CACHE_MAX_SIZE_DEFAULT = 10000;
   public static final String DFS_ROUTER_ENABLE_GET_DN_USAGE_KEY =
       FEDERATION_ROUTER_PREFIX + "enable.get.dn.usage";
   public static final boolean DFS_ROUTER_ENABLE_GET_DN_USAGE_DEFAULT = true;
@@ -418,6 +448,22 @@ public class RBFConfigKeys extends CommonConfigurationKeysPublic {
   public static final double DFS_ROUTER_FAIR_HANDLER_PROPORTION_DEFAULT =
       0.1;
 
+  // HDFS Router asynchronous RPC
+  public static final String FEDERATION_ROUTER_ASYNC_RPC_PREFIX =
+      FEDERATION_ROUTER_PREFIX + "async.rpc.";
+  public static final String DFS_ROUTER_ASYNC_RPC_ENABLE_KEY =
+      FEDERATION_ROUTER_ASYNC_RPC_PREFIX + "enable";
+  public static final boolean DFS_ROUTER_ASYNC_RPC_ENABLE_DEFAULT = false;
+  public static final String DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_KEY =
+      FEDERATION_ROUTER_ASYNC_RPC_PREFIX + "handler.count";
+  public static final int DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_DEFAULT = 10;
+  public static final String DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_KEY =
+      FEDERATION_ROUTER_ASYNC_RPC_PREFIX + "queue.size";
+  public static final int DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_DEFAULT = 100;
+  public static final String DFS_ROUTER_ASYNC_RPC_MAX_THREADS_KEY =
+      FEDERATION_ROUTER_ASYNC_RPC_PREFIX + "max.threads";
+  public static final int DFS_ROUTER_ASYNC_RPC_MAX_THREADS_DEFAULT = 200;
+
   // HDFS Router Federation Rename.
   public static final String DFS_ROUTER_FEDERATION_RENAME_PREFIX =
       FEDERATION_ROUTER_PREFIX + "federation.rename.";
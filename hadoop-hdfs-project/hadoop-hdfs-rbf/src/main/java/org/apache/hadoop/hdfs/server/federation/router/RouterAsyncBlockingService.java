@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.apache.hadoop.hdfs.server.federation.fairness.RouterRpcFairnessConstants.CONCURRENT_NS;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.security.PrivilegedExceptionAction;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.server.federation.resolver.PathLocation;
+import org.apache.hadoop.ipc.CallerContext;
+import org.apache.hadoop.ipc.ProtobufRpcEngine2;
+import org.apache.hadoop.ipc.ProtobufRpcEngineCallback2;
+import org.apache.hadoop.ipc.Server;
+import org.apache.hadoop.ipc.Server.Call;
+import org.apache.hadoop.ipc.StandbyException;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.thirdparty.protobuf.BlockingService;
+import org.apache.hadoop.thirdparty.protobuf.Descriptors.FieldDescriptor;
+import org.apache.hadoop.thirdparty.protobuf.Descriptors.MethodDescriptor;
+import org.apache.hadoop.thirdparty.protobuf.Descriptors.ServiceDescriptor;
+import org.apache.hadoop.thirdparty.protobuf.Message;
+import org.apache.hadoop.thirdparty.protobuf.RpcController;
+import org.apache.hadoop.thirdparty.protobuf.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BlockingService} that runs the calls of the wrapped service in a
+ * worker pool per downstream nameservice, so the RPC handler of the Router
+ * returns as soon as it handed off the call. The response is deferred until
+ * the worker completes the call.
+ * <p>
+ * There is a pool for each nameservice monitored by the Router, created when
+ * the service starts. A call is assigned to the nameservice of the default
+ * destination of its {@code src} path. Calls without a path, which usually go
+ * to all nameservices or to the default one, and calls to other nameservices
+ * share a separate pool. A slow nameservice only occupies the workers of its
+ * own pool; when the queue of a pool is full, its calls are rejected with a
+ * {@link StandbyException} so the clients fail over to another Router. The
+ * threads of all the pools are capped by
+ * {@link RBFConfigKeys#DFS_ROUTER_ASYNC_RPC_MAX_THREADS_KEY}.
+ * <p>
+ * This is enabled by
+ * {@link RBFConfigKeys#DFS_ROUTER_ASYNC_RPC_ENABLE_KEY}.
+ */
+class RouterAsyncBlockingService implements BlockingService {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(RouterAsyncBlockingService.class);
+
+  /** Name of the request field holding the path of a call. */
+  private static final String SRC_FIELD = "src";
+
+  private final BlockingService service;
+  private final Router router;
+  private final RouterRpcServer rpcServer;
+  /** Worker pool per nameservice, including {@code concurrent}. */
+  private final Map<String, ThreadPoolExecutor> pools;
+  private volatile boolean stopped = false;
+
+  RouterAsyncBlockingService(BlockingService service, Router router,
+      RouterRpcServer rpcServer, Configuration conf) {
+    this.service = service;
+    this.router = router;
+    this.rpcServer = rpcServer;
+    int poolSize = conf.getInt(
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_KEY,
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_DEFAULT);
+    int queueSize = conf.getInt(
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_KEY,
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_DEFAULT);
+    int maxThreads = conf.getInt(
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_MAX_THREADS_KEY,
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_MAX_THREADS_DEFAULT);
+
+    Set<String> nameservices = FederationUtil.getAllConfiguredNS(conf);
+    nameservices.add(CONCURRENT_NS);
+    if ((long) poolSize * nameservices.size() > maxThreads) {
+      int reduced = Math.max(1, maxThreads / nameservices.size());
+      LOG.warn("{} threads for {} nameservices exceed {}={}, using {} threads"
+          + " per nameservice", poolSize, nameservices.size(),
+          RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_MAX_THREADS_KEY, maxThreads,
+          reduced);
+      poolSize = reduced;
+    }
+    Map<String, ThreadPoolExecutor> newPools = new HashMap<>();
+    for (String nsId : nameservices) {
+      newPools.put(nsId, createPool(nsId, poolSize, queueSize));
+    }
+    this.pools = Collections.unmodifiableMap(newPools);
+  }
+
+  @Override
+  public ServiceDescriptor getDescriptorForType() {
+    return service.getDescriptorForType();
+  }
+
+  @Override
+  public Message getRequestPrototype(MethodDescriptor method) {
+    return service.getRequestPrototype(method);
+  }
+
+  @Override
+  public Message getResponsePrototype(MethodDescriptor method) {
+    return service.getResponsePrototype(method);
+  }
+
+  @Override
+  public Message callBlockingMethod(final MethodDescriptor method,
+      final RpcController controller, final Message request)
+      throws ServiceException {
+    final Call call = Server.getCurCall().get();
+    if (call == null || stopped) {
+      return service.callBlockingMethod(method, controller, request);
+    }
+    final String nsId = getPoolName(request);
+    final CallerContext callerContext = CallerContext.getCurrent();
+    final ProtobufRpcEngineCallback2 callback =
+        ProtobufRpcEngine2.Server.registerForDeferredResponse2();
+    try {
+      pools.get(nsId).execute(() -> {
+        Server.getCurCall().set(call);
+        CallerContext.setCurrent(callerContext);
+        try {
+          callback.setResponse(invoke(call.getRemoteUser(),
+              () -> service.callBlockingMethod(method, controller, request)));
+        } catch (Throwable t) {
+          callback.error(t);
+        } finally {
+          Server.getCurCall().set(null);
+          CallerContext.setCurrent(null);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      RouterRpcMonitor rpcMonitor = rpcServer.getRPCMonitor();
+      if (rpcMonitor != null) {
+        rpcMonitor.proxyOpPermitRejected(nsId);
+      }
+      LOG.debug("Rejected {} for {}", method.getName(), nsId);
+      callback.error(new StandbyException("Router "
+          + router.getRouterId() + " is overloaded for NS: " + nsId));
+    }
+    return null;
+  }
+
+  /**
+   * Run the call as the remote user, like the RPC handler does.
+   *
+   * @return the response of the call.
+   * @throws Throwable the exception thrown by the call.
+   */
+  private static Message invoke(UserGroupInformation ugi,
+      PrivilegedExceptionAction<Message> action) throws Throwable {
+    try {
+      return ugi == null ? action.run() : ugi.doAs(action);
+    } catch (UndeclaredThrowableException e) {
+      throw unwrap(e.getCause());
+    } catch (ServiceException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static Throwable unwrap(Throwable t) {
+    if (t instanceof ServiceException && t.getCause() != null) {
+      return t.getCause();
+    }
+    return t;
+  }
+
+  /**
+   * Get the pool of the nameservice a call goes to.
+   *
+   * @param request Request of the call.
+   * @return Nameservice of the default destination of the path of the
+   *         request, or {@code concurrent} if it has no path, it cannot be
+   *         resolved or the nameservice has no pool.
+   */
+  private String getPoolName(Message request) {
+    FieldDescriptor field =
+        request.getDescriptorForType().findFieldByName(SRC_FIELD);
+    if (field != null && field.getType() == FieldDescriptor.Type.STRING
+        && request.hasField(field)) {
+      try {
+        PathLocation location = rpcServer.getSubclusterResolver()
+            .getDestinationForPath((String) request.getField(field));
+        if (location != null) {
+          String nsId = location.getDefaultLocation().getNameserviceId();
+          if (pools.containsKey(nsId)) {
+            return nsId;
+          }
+        }
+      } catch (Exception e) {
+        LOG.debug("Cannot resolve the nameservice of {}", request, e);
+      }
+    }
+    return CONCURRENT_NS;
+  }
+
+  private static ThreadPoolExecutor createPool(String nsId, int poolSize,
+      int queueSize) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize,
+        1L, TimeUnit.MINUTES, new ArrayBlockingQueue<>(queueSize),
+        new ThreadFactoryBuilder()
+            .setNameFormat("Router Async Handler " + nsId + "-%d")
+            .setDaemon(true)
+            .build());
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Get the number of active workers and queued calls of each nameservice.
+   *
+   * @return Map of nameservice to its pool statistics.
+   */
+  @VisibleForTesting
+  Map<String, Map<String, Integer>> getPoolStats() {
+    Map<String, Map<String, Integer>> stats = new HashMap<>();
+    for (Map.Entry<String, ThreadPoolExecutor> entry : pools.entrySet()) {
+      Map<String, Integer> info = new HashMap<>();
+      info.put("active", entry.getValue().getActiveCount());
+      info.put("queued", entry.getValue().getQueue().size());
+      info.put("max", entry.getValue().getMaximumPoolSize());
+      stats.put(entry.getKey(), info);
+    }
+    return stats;
+  }
+
+  void stop() {
+    stopped = true;
+    for (ExecutorService pool : pools.values()) {
+      pool.shutdownNow();
+    }
+  }
+}
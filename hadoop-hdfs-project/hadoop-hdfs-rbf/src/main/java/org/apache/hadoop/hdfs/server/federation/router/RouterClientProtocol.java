@@ -79,6 +79,7 @@
 import org.apache.hadoop.hdfs.protocol.ZoneReencryptionStatus;
 import org.apache.hadoop.hdfs.security.token.block.DataEncryptionKey;
 import org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenIdentifier;
+import org.apache.hadoop.hdfs.server.federation.metrics.FederationRPCMetrics;
 import org.apache.hadoop.hdfs.server.federation.resolver.ActiveNamenodeResolver;
 import org.apache.hadoop.hdfs.server.federation.resolver.FederationNamespaceInfo;
 import org.apache.hadoop.hdfs.server.federation.resolver.FileSubclusterResolver;
@@ -114,6 +115,7 @@
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
@@ -144,6 +146,8 @@ public class RouterClientProtocol implements ClientProtocol {
 
   /** If it requires response from all subclusters. */
   private final boolean allowPartialList;
+  /** If the DN reports for the clients come from the cache. */
+  private final boolean dnReportCacheForClients;
   /** Time out when getting the mount statistics. */
   private long mountStatusTimeOut;
 
@@ -174,6 +178,9 @@ public class RouterClientProtocol implements ClientProtocol {
     this.allowPartialList = conf.getBoolean(
         RBFConfigKeys.DFS_ROUTER_ALLOW_PARTIAL_LIST,
         RBFConfigKeys.DFS_ROUTER_ALLOW_PARTIAL_LIST_DEFAULT);
+    this.dnReportCacheForClients = conf.getBoolean(
+        RBFConfigKeys.DN_REPORT_CACHE_CLIENT_ENABLE,
+        RBFConfigKeys.DN_REPORT_CACHE_CLIENT_ENABLE_DEFAULT);
     this.mountStatusTimeOut = conf.getTimeDuration(
         RBFConfigKeys.DFS_ROUTER_CLIENT_MOUNT_TIME_OUT,
         RBFConfigKeys.DFS_ROUTER_CLIENT_MOUNT_TIME_OUT_DEFAULT,
@@ -249,6 +256,12 @@ public LocatedBlocks getBlockLocations(String src, final long offset,
     RemoteMethod remoteMethod = new RemoteMethod("getBlockLocations",
         new Class<?>[] {String.class, long.class, long.class},
         new RemoteParam(), offset, length);
+    RouterReadCache readCache = rpcServer.getReadCache();
+    if (readCache != null) {
+      return readCache.getBlockLocations(src, locations, offset, length,
+          () -> rpcClient.invokeSequential(locations, remoteMethod,
+              LocatedBlocks.class, null));
+    }
     return rpcClient.invokeSequential(locations, remoteMethod,
         LocatedBlocks.class, null);
   }
@@ -841,6 +854,42 @@ public int compare(byte[] o1, byte[] o2) {
   private static GetListingComparator comparator =
       new GetListingComparator();
 
+  /**
+   * Position in the sorted entries of a listing, for the merge of the
+   * listings of multiple subclusters.
+   */
+  private static final class ListingCursor
+      implements Comparable<ListingCursor> {
+    /** Sorted entries. */
+    private final HdfsFileStatus[] entries;
+    /** Number of entries to merge. */
+    private final int end;
+    /** Priority when multiple listings have the same name, higher wins. */
+    private final int priority;
+    /** Next entry to merge. */
+    private int pos = 0;
+
+    ListingCursor(HdfsFileStatus[] entries, int end, int priority) {
+      this.entries = entries;
+      this.end = end;
+      this.priority = priority;
+    }
+
+    boolean hasNext() {
+      return pos < end;
+    }
+
+    HdfsFileStatus peek() {
+      return entries[pos];
+    }
+
+    @Override
+    public int compareTo(ListingCursor other) {
+      return comparator.compare(peek().getLocalNameInBytes(),
+          other.peek().getLocalNameInBytes());
+    }
+  }
+
   @Override
   public DirectoryListing getListing(String src, byte[] startAfter,
       boolean needLocation) throws IOException {
@@ -848,9 +897,10 @@ public DirectoryListing getListing(String src, byte[] startAfter,
 
     List<RemoteResult<RemoteLocation, DirectoryListing>> listings =
         getListingInt(src, startAfter, needLocation);
-    TreeMap<byte[], HdfsFileStatus> nnListing = new TreeMap<>(comparator);
+    List<ListingCursor> cursors = new ArrayList<>();
     int totalRemainingEntries = 0;
     int remainingEntries = 0;
+    int fetchedEntries = 0;
     boolean namenodeListingExists = false;
     // Check the subcluster listing with the smallest name to make sure
     // no file is skipped across subclusters
@@ -881,25 +931,28 @@ public DirectoryListing getListing(String src, byte[] startAfter,
         }
       }
 
-      // Add existing entries
+      // Add existing entries, the Namenodes return them sorted
       for (RemoteResult<RemoteLocation, DirectoryListing> result : listings) {
         DirectoryListing listing = result.getResult();
         if (listing != null) {
           namenodeListingExists = true;
-          for (HdfsFileStatus file : listing.getPartialListing()) {
-            byte[] filename = file.getLocalNameInBytes();
-            if (totalRemainingEntries > 0 &&
-                comparator.compare(filename, lastName) > 0) {
-              // Discarding entries further than the lastName
-              remainingEntries++;
-            } else {
-              nnListing.put(filename, file);
+          HdfsFileStatus[] partialListing = listing.getPartialListing();
+          int end = partialListing.length;
+          if (totalRemainingEntries > 0) {
+            // Discarding entries further than the lastName
+            while (end > 0 && comparator.compare(
+                partialListing[end - 1].getLocalNameInBytes(), lastName) > 0) {
+              end--;
             }
           }
+          remainingEntries += partialListing.length - end;
           remainingEntries += listing.getRemainingEntries();
+          fetchedEntries += partialListing.length;
+          cursors.add(new ListingCursor(partialListing, end, cursors.size()));
         }
       }
     }
+    int numSubclusterListings = cursors.size();
 
     // Add mount points at this level in the tree
     final List<String> children = subclusterResolver.getMountPoints(src);
@@ -908,6 +961,7 @@ public DirectoryListing getListing(String src, byte[] startAfter,
       Map<String, Long> dates = getMountPointDates(src);
 
       // Create virtual folder with the mount name
+      List<HdfsFileStatus> mountPoints = new ArrayList<>(children.size());
       for (String child : children) {
         long date = 0;
         if (dates != null && dates.containsKey(child)) {
@@ -919,43 +973,107 @@ public DirectoryListing getListing(String src, byte[] startAfter,
 
         // if there is no subcluster path, always add mount point
         byte[] bChild = DFSUtil.string2Bytes(child);
-        if (lastName == null) {
-          nnListing.put(bChild, dirStatus);
-        } else {
-          if (shouldAddMountPoint(bChild,
-                lastName, startAfter, remainingEntries)) {
-            // This may overwrite existing listing entries with the mount point
-            // TODO don't add if already there?
-            nnListing.put(bChild, dirStatus);
-          }
+        if (lastName == null || shouldAddMountPoint(bChild, lastName,
+            startAfter, remainingEntries)) {
+          // This overwrites existing listing entries with the mount point
+          mountPoints.add(dirStatus);
         }
       }
+      mountPoints.sort((m1, m2) -> comparator.compare(
+          m1.getLocalNameInBytes(), m2.getLocalNameInBytes()));
+      cursors.add(new ListingCursor(
+          mountPoints.toArray(new HdfsFileStatus[0]), mountPoints.size(),
+          cursors.size()));
+    }
+
+    HdfsFileStatus[] combinedData = mergeListings(cursors);
+    if (numSubclusterListings > 1) {
+      FederationRPCMetrics metrics = getRPCMetrics();
+      if (metrics != null) {
+        metrics.addListingMerge(numSubclusterListings, fetchedEntries,
+            combinedData.length);
+      }
+    }
+
+    if (children != null && combinedData.length > 0) {
       // Update the remaining count to include left mount points
-      if (nnListing.size() > 0) {
-        byte[] lastListing = nnListing.lastKey();
-        for (int i = 0; i < children.size(); i++) {
-          byte[] bChild = DFSUtil.string2Bytes(children.get(i));
-          if (comparator.compare(bChild, lastListing) > 0) {
-            remainingEntries += (children.size() - i);
-            break;
-          }
+      byte[] lastListing =
+          combinedData[combinedData.length - 1].getLocalNameInBytes();
+      for (int i = 0; i < children.size(); i++) {
+        byte[] bChild = DFSUtil.string2Bytes(children.get(i));
+        if (comparator.compare(bChild, lastListing) > 0) {
+          remainingEntries += (children.size() - i);
+          break;
         }
       }
     }
 
-    if (!namenodeListingExists && nnListing.size() == 0 && children == null) {
+    if (!namenodeListingExists && combinedData.length == 0
+        && children == null) {
       // NN returns a null object if the directory cannot be found and has no
       // listing. If we didn't retrieve any NN listing data, and there are no
       // mount points here, return null.
       return null;
     }
 
-    // Generate combined listing
-    HdfsFileStatus[] combinedData = new HdfsFileStatus[nnListing.size()];
-    combinedData = nnListing.values().toArray(combinedData);
     return new DirectoryListing(combinedData, remainingEntries);
   }
 
+  /**
+   * Merge sorted listings by name. The listings are already cut at the
+   * smallest last name of the subclusters, so the whole merge goes in the
+   * batch and the next batch starts after it without fetching the same
+   * entries again. When multiple listings have an entry with the same name,
+   * the one of the listing with the highest priority is returned.
+   *
+   * @param cursors Sorted listings to merge.
+   * @return Merged entries sorted by name.
+   */
+  private static HdfsFileStatus[] mergeListings(List<ListingCursor> cursors) {
+    PriorityQueue<ListingCursor> queue =
+        new PriorityQueue<>(Math.max(1, cursors.size()));
+    int total = 0;
+    for (ListingCursor cursor : cursors) {
+      if (cursor.hasNext()) {
+        queue.add(cursor);
+        total += cursor.end;
+      }
+    }
+    List<HdfsFileStatus> merged = new ArrayList<>(total);
+    List<ListingCursor> sameName = new ArrayList<>(cursors.size());
+    while (!queue.isEmpty()) {
+      ListingCursor first = queue.poll();
+      sameName.add(first);
+      ListingCursor selected = first;
+      while (!queue.isEmpty() && queue.peek().compareTo(first) == 0) {
+        ListingCursor other = queue.poll();
+        sameName.add(other);
+        if (other.priority > selected.priority) {
+          selected = other;
+        }
+      }
+      merged.add(selected.peek());
+      for (ListingCursor cursor : sameName) {
+        cursor.pos++;
+        if (cursor.hasNext()) {
+          queue.add(cursor);
+        }
+      }
+      sameName.clear();
+    }
+    return merged.toArray(new HdfsFileStatus[merged.size()]);
+  }
+
+  /**
+   * Get the RPC metrics of the Router.
+   *
+   * @return RPC metrics or null if they are not enabled.
+   */
+  private FederationRPCMetrics getRPCMetrics() {
+    RouterRpcMonitor rpcMonitor = rpcServer.getRPCMonitor();
+    return rpcMonitor == null ? null : rpcMonitor.getRPCMetrics();
+  }
+
   @Override
   public BatchedDirectoryListing getBatchedListing(String[] srcs,
       byte[] startAfter, boolean needLocation) throws IOException {
@@ -976,6 +1094,10 @@ public HdfsFileStatus getFileInfo(String src) throws IOException {
       // If it's a directory, we check in all locations
       if (rpcServer.isPathAll(src)) {
         ret = getFileInfoAll(locations, method);
+      } else if (rpcServer.getReadCache() != null) {
+        ret = rpcServer.getReadCache().getFileInfo(src, locations,
+            () -> rpcClient.invokeSequential(locations, method,
+                HdfsFileStatus.class, null));
       } else {
         // Check for file information sequentially
         ret = rpcClient.invokeSequential(locations, method, HdfsFileStatus.class, null);
@@ -1069,6 +1191,9 @@ public long[] getStats() throws IOException {
   public DatanodeInfo[] getDatanodeReport(HdfsConstants.DatanodeReportType type)
       throws IOException {
     rpcServer.checkOperation(NameNode.OperationCategory.UNCHECKED);
+    if (dnReportCacheForClients) {
+      return rpcServer.getCachedDatanodeReport(type);
+    }
     return rpcServer.getDatanodeReport(type, true, 0);
   }
 
@@ -1076,6 +1201,9 @@ public DatanodeInfo[] getDatanodeReport(HdfsConstants.DatanodeReportType type)
   public DatanodeStorageReport[] getDatanodeStorageReport(
       HdfsConstants.DatanodeReportType type) throws IOException {
     rpcServer.checkOperation(NameNode.OperationCategory.UNCHECKED);
+    if (dnReportCacheForClients) {
+      return rpcServer.getCachedDatanodeStorageReport(type);
+    }
 
     Map<String, DatanodeStorageReport[]> dnSubcluster =
         rpcServer.getDatanodeStorageReportMap(type);
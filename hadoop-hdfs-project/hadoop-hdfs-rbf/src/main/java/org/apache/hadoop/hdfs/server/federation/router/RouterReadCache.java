@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.hdfs.server.federation.metrics.RouterReadCacheMetrics;
+import org.apache.hadoop.hdfs.server.federation.resolver.RemoteLocation;
+import org.apache.hadoop.hdfs.server.federation.store.StateStoreCache;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+import org.apache.hadoop.ipc.Server;
+import org.apache.hadoop.thirdparty.com.google.common.cache.Cache;
+import org.apache.hadoop.thirdparty.com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.util.functional.CallableRaisingIOE;
+
+/**
+ * Cache in the Router for the file status and the block locations of the
+ * paths in read only mount points. The data behind these mount points
+ * cannot be modified through the Routers, so repeated reads of the same
+ * files can be served without going to the Namenode.
+ * <p>
+ * The entries are cached per user, as the Namenode checks the permissions
+ * of the user and the block tokens are issued for it. The block locations
+ * are also cached per client address as the Namenode sorts them by
+ * distance to the client. The entries expire after
+ * {@link RBFConfigKeys#DFS_ROUTER_READ_CACHE_EXPIRE}. Each entry records
+ * the state id of the nameservice when it was read; it is not served to a
+ * client that has already seen a newer state of the nameservice.
+ * <p>
+ * The metrics of a mount point are unregistered when the State Store cache
+ * is refreshed without the mount point.
+ * <p>
+ * This is enabled by {@link RBFConfigKeys#DFS_ROUTER_READ_CACHE_ENABLE}.
+ */
+class RouterReadCache implements StateStoreCache {
+
+  private final RouterRpcServer rpcServer;
+  private final RouterStateIdContext stateIdContext;
+  /** Read -> result from the Namenode. */
+  private final Cache<Key, Value> cache;
+  /** Mount point -> metrics. */
+  private final Map<String, RouterReadCacheMetrics> metrics =
+      new ConcurrentHashMap<>();
+
+  RouterReadCache(Configuration conf, RouterRpcServer rpcServer,
+      RouterStateIdContext stateIdContext) {
+    this.rpcServer = rpcServer;
+    this.stateIdContext = stateIdContext;
+    long expireMs = conf.getTimeDuration(
+        RBFConfigKeys.DFS_ROUTER_READ_CACHE_EXPIRE,
+        RBFConfigKeys.DFS_ROUTER_READ_CACHE_EXPIRE_MS_DEFAULT,
+        TimeUnit.MILLISECONDS);
+    long maxSize = conf.getLong(
+        RBFConfigKeys.DFS_ROUTER_READ_CACHE_MAX_SIZE,
+        RBFConfigKeys.DFS_ROUTER_READ_CACHE_MAX_SIZE_DEFAULT);
+    this.cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(expireMs, TimeUnit.MILLISECONDS)
+        .maximumSize(maxSize)
+        .build();
+  }
+
+  /**
+   * Get the status of a file from the cache or from the Namenode.
+   *
+   * @param src Path of the file.
+   * @param locations Locations of the path.
+   * @param loader Reads the status from the Namenode.
+   * @return Status of the file.
+   * @throws IOException If the Namenode cannot be read.
+   */
+  HdfsFileStatus getFileInfo(String src, List<RemoteLocation> locations,
+      CallableRaisingIOE<HdfsFileStatus> loader) throws IOException {
+    return get(src, locations, "getFileInfo", null, 0, 0, loader);
+  }
+
+  /**
+   * Get the block locations of a file from the cache or from the Namenode.
+   *
+   * @param src Path of the file.
+   * @param locations Locations of the path.
+   * @param offset Offset in the file.
+   * @param length Length of the range.
+   * @param loader Reads the block locations from the Namenode.
+   * @return Block locations of the range of the file.
+   * @throws IOException If the Namenode cannot be read.
+   */
+  LocatedBlocks getBlockLocations(String src, List<RemoteLocation> locations,
+      long offset, long length, CallableRaisingIOE<LocatedBlocks> loader)
+      throws IOException {
+    return get(src, locations, "getBlockLocations",
+        Server.getRemoteIp(), offset, length, loader);
+  }
+
+  private <T> T get(String src, List<RemoteLocation> locations,
+      String method, InetAddress client, long offset, long length,
+      CallableRaisingIOE<T> loader) throws IOException {
+    MountTable mount = rpcServer.getMountTable(src);
+    if (mount == null || !mount.isReadOnly() || locations.size() != 1) {
+      return loader.apply();
+    }
+    RemoteLocation location = locations.get(0);
+    String nsId = location.getNameserviceId();
+    RouterReadCacheMetrics mountMetrics = metrics.computeIfAbsent(
+        mount.getSourcePath(), RouterReadCacheMetrics::create);
+    Key key = new Key(method, nsId, location.getDest(),
+        RouterRpcServer.getRemoteUser().getUserName(), client, offset,
+        length);
+    long clientStateId =
+        RouterStateIdContext.getClientStateIdFromCurrentCall(nsId);
+
+    Value cached = cache.getIfPresent(key);
+    if (cached != null && cached.stateId >= clientStateId) {
+      mountMetrics.incrCacheHit();
+      @SuppressWarnings("unchecked")
+      T ret = (T) cached.result;
+      return ret;
+    }
+    if (cached != null) {
+      mountMetrics.incrCacheStale();
+    } else {
+      mountMetrics.incrCacheMiss();
+    }
+
+    // The Namenode serves the read at this state or later
+    long stateId = Math.max(clientStateId,
+        stateIdContext.getNamespaceStateId(nsId).get());
+    T ret = loader.apply();
+    if (ret != null) {
+      cache.put(key, new Value(ret, stateId));
+    }
+    return ret;
+  }
+
+  /**
+   * Get the metrics of a mount point.
+   *
+   * @param mountPoint Source path of the mount point.
+   * @return Metrics of the mount point, null if it was never read.
+   */
+  @VisibleForTesting
+  RouterReadCacheMetrics getMetrics(String mountPoint) {
+    return metrics.get(mountPoint);
+  }
+
+  /**
+   * Unregister the metrics of the mount points removed from the mount table.
+   * It is registered after the mount table resolver, which is refreshed
+   * first.
+   */
+  @Override
+  public boolean loadCache(boolean force) {
+    for (String mountPoint : metrics.keySet()) {
+      MountTable mount = rpcServer.getMountTable(mountPoint);
+      if (mount == null || !mountPoint.equals(mount.getSourcePath())) {
+        // Atomic with the creation of the metrics by a read
+        metrics.computeIfPresent(mountPoint, (path, mountMetrics) -> {
+          mountMetrics.close();
+          return null;
+        });
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Drop the cache and unregister its metrics.
+   */
+  void stop() {
+    cache.invalidateAll();
+    metrics.values().forEach(RouterReadCacheMetrics::close);
+    metrics.clear();
+  }
+
+  /** Read from a Namenode. */
+  private static final class Key {
+    private final String method;
+    private final String nsId;
+    private final String path;
+    private final String user;
+    private final InetAddress client;
+    private final long offset;
+    private final long length;
+
+    Key(String method, String nsId, String path, String user,
+        InetAddress client, long offset, long length) {
+      this.method = method;
+      this.nsId = nsId;
+      this.path = path;
+      this.user = user;
+      this.client = client;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return offset == other.offset && length == other.length
+          && method.equals(other.method) && nsId.equals(other.nsId)
+          && path.equals(other.path) && user.equals(other.user)
+          && Objects.equals(client, other.client);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(method, nsId, path, user, client, offset, length);
+    }
+  }
+
+  /** Result of a read and the state of the nameservice it reflects. */
+  private static final class Value {
+    private final Object result;
+    private final long stateId;
+
+    Value(Object result, long stateId) {
+      this.result = result;
+      this.stateId = stateId;
+    }
+  }
+}
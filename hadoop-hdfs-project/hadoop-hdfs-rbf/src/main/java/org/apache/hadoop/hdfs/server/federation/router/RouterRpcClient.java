@@ -357,6 +357,15 @@ public String getJSON() {
     return this.connectionManager.getJSON();
   }
 
+  /**
+   * JSON representation of the connections to each NN.
+   *
+   * @return String representation of the JSON.
+   */
+  public String getJSONPerNamenode() {
+    return this.connectionManager.getJSONPerNamenode();
+  }
+
   /**
    * JSON representation of the async caller thread pool.
    *
@@ -417,8 +426,12 @@ private ConnectionContext getConnection(UserGroupInformation ugi, String nsId,
         connUGI = UserGroupInformation.createProxyUser(
             ugi.getUserName(), routerUser);
       }
+      long start = Time.monotonicNowNanos();
       connection = this.connectionManager.getConnection(
           connUGI, rpcAddress, proto, nsId);
+      if (this.rpcMonitor != null) {
+        this.rpcMonitor.connectionWait(Time.monotonicNowNanos() - start);
+      }
       LOG.debug("User {} NN {} is using connection {}",
           ugi.getUserName(), rpcAddress, connection);
     } catch (Exception ex) {
@@ -138,4 +138,10 @@ void init(
    * If a path is in a read only mount point.
    */
   void routerFailureReadOnly();
+
+  /**
+   * Time to get a connection to the Namenode from the pools.
+   * @param time Time to get the connection in nanoseconds.
+   */
+  void connectionWait(long time);
 }
@@ -217,6 +217,12 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
   /** RPC clients to connect to the Namenodes. */
   private final RouterRpcClient rpcClient;
 
+  /** Hands off client calls to workers per nameservice, if enabled. */
+  private final RouterAsyncBlockingService asyncService;
+
+  /** Cache for the reads in read only mount points, if enabled. */
+  private final RouterReadCache readCache;
+
   /** Monitor metrics for the RPC calls. */
   private final RouterRpcMonitor rpcMonitor;
 
@@ -250,6 +256,9 @@ public class RouterRpcServer extends AbstractService implements ClientProtocol,
 
   /** DN type -> full DN report. */
   private final LoadingCache<DatanodeReportType, DatanodeInfo[]> dnCache;
+  /** DN type -> full DN storage report. */
+  private final LoadingCache<DatanodeReportType, DatanodeStorageReport[]>
+      dnStorageCache;
 
   /** Specify the option of router federation rename. */
   private RouterRenameOption routerRenameOption;
@@ -299,6 +308,15 @@ public RouterRpcServer(Configuration conf, Router router,
             new ClientNamenodeProtocolServerSideTranslatorPB(this);
     BlockingService clientNNPbService = ClientNamenodeProtocol
         .newReflectiveBlockingService(clientProtocolServerTranslator);
+    if (conf.getBoolean(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_ENABLE_KEY,
+        RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_ENABLE_DEFAULT)) {
+      this.asyncService = new RouterAsyncBlockingService(
+          clientNNPbService, router, this, conf);
+      clientNNPbService = this.asyncService;
+      LOG.info("Client calls are handed off to workers per nameservice");
+    } else {
+      this.asyncService = null;
+    }
 
     NamenodeProtocolServerSideTranslatorPB namenodeProtocolXlator =
         new NamenodeProtocolServerSideTranslatorPB(this);
@@ -394,6 +412,16 @@ public RouterRpcServer(Configuration conf, Router router,
     this.rpcClient = new RouterRpcClient(this.conf, this.router,
         this.namenodeResolver, this.rpcMonitor, routerStateIdContext);
 
+    if (conf.getBoolean(RBFConfigKeys.DFS_ROUTER_READ_CACHE_ENABLE,
+        RBFConfigKeys.DFS_ROUTER_READ_CACHE_ENABLE_DEFAULT)) {
+      this.readCache = new RouterReadCache(conf, this, routerStateIdContext);
+      if (router.getStateStore() != null) {
+        router.getStateStore().registerCacheExternal(this.readCache);
+      }
+    } else {
+      this.readCache = null;
+    }
+
     // Initialize modules
     this.quotaCall = new Quota(this.router, this);
     this.nnProto = new RouterNamenodeProtocol(this);
@@ -404,16 +432,21 @@ public RouterRpcServer(Configuration conf, Router router,
         DN_REPORT_CACHE_EXPIRE,
         DN_REPORT_CACHE_EXPIRE_MS_DEFAULT, TimeUnit.MILLISECONDS);
     this.dnCache = CacheBuilder.newBuilder()
-        .build(new DatanodeReportCacheLoader());
+        .build(new DatanodeReportCacheLoader<>("DatanodeReport",
+            type -> getDatanodeReport(type, true, 0)));
+    this.dnStorageCache = CacheBuilder.newBuilder()
+        .build(new DatanodeReportCacheLoader<>("DatanodeStorageReport",
+            type -> clientProto.getDatanodeStorageReport(type, true, -1)));
 
-    // Actively refresh the dn cache in a configured interval
+    // Actively refresh the dn caches in a configured interval
     Executors
         .newSingleThreadScheduledExecutor()
-        .scheduleWithFixedDelay(() -> this.dnCache
-                .asMap()
-                .keySet()
-                .parallelStream()
-                .forEach(this.dnCache::refresh),
+        .scheduleWithFixedDelay(() -> {
+          this.dnCache.asMap().keySet().parallelStream()
+              .forEach(this.dnCache::refresh);
+          this.dnStorageCache.asMap().keySet().parallelStream()
+              .forEach(this.dnStorageCache::refresh);
+        },
             0,
             dnCacheExpire, TimeUnit.MILLISECONDS);
 
@@ -528,6 +561,12 @@ protected void serviceStop() throws Exception {
     if (this.rpcServer != null) {
       this.rpcServer.stop();
     }
+    if (this.asyncService != null) {
+      this.asyncService.stop();
+    }
+    if (this.readCache != null) {
+      this.readCache.stop();
+    }
     if (rpcMonitor != null) {
       this.rpcMonitor.close();
     }
@@ -575,6 +614,25 @@ public RouterRpcClient getRPCClient() {
     return rpcClient;
   }
 
+  /**
+   * Get the handler of asynchronous client calls.
+   *
+   * @return Handler of asynchronous client calls, null if disabled.
+   */
+  @VisibleForTesting
+  RouterAsyncBlockingService getAsyncService() {
+    return asyncService;
+  }
+
+  /**
+   * Get the cache for the reads in read only mount points.
+   *
+   * @return Read cache, null if disabled.
+   */
+  RouterReadCache getReadCache() {
+    return readCache;
+  }
+
   /**
    * Get the subcluster resolver.
    *
@@ -1088,14 +1146,26 @@ public DatanodeInfo[] getDatanodeReport(DatanodeReportType type)
    */
   DatanodeInfo[] getCachedDatanodeReport(DatanodeReportType type)
       throws IOException {
+    return getCachedReport(dnCache, type);
+  }
+
+  /**
+   * Get the datanode storage report from cache.
+   *
+   * @param type Type of the datanode.
+   * @return List of datanode storage reports.
+   * @throws IOException If it cannot get the report.
+   */
+  DatanodeStorageReport[] getCachedDatanodeStorageReport(
+      DatanodeReportType type) throws IOException {
+    return getCachedReport(dnStorageCache, type);
+  }
+
+  private static <R> R getCachedReport(
+      LoadingCache<DatanodeReportType, R> cache, DatanodeReportType type)
+      throws IOException {
     try {
-      DatanodeInfo[] dns = this.dnCache.get(type);
-      if (dns == null) {
-        LOG.debug("Get null DN report from cache");
-        dns = getCachedDatanodeReportImpl(type);
-        this.dnCache.put(type, dns);
-      }
-      return dns;
+      return cache.get(type);
     } catch (ExecutionException e) {
       LOG.error("Cannot get the DN report for {}", type, e);
       Throwable cause = e.getCause();
@@ -1107,22 +1177,6 @@ DatanodeInfo[] getCachedDatanodeReport(DatanodeReportType type)
     }
   }
 
-  private DatanodeInfo[] getCachedDatanodeReportImpl(
-      final DatanodeReportType type) throws IOException {
-    // We need to get the DNs as a privileged user
-    UserGroupInformation loginUser = UserGroupInformation.getLoginUser();
-    RouterRpcServer.setCurrentUser(loginUser);
-
-    try {
-      DatanodeInfo[] dns = clientProto.getDatanodeReport(type);
-      LOG.debug("Refresh cached DN report with {} datanodes", dns.length);
-      return dns;
-    } finally {
-      // Reset ugi to remote user for remaining operations.
-      RouterRpcServer.resetCurrentUser();
-    }
-  }
-
   /**
    * Get the datanode report with a timeout.
    * @param type Type of the datanode.
@@ -1961,7 +2015,13 @@ boolean isPathFaultTolerant(final String path) {
     return entry != null && entry.isFaultTolerant();
   }
 
-  private MountTable getMountTable(final String path){
+  /**
+   * Get the mount table entry of a path.
+   *
+   * @param path Path to check.
+   * @return Mount table entry of the path, null if not found.
+   */
+  MountTable getMountTable(final String path) {
     if (subclusterResolver instanceof MountTableResolver) {
       try {
         MountTableResolver mountTable = (MountTableResolver) subclusterResolver;
@@ -2073,17 +2133,33 @@ private void updateDnMap(Map<FederationNamespaceInfo, DatanodeInfo[]> results,
     }
   }
 
+  /**
+   * Gets a datanode report from the subclusters.
+   *
+   * @param <R> Type of the report.
+   */
+  @FunctionalInterface
+  private interface DatanodeReportGetter<R> {
+    R get(DatanodeReportType type) throws IOException;
+  }
+
   /**
    * Deals with loading datanode report into the cache and refresh.
+   *
+   * @param <R> Type of the report.
    */
-  private class DatanodeReportCacheLoader
-      extends CacheLoader<DatanodeReportType, DatanodeInfo[]> {
+  private static class DatanodeReportCacheLoader<R>
+      extends CacheLoader<DatanodeReportType, R> {
 
+    private final String name;
+    private final DatanodeReportGetter<R> getter;
     private ListeningExecutorService executorService;
 
-    DatanodeReportCacheLoader() {
+    DatanodeReportCacheLoader(String name, DatanodeReportGetter<R> getter) {
+      this.name = name;
+      this.getter = getter;
       ThreadFactory threadFactory = new ThreadFactoryBuilder()
-          .setNameFormat("DatanodeReport-Cache-Reload")
+          .setNameFormat(name + "-Cache-Reload")
           .setDaemon(true)
           .build();
 
@@ -2092,8 +2168,19 @@ private void updateDnMap(Map<FederationNamespaceInfo, DatanodeInfo[]> results,
     }
 
     @Override
-    public DatanodeInfo[] load(DatanodeReportType type) throws Exception {
-      return getCachedDatanodeReportImpl(type);
+    public R load(DatanodeReportType type) throws Exception {
+      // We need to get the DNs as a privileged user
+      UserGroupInformation loginUser = UserGroupInformation.getLoginUser();
+      RouterRpcServer.setCurrentUser(loginUser);
+
+      try {
+        R report = getter.get(type);
+        LOG.debug("Refresh cached {} for {}", name, type);
+        return report;
+      } finally {
+        // Reset ugi to remote user for remaining operations.
+        RouterRpcServer.resetCurrentUser();
+      }
     }
 
     /**
@@ -2102,8 +2189,8 @@ public DatanodeInfo[] load(DatanodeReportType type) throws Exception {
      * will return the old cache value and schedule a background refresh.
      */
     @Override
-    public ListenableFuture<DatanodeInfo[]> reload(
-        final DatanodeReportType type, DatanodeInfo[] oldValue)
+    public ListenableFuture<R> reload(
+        final DatanodeReportType type, R oldValue)
         throws Exception {
       return executorService.submit(() -> load(type));
     }
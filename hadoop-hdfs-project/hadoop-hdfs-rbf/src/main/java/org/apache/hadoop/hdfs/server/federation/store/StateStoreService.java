@@ -24,6 +24,10 @@
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import javax.management.NotCompliantMBeanException;
@@ -48,6 +52,7 @@
 import org.apache.hadoop.metrics2.MetricsException;
 import org.apache.hadoop.metrics2.util.MBeans;
 import org.apache.hadoop.service.CompositeService;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.Time;
 import org.slf4j.Logger;
@@ -121,6 +126,13 @@ public class StateStoreService extends CompositeService {
   private final List<StateStoreCache> cachesToUpdateInternal;
   /** List of external caches to update. */
   private final List<StateStoreCache> cachesToUpdateExternal;
+  /** Names of the records to refresh when the driver notifies a change. */
+  private Collection<String> changeNotificationRecords;
+  /** Refreshes the caches when the driver notifies a change. */
+  private ExecutorService changeRefresher;
+  /** Records with a refresh pending after a change notification. */
+  private final Set<Class<? extends BaseRecord>> pendingChanges =
+      ConcurrentHashMap.newKeySet();
 
 
   public StateStoreService() {
@@ -193,6 +205,20 @@ protected void serviceInit(Configuration config) throws Exception {
     this.cacheUpdater = new StateStoreCacheUpdateService(this);
     addService(this.cacheUpdater);
 
+    // Refresh the caches of some records as soon as they change
+    this.changeNotificationRecords = conf.getTrimmedStringCollection(
+        RBFConfigKeys.FEDERATION_STORE_CHANGE_NOTIFICATION_RECORDS);
+    if (!this.changeNotificationRecords.isEmpty()) {
+      this.changeRefresher = Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("StateStore change refresher")
+              .setDaemon(true)
+              .build());
+      this.driver.setChangeListener(this::refreshChangedCaches);
+      LOG.info("Refreshing the caches on changes of {}",
+          this.changeNotificationRecords);
+    }
+
     if (conf.getBoolean(RBFConfigKeys.DFS_ROUTER_METRICS_ENABLE,
         RBFConfigKeys.DFS_ROUTER_METRICS_ENABLE_DEFAULT)) {
       // Create metrics for the State Store
@@ -225,6 +251,9 @@ protected void serviceStart() throws Exception {
 
   @Override
   protected void serviceStop() throws Exception {
+    if (changeRefresher != null) {
+      changeRefresher.shutdownNow();
+    }
     closeDriver();
 
     if (metrics != null) {
@@ -445,6 +474,38 @@ public void refreshCaches(boolean force) {
     }
   }
 
+  /**
+   * Refresh the cache of a record and the external caches after the driver
+   * notified a change of the record. The notifications received while a
+   * refresh is pending are merged into it.
+   *
+   * @param clazz Class of the changed record.
+   */
+  private void refreshChangedCaches(Class<? extends BaseRecord> clazz) {
+    if (!changeNotificationRecords.contains(
+        StateStoreUtils.getRecordName(clazz)) || !pendingChanges.add(clazz)) {
+      return;
+    }
+    changeRefresher.execute(() -> {
+      pendingChanges.remove(clazz);
+      List<StateStoreCache> cachesToUpdate = new LinkedList<>();
+      RecordStore<? extends BaseRecord> recordStore = recordStores.get(clazz);
+      if (recordStore instanceof StateStoreCache) {
+        cachesToUpdate.add((StateStoreCache) recordStore);
+      }
+      cachesToUpdate.addAll(cachesToUpdateExternal);
+      for (StateStoreCache cachedStore : cachesToUpdate) {
+        try {
+          cachedStore.loadCache(true);
+        } catch (IOException e) {
+          LOG.error("Error updating cache for {} after a change of {}",
+              cachedStore.getClass().getSimpleName(), clazz.getSimpleName(),
+              e);
+        }
+      }
+    });
+  }
+
   /**
    * Update the cache for a specific record store.
    *
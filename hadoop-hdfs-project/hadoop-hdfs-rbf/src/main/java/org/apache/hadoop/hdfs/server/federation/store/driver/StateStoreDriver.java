@@ -19,6 +19,7 @@
 
 import java.net.InetAddress;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -54,6 +55,9 @@ public abstract class StateStoreDriver implements StateStoreRecordOperations {
   /** State Store metrics. */
   private StateStoreMetrics metrics;
 
+  /** Listener for the records changed in the data store. */
+  private volatile Consumer<Class<? extends BaseRecord>> changeListener;
+
   /**
    * Initialize the state store connection.
    *
@@ -119,6 +123,29 @@ public StateStoreMetrics getMetrics() {
     return this.metrics;
   }
 
+  /**
+   * Set the listener to notify when the records of a class change in the data
+   * store. Only the drivers that can watch the data store notify it.
+   *
+   * @param listener Listener called with the class of the changed records.
+   */
+  public void setChangeListener(
+      Consumer<Class<? extends BaseRecord>> listener) {
+    this.changeListener = listener;
+  }
+
+  /**
+   * Notify the listener that the records of a class changed in the data store.
+   *
+   * @param clazz Class of the changed records.
+   */
+  protected void notifyChange(Class<? extends BaseRecord> clazz) {
+    Consumer<Class<? extends BaseRecord>> listener = this.changeListener;
+    if (listener != null) {
+      listener.accept(clazz);
+    }
+  }
+
   /**
    * Prepare the driver to access data storage.
    *
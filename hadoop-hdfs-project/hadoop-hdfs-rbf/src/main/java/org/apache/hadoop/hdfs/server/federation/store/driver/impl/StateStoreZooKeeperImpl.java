@@ -23,10 +23,17 @@
 import static org.apache.hadoop.util.Time.monotonicNow;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -37,8 +44,11 @@
 import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
+import org.apache.curator.framework.recipes.watch.PersistentWatcher;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys;
 import org.apache.hadoop.hdfs.server.federation.store.driver.StateStoreDriver;
 import org.apache.hadoop.hdfs.server.federation.store.driver.StateStoreOperationResult;
@@ -46,6 +56,11 @@
 import org.apache.hadoop.hdfs.server.federation.store.records.Query;
 import org.apache.hadoop.hdfs.server.federation.store.records.QueryResult;
 import org.apache.hadoop.util.curator.ZKCuratorManager;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
@@ -62,6 +77,11 @@
  * |--- REBALANCER
  * |--- ROUTERS
  * |--- DISABLE_NAMESERVICE
+ * <p>
+ * In incremental sync mode, a persistent watch on the znode of each record
+ * class tracks the records that change. A read only fetches the changed
+ * records again and reuses the data of the others from the previous read.
+ * The changes are also notified to the listener of the driver.
  */
 public class StateStoreZooKeeperImpl extends StateStoreSerializableImpl {
 
@@ -72,6 +92,15 @@ public class StateStoreZooKeeperImpl extends StateStoreSerializableImpl {
   private ThreadPoolExecutor executorService;
   private boolean enableConcurrent;
 
+  /** Only read the records that changed since the previous read. */
+  private boolean incrementalSync;
+  /** Maximum records in a ZooKeeper request, 0 for one request per record. */
+  private int batchSize;
+  /** Timeout for the requests to ZooKeeper. */
+  private long zkTimeoutMs;
+  /** ZNode of a record class -> records read in incremental sync mode. */
+  private final Map<String, ZNodeCache> znodeCaches =
+      new ConcurrentHashMap<>();
 
   /** Directory to store the state store data. */
   private String baseZNode;
@@ -94,6 +123,15 @@ public boolean initDriver() {
         RBFConfigKeys.FEDERATION_STORE_ZK_ASYNC_MAX_THREADS,
         RBFConfigKeys.FEDERATION_STORE_ZK_ASYNC_MAX_THREADS_DEFAULT);
     enableConcurrent = numThreads > 0;
+    incrementalSync = conf.getBoolean(
+        RBFConfigKeys.FEDERATION_STORE_ZK_INCREMENTAL_SYNC_ENABLE,
+        RBFConfigKeys.FEDERATION_STORE_ZK_INCREMENTAL_SYNC_ENABLE_DEFAULT);
+    batchSize = conf.getInt(
+        RBFConfigKeys.FEDERATION_STORE_ZK_BATCH_SIZE,
+        RBFConfigKeys.FEDERATION_STORE_ZK_BATCH_SIZE_DEFAULT);
+    zkTimeoutMs = conf.getInt(CommonConfigurationKeys.ZK_TIMEOUT_MS,
+        CommonConfigurationKeys.ZK_TIMEOUT_MS_DEFAULT);
+    closeWatchers();
     if (enableConcurrent) {
       ThreadFactory threadFactory = new ThreadFactoryBuilder()
           .setNameFormat("StateStore ZK Client-%d")
@@ -121,6 +159,20 @@ public <T extends BaseRecord> boolean initRecordStorage(
     try {
       String checkPath = getNodePath(baseZNode, className);
       zkManager.createRootDirRecursively(checkPath, zkAcl);
+      if (incrementalSync) {
+        ZNodeCache cache = new ZNodeCache(checkPath, clazz,
+            new PersistentWatcher(zkManager.getCurator(), checkPath, true));
+        cache.watcher.getListenable().addListener(
+            event -> processEvent(cache, event));
+        // Changes may be missed while reconnecting, read everything again
+        cache.watcher.getResetListenable().addListener(
+            () -> cache.reset = true);
+        cache.watcher.start();
+        ZNodeCache old = znodeCaches.put(checkPath, cache);
+        if (old != null) {
+          old.watcher.close();
+        }
+      }
       return true;
     } catch (Exception e) {
       LOG.error("Cannot initialize ZK node for {}: {}",
@@ -136,6 +188,7 @@ public void setEnableConcurrent(boolean enableConcurrent) {
 
   @Override
   public void close() throws Exception {
+    closeWatchers();
     if (executorService != null) {
       executorService.shutdown();
     }
@@ -161,25 +214,14 @@ public <T extends BaseRecord> QueryResult<T> get(Class<T> clazz)
       throws IOException {
     verifyDriverReady();
     long start = monotonicNow();
-    List<T> ret = new ArrayList<>();
+    List<T> ret;
     String znode = getZNodeForClass(clazz);
     try {
-      List<Callable<T>> callables = new ArrayList<>();
-      zkManager.getChildren(znode).forEach(c -> callables.add(() -> getRecord(clazz, znode, c)));
-      if (enableConcurrent) {
-        List<Future<T>> futures = executorService.invokeAll(callables);
-        for (Future<T> future : futures) {
-          if (future.get() != null) {
-            ret.add(future.get());
-          }
-        }
+      ZNodeCache cache = znodeCaches.get(znode);
+      if (cache != null) {
+        ret = getChanged(clazz, cache);
       } else {
-        for (Callable<T> callable : callables) {
-          T record = callable.call();
-          if (record != null) {
-            ret.add(record);
-          }
-        }
+        ret = getAll(clazz, znode);
       }
     } catch (Exception e) {
       getMetrics().addFailure(monotonicNow() - start);
@@ -193,6 +235,189 @@ public <T extends BaseRecord> QueryResult<T> get(Class<T> clazz)
     return new QueryResult<T>(ret, getTime());
   }
 
+  /**
+   * Read all the records of a class.
+   *
+   * @param clazz Record class to evaluate.
+   * @param znode The ZNode for the class.
+   * @return The records.
+   * @throws Exception If the children cannot be listed.
+   */
+  private <T extends BaseRecord> List<T> getAll(Class<T> clazz, String znode)
+      throws Exception {
+    List<T> ret = new ArrayList<>();
+    List<Callable<T>> callables = new ArrayList<>();
+    zkManager.getChildren(znode).forEach(c -> callables.add(() -> getRecord(clazz, znode, c)));
+    if (enableConcurrent) {
+      List<Future<T>> futures = executorService.invokeAll(callables);
+      for (Future<T> future : futures) {
+        if (future.get() != null) {
+          ret.add(future.get());
+        }
+      }
+    } else {
+      for (Callable<T> callable : callables) {
+        T record = callable.call();
+        if (record != null) {
+          ret.add(record);
+        }
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Read the records of a class that changed since the previous read and
+   * reuse the data of the others.
+   *
+   * @param clazz Record class to evaluate.
+   * @param cache Data of the previous read.
+   * @return The records.
+   * @throws Exception If the children cannot be listed or read.
+   */
+  private <T extends BaseRecord> List<T> getChanged(Class<T> clazz,
+      ZNodeCache cache) throws Exception {
+    synchronized (cache) {
+      // The changes notified from now on are newer than this read
+      boolean reset = cache.reset;
+      cache.reset = false;
+      List<String> children = getChildrenAfterEvents(cache.znode);
+      Set<String> current = new HashSet<>(children);
+      cache.nodes.keySet().retainAll(current);
+      cache.changed.retainAll(current);
+      List<String> toRead = new ArrayList<>();
+      for (String child : children) {
+        boolean changed = cache.changed.remove(child);
+        if (changed || reset || !cache.nodes.containsKey(child)) {
+          toRead.add(child);
+        }
+      }
+      Map<String, ZNodeData> read = readNodes(cache.znode, toRead);
+      for (String child : toRead) {
+        ZNodeData data = read.get(child);
+        if (data != null) {
+          cache.nodes.put(child, data);
+        } else {
+          cache.nodes.remove(child);
+        }
+      }
+      getMetrics().addReusedRecords(children.size() - toRead.size());
+
+      // Create new records every time as the callers may modify them
+      List<T> ret = new ArrayList<>(children.size());
+      for (String child : children) {
+        ZNodeData data = cache.nodes.get(child);
+        if (data != null) {
+          T record = toRecord(clazz, getNodePath(cache.znode, child), child,
+              data.data, data.stat);
+          if (record != null) {
+            ret.add(record);
+          } else {
+            cache.nodes.remove(child);
+          }
+        }
+      }
+      return ret;
+    }
+  }
+
+  /**
+   * Get the children of a znode once the changes notified before are
+   * processed. ZooKeeper delivers the watch events and the results of the
+   * asynchronous requests in order.
+   *
+   * @param znode The ZNode to list.
+   * @return The children of the znode.
+   * @throws Exception If the children cannot be listed.
+   */
+  private List<String> getChildrenAfterEvents(String znode) throws Exception {
+    CompletableFuture<List<String>> children = new CompletableFuture<>();
+    zkManager.getCurator().getChildren().inBackground((client, event) -> {
+      int rc = event.getResultCode();
+      if (rc == KeeperException.Code.OK.intValue()) {
+        children.complete(event.getChildren());
+      } else {
+        children.completeExceptionally(KeeperException.create(
+            KeeperException.Code.get(rc), event.getPath()));
+      }
+    }).forPath(znode);
+    return children.get(zkTimeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Read the data of some children of a znode. With
+   * {@link RBFConfigKeys#FEDERATION_STORE_ZK_BATCH_SIZE}, the children are
+   * read in batches with one request each.
+   *
+   * @param znode The ZNode for the class.
+   * @param children Children to read.
+   * @return Child -> data, without the children that do not exist anymore.
+   * @throws Exception If the children cannot be read.
+   */
+  private Map<String, ZNodeData> readNodes(String znode,
+      List<String> children) throws Exception {
+    Map<String, ZNodeData> ret = new HashMap<>();
+    long bytes = 0;
+    if (batchSize > 0) {
+      for (int i = 0; i < children.size(); i += batchSize) {
+        List<String> batch =
+            children.subList(i, Math.min(children.size(), i + batchSize));
+        List<Op> ops = new ArrayList<>(batch.size());
+        batch.forEach(c -> ops.add(Op.getData(getNodePath(znode, c))));
+        List<OpResult> results = zkManager.getCurator().getZookeeperClient()
+            .getZooKeeper().multi(ops);
+        for (int j = 0; j < batch.size(); j++) {
+          // The children removed meanwhile get an error result
+          if (results.get(j) instanceof OpResult.GetDataResult) {
+            OpResult.GetDataResult result =
+                (OpResult.GetDataResult) results.get(j);
+            byte[] data = result.getData();
+            bytes += data == null ? 0 : data.length;
+            ret.put(batch.get(j), new ZNodeData(data, result.getStat()));
+          }
+        }
+      }
+    } else {
+      for (String child : children) {
+        Stat stat = new Stat();
+        try {
+          byte[] data = zkManager.getData(getNodePath(znode, child), stat);
+          bytes += data == null ? 0 : data.length;
+          ret.put(child, new ZNodeData(data, stat));
+        } catch (KeeperException.NoNodeException e) {
+          LOG.debug("{} was removed while reading it", child);
+        }
+      }
+    }
+    getMetrics().addReadRecords(ret.size(), bytes);
+    return ret;
+  }
+
+  /**
+   * Track the change of a record notified by the watch of its class.
+   *
+   * @param cache Records of the class.
+   * @param event Change notified by ZooKeeper.
+   */
+  private void processEvent(ZNodeCache cache, WatchedEvent event) {
+    String path = event.getPath();
+    String prefix = cache.znode + "/";
+    if (path != null && path.startsWith(prefix)) {
+      String child = path.substring(prefix.length());
+      if (!child.isEmpty() && child.indexOf('/') < 0) {
+        cache.changed.add(child);
+        notifyChange(cache.clazz);
+      }
+    }
+  }
+
+  private void closeWatchers() {
+    for (ZNodeCache cache : znodeCaches.values()) {
+      cache.watcher.close();
+    }
+    znodeCaches.clear();
+  }
+
   /**
    * Get one data record in the StateStore or delete it if it's corrupted.
    *
@@ -206,27 +431,53 @@ private <T extends BaseRecord> T getRecord(Class<T> clazz, String znode, String
     try {
       String path = getNodePath(znode, child);
       Stat stat = new Stat();
-      String data = zkManager.getStringData(path, stat);
-      boolean corrupted = false;
-      if (data == null || data.equals("")) {
-        // All records should have data, otherwise this is corrupted
+      byte[] data = zkManager.getData(path, stat);
+      getMetrics().addReadRecords(1, data == null ? 0 : data.length);
+      record = toRecord(clazz, path, child, data, stat);
+    } catch (Exception e) {
+      LOG.error("Cannot get data for {}: {}", child, e.getMessage());
+    }
+    return record;
+  }
+
+  /**
+   * Create a record from the data of its znode or delete the znode if the
+   * data is corrupted.
+   *
+   * @param clazz Record class to evaluate.
+   * @param path The ZNode of the record.
+   * @param child The child for znode to get.
+   * @param bytes The data of the ZNode.
+   * @param stat Stat of the ZNode.
+   * @return The record, null if it's corrupted.
+   */
+  private <T extends BaseRecord> T toRecord(Class<T> clazz, String path,
+      String child, byte[] bytes, Stat stat) {
+    T record = null;
+    String data =
+        bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    boolean corrupted = false;
+    if (data == null || data.equals("")) {
+      // All records should have data, otherwise this is corrupted
+      corrupted = true;
+    } else {
+      try {
+        record = createRecord(data, stat, clazz);
+      } catch (IOException e) {
+        LOG.error("Cannot create record type \"{}\" from \"{}\": {}",
+            clazz.getSimpleName(), data, e.getMessage());
         corrupted = true;
-      } else {
-        try {
-          record = createRecord(data, stat, clazz);
-        } catch (IOException e) {
-          LOG.error("Cannot create record type \"{}\" from \"{}\": {}",
-              clazz.getSimpleName(), data, e.getMessage());
-          corrupted = true;
-        }
       }
+    }
 
-      if (corrupted) {
-        LOG.error("Cannot get data for {} at {}, cleaning corrupted data", child, path);
+    if (corrupted) {
+      LOG.error("Cannot get data for {} at {}, cleaning corrupted data", child, path);
+      try {
         zkManager.delete(path);
+      } catch (Exception e) {
+        LOG.error("Cannot delete corrupted data at {}: {}", path,
+            e.getMessage());
       }
-    } catch (Exception e) {
-      LOG.error("Cannot get data for {}: {}", child, e.getMessage());
     }
     return record;
   }
@@ -263,7 +514,11 @@ public <T extends BaseRecord> StateStoreOperationResult putAll(
         )
     );
     try {
-      if (enableConcurrent) {
+      if (batchSize > 0) {
+        if (!writeNodes(znode, records, update, error, failedRecordsKeys)) {
+          status.set(false);
+        }
+      } else if (enableConcurrent) {
         executorService.invokeAll(callables);
       } else {
         for(Callable<Void> callable : callables) {
@@ -369,6 +624,7 @@ private boolean writeNode(
 
       // Write data
       zkManager.setData(znode, bytes, -1);
+      getMetrics().addWriteBytes(bytes.length);
       return true;
     } catch (Exception e) {
       LOG.error("Cannot write record \"{}\": {}", znode, e.getMessage());
@@ -376,6 +632,70 @@ private boolean writeNode(
     return false;
   }
 
+  /**
+   * Write records with one transaction for each
+   * {@link RBFConfigKeys#FEDERATION_STORE_ZK_BATCH_SIZE} records. The records
+   * of a failed transaction are written one by one.
+   *
+   * @param znode The ZNode for the class.
+   * @param records Records to write.
+   * @param update If the existing records can be updated.
+   * @param error If an existing record is an error.
+   * @param failedRecordsKeys Keys of the records that could not be written.
+   * @return If all the records were written.
+   * @throws Exception If the existing records cannot be listed.
+   */
+  private <T extends BaseRecord> boolean writeNodes(String znode,
+      List<T> records, boolean update, boolean error,
+      List<String> failedRecordsKeys) throws Exception {
+    CuratorFramework curator = zkManager.getCurator();
+    Set<String> existing = new HashSet<>(zkManager.getChildren(znode));
+    boolean success = true;
+    List<String> keys = new ArrayList<>();
+    List<byte[]> datas = new ArrayList<>();
+    List<CuratorOp> ops = new ArrayList<>();
+    for (T record : records) {
+      String primaryKey = getPrimaryKey(record);
+      String recordZNode = getNodePath(znode, primaryKey);
+      byte[] data = serialize(record);
+      if (!existing.contains(primaryKey)) {
+        ops.add(curator.transactionOp().create()
+            .withMode(CreateMode.PERSISTENT).forPath(recordZNode, data));
+      } else if (update || !error) {
+        ops.add(curator.transactionOp().setData().forPath(recordZNode, data));
+      } else {
+        LOG.info("Cannot write record \"{}\", it already exists", recordZNode);
+        failedRecordsKeys.add(getOriginalPrimaryKey(primaryKey));
+        success = false;
+        continue;
+      }
+      keys.add(primaryKey);
+      datas.add(data);
+    }
+
+    for (int i = 0; i < ops.size(); i += batchSize) {
+      int end = Math.min(ops.size(), i + batchSize);
+      try {
+        curator.transaction().forOperations(ops.subList(i, end));
+        for (byte[] data : datas.subList(i, end)) {
+          getMetrics().addWriteBytes(data.length);
+        }
+      } catch (Exception e) {
+        // Another writer changed the records, write them one by one
+        LOG.warn("Cannot write {} records in one transaction: {}",
+            end - i, e.getMessage());
+        for (int j = i; j < end; j++) {
+          String recordZNode = getNodePath(znode, keys.get(j));
+          if (!writeNode(recordZNode, datas.get(j), update, error)) {
+            failedRecordsKeys.add(getOriginalPrimaryKey(keys.get(j)));
+            success = false;
+          }
+        }
+      }
+    }
+    return success;
+  }
+
   /**
    * Get the ZNode for a class.
    *
@@ -403,4 +723,35 @@ private <T extends BaseRecord> T createRecord(
     record.setDateModified(stat.getMtime());
     return record;
   }
+
+  /** Records of a class read in incremental sync mode. */
+  private static final class ZNodeCache {
+    private final String znode;
+    private final Class<? extends BaseRecord> clazz;
+    private final PersistentWatcher watcher;
+    /** Child -> data of the previous read. */
+    private final Map<String, ZNodeData> nodes = new HashMap<>();
+    /** Children changed since the previous read. */
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    /** If the changes may have been missed and all the data must be read. */
+    private volatile boolean reset = true;
+
+    ZNodeCache(String znode, Class<? extends BaseRecord> clazz,
+        PersistentWatcher watcher) {
+      this.znode = znode;
+      this.clazz = clazz;
+      this.watcher = watcher;
+    }
+  }
+
+  /** Data of a ZNode. */
+  private static final class ZNodeData {
+    private final byte[] data;
+    private final Stat stat;
+
+    ZNodeData(byte[] data, Stat stat) {
+      this.data = data;
+      this.stat = stat;
+    }
+  }
 }
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.resolver;
+
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.DFS_ROUTER_DEFAULT_NAMESERVICE;
+import static org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys.FEDERATION_MOUNT_TABLE_CACHE_ENABLE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Benchmark for {@link MountTableResolver#getDestinationForPath(String)}.
+ * <p>
+ * The mount table has {@code -mounts} entries spread over 100 top level
+ * directories. Each lookup is for a new file, either beneath a random mount
+ * point or, for {@code -missPercent} of the lookups, beneath a directory
+ * without mount point, which resolves to the default nameservice. The
+ * lookups run with and without the location cache, and with and without a
+ * thread refreshing the mount table every {@code -refreshMs} milliseconds.
+ * <pre>
+ * MountTableResolverBenchmark [-mounts 10000] [-ops 1000000] [-threads 4]
+ *     [-missPercent 10] [-refreshMs 10]
+ * </pre>
+ */
+public class MountTableResolverBenchmark extends Configured implements Tool {
+
+  private static final int NUM_TOP_DIRS = 100;
+
+  private int mounts = 10000;
+  private int ops = 1000000;
+  private int threads = 4;
+  private int missPercent = 10;
+  private int refreshMs = 10;
+
+  private static void printUsage() {
+    System.err.println("Usage: MountTableResolverBenchmark [-mounts N]"
+        + " [-ops N] [-threads N] [-missPercent N] [-refreshMs N]");
+    ToolRunner.printGenericCommandUsage(System.err);
+  }
+
+  private boolean parseArgs(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        return false;
+      }
+      int value = Integer.parseInt(args[++i]);
+      switch (args[i - 1]) {
+      case "-mounts":
+        mounts = value;
+        break;
+      case "-ops":
+        ops = value;
+        break;
+      case "-threads":
+        threads = value;
+        break;
+      case "-missPercent":
+        missPercent = value;
+        break;
+      case "-refreshMs":
+        refreshMs = value;
+        break;
+      default:
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int run(String[] args) throws Exception {
+    if (!parseArgs(args)) {
+      printUsage();
+      return -1;
+    }
+    List<MountTable> entries = new ArrayList<>(mounts);
+    for (int i = 0; i < mounts; i++) {
+      String src = getMountPoint(i);
+      entries.add(MountTable.newInstance(src,
+          Collections.singletonMap("ns" + (i % 4), src)));
+    }
+    for (boolean cache : new boolean[] {false, true}) {
+      for (boolean refresh : new boolean[] {false, true}) {
+        Configuration conf = new Configuration(getConf());
+        conf.setBoolean(FEDERATION_MOUNT_TABLE_CACHE_ENABLE, cache);
+        conf.set(DFS_ROUTER_DEFAULT_NAMESERVICE, "ns0");
+        MountTableResolver resolver = new MountTableResolver(conf);
+        resolver.refreshEntries(entries);
+        // warm up
+        resolve(resolver, entries, false);
+        long elapsed = resolve(resolver, entries, refresh);
+        System.out.println(String.format("cache=%s refresh=%s: mounts=%d"
+            + " threads=%d missPercent=%d: %.0f ops/s, %.0f ns/op", cache,
+            refresh, mounts, threads, missPercent,
+            ops * 1e9 / elapsed, (double) elapsed * threads / ops));
+      }
+    }
+    return 0;
+  }
+
+  private static String getMountPoint(int i) {
+    return "/data" + (i % NUM_TOP_DIRS) + "/set" + i;
+  }
+
+  /**
+   * Resolve {@code -ops} paths with {@code -threads} threads.
+   *
+   * @return Elapsed nanoseconds.
+   */
+  private long resolve(final MountTableResolver resolver,
+      final List<MountTable> entries, boolean refresh) throws Exception {
+    ExecutorService exec = Executors.newFixedThreadPool(threads + 1);
+    AtomicBoolean done = new AtomicBoolean(false);
+    try {
+      Future<?> refresher = null;
+      if (refresh) {
+        refresher = exec.submit(() -> {
+          // Move one mount point back and forth
+          List<MountTable> updated = new ArrayList<>(entries);
+          Random random = new Random();
+          while (!done.get()) {
+            int i = random.nextInt(entries.size());
+            updated.set(i, MountTable.newInstance(getMountPoint(i),
+                Collections.singletonMap("ns9", getMountPoint(i))));
+            resolver.refreshEntries(updated);
+            updated.set(i, entries.get(i));
+            resolver.refreshEntries(updated);
+            Thread.sleep(refreshMs);
+          }
+          return null;
+        });
+      }
+      long start = System.nanoTime();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(exec.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < ops / threads; i++) {
+            int mount = random.nextInt(mounts);
+            String dir = random.nextInt(100) < missPercent
+                ? "/data" + (mount % NUM_TOP_DIRS) + "/other"
+                : getMountPoint(mount);
+            resolver.getDestinationForPath(
+                dir + "/part-" + random.nextLong());
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      long elapsed = System.nanoTime() - start;
+      done.set(true);
+      if (refresher != null) {
+        refresher.get();
+      }
+      return elapsed;
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int res = ToolRunner.run(new Configuration(),
+        new MountTableResolverBenchmark(), args);
+    System.exit(res);
+  }
+}
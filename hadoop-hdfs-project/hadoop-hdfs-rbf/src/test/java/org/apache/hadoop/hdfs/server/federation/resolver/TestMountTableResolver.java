@@ -740,6 +740,64 @@ public void testInvalidateCache() throws Exception {
         .getDestinationForPath("/testInvalidateCache/foo").toString());
   }
 
+  /**
+   * Test that mount points sharing a prefix with a path that is not one of
+   * its components do not match.
+   */
+  @Test
+  public void testSiblingPrefix() throws Exception {
+    mountTable.addEntry(MountTable.newInstance("/user/ab",
+        getMountTableEntry("5", "/ab")));
+    assertEquals("2->/user/test/file",
+        mountTable.getDestinationForPath("/user/a/file").toString());
+    assertEquals("5->/ab/file",
+        mountTable.getDestinationForPath("/user/ab/file").toString());
+    assertEquals("3->/user/a-b/file",
+        mountTable.getDestinationForPath("/user/a-b/file").toString());
+    assertEquals("3->/user/abc/file",
+        mountTable.getDestinationForPath("/user/abc/file").toString());
+
+    // Removing a mount point keeps the ones beneath it
+    mountTable.removeEntry("/user/a");
+    assertEquals("3->/user/a/file",
+        mountTable.getDestinationForPath("/user/a/file").toString());
+    assertEquals("1->/user/test/file",
+        mountTable.getDestinationForPath("/user/a/demo/test/a/file")
+            .toString());
+    mountTable.removeEntry("/user/ab");
+    assertEquals("3->/user/ab/file",
+        mountTable.getDestinationForPath("/user/ab/file").toString());
+  }
+
+  /**
+   * Test that the locations resolved while refreshing the mount table are
+   * either the old or the new ones, and that none stays in the cache.
+   */
+  @Test
+  public void testResolveWhileRefreshing() throws Exception {
+    List<MountTable> oldEntries = mountTable.getMounts("/");
+    List<MountTable> newEntries = new ArrayList<>(oldEntries);
+    newEntries.add(MountTable.newInstance("/user/refresh",
+        getMountTableEntry("7", "/refresh")));
+
+    Thread refresher = new Thread(() -> {
+      for (int i = 0; i < 200; i++) {
+        mountTable.refreshEntries(i % 2 == 0 ? newEntries : oldEntries);
+      }
+      mountTable.refreshEntries(newEntries);
+    });
+    refresher.start();
+    while (refresher.isAlive()) {
+      String location =
+          mountTable.getDestinationForPath("/user/refresh/file").toString();
+      assertTrue(location, location.equals("3->/user/refresh/file")
+          || location.equals("7->/refresh/file"));
+    }
+    refresher.join();
+    assertEquals("7->/refresh/file",
+        mountTable.getDestinationForPath("/user/refresh/file").toString());
+  }
+
   /**
    * Test location cache hit when get destination for path.
    */
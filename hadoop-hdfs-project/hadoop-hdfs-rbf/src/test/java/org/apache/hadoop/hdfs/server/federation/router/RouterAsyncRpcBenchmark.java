@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.apache.hadoop.hdfs.server.federation.FederationTestUtils.simulateSlowNamenode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hdfs.DFSClient;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.RouterContext;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.ipc.StandbyException;
+import org.apache.hadoop.util.Time;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Benchmark for a Router with one slow nameservice.
+ * <p>
+ * A Router in front of two nameservices is started with the synchronous
+ * handlers and with {@link RBFConfigKeys#DFS_ROUTER_ASYNC_RPC_ENABLE_KEY}.
+ * {@code -fastThreads} clients call getFileInfo on the second nameservice
+ * for {@code -duration} seconds, first alone and then while
+ * {@code -slowThreads} clients call the first nameservice, which takes
+ * {@code -delay} seconds for each call. The throughput of the fast
+ * nameservice should not drop in the asynchronous mode.
+ * <pre>
+ * RouterAsyncRpcBenchmark [-handlers 10] [-asyncHandlers 10]
+ *     [-slowThreads 20] [-fastThreads 4] [-delay 1] [-duration 10]
+ * </pre>
+ */
+public class RouterAsyncRpcBenchmark extends Configured implements Tool {
+
+  private int handlers = 10;
+  private int asyncHandlers = 10;
+  private int slowThreads = 20;
+  private int fastThreads = 4;
+  private int delay = 1;
+  private int duration = 10;
+
+  private static void printUsage() {
+    System.err.println("Usage: RouterAsyncRpcBenchmark [-handlers N]"
+        + " [-asyncHandlers N] [-slowThreads N] [-fastThreads N]"
+        + " [-delay seconds] [-duration seconds]");
+    ToolRunner.printGenericCommandUsage(System.err);
+  }
+
+  private boolean parseArgs(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        return false;
+      }
+      int value = Integer.parseInt(args[++i]);
+      switch (args[i - 1]) {
+      case "-handlers":
+        handlers = value;
+        break;
+      case "-asyncHandlers":
+        asyncHandlers = value;
+        break;
+      case "-slowThreads":
+        slowThreads = value;
+        break;
+      case "-fastThreads":
+        fastThreads = value;
+        break;
+      case "-delay":
+        delay = value;
+        break;
+      case "-duration":
+        duration = value;
+        break;
+      default:
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int run(String[] args) throws Exception {
+    if (!parseArgs(args)) {
+      printUsage();
+      return -1;
+    }
+    for (boolean async : new boolean[] {false, true}) {
+      MiniRouterDFSCluster cluster = startCluster(async);
+      try {
+        String mode = async ? "async" : "sync";
+        RouterContext router = cluster.getRandomRouter();
+        String slowPath = cluster.getFederatedPathForNS(
+            cluster.getNameservices().get(0));
+        String fastPath = cluster.getFederatedPathForNS(
+            cluster.getNameservices().get(1));
+
+        Result alone = runClients(router, fastPath, fastThreads, null, 0);
+        report(mode, "fast ns alone", alone);
+
+        simulateSlowNamenode(cluster.getNamenode(
+            cluster.getNameservices().get(0), null).getNamenode(), delay);
+        Result slow = new Result();
+        Result fast =
+            runClients(router, fastPath, fastThreads, slowPath, slowThreads,
+                slow);
+        report(mode, "fast ns with slow ns", fast);
+        report(mode, "slow ns", slow);
+      } finally {
+        cluster.shutdown();
+      }
+    }
+    return 0;
+  }
+
+  private MiniRouterDFSCluster startCluster(boolean async) throws Exception {
+    MiniRouterDFSCluster cluster = new MiniRouterDFSCluster(false, 2);
+    cluster.setNumDatanodesPerNameservice(0);
+    cluster.startCluster();
+    Configuration routerConf = new RouterConfigBuilder()
+        .rpc()
+        .build();
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_HANDLER_COUNT_KEY, handlers);
+    routerConf.setBoolean(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_ENABLE_KEY, async);
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_KEY,
+        asyncHandlers);
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_KEY,
+        Math.max(slowThreads, fastThreads));
+    cluster.addRouterOverrides(routerConf);
+    cluster.startRouters();
+    cluster.registerNamenodes();
+    cluster.waitNamenodeRegistration();
+    cluster.installMockLocations();
+    return cluster;
+  }
+
+  private Result runClients(RouterContext router, String fastPath,
+      int numFast, String slowPath, int numSlow) throws Exception {
+    return runClients(router, fastPath, numFast, slowPath, numSlow,
+        new Result());
+  }
+
+  /** @return the result of the clients of the fast nameservice. */
+  private Result runClients(final RouterContext router, String fastPath,
+      int numFast, String slowPath, int numSlow, Result slow)
+      throws Exception {
+    Result fast = new Result();
+    ExecutorService exec = Executors.newFixedThreadPool(numFast + numSlow);
+    final long deadline = Time.monotonicNow() + duration * 1000L;
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < numSlow; i++) {
+      futures.add(exec.submit(
+          () -> callUntil(router, slowPath, deadline, slow)));
+    }
+    for (int i = 0; i < numFast; i++) {
+      futures.add(exec.submit(
+          () -> callUntil(router, fastPath, deadline, fast)));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    exec.shutdown();
+    return fast;
+  }
+
+  private Void callUntil(RouterContext router, String path, long deadline,
+      Result result) throws IOException {
+    DFSClient client =
+        new DFSClient(router.getFileSystemURI(), new Configuration());
+    try {
+      while (Time.monotonicNow() < deadline) {
+        long start = System.nanoTime();
+        try {
+          client.getNamenode().getFileInfo(path);
+          result.ops.incrementAndGet();
+          result.nanos.addAndGet(System.nanoTime() - start);
+        } catch (RemoteException e) {
+          if (!(e.unwrapRemoteException() instanceof StandbyException)) {
+            throw e;
+          }
+          result.rejected.incrementAndGet();
+        }
+      }
+    } finally {
+      client.close();
+    }
+    return null;
+  }
+
+  private void report(String mode, String phase, Result result) {
+    long ops = result.ops.get();
+    System.out.println(String.format("%s: %s: handlers=%d asyncHandlers=%d"
+        + " slowThreads=%d fastThreads=%d delay=%ds: %.1f ops/s,"
+        + " avg %.2f ms, %d rejected", mode, phase, handlers, asyncHandlers,
+        slowThreads, fastThreads, delay, (double) ops / duration,
+        ops == 0 ? 0 : result.nanos.get() / 1e6 / ops,
+        result.rejected.get()));
+  }
+
+  /** Calls completed by a group of clients. */
+  private static final class Result {
+    private final AtomicLong ops = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+  }
+
+  public static void main(String[] args) throws Exception {
+    int res = ToolRunner.run(new HdfsConfiguration(),
+        new RouterAsyncRpcBenchmark(), args);
+    System.exit(res);
+  }
+}
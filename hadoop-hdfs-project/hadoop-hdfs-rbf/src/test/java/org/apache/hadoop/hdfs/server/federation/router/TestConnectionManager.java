@@ -34,7 +34,9 @@
 import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -279,6 +281,131 @@ public void getGetConnectionNamenodeProtocol() throws Exception {
     assertTrue(cc.isActive());
   }
 
+  @Test
+  public void testAdaptiveSize() throws Exception {
+    Map<ConnectionPoolId, ConnectionPool> poolMap = connManager.getPools();
+    Configuration copyConf = new Configuration(conf);
+    copyConf.setBoolean(
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_ADAPTIVE_SIZE_ENABLE, true);
+    copyConf.setInt(
+        RBFConfigKeys.DFS_ROUTER_MAX_CONCURRENCY_PER_CONNECTION_KEY, 2);
+
+    ConnectionPool pool = new ConnectionPool(
+        copyConf, TEST_NN_ADDRESS, TEST_USER1, 1, 10, 0.5f,
+        ClientProtocol.class, null);
+    poolMap.put(
+        new ConnectionPoolId(TEST_USER1, TEST_NN_ADDRESS, ClientProtocol.class),
+        pool);
+    assertEquals(1, pool.getTargetSize());
+    assertFalse(pool.shouldAddConnection());
+
+    // 5 requests in flight need 3 connections
+    List<ConnectionContext> inFlight = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      ConnectionContext cc = pool.getConnection();
+      cc.getClient();
+      inFlight.add(cc);
+      if (pool.shouldAddConnection()) {
+        pool.addConnection(pool.newConnection());
+      }
+    }
+    assertEquals(3, pool.getTargetSize());
+    assertEquals(3, pool.getNumConnections());
+    assertFalse(pool.shouldAddConnection());
+
+    // Once the requests are done, the next cleanup shrinks the pool
+    for (ConnectionContext cc : inFlight) {
+      cc.release();
+    }
+    connManager.cleanup(pool);
+    assertEquals(3, pool.getNumConnections());
+    connManager.cleanup(pool);
+    checkPoolConnections(TEST_USER1, 1, 0);
+  }
+
+  @Test
+  public void testMaxConnectionsPerNamenode() throws Exception {
+    Configuration copyConf = new Configuration(conf);
+    copyConf.setInt(
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_MAX_PER_NAMENODE, 4);
+    ConnectionManager tmpConnManager = new ConnectionManager(copyConf);
+    Map<ConnectionPoolId, ConnectionPool> poolMap = tmpConnManager.getPools();
+
+    ConnectionPool pool1 = new ConnectionPool(copyConf, TEST_NN_ADDRESS,
+        TEST_USER1, 1, 10, 0.5f, ClientProtocol.class, null);
+    addConnectionsToPool(pool1, 2, 1);
+    poolMap.put(
+        new ConnectionPoolId(TEST_USER1, TEST_NN_ADDRESS, ClientProtocol.class),
+        pool1);
+    ConnectionPool pool2 = new ConnectionPool(copyConf, TEST_NN_ADDRESS,
+        TEST_USER2, 1, 10, 0.5f, ClientProtocol.class, null);
+    poolMap.put(
+        new ConnectionPoolId(TEST_USER2, TEST_NN_ADDRESS, ClientProtocol.class),
+        pool2);
+    assertEquals(4, pool1.getNumConnections() + pool2.getNumConnections());
+
+    // The Namenode is full, the idle connections of the first pool make room
+    for (int i = 0; i < 2; i++) {
+      assertTrue(tmpConnManager.reserveConnection(pool2));
+      pool2.addConnection(pool2.newConnection());
+    }
+    assertEquals(1, pool1.getNumConnections());
+    assertEquals(3, pool2.getNumConnections());
+
+    // The first pool keeps its active connection
+    assertFalse(tmpConnManager.reserveConnection(pool2));
+    assertEquals(1, pool1.getNumConnections());
+    assertEquals(1, pool1.getNumActiveConnections());
+    assertTrue(tmpConnManager.getJSONPerNamenode().contains(TEST_NN_ADDRESS));
+    tmpConnManager.close();
+  }
+
+  @Test
+  public void testMaxConnectionsPerNamenodeManyUsers() throws Exception {
+    Configuration copyConf = new Configuration(conf);
+    copyConf.setInt(
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_MAX_PER_NAMENODE, 4);
+    // The cleanup task should not close the idle connections
+    copyConf.setFloat(
+        RBFConfigKeys.DFS_ROUTER_NAMENODE_CONNECTION_MIN_ACTIVE_RATIO, 0f);
+    ConnectionManager tmpConnManager = new ConnectionManager(copyConf);
+    tmpConnManager.start();
+    try {
+      ConnectionContext cc = tmpConnManager.getConnection(TEST_USER1,
+          TEST_NN_ADDRESS, ClientProtocol.class, "ns0");
+      cc.getClient();
+      ConnectionPool pool1 = tmpConnManager.getPools().get(
+          new ConnectionPoolId(TEST_USER1, TEST_NN_ADDRESS,
+              ClientProtocol.class));
+      addConnectionsToPool(pool1, 3, 0);
+      assertEquals(4, tmpConnManager.getNumConnections());
+
+      // The new pools take the idle connections of the first pool
+      for (int i = 0; i < 3; i++) {
+        UserGroupInformation user = UserGroupInformation
+            .createUserForTesting("newuser" + i, TEST_GROUP);
+        assertNotNull(tmpConnManager.getConnection(user, TEST_NN_ADDRESS,
+            ClientProtocol.class, "ns0"));
+        assertEquals(4, tmpConnManager.getNumConnections());
+      }
+      assertEquals(1, pool1.getNumConnections());
+      assertEquals(1, pool1.getNumActiveConnections());
+
+      // Once there are no idle connections left, each pool keeps one
+      for (int i = 3; i < 10; i++) {
+        UserGroupInformation user = UserGroupInformation
+            .createUserForTesting("newuser" + i, TEST_GROUP);
+        assertNotNull(tmpConnManager.getConnection(user, TEST_NN_ADDRESS,
+            ClientProtocol.class, "ns0"));
+      }
+      assertEquals(11, tmpConnManager.getNumConnectionPools());
+      assertEquals(11, tmpConnManager.getNumConnections());
+      cc.release();
+    } finally {
+      tmpConnManager.close();
+    }
+  }
+
   private void addConnectionsToPool(ConnectionPool pool, int numTotalConn,
       int numActiveConn) throws IOException {
     for (int i = 0; i < numTotalConn; i++) {
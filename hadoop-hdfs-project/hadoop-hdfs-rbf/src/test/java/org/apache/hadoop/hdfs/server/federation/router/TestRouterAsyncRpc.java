@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.apache.hadoop.hdfs.server.federation.FederationTestUtils.simulateSlowNamenode;
+import static org.apache.hadoop.hdfs.server.federation.fairness.RouterRpcFairnessConstants.CONCURRENT_NS;
+import static org.apache.hadoop.test.GenericTestUtils.assertExceptionContains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.ParentNotDirectoryException;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.DFSClient;
+import org.apache.hadoop.hdfs.protocol.ClientProtocol;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.RouterContext;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.ipc.StandbyException;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.util.Time;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the Router handing off client calls to workers per nameservice. This
+ * feature is managed by {@link RBFConfigKeys#DFS_ROUTER_ASYNC_RPC_ENABLE_KEY}.
+ */
+public class TestRouterAsyncRpc {
+
+  private static final int HANDLER_COUNT = 2;
+  private static final int ASYNC_HANDLER_COUNT = 4;
+  private static final int ASYNC_QUEUE_SIZE = 4;
+
+  private MiniRouterDFSCluster cluster;
+  private RouterContext router;
+  private String ns0;
+  private String ns1;
+
+  @Before
+  public void setup() throws Exception {
+    cluster = new MiniRouterDFSCluster(false, 2);
+    cluster.setNumDatanodesPerNameservice(0);
+    cluster.startCluster();
+
+    Configuration routerConf = new RouterConfigBuilder()
+        .metrics()
+        .rpc()
+        .build();
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_HANDLER_COUNT_KEY,
+        HANDLER_COUNT);
+    routerConf.setBoolean(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_ENABLE_KEY, true);
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_KEY,
+        ASYNC_HANDLER_COUNT);
+    routerConf.setInt(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_QUEUE_SIZE_KEY,
+        ASYNC_QUEUE_SIZE);
+    cluster.addRouterOverrides(routerConf);
+    cluster.startRouters();
+    cluster.registerNamenodes();
+    cluster.waitNamenodeRegistration();
+    cluster.installMockLocations();
+
+    router = cluster.getRandomRouter();
+    ns0 = cluster.getNameservices().get(0);
+    ns1 = cluster.getNameservices().get(1);
+    for (String ns : cluster.getNameservices()) {
+      FileSystem nnFs = cluster.getNamenode(ns, null).getFileSystem();
+      Path target = new Path(cluster.getNamenodePathForNS(ns));
+      nnFs.mkdirs(target);
+      nnFs.setPermission(target, new FsPermission("777"));
+    }
+  }
+
+  @After
+  public void cleanup() {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  @Test
+  public void testSlowNameserviceDoesNotBlockOthers() throws Exception {
+    simulateSlowNamenode(cluster.getNamenode(ns0, null).getNamenode(), 2);
+
+    // Fill the workers and the queue of the slow nameservice
+    int numSlowCalls = ASYNC_HANDLER_COUNT + ASYNC_QUEUE_SIZE;
+    ExecutorService exec = Executors.newFixedThreadPool(numSlowCalls);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < numSlowCalls; i++) {
+        futures.add(exec.submit(() -> {
+          getFileInfo(cluster.getFederatedPathForNS(ns0));
+          return null;
+        }));
+      }
+      RouterAsyncBlockingService asyncService =
+          router.getRouter().getRpcServer().getAsyncService();
+      long deadline = Time.monotonicNow() + 10000;
+      while (asyncService.getPoolStats().get(ns0) == null
+          || asyncService.getPoolStats().get(ns0).get("queued")
+              < ASYNC_QUEUE_SIZE) {
+        assertTrue("Slow calls not queued", Time.monotonicNow() < deadline);
+        Thread.sleep(10);
+      }
+
+      // The other nameservice answers while all handlers would be taken
+      long start = Time.monotonicNow();
+      for (int i = 0; i < 2 * HANDLER_COUNT; i++) {
+        getFileInfo(cluster.getFederatedPathForNS(ns1));
+      }
+      long elapsed = Time.monotonicNow() - start;
+      assertTrue("Took " + elapsed + " ms", elapsed < 1500);
+
+      // The slow nameservice rejects further calls
+      try {
+        getFileInfo(cluster.getFederatedPathForNS(ns0));
+        fail("The call should be rejected");
+      } catch (RemoteException re) {
+        assertTrue(re.unwrapRemoteException() instanceof StandbyException);
+        assertExceptionContains("is overloaded for NS: " + ns0, re);
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPoolsOfConfiguredNameservices() throws Exception {
+    RouterAsyncBlockingService asyncService =
+        router.getRouter().getRpcServer().getAsyncService();
+    Map<String, Map<String, Integer>> stats = asyncService.getPoolStats();
+    assertEquals(new HashSet<>(Arrays.asList(ns0, ns1, CONCURRENT_NS)),
+        stats.keySet());
+    for (Map<String, Integer> poolStats : stats.values()) {
+      assertEquals(ASYNC_HANDLER_COUNT, (int) poolStats.get("max"));
+    }
+
+    // The threads of all the pools are capped
+    Configuration conf = new Configuration(false);
+    conf.set(RBFConfigKeys.DFS_ROUTER_MONITOR_NAMENODE,
+        "ns0.nn0,ns0.nn1,ns1.nn0,ns2");
+    conf.setInt(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_HANDLER_COUNT_KEY, 10);
+    conf.setInt(RBFConfigKeys.DFS_ROUTER_ASYNC_RPC_MAX_THREADS_KEY, 9);
+    RouterAsyncBlockingService cappedService =
+        new RouterAsyncBlockingService(null, null, null, conf);
+    stats = cappedService.getPoolStats();
+    assertEquals(new HashSet<>(Arrays.asList(
+        "ns0", "ns1", "ns2", CONCURRENT_NS)), stats.keySet());
+    for (Map<String, Integer> poolStats : stats.values()) {
+      assertEquals(2, (int) poolStats.get("max"));
+    }
+    cappedService.stop();
+  }
+
+  @Test
+  public void testCallContext() throws Exception {
+    String dir = cluster.getFederatedPathForNS(ns1) + "/testCallContext";
+    UserGroupInformation user =
+        UserGroupInformation.createRemoteUser("async-user");
+    user.doAs((PrivilegedExceptionAction<Void>) () -> {
+      DFSClient client = router.getClient(user);
+      assertTrue(client.mkdirs(dir, new FsPermission("755"), false));
+      client.create(dir + "/file", false).close();
+      return null;
+    });
+    assertEquals("async-user",
+        router.getFileSystem().getFileStatus(new Path(dir)).getOwner());
+
+    // Exceptions are returned to the client
+    ClientProtocol client = router.getClient().getNamenode();
+    try {
+      client.mkdirs(dir + "/file/child", new FsPermission("755"), true);
+      fail("The parent is a file");
+    } catch (RemoteException re) {
+      assertTrue(re.unwrapRemoteException()
+          instanceof ParentNotDirectoryException);
+    }
+    assertNull(client.getFileInfo(dir + "/missing"));
+  }
+
+  private void getFileInfo(String path) throws Exception {
+    DFSClient client =
+        new DFSClient(router.getFileSystemURI(), new Configuration());
+    try {
+      client.getNamenode().getFileInfo(path);
+    } finally {
+      client.close();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.protocol.ClientProtocol;
+import org.apache.hadoop.hdfs.protocol.DirectoryListing;
+import org.apache.hadoop.hdfs.protocol.HdfsConstants.DatanodeReportType;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.RouterContext;
+import org.apache.hadoop.hdfs.server.federation.MockResolver;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.apache.hadoop.hdfs.server.federation.metrics.FederationRPCMetrics;
+import org.apache.hadoop.hdfs.server.protocol.DatanodeStorageReport;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the Router merging the listings of a mount point with multiple
+ * destinations and serving the DN reports from its cache.
+ */
+public class TestRouterListingMerge {
+
+  private static final int LIST_LIMIT = 4;
+
+  private static MiniRouterDFSCluster cluster;
+  private static RouterContext router;
+  private static FileSystem nnFs0;
+  private static FileSystem nnFs1;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    cluster = new MiniRouterDFSCluster(false, 2);
+    // The Namenodes return the listings in multiple batches
+    Configuration nnConf = new Configuration();
+    nnConf.setInt(DFSConfigKeys.DFS_LIST_LIMIT, LIST_LIMIT);
+    cluster.addNamenodeOverrides(nnConf);
+    cluster.startCluster();
+
+    Configuration routerConf = new RouterConfigBuilder()
+        .metrics()
+        .rpc()
+        .build();
+    routerConf.setBoolean(RBFConfigKeys.DN_REPORT_CACHE_CLIENT_ENABLE, true);
+    cluster.addRouterOverrides(routerConf);
+    cluster.startRouters();
+    cluster.registerNamenodes();
+    cluster.waitNamenodeRegistration();
+    cluster.waitActiveNamespaces();
+
+    router = cluster.getRandomRouter();
+    MockResolver resolver =
+        (MockResolver) router.getRouter().getSubclusterResolver();
+    resolver.addLocation("/merge", cluster.getNameservices().get(0),
+        "/merge0");
+    resolver.addLocation("/merge", cluster.getNameservices().get(1),
+        "/merge1");
+    nnFs0 = cluster.getNamenode(cluster.getNameservices().get(0), null)
+        .getFileSystem();
+    nnFs1 = cluster.getNamenode(cluster.getNameservices().get(1), null)
+        .getFileSystem();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  @Test
+  public void testMergeListings() throws Exception {
+    // Interleave the names between the subclusters with one in both
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      String name = String.format("file-%02d", i);
+      FileSystem fs = i % 2 == 0 ? nnFs0 : nnFs1;
+      fs.create(new Path(i % 2 == 0 ? "/merge0" : "/merge1", name)).close();
+      expected.add(name);
+    }
+    nnFs0.create(new Path("/merge0/file-05")).close();
+
+    FederationRPCMetrics metrics =
+        router.getRouter().getRpcServer().getRPCMetrics();
+    long fetched = metrics.getListingMergeFetchedEntries();
+    long returned = metrics.getListingMergeReturnedEntries();
+
+    // The batch has all the entries up to the smallest last name of the
+    // subclusters: file-05 of both
+    ClientProtocol client = router.getClient().getNamenode();
+    DirectoryListing listing =
+        client.getListing("/merge", HdfsFileStatus.EMPTY_NAME, false);
+    assertEquals(6, listing.getPartialListing().length);
+    assertTrue(listing.hasMore());
+    assertEquals("file-00", listing.getPartialListing()[0].getLocalName());
+    assertEquals("file-05", listing.getPartialListing()[5].getLocalName());
+    assertEquals(fetched + 2 * LIST_LIMIT,
+        metrics.getListingMergeFetchedEntries());
+    assertEquals(returned + 6, metrics.getListingMergeReturnedEntries());
+
+    // The client goes through all the batches, each one is a single
+    // Namenode batch from each subcluster
+    long proxyOps = metrics.getProxyOps();
+    List<String> names = new ArrayList<>();
+    for (FileStatus status : router.getFileSystem().listStatus(
+        new Path("/merge"))) {
+      names.add(status.getPath().getName());
+    }
+    assertEquals(expected, names);
+    assertEquals(proxyOps + 2 * 2, metrics.getProxyOps());
+  }
+
+  @Test
+  public void testCachedDatanodeReports() throws Exception {
+    RouterRpcServer rpcServer = router.getRouter().getRpcServer();
+    DatanodeStorageReport[] reports =
+        rpcServer.getCachedDatanodeStorageReport(DatanodeReportType.LIVE);
+    assertSame(reports,
+        rpcServer.getCachedDatanodeStorageReport(DatanodeReportType.LIVE));
+
+    // The clients get the reports merged from all subclusters
+    ClientProtocol client = router.getClient().getNamenode();
+    int numDatanodes = cluster.getCluster().getDataNodes().size();
+    assertEquals(numDatanodes,
+        client.getDatanodeStorageReport(DatanodeReportType.LIVE).length);
+    assertEquals(numDatanodes,
+        client.getDatanodeReport(DatanodeReportType.LIVE).length);
+    assertArrayEquals(
+        rpcServer.getCachedDatanodeReport(DatanodeReportType.LIVE),
+        client.getDatanodeReport(DatanodeReportType.LIVE));
+  }
+}
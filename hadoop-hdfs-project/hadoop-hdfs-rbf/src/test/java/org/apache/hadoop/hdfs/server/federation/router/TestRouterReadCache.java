@@ -0,0 +1,205 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.protocol.ClientProtocol;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.hdfs.server.federation.MiniRouterDFSCluster.RouterContext;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.apache.hadoop.hdfs.server.federation.StateStoreDFSCluster;
+import org.apache.hadoop.hdfs.server.federation.metrics.RouterReadCacheMetrics;
+import org.apache.hadoop.hdfs.server.federation.resolver.MountTableResolver;
+import org.apache.hadoop.hdfs.server.federation.store.protocol.AddMountTableEntryRequest;
+import org.apache.hadoop.hdfs.server.federation.store.protocol.RemoveMountTableEntryRequest;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the Router serving the reads in read only mount points from its
+ * cache. This feature is managed by
+ * {@link RBFConfigKeys#DFS_ROUTER_READ_CACHE_ENABLE}.
+ */
+public class TestRouterReadCache {
+
+  private static final long CACHE_EXPIRE_MS = 2000;
+
+  private static StateStoreDFSCluster cluster;
+  private static RouterContext routerContext;
+  private static RouterReadCache readCache;
+  private static ClientProtocol routerProtocol;
+  private static FileSystem nnFs0;
+
+  @BeforeClass
+  public static void globalSetUp() throws Exception {
+    cluster = new StateStoreDFSCluster(false, 2);
+    Configuration conf = new RouterConfigBuilder()
+        .stateStore()
+        .admin()
+        .rpc()
+        .build();
+    conf.setBoolean(RBFConfigKeys.DFS_ROUTER_READ_CACHE_ENABLE, true);
+    conf.setTimeDuration(RBFConfigKeys.DFS_ROUTER_READ_CACHE_EXPIRE,
+        CACHE_EXPIRE_MS, TimeUnit.MILLISECONDS);
+    cluster.addRouterOverrides(conf);
+    cluster.startCluster();
+    cluster.startRouters();
+    cluster.waitClusterUp();
+
+    nnFs0 = cluster.getNamenode("ns0", null).getFileSystem();
+    routerContext = cluster.getRandomRouter();
+    routerProtocol = routerContext.getClient().getNamenode();
+    readCache = routerContext.getRouter().getRpcServer().getReadCache();
+
+    MountTable readOnly = MountTable.newInstance("/readonly",
+        Collections.singletonMap("ns0", "/readonly"));
+    readOnly.setReadOnly(true);
+    addMountTable(readOnly);
+    addMountTable(MountTable.newInstance("/readwrite",
+        Collections.singletonMap("ns0", "/readwrite")));
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  private static void addMountTable(MountTable entry) throws IOException {
+    routerContext.getAdminClient().getMountTableManager()
+        .addMountTableEntry(AddMountTableEntryRequest.newInstance(entry));
+    ((MountTableResolver) routerContext.getRouter().getSubclusterResolver())
+        .loadCache(true);
+  }
+
+  @Test
+  public void testReadOnlyMountPoint() throws Exception {
+    DFSTestUtil.createFile(nnFs0, new Path("/readonly/file"), 1024,
+        (short) 1, 0);
+    // Initialize the metrics of the mount point
+    routerProtocol.getFileInfo("/readonly");
+    RouterReadCacheMetrics metrics = readCache.getMetrics("/readonly");
+    assertNotNull(metrics);
+    long hits = metrics.getCacheHit();
+    long misses = metrics.getCacheMiss();
+
+    HdfsFileStatus status = routerProtocol.getFileInfo("/readonly/file");
+    assertEquals(1024, status.getLen());
+    LocatedBlocks blocks =
+        routerProtocol.getBlockLocations("/readonly/file", 0, 1024);
+    assertEquals(1, blocks.locatedBlockCount());
+    assertEquals(hits, metrics.getCacheHit());
+    assertEquals(misses + 2, metrics.getCacheMiss());
+
+    // The second reads do not go to the Namenode
+    assertEquals(1024,
+        routerProtocol.getFileInfo("/readonly/file").getLen());
+    assertEquals(1, routerProtocol.getBlockLocations(
+        "/readonly/file", 0, 1024).locatedBlockCount());
+    assertEquals(hits + 2, metrics.getCacheHit());
+    assertEquals(misses + 2, metrics.getCacheMiss());
+
+    // Another range is another entry
+    routerProtocol.getBlockLocations("/readonly/file", 0, 512);
+    assertEquals(misses + 3, metrics.getCacheMiss());
+
+    // Missing files are not cached
+    assertNull(routerProtocol.getFileInfo("/readonly/missing"));
+    assertNull(routerProtocol.getFileInfo("/readonly/missing"));
+    assertEquals(hits + 2, metrics.getCacheHit());
+    assertEquals(misses + 5, metrics.getCacheMiss());
+  }
+
+  @Test
+  public void testExpiration() throws Exception {
+    Path file = new Path("/readonly/expire");
+    DFSTestUtil.createFile(nnFs0, file, 1024, (short) 1, 0);
+    assertEquals(1,
+        routerProtocol.getFileInfo(file.toString()).getReplication());
+
+    // Changes behind the Router show up once the entry expires
+    nnFs0.setReplication(file, (short) 2);
+    assertEquals(1,
+        routerProtocol.getFileInfo(file.toString()).getReplication());
+    GenericTestUtils.waitFor(() -> {
+      try {
+        return routerProtocol.getFileInfo(file.toString())
+            .getReplication() == 2;
+      } catch (IOException e) {
+        return false;
+      }
+    }, 100, (int) (5 * CACHE_EXPIRE_MS));
+  }
+
+  @Test
+  public void testRemovedMountPoint() throws Exception {
+    MountTable removed = MountTable.newInstance("/readonly/removed",
+        Collections.singletonMap("ns0", "/removed"));
+    removed.setReadOnly(true);
+    addMountTable(removed);
+    nnFs0.mkdirs(new Path("/removed"));
+    routerProtocol.getFileInfo("/readonly");
+    routerProtocol.getFileInfo("/readonly/removed");
+    assertNotNull(readCache.getMetrics("/readonly/removed"));
+    String source = RouterReadCacheMetrics.ROUTER_READ_CACHE_METRICS_PREFIX
+        + "/readonly/removed";
+    assertNotNull(DefaultMetricsSystem.instance().getSource(source));
+
+    // The refresh of the mount table unregisters the metrics
+    routerContext.getAdminClient().getMountTableManager()
+        .removeMountTableEntry(
+            RemoveMountTableEntryRequest.newInstance("/readonly/removed"));
+    routerContext.getRouter().getStateStore().refreshCaches(true);
+    assertNull(readCache.getMetrics("/readonly/removed"));
+    assertNull(DefaultMetricsSystem.instance().getSource(source));
+    assertNotNull(readCache.getMetrics("/readonly"));
+  }
+
+  @Test
+  public void testReadWriteMountPoint() throws Exception {
+    Path file = new Path("/readwrite/file");
+    DFSTestUtil.createFile(nnFs0, file, 1024, (short) 1, 0);
+    assertEquals(1,
+        routerProtocol.getFileInfo(file.toString()).getReplication());
+    nnFs0.setReplication(file, (short) 2);
+    assertEquals(2,
+        routerProtocol.getFileInfo(file.toString()).getReplication());
+    assertTrue(routerProtocol.getBlockLocations(
+        file.toString(), 0, 1024).locatedBlockCount() > 0);
+    assertNull(readCache.getMetrics("/readwrite"));
+  }
+}
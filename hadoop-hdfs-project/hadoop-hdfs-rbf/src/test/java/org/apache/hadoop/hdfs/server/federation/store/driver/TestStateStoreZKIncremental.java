@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.store.driver;
+
+import static org.apache.hadoop.hdfs.server.federation.store.FederationStateStoreTestUtils.getStateStoreConfiguration;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingServer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.hdfs.server.federation.metrics.StateStoreMetrics;
+import org.apache.hadoop.hdfs.server.federation.router.RBFConfigKeys;
+import org.apache.hadoop.hdfs.server.federation.store.MountTableStore;
+import org.apache.hadoop.hdfs.server.federation.store.StateStoreUtils;
+import org.apache.hadoop.hdfs.server.federation.store.driver.impl.StateStoreZooKeeperImpl;
+import org.apache.hadoop.hdfs.server.federation.store.records.MountTable;
+import org.apache.hadoop.hdfs.server.federation.store.records.RouterState;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the ZooKeeper implementation of the State Store driver reading the
+ * records incrementally and in batches.
+ */
+public class TestStateStoreZKIncremental extends TestStateStoreDriverBase {
+
+  private static final int NUM_RECORDS = 10;
+
+  private static TestingServer curatorTestingServer;
+  private static CuratorFramework curatorFramework;
+  private static String routerZNode;
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    curatorTestingServer = new TestingServer();
+    curatorTestingServer.start();
+    String connectString = curatorTestingServer.getConnectString();
+    curatorFramework = CuratorFrameworkFactory.builder()
+        .connectString(connectString)
+        .retryPolicy(new RetryNTimes(100, 100))
+        .build();
+    curatorFramework.start();
+
+    Configuration conf =
+        getStateStoreConfiguration(StateStoreZooKeeperImpl.class);
+    conf.set(CommonConfigurationKeys.ZK_ADDRESS, connectString);
+    // Disable auto-repair of connection
+    conf.setLong(RBFConfigKeys.FEDERATION_STORE_CONNECTION_TEST_MS,
+        TimeUnit.HOURS.toMillis(1));
+    // Only refresh the caches on changes
+    conf.setLong(RBFConfigKeys.DFS_ROUTER_CACHE_TIME_TO_LIVE_MS,
+        TimeUnit.HOURS.toMillis(1));
+    conf.setBoolean(
+        RBFConfigKeys.FEDERATION_STORE_ZK_INCREMENTAL_SYNC_ENABLE, true);
+    conf.setInt(RBFConfigKeys.FEDERATION_STORE_ZK_BATCH_SIZE, 3);
+    conf.set(RBFConfigKeys.FEDERATION_STORE_CHANGE_NOTIFICATION_RECORDS,
+        StateStoreUtils.getRecordName(MountTable.class));
+
+    routerZNode = conf.get(RBFConfigKeys.FEDERATION_STORE_ZK_PARENT_PATH,
+        RBFConfigKeys.FEDERATION_STORE_ZK_PARENT_PATH_DEFAULT) + "/" +
+        StateStoreUtils.getRecordName(RouterState.class);
+    getStateStore(conf);
+  }
+
+  @AfterClass
+  public static void tearDownCluster() {
+    curatorFramework.close();
+    try {
+      curatorTestingServer.stop();
+    } catch (IOException e) {
+    }
+  }
+
+  @Before
+  public void startup() throws IOException {
+    removeAll(getStateStoreDriver());
+  }
+
+  @Test
+  public void testInsert()
+      throws IllegalArgumentException, IllegalAccessException, IOException {
+    testInsert(getStateStoreDriver());
+  }
+
+  @Test
+  public void testUpdate()
+      throws IllegalArgumentException, ReflectiveOperationException,
+      IOException, SecurityException {
+    testPut(getStateStoreDriver());
+  }
+
+  @Test
+  public void testDelete()
+      throws IllegalArgumentException, IllegalAccessException, IOException {
+    testRemove(getStateStoreDriver());
+  }
+
+  @Test
+  public void testFetchErrors()
+      throws IllegalArgumentException, IllegalAccessException, IOException {
+    testFetchErrors(getStateStoreDriver());
+  }
+
+  @Test
+  public void testIncrementalRead() throws Exception {
+    // The changes of RouterState do not trigger reads from the caches
+    StateStoreDriver driver = getStateStoreDriver();
+    StateStoreMetrics metrics = getStateStoreService().getMetrics();
+    List<RouterState> records = new ArrayList<>();
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      records.add(generateFakeRecord(RouterState.class));
+    }
+    long writeBytes = metrics.getWriteBytes();
+    assertTrue(driver.putAll(records, false, true).isOperationSuccessful());
+    assertTrue(metrics.getWriteBytes() > writeBytes);
+
+    // Wait for the watch to be set, the reads after only fetch the changes
+    GenericTestUtils.waitFor(() -> {
+      long reused = metrics.getReusedRecords();
+      try {
+        assertEquals(NUM_RECORDS,
+            driver.get(RouterState.class).getRecords().size());
+      } catch (IOException e) {
+        return false;
+      }
+      return metrics.getReusedRecords() - reused == NUM_RECORDS;
+    }, 100, 10000);
+    long read = metrics.getReadRecords();
+    long reused = metrics.getReusedRecords();
+    assertEquals(NUM_RECORDS,
+        driver.get(RouterState.class).getRecords().size());
+    assertEquals(read, metrics.getReadRecords());
+    assertEquals(reused + NUM_RECORDS, metrics.getReusedRecords());
+
+    // Remove a record behind the driver
+    String child = curatorFramework.getChildren().forPath(routerZNode)
+        .get(0);
+    curatorFramework.delete().forPath(routerZNode + "/" + child);
+    read = metrics.getReadRecords();
+    reused = metrics.getReusedRecords();
+    List<RouterState> current = driver.get(RouterState.class).getRecords();
+    assertEquals(NUM_RECORDS - 1, current.size());
+    assertEquals(read, metrics.getReadRecords());
+    assertEquals(reused + NUM_RECORDS - 1, metrics.getReusedRecords());
+
+    // Only the updated record is read again
+    RouterState updated = current.get(0);
+    updated.setVersion("updated");
+    assertTrue(driver.put(updated, true, true));
+    read = metrics.getReadRecords();
+    reused = metrics.getReusedRecords();
+    current = driver.get(RouterState.class).getRecords();
+    assertEquals(NUM_RECORDS - 1, current.size());
+    assertEquals(read + 1, metrics.getReadRecords());
+    assertEquals(reused + NUM_RECORDS - 2, metrics.getReusedRecords());
+    for (RouterState record : current) {
+      if (record.getPrimaryKey().equals(updated.getPrimaryKey())) {
+        assertEquals("updated", record.getVersion());
+      }
+    }
+  }
+
+  @Test
+  public void testChangeNotification() throws Exception {
+    MountTableStore mountTableStore = getStateStoreService()
+        .getRegisteredRecordStore(MountTableStore.class);
+    mountTableStore.loadCache(true);
+    assertEquals(0, mountTableStore.getCachedRecords().size());
+
+    // The cache is refreshed without waiting for the periodic refresh
+    MountTable record = generateFakeRecord(MountTable.class);
+    assertTrue(getStateStoreDriver().putAll(
+        Collections.singletonList(record), false, true)
+        .isOperationSuccessful());
+    GenericTestUtils.waitFor(() -> {
+      try {
+        return mountTableStore.getCachedRecords().size() == 1;
+      } catch (IOException e) {
+        return false;
+      }
+    }, 100, 10000);
+  }
+}
@@ -148,6 +148,10 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final boolean DFS_DATANODE_SYNC_BEHIND_WRITES_DEFAULT = false;
   public static final String  DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_KEY = "dfs.datanode.sync.behind.writes.in.background";
   public static final boolean DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_DEFAULT = false;
+  public static final String  DFS_DATANODE_PIPELINE_DIRECT_FORWARDING_ENABLED_KEY = "dfs.datanode.pipeline.direct.forwarding.enabled";
+  public static final boolean DFS_DATANODE_PIPELINE_DIRECT_FORWARDING_ENABLED_DEFAULT = false;
+  public static final String  DFS_DATANODE_PIPELINE_CHECKSUM_SAMPLE_RATIO_KEY = "dfs.datanode.pipeline.checksum.sample.ratio";
+  public static final float   DFS_DATANODE_PIPELINE_CHECKSUM_SAMPLE_RATIO_DEFAULT = 0.0f;
   public static final String  DFS_DATANODE_DROP_CACHE_BEHIND_READS_KEY = "dfs.datanode.drop.cache.behind.reads";
   public static final boolean DFS_DATANODE_DROP_CACHE_BEHIND_READS_DEFAULT = false;
   public static final String  DFS_DATANODE_USE_DN_HOSTNAME = "dfs.datanode.use.datanode.hostname";
@@ -544,6 +548,12 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final int
       DFS_NAMENODE_SNAPSHOT_DIFF_LISTING_LIMIT_DEFAULT = 1000;
 
+  public static final String
+      DFS_NAMENODE_SNAPSHOT_DIFF_PARALLEL_THREADS =
+      "dfs.namenode.snapshotdiff.parallel.threads";
+  public static final int
+      DFS_NAMENODE_SNAPSHOT_DIFF_PARALLEL_THREADS_DEFAULT = 1;
+
   public static final String DFS_NAMENODE_SNAPSHOT_MAX_LIMIT =
       "dfs.namenode.snapshot.max.limit";
   public static final int DFS_NAMENODE_SNAPSHOT_MAX_LIMIT_DEFAULT = 65536;
@@ -774,6 +784,24 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.namenode.audit.log.with.remote.port";
   public static final boolean DFS_NAMENODE_AUDIT_LOG_WITH_REMOTE_PORT_DEFAULT =
       false;
+  public static final String  DFS_NAMENODE_AUDIT_BINARY_LOG_DIR_KEY =
+      "dfs.namenode.audit.binary.log.dir";
+  public static final String  DFS_NAMENODE_AUDIT_BINARY_LOG_QUEUE_CAPACITY_KEY =
+      "dfs.namenode.audit.binary.log.queue.capacity";
+  public static final int     DFS_NAMENODE_AUDIT_BINARY_LOG_QUEUE_CAPACITY_DEFAULT =
+      65536;
+  public static final String  DFS_NAMENODE_AUDIT_BINARY_LOG_OVERFLOW_POLICY_KEY =
+      "dfs.namenode.audit.binary.log.overflow.policy";
+  public static final String  DFS_NAMENODE_AUDIT_BINARY_LOG_OVERFLOW_POLICY_DEFAULT =
+      "DROP";
+  public static final String  DFS_NAMENODE_AUDIT_BINARY_LOG_BATCH_SIZE_KEY =
+      "dfs.namenode.audit.binary.log.batch.size";
+  public static final int     DFS_NAMENODE_AUDIT_BINARY_LOG_BATCH_SIZE_DEFAULT =
+      1024;
+  public static final String  DFS_NAMENODE_AUDIT_BINARY_LOG_ROLL_SIZE_KEY =
+      "dfs.namenode.audit.binary.log.roll.size";
+  public static final long    DFS_NAMENODE_AUDIT_BINARY_LOG_ROLL_SIZE_DEFAULT =
+      256L * 1024 * 1024;
   /**
    * The maximum number of getBlocks RPCs data movement utilities can make to
    * a NameNode per second. Values &lt;= 0 disable throttling. This affects
@@ -1300,6 +1328,18 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.namenode.block-placement.min-blocks-for.write";
   public static final int DFS_NAMENODE_BLOCKPLACEMENTPOLICY_MIN_BLOCKS_FOR_WRITE_DEFAULT =
       HdfsServerConstants.MIN_BLOCKS_FOR_WRITE;
+  public static final String
+      DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_REFRESH_INTERVAL_KEY =
+      "dfs.namenode.cost-based-block-placement-policy.refresh-interval";
+  public static final long
+      DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_REFRESH_INTERVAL_DEFAULT =
+      3000;
+  public static final String
+      DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_KEY =
+      "dfs.namenode.cost-based-block-placement-policy.balanced-space-preference-fraction";
+  public static final float
+      DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_DEFAULT =
+      0.6f;
 
   public static final String DFS_NAMENODE_GC_TIME_MONITOR_ENABLE =
       "dfs.namenode.gc.time.monitor.enable";
@@ -1472,6 +1512,20 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String DFS_JOURNALNODE_EDIT_CACHE_SIZE_FRACTION_KEY =
           "dfs.journalnode.edit-cache-size.fraction";
   public static final float DFS_JOURNALNODE_EDIT_CACHE_SIZE_FRACTION_DEFAULT = 0.5f;
+  public static final String DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_KEY =
+      "dfs.journalnode.edit-cache-size.adaptive";
+  public static final boolean
+      DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_DEFAULT = false;
+  public static final String
+      DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_INTERVAL_KEY =
+      "dfs.journalnode.edit-cache-size.adaptive.interval";
+  public static final long
+      DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_INTERVAL_DEFAULT = 60000;
+  public static final String
+      DFS_JOURNALNODE_TAIL_EDITS_LONG_POLL_TIMEOUT_KEY =
+      "dfs.journalnode.tail-edits.long-poll.timeout";
+  public static final long
+      DFS_JOURNALNODE_TAIL_EDITS_LONG_POLL_TIMEOUT_DEFAULT = 0;
 
   // Journal-node related configs for the client side.
   public static final String  DFS_QJOURNAL_QUEUE_SIZE_LIMIT_KEY = "dfs.qjournal.queued-edits.limit.mb";
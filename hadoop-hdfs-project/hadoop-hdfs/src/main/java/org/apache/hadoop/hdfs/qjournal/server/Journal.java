@@ -23,6 +23,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.net.InetAddress;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -30,8 +31,13 @@
 import java.nio.file.StandardCopyOption;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.Range;
@@ -91,7 +97,7 @@ public class Journal implements Closeable {
   private long curSegmentTxId = HdfsServerConstants.INVALID_TXID;
   private int curSegmentLayoutVersion = 0;
   private long nextTxId = HdfsServerConstants.INVALID_TXID;
-  private long highestWrittenTxId = 0;
+  private volatile long highestWrittenTxId = 0;
   
   private final String journalId;
   
@@ -156,10 +162,44 @@ public class Journal implements Closeable {
    */
   private static final int WARN_SYNC_MILLIS_THRESHOLD = 1000;
 
+  /** The number of recent batches whose write time is kept. */
+  private static final int MAX_BATCH_WRITE_TIMES = 4096;
+  /** Tailers which did not fetch edits for this long are forgotten. */
+  private static final long TAILER_EXPIRY_MS = TimeUnit.MINUTES.toMillis(10);
+
+  /**
+   * How long {@link #getJournaledEdits(long, int)} waits for edits which
+   * have not been written yet; 0 to return an empty response at once.
+   */
+  private final long longPollTimeoutMs;
+  /**
+   * Limits the number of RPC handlers waiting for edits, shared by all the
+   * journals of the JournalNode.
+   */
+  private final Semaphore longPollPermits;
+  /** Notified whenever a batch of edits has been written. */
+  private final Object editsWritten = new Object();
+  /** The monotonic write time of recent batches, by their last txid. */
+  private final TreeMap<Long, Long> batchWriteTimes = new TreeMap<>();
+  /** The edit log tailers which fetched edits via RPC, by host. */
+  private final Map<String, TailerStatus> tailers = new ConcurrentHashMap<>();
+
   Journal(Configuration conf, File logDir, String journalId,
       StartupOption startOpt, StorageErrorReporter errorReporter)
       throws IOException {
+    this(conf, logDir, journalId, startOpt, errorReporter,
+        createLongPollPermits(conf));
+  }
+
+  Journal(Configuration conf, File logDir, String journalId,
+      StartupOption startOpt, StorageErrorReporter errorReporter,
+      Semaphore longPollPermits) throws IOException {
     this.conf = conf;
+    this.longPollTimeoutMs = conf.getTimeDuration(
+        DFSConfigKeys.DFS_JOURNALNODE_TAIL_EDITS_LONG_POLL_TIMEOUT_KEY,
+        DFSConfigKeys.DFS_JOURNALNODE_TAIL_EDITS_LONG_POLL_TIMEOUT_DEFAULT,
+        TimeUnit.MILLISECONDS);
+    this.longPollPermits = longPollPermits;
     storage = new JNStorage(conf, logDir, startOpt, errorReporter);
     this.journalId = journalId;
 
@@ -177,6 +217,16 @@ public class Journal implements Closeable {
     }
   }
 
+  /**
+   * Create the permits of the RPC handlers waiting for edits. At least half
+   * of the handlers are kept for the writers.
+   */
+  static Semaphore createLongPollPermits(Configuration conf) {
+    return new Semaphore(conf.getInt(
+        DFSConfigKeys.DFS_JOURNALNODE_HANDLER_COUNT_KEY,
+        DFSConfigKeys.DFS_JOURNALNODE_HANDLER_COUNT_DEFAULT) / 2);
+  }
+
   private JournaledEditsCache createCache() {
     if (conf.getBoolean(DFSConfigKeys.DFS_HA_TAILEDITS_INPROGRESS_KEY,
         DFSConfigKeys.DFS_HA_TAILEDITS_INPROGRESS_DEFAULT)) {
@@ -447,8 +497,12 @@ synchronized void journal(RequestInfo reqInfo,
     sw.stop();
 
     long nanoSeconds = sw.now();
-    metrics.addSync(
-        TimeUnit.MICROSECONDS.convert(nanoSeconds, TimeUnit.NANOSECONDS));
+    long microSeconds =
+        TimeUnit.MICROSECONDS.convert(nanoSeconds, TimeUnit.NANOSECONDS);
+    metrics.addSync(microSeconds);
+    if (shouldFsync) {
+      metrics.addFsync(microSeconds);
+    }
     long milliSeconds = TimeUnit.MILLISECONDS.convert(
         nanoSeconds, TimeUnit.NANOSECONDS);
 
@@ -470,6 +524,27 @@ synchronized void journal(RequestInfo reqInfo,
     updateHighestWrittenTxId(lastTxnId);
     nextTxId = lastTxnId + 1;
     lastJournalTimestamp = Time.now();
+    if (cache != null) {
+      onEditsWritten(lastTxnId);
+    }
+  }
+
+  /**
+   * Record the write time of a batch for the tailer lag, and wake up the
+   * tailers waiting for it.
+   */
+  private void onEditsWritten(long lastTxnId) {
+    synchronized (batchWriteTimes) {
+      batchWriteTimes.put(lastTxnId, Time.monotonicNow());
+      if (batchWriteTimes.size() > MAX_BATCH_WRITE_TIMES) {
+        batchWriteTimes.pollFirstEntry();
+      }
+    }
+    if (longPollTimeoutMs > 0) {
+      synchronized (editsWritten) {
+        editsWritten.notifyAll();
+      }
+    }
   }
 
   public void heartbeat(RequestInfo reqInfo) throws IOException {
@@ -745,12 +820,31 @@ public RemoteEditLogManifest getEditLogManifest(long sinceTxId,
    */
   public GetJournaledEditsResponseProto getJournaledEdits(long sinceTxId,
       int maxTxns) throws IOException {
+    // The port of the caller changes whenever it reconnects
+    InetAddress ip = Server.getRemoteIp();
+    return getJournaledEdits(ip == null ? null : ip.getHostAddress(),
+        sinceTxId, maxTxns);
+  }
+
+  /**
+   * @param tailer the host of the caller, or null if it is not tracked.
+   * @see #getJournaledEdits(long, int)
+   */
+  @VisibleForTesting
+  GetJournaledEditsResponseProto getJournaledEdits(String tailer,
+      long sinceTxId, int maxTxns) throws IOException {
     if (cache == null) {
       throw new IOException("The journal edits cache is not enabled, which " +
           "is a requirement to fetch journaled edits via RPC. Please enable " +
           "it via " + DFSConfigKeys.DFS_HA_TAILEDITS_INPROGRESS_KEY);
     }
     long highestTxId = getHighestWrittenTxId();
+    if (sinceTxId == highestTxId + 1 && waitForEdits(sinceTxId)) {
+      highestTxId = getHighestWrittenTxId();
+    }
+    if (tailer != null) {
+      updateTailer(tailer, sinceTxId, highestTxId);
+    }
     if (sinceTxId == highestTxId + 1) {
       // Requested edits that don't exist yet, but this is expected,
       // because namenode always get the journaled edits with the sinceTxId
@@ -775,6 +869,7 @@ public GetJournaledEditsResponseProto getJournaledEdits(long sinceTxId,
       for (ByteBuffer buf : buffers) {
         totalSize += buf.remaining();
       }
+      metrics.rpcRequestCacheHits.incr();
       metrics.txnsServedViaRpc.incr(txnCount);
       metrics.bytesServedViaRpc.incr(totalSize);
       ByteString.Output output = ByteString.newOutput(totalSize);
@@ -791,6 +886,93 @@ public GetJournaledEditsResponseProto getJournaledEdits(long sinceTxId,
     }
   }
 
+  /**
+   * Wait until the given transaction has been written, for at most
+   * {@link DFSConfigKeys#DFS_JOURNALNODE_TAIL_EDITS_LONG_POLL_TIMEOUT_KEY}.
+   *
+   * @return true if the transaction has been written.
+   */
+  private boolean waitForEdits(long txId) {
+    if (longPollTimeoutMs <= 0 || !longPollPermits.tryAcquire()) {
+      return false;
+    }
+    try {
+      long deadline = Time.monotonicNow() + longPollTimeoutMs;
+      synchronized (editsWritten) {
+        long remaining;
+        while (highestWrittenTxId < txId
+            && (remaining = deadline - Time.monotonicNow()) > 0) {
+          editsWritten.wait(remaining);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      longPollPermits.release();
+    }
+    return highestWrittenTxId >= txId;
+  }
+
+  /**
+   * Record how far behind a tailer is. A tailer asks for the transaction
+   * after the last one it applied, so the lag is the number of transactions
+   * written since, and the time since the oldest of them was written.
+   */
+  private void updateTailer(String tailer, long sinceTxId, long highestTxId) {
+    long lagTxns = Math.max(0, highestTxId - sinceTxId + 1);
+    long lagMs = 0;
+    if (lagTxns > 0) {
+      Long writeTime;
+      synchronized (batchWriteTimes) {
+        Map.Entry<Long, Long> batch = batchWriteTimes.ceilingEntry(sinceTxId);
+        writeTime = batch == null ? null : batch.getValue();
+      }
+      if (writeTime != null) {
+        lagMs = Math.max(0, Time.monotonicNow() - writeTime);
+      }
+    }
+    tailers.put(tailer,
+        new TailerStatus(sinceTxId, lagTxns, lagMs, Time.monotonicNow()));
+  }
+
+  /**
+   * @return the status of the edit log tailers which fetched edits via RPC
+   * recently, by their address.
+   */
+  Map<String, TailerStatus> getTailers() {
+    long now = Time.monotonicNow();
+    tailers.values().removeIf(t -> now - t.lastRequestTime > TAILER_EXPIRY_MS);
+    return Collections.unmodifiableMap(tailers);
+  }
+
+  /** How far behind an edit log tailer was at its last request. */
+  static final class TailerStatus {
+    private final long sinceTxId;
+    private final long lagTxns;
+    private final long lagMs;
+    private final long lastRequestTime;
+
+    TailerStatus(long sinceTxId, long lagTxns, long lagMs,
+        long lastRequestTime) {
+      this.sinceTxId = sinceTxId;
+      this.lagTxns = lagTxns;
+      this.lagMs = lagMs;
+      this.lastRequestTime = lastRequestTime;
+    }
+
+    long getSinceTxId() {
+      return sinceTxId;
+    }
+
+    long getLagTxns() {
+      return lagTxns;
+    }
+
+    long getLagMs() {
+      return lagMs;
+    }
+  }
+
   /**
    * @return the current state of the given segment, or null if the
    * segment does not exist.
@@ -1233,7 +1415,6 @@ public Long getJournalCTime() throws IOException {
     return storage.getJournalManager().getJournalCTime();
   }
 
-  @VisibleForTesting
   JournaledEditsCache getJournaledEditsCache() {
     return cache;
   }
@@ -54,6 +54,9 @@ class JournalMetrics {
 
   private MutableStat rpcRequestCacheMissAmount;
 
+  @Metric("Number of RPC requests served from the edits cache")
+  MutableCounterLong rpcRequestCacheHits;
+
   @Metric("Number of RPC requests with zero edits returned")
   MutableCounterLong rpcEmptyResponses;
 
@@ -70,6 +73,7 @@ class JournalMetrics {
   };
   
   final MutableQuantiles[] syncsQuantiles;
+  final MutableQuantiles[] fsyncsQuantiles;
   
   private final Journal journal;
 
@@ -83,6 +87,13 @@ class JournalMetrics {
           "syncs" + interval + "s",
           "Journal sync time", "ops", "latencyMicros", interval);
     }
+    fsyncsQuantiles = new MutableQuantiles[QUANTILE_INTERVALS.length];
+    for (int i = 0; i < fsyncsQuantiles.length; i++) {
+      int interval = QUANTILE_INTERVALS[i];
+      fsyncsQuantiles[i] = registry.newQuantiles(
+          "fsyncs" + interval + "s",
+          "Journal fsync time", "ops", "latencyMicros", interval);
+    }
     rpcRequestCacheMissAmount = registry
         .newStat("RpcRequestCacheMissAmount", "Number of RPC requests unable to be " +
                 "served due to lack of availability in cache, and how many " +
@@ -142,12 +153,48 @@ public long getLastJournalTimestamp() {
     return journal.getLastJournalTimestamp();
   }
 
+  @Metric("The current capacity of the edits cache in bytes")
+  public long getEditCacheCapacity() {
+    JournaledEditsCache cache = journal.getJournaledEditsCache();
+    return cache == null ? 0 : cache.getEffectiveCapacity();
+  }
+
+  @Metric("The size of the edits held by the edits cache in bytes")
+  public long getEditCacheUsed() {
+    JournaledEditsCache cache = journal.getJournaledEditsCache();
+    return cache == null ? 0 : cache.getTotalSize();
+  }
+
+  @Metric("The highest number of transactions an edit log tailer is behind")
+  public long getMaxTailerLagTxns() {
+    long max = 0;
+    for (Journal.TailerStatus tailer : journal.getTailers().values()) {
+      max = Math.max(max, tailer.getLagTxns());
+    }
+    return max;
+  }
+
+  @Metric("The longest time an edit log tailer is behind in milliseconds")
+  public long getMaxTailerLagMillis() {
+    long max = 0;
+    for (Journal.TailerStatus tailer : journal.getTailers().values()) {
+      max = Math.max(max, tailer.getLagMs());
+    }
+    return max;
+  }
+
   void addSync(long us) {
     for (MutableQuantiles q : syncsQuantiles) {
       q.add(us);
     }
   }
 
+  void addFsync(long us) {
+    for (MutableQuantiles q : fsyncsQuantiles) {
+      q.add(us);
+    }
+  }
+
   public MutableCounterLong getNumEditLogsSynced() {
     return numEditLogsSynced;
   }
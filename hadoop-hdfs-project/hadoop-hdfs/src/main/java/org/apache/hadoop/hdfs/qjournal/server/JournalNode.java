@@ -62,6 +62,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 /**
@@ -78,6 +79,8 @@ public class JournalNode implements Tool, Configurable, JournalNodeMXBean {
   private JournalNodeRpcServer rpcServer;
   private JournalNodeHttpServer httpServer;
   private final Map<String, Journal> journalsById = Maps.newHashMap();
+  /** The permits of the handlers waiting for edits, for all the journals. */
+  private Semaphore longPollPermits;
   private final Map<String, JournalNodeSyncer> journalSyncersById = Maps
       .newHashMap();
   private ObjectName journalNodeInfoBeanName;
@@ -105,7 +108,8 @@ synchronized Journal getOrCreateJournal(String jid,
     if (journal == null) {
       File logDir = getLogDir(jid, nameServiceId);
       LOG.info("Initializing journal in directory " + logDir);
-      journal = new Journal(conf, logDir, jid, startOpt, new ErrorReporter());
+      journal = new Journal(conf, logDir, jid, startOpt, new ErrorReporter(),
+          longPollPermits);
       journalsById.put(jid, journal);
       // Start SyncJouranl thread, if JournalNode Sync is enabled
       if (conf.getBoolean(
@@ -161,6 +165,7 @@ public Journal getOrCreateJournal(String jid,
   @Override
   public void setConf(Configuration conf) {
     this.conf = conf;
+    this.longPollPermits = Journal.createLongPollPermits(conf);
 
     String journalNodeDir = null;
     Collection<String> nameserviceIds;
@@ -405,6 +410,27 @@ public boolean accept(File file) {
     return JSON.toString(status);
   }
 
+  @Override // JournalNodeMXBean
+  public String getEditLogTailersStatus() {
+    // jid:{tailer:{SinceTxId:N, LagTxns:N, LagMillis:N}}
+    Map<String, Map<String, Map<String, Long>>> status = new HashMap<>();
+    synchronized (this) {
+      for (Map.Entry<String, Journal> entry : journalsById.entrySet()) {
+        Map<String, Map<String, Long>> tailers = new HashMap<>();
+        for (Map.Entry<String, Journal.TailerStatus> tailer :
+            entry.getValue().getTailers().entrySet()) {
+          Map<String, Long> tMap = new HashMap<>();
+          tMap.put("SinceTxId", tailer.getValue().getSinceTxId());
+          tMap.put("LagTxns", tailer.getValue().getLagTxns());
+          tMap.put("LagMillis", tailer.getValue().getLagMs());
+          tailers.put(tailer.getKey(), tMap);
+        }
+        status.put(entry.getKey(), tailers);
+      }
+    }
+    return JSON.toString(status);
+  }
+
   @Override // JournalNodeMXBean
   public String getHostAndPort() {
     return NetUtils.getHostPortString(rpcServer.getAddress());
@@ -73,4 +73,13 @@ public interface JournalNodeMXBean {
    * @return the list of storage infos associated with journals.
    */
   List<String> getStorageInfos();
+
+  /**
+   * Get how far behind each NameNode which tails edits via RPC from
+   * JournalNode's journals was at its last request.
+   *
+   * @return A string presenting the lag in transactions and milliseconds of
+   * each tailer, by journal and tailer host.
+   */
+  String getEditLogTailersStatus();
 }
@@ -29,6 +29,8 @@
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -41,6 +43,7 @@
 import org.apache.hadoop.hdfs.server.namenode.FSEditLogOp;
 import org.apache.hadoop.util.AutoCloseableLock;
 import org.apache.hadoop.util.Preconditions;
+import org.apache.hadoop.util.Time;
 
 /**
  * An in-memory cache of edits in their serialized form. This is used to serve
@@ -70,6 +73,17 @@
  * to determine if the cache is too small; it will indicate both how many
  * cache misses occurred, and how many more transactions would have been
  * needed in the cache to serve the request.
+ *
+ * <p>If {@value DFSConfigKeys#DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_KEY}
+ * is enabled, the capacity is an upper bound and the cache only keeps as
+ * many bytes as the readers need. Every
+ * {@value DFSConfigKeys#DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_INTERVAL_KEY}
+ * the capacity is set to twice the size of the transactions between the
+ * oldest transaction requested during the last interval and the newest
+ * transaction, estimated from the average transaction size in the cache.
+ * This follows both the edit rate and the lag of the slowest reader. If no
+ * edits were requested during the interval, the cache shrinks to
+ * {@link #MIN_ADAPTIVE_CAPACITY} bytes.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
@@ -77,9 +91,17 @@ class JournaledEditsCache {
 
   private static final int INVALID_LAYOUT_VERSION = 0;
   private static final long INVALID_TXN_ID = -1;
+  /** The lowest capacity, in bytes, that the adaptive sizing uses. */
+  static final int MIN_ADAPTIVE_CAPACITY = 1024 * 1024;
 
   /** The capacity, in bytes, of this cache. */
   private final int capacity;
+  /** Whether the effective capacity follows the requests. */
+  private final boolean adaptive;
+  private final long adaptiveIntervalMs;
+  /** The oldest transaction requested since the last resize. */
+  private final LongAccumulator oldestRequestedTxnId =
+      new LongAccumulator(Math::min, Long.MAX_VALUE);
 
   /**
    * Read/write lock pair wrapped in AutoCloseable; these refer to the same
@@ -117,7 +139,14 @@ class JournaledEditsCache {
    */
   private long initialTxnId;
   /** The current total size of all buffers in this cache. */
-  private int totalSize;
+  private volatile int totalSize;
+  /**
+   * The capacity which the cache is kept below. Equal to {@link #capacity}
+   * unless the adaptive sizing is enabled.
+   */
+  private volatile int effectiveCapacity;
+  private long lastResizeMs;
+  private int minAdaptiveCapacity;
 
   // ** End lock-protected fields **
 
@@ -136,8 +165,18 @@ class JournaledEditsCache {
           "decrease the cache size/fraction or increase the heap size.",
           capacity, Runtime.getRuntime().maxMemory()));
     }
+    adaptive = conf.getBoolean(
+        DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_KEY,
+        DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_DEFAULT);
+    adaptiveIntervalMs = conf.getTimeDuration(
+        DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_INTERVAL_KEY,
+        DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_INTERVAL_DEFAULT,
+        TimeUnit.MILLISECONDS);
+    effectiveCapacity = capacity;
+    minAdaptiveCapacity = Math.min(capacity, MIN_ADAPTIVE_CAPACITY);
+    lastResizeMs = Time.monotonicNow();
     Journal.LOG.info("Enabling the journaled edits cache with a capacity " +
-        "of bytes: " + capacity);
+        "of bytes: " + capacity + (adaptive ? " (adaptive)" : ""));
     ReadWriteLock lock = new ReentrantReadWriteLock(true);
     readLock = new AutoCloseableLock(lock.readLock());
     writeLock = new AutoCloseableLock(lock.writeLock());
@@ -173,6 +212,9 @@ class JournaledEditsCache {
   int retrieveEdits(long requestedStartTxn, int maxTxns,
       List<ByteBuffer> outputBuffers) throws IOException {
     int txnCount = 0;
+    if (adaptive) {
+      oldestRequestedTxnId.accumulate(requestedStartTxn);
+    }
 
     try (AutoCloseableLock l = readLock.acquire()) {
       if (lowestTxnId == INVALID_TXN_ID || requestedStartTxn < lowestTxnId) {
@@ -275,7 +317,11 @@ void storeEdits(byte[] inputData, long newStartTxn, long newEndTxn,
         initialize(newStartTxn);
       }
 
-      while ((totalSize + inputData.length) > capacity && !dataMap.isEmpty()) {
+      if (adaptive) {
+        maybeResize();
+      }
+      while ((totalSize + inputData.length) > effectiveCapacity
+          && !dataMap.isEmpty()) {
         Map.Entry<Long, byte[]> lowest = dataMap.firstEntry();
         dataMap.remove(lowest.getKey());
         totalSize -= lowest.getValue().length;
@@ -304,6 +350,40 @@ void storeEdits(byte[] inputData, long newStartTxn, long newEndTxn,
     }
   }
 
+  /**
+   * Recompute the effective capacity from the requests since the last
+   * resize, once per interval. Called with the write lock held.
+   */
+  private void maybeResize() {
+    long now = Time.monotonicNow();
+    if (now - lastResizeMs < adaptiveIntervalMs) {
+      return;
+    }
+    lastResizeMs = now;
+    long oldestRequested = oldestRequestedTxnId.getThenReset();
+    long newCapacity;
+    if (oldestRequested == Long.MAX_VALUE) {
+      newCapacity = minAdaptiveCapacity;
+    } else if (lowestTxnId == INVALID_TXN_ID || dataMap.isEmpty()) {
+      return;
+    } else {
+      // Requests older than the cache ever was can not be served anyway
+      long oldest = Math.min(Math.max(oldestRequested, initialTxnId),
+          highestTxnId);
+      double bytesPerTxn =
+          (double) totalSize / (highestTxnId - lowestTxnId + 1);
+      newCapacity =
+          (long) (2 * (highestTxnId - oldest + 1) * bytesPerTxn);
+    }
+    newCapacity = Math.min(capacity,
+        Math.max(minAdaptiveCapacity, newCapacity));
+    if (newCapacity != effectiveCapacity) {
+      Journal.LOG.debug("Resizing the edits cache from {} to {} bytes",
+          effectiveCapacity, newCapacity);
+      effectiveCapacity = (int) newCapacity;
+    }
+  }
+
   /**
    * Skip through a given stream of edits until the given transaction ID is
    * found. Return the number of bytes that appear prior to the given
@@ -428,4 +508,21 @@ int getCapacity() {
     return capacity;
   }
 
+  @VisibleForTesting
+  void setMinAdaptiveCapacity(int minAdaptiveCapacity) {
+    try (AutoCloseableLock l = writeLock.acquire()) {
+      this.minAdaptiveCapacity = minAdaptiveCapacity;
+    }
+  }
+
+  /** @return the capacity which the cache is currently kept below. */
+  int getEffectiveCapacity() {
+    return effectiveCapacity;
+  }
+
+  /** @return the total size of the cached edits. */
+  int getTotalSize() {
+    return totalSize;
+  }
+
 }
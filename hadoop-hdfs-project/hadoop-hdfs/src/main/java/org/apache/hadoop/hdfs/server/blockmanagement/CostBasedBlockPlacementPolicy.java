@@ -0,0 +1,456 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hdfs.server.blockmanagement;
+
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_REFRESH_INTERVAL_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_REFRESH_INTERVAL_KEY;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.StorageType;
+import org.apache.hadoop.hdfs.server.protocol.DatanodeStorage.State;
+import org.apache.hadoop.net.NetworkTopology;
+import org.apache.hadoop.net.Node;
+import org.apache.hadoop.net.NodeBase;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Block placement policy that chooses the random targets of
+ * {@link BlockPlacementPolicyDefault} from cached per storage type indices of
+ * the eligible datanodes instead of walking the network topology.
+ * <p>
+ * The indices keep the in service datanodes with remaining space of the
+ * storage type sorted by network location, so that every rack, and every
+ * inner node of the topology, is a contiguous range. A datanode is weighted
+ * by its remaining space relative to the datanode with the most remaining
+ * space, blended with a uniform weight by
+ * {@link org.apache.hadoop.hdfs.DFSConfigKeys#DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_KEY}
+ * so that an empty datanode is chosen at most fraction / (1 - fraction)
+ * times as often as a full one. If load is considered, the weight is
+ * penalized by the xceiver count relative to the cluster average. A target
+ * is chosen with a
+ * binary search over the cumulative weights, skipping the excluded nodes of
+ * the range, so it costs O(k log n) for k excluded nodes and needs no retries
+ * when most nodes are excluded or full.
+ * <p>
+ * The indices are rebuilt from the network topology at most once per
+ * {@link org.apache.hadoop.hdfs.DFSConfigKeys#DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_REFRESH_INTERVAL_KEY},
+ * i.e. from the datanode state of the latest heartbeats. If the index has no
+ * candidate left in a scope, because it has none or they are all excluded,
+ * the choice falls back to the network topology, which also holds the
+ * datanodes registered after the last rebuild.
+ */
+public class CostBasedBlockPlacementPolicy extends BlockPlacementPolicyDefault {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(CostBasedBlockPlacementPolicy.class);
+
+  private FSClusterStats clusterStats;
+  private long refreshIntervalMs;
+  private float balancedPreference;
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private volatile Snapshot snapshot;
+
+  @Override
+  public void initialize(Configuration conf, FSClusterStats stats,
+      NetworkTopology clusterMap, Host2NodesMap host2datanodeMap) {
+    super.initialize(conf, stats, clusterMap, host2datanodeMap);
+    this.clusterStats = stats;
+    this.refreshIntervalMs = conf.getTimeDuration(
+        DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_REFRESH_INTERVAL_KEY,
+        DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_REFRESH_INTERVAL_DEFAULT,
+        TimeUnit.MILLISECONDS);
+    float preference = conf.getFloat(
+        DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_KEY,
+        DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_DEFAULT);
+    if (preference < 0.5f || preference > 1.0f) {
+      LOG.warn("The value of {} is {} but should be in the range 0.5 - 1.0,"
+          + " using {}",
+          DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_KEY,
+          preference,
+          DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_DEFAULT);
+      preference =
+          DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_DEFAULT;
+    }
+    this.balancedPreference = preference;
+    LOG.info("Cost based block placement policy initialized: {} = {} ms,"
+        + " {} = {}",
+        DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_REFRESH_INTERVAL_KEY,
+        refreshIntervalMs,
+        DFS_NAMENODE_COST_BASED_BLOCK_PLACEMENT_POLICY_BALANCED_SPACE_PREFERENCE_FRACTION_KEY,
+        balancedPreference);
+  }
+
+  @Override
+  protected DatanodeDescriptor chooseDataNode(final String scope,
+      final Collection<Node> excludedNodes, StorageType type) {
+    CandidateIndex index = getCandidateIndex(type);
+    int[][] ranges = index == null ? null : index.getRanges(scope);
+    Collection<Node> excluded = excludedNodes;
+    if (ranges != null && ranges.length > 0) {
+      for (;;) {
+        DatanodeDescriptor node = index.choose(ranges, excluded);
+        if (node == null) {
+          break;
+        }
+        if (node.isAlive()) {
+          return node;
+        }
+        // the node died since the last rebuild
+        if (excluded == excludedNodes) {
+          excluded = excludedNodes == null ? new HashSet<>()
+              : new HashSet<>(excludedNodes);
+        }
+        excluded.add(node);
+      }
+    }
+    // the scope may contain datanodes registered since the last rebuild,
+    // whether it has no indexed candidate or all of them are excluded
+    return super.chooseDataNode(scope, excluded, type);
+  }
+
+  /**
+   * @return the current indices, rebuilt by the calling thread if they are
+   * older than the refresh interval and no other thread rebuilds them, or
+   * null if the first rebuild is still in progress.
+   */
+  private Map<StorageType, CandidateIndex> getSnapshot() {
+    Snapshot s = snapshot;
+    long now = Time.monotonicNow();
+    if ((s == null || now - s.time >= refreshIntervalMs)
+        && refreshing.compareAndSet(false, true)) {
+      try {
+        s = new Snapshot(now, buildIndices());
+        snapshot = s;
+      } finally {
+        refreshing.set(false);
+      }
+    }
+    return s == null ? null : s.indices;
+  }
+
+  @VisibleForTesting
+  void refresh() {
+    snapshot = new Snapshot(Time.monotonicNow(), buildIndices());
+  }
+
+  private Map<StorageType, CandidateIndex> buildIndices() {
+    List<DatanodeDescriptor> nodes = new ArrayList<>();
+    for (Node n : clusterMap.getLeaves(NodeBase.ROOT)) {
+      if (n instanceof DatanodeDescriptor) {
+        DatanodeDescriptor d = (DatanodeDescriptor) n;
+        if (d.isAlive() && d.isInService()) {
+          nodes.add(d);
+        }
+      }
+    }
+    nodes.sort(Comparator.comparing(CandidateIndex::getLocationKey));
+    double avgLoad = considerLoad ?
+        clusterStats.getInServiceXceiverAverage() : 0;
+
+    Map<StorageType, CandidateIndex> indices =
+        new EnumMap<>(StorageType.class);
+    for (StorageType type : StorageType.values()) {
+      List<DatanodeDescriptor> candidates = new ArrayList<>();
+      List<Long> remainings = new ArrayList<>();
+      long maxRemaining = 0;
+      for (DatanodeDescriptor d : nodes) {
+        long remaining = getRemaining(d, type);
+        if (remaining > 0) {
+          candidates.add(d);
+          remainings.add(remaining);
+          maxRemaining = Math.max(maxRemaining, remaining);
+        }
+      }
+      List<Double> weights = new ArrayList<>(candidates.size());
+      for (int i = 0; i < candidates.size(); i++) {
+        weights.add(getWeight(candidates.get(i),
+            (double) remainings.get(i) / maxRemaining, avgLoad));
+      }
+      if (!candidates.isEmpty()) {
+        indices.put(type, new CandidateIndex(candidates, weights));
+      }
+    }
+    return indices;
+  }
+
+  /**
+   * @return the remaining space of the node for the storage type, 0 if it
+   * must not be chosen.
+   */
+  private static long getRemaining(DatanodeDescriptor node,
+      StorageType type) {
+    long remaining = 0;
+    for (DatanodeStorageInfo s : node.getStorageInfos()) {
+      if (s.getState() == State.NORMAL && s.getStorageType() == type) {
+        remaining += Math.max(0, s.getRemaining());
+      }
+    }
+    return remaining;
+  }
+
+  /**
+   * @return the weight of the node, which ranges from 2 * (1 - preference)
+   * for a full node to 2 * preference for the node with the most remaining
+   * space. A preference of 0.5 weights all nodes equally, a preference of 1
+   * weights them by their remaining space.
+   */
+  private double getWeight(DatanodeDescriptor node, double remainingRatio,
+      double avgLoad) {
+    double weight = 2 * (1 - balancedPreference)
+        + 2 * (2 * balancedPreference - 1) * remainingRatio;
+    if (avgLoad > 0) {
+      weight /= 1 + node.getXceiverCount() / avgLoad;
+    }
+    return weight;
+  }
+
+  /** The indices of a rebuild. */
+  private static final class Snapshot {
+    private final long time;
+    private final Map<StorageType, CandidateIndex> indices;
+
+    Snapshot(long time, Map<StorageType, CandidateIndex> indices) {
+      this.time = time;
+      this.indices = indices;
+    }
+  }
+
+  /**
+   * The candidates of a storage type sorted by network location, with the
+   * cumulative sums of their weights.
+   */
+  @VisibleForTesting
+  static final class CandidateIndex {
+    private static final String EXCLUDED_SCOPE_PREFIX = "~";
+
+    private final DatanodeDescriptor[] nodes;
+    /** The network location of each node followed by a path separator. */
+    private final String[] locations;
+    /** cumulative[i] is the total weight of nodes[0 .. i-1]. */
+    private final double[] cumulative;
+    private final Map<Node, Integer> positions;
+
+    CandidateIndex(List<DatanodeDescriptor> nodes, List<Double> weights) {
+      int n = nodes.size();
+      this.nodes = nodes.toArray(new DatanodeDescriptor[n]);
+      this.locations = new String[n];
+      this.cumulative = new double[n + 1];
+      this.positions = new HashMap<>(n * 2);
+      for (int i = 0; i < n; i++) {
+        locations[i] = getLocationKey(this.nodes[i]);
+        cumulative[i + 1] = cumulative[i] + weights.get(i);
+        positions.put(this.nodes[i], i);
+      }
+    }
+
+    static String getLocationKey(Node node) {
+      return node.getNetworkLocation() + NodeBase.PATH_SEPARATOR_STR;
+    }
+
+    int size() {
+      return nodes.length;
+    }
+
+    /**
+     * @return the non-empty ranges of positions of the candidates in the
+     * scope, which may be prefixed with "~" to choose from outside of it.
+     */
+    int[][] getRanges(String scope) {
+      boolean complement = scope.startsWith(EXCLUDED_SCOPE_PREFIX);
+      if (complement) {
+        scope = scope.substring(1);
+      }
+      int from = 0;
+      int to = nodes.length;
+      if (!scope.isEmpty() && !scope.equals(NodeBase.PATH_SEPARATOR_STR)) {
+        // the locations below the scope are prefixed with "scope/", which
+        // sort before "scope0" since '0' follows the path separator
+        from = lowerBound(scope + NodeBase.PATH_SEPARATOR_STR);
+        to = lowerBound(scope + (char) (NodeBase.PATH_SEPARATOR + 1));
+      }
+      if (!complement) {
+        return from < to ? new int[][] {{from, to}} : new int[0][];
+      }
+      if (from == 0) {
+        return to < nodes.length ? new int[][] {{to, nodes.length}}
+            : new int[0][];
+      }
+      return to < nodes.length ? new int[][] {{0, from}, {to, nodes.length}}
+          : new int[][] {{0, from}};
+    }
+
+    /**
+     * Choose a node of the ranges that is not one of the excluded nodes, with
+     * a probability proportional to its weight.
+     * @return the chosen node, or null if there is no candidate.
+     */
+    DatanodeDescriptor choose(int[][] ranges, Collection<Node> excludedNodes) {
+      int[] excluded = getExcludedPositions(excludedNodes, ranges);
+      double total = 0;
+      for (int[] range : ranges) {
+        total += cumulative[range[1]] - cumulative[range[0]];
+      }
+      for (int e : excluded) {
+        total -= getWeight(e);
+      }
+      if (total <= 0) {
+        return null;
+      }
+
+      double r = ThreadLocalRandom.current().nextDouble() * total;
+      int next = 0;
+      for (int[] range : ranges) {
+        int end = next;
+        double weight = cumulative[range[1]] - cumulative[range[0]];
+        while (end < excluded.length && excluded[end] < range[1]) {
+          weight -= getWeight(excluded[end++]);
+        }
+        if (r < weight) {
+          return pick(range[0], range[1], cumulative[range[0]] + r,
+              excluded, next, end);
+        }
+        r -= weight;
+        next = end;
+      }
+      return null;
+    }
+
+    /**
+     * @return the positions of the excluded nodes within the ranges, sorted.
+     */
+    private int[] getExcludedPositions(Collection<Node> excludedNodes,
+        int[][] ranges) {
+      if (excludedNodes == null || excludedNodes.isEmpty()) {
+        return new int[0];
+      }
+      int size = 0;
+      for (int[] range : ranges) {
+        size += range[1] - range[0];
+      }
+      if (excludedNodes instanceof Set && size < excludedNodes.size()) {
+        // cheaper to look up the candidates of a small scope, e.g. a rack
+        int[] excluded = new int[size];
+        int count = 0;
+        for (int[] range : ranges) {
+          for (int p = range[0]; p < range[1]; p++) {
+            if (excludedNodes.contains(nodes[p])) {
+              excluded[count++] = p;
+            }
+          }
+        }
+        return Arrays.copyOf(excluded, count);
+      }
+      int[] excluded = new int[excludedNodes.size()];
+      int count = 0;
+      for (Node node : excludedNodes) {
+        Integer p = positions.get(node);
+        if (p != null) {
+          for (int[] range : ranges) {
+            if (p >= range[0] && p < range[1]) {
+              excluded[count++] = p;
+              break;
+            }
+          }
+        }
+      }
+      excluded = Arrays.copyOf(excluded, count);
+      Arrays.sort(excluded);
+      return excluded;
+    }
+
+    /**
+     * Pick the node at the given cumulative weight of the range
+     * [from, to), not counting the weights of the excluded nodes
+     * excluded[exFrom .. exTo-1], which are within the range.
+     */
+    private DatanodeDescriptor pick(int from, int to, double target,
+        int[] excluded, int exFrom, int exTo) {
+      int p = search(target, from, to);
+      for (int i = exFrom; i < exTo && p >= excluded[i]; i++) {
+        // the target lies at or beyond an excluded node, skip over it
+        target += getWeight(excluded[i]);
+        p = search(target, from, to);
+      }
+      // rounding may leave the target on an excluded node
+      return Arrays.binarySearch(excluded, exFrom, exTo, p) < 0
+          ? nodes[p] : null;
+    }
+
+    private double getWeight(int p) {
+      return cumulative[p + 1] - cumulative[p];
+    }
+
+    /**
+     * @return the largest position p in [from, to) with
+     * cumulative[p] &lt;= target.
+     */
+    private int search(double target, int from, int to) {
+      int lo = from;
+      int hi = to - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        if (cumulative[mid] <= target) {
+          lo = mid;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return lo;
+    }
+
+    /** @return the first position whose location is not less than key. */
+    private int lowerBound(String key) {
+      int lo = 0;
+      int hi = locations.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (locations[mid].compareTo(key) < 0) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+  }
+
+  @VisibleForTesting
+  CandidateIndex getCandidateIndex(StorageType type) {
+    Map<StorageType, CandidateIndex> indices = getSnapshot();
+    return indices == null ? null : indices.get(type);
+  }
+}
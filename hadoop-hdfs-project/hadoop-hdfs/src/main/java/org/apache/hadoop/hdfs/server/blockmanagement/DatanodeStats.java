@@ -25,155 +25,156 @@
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Datanode statistics.
  * For decommissioning/decommissioned nodes, only used capacity is counted.
+ * <p>
+ * The aggregates are striped {@link LongAdder}s, so that heartbeats of
+ * different datanodes can update them concurrently. A reader may observe
+ * the statistics of a node in the middle of an update, i.e. between
+ * {@link #subtract(DatanodeDescriptor)} and {@link #add(DatanodeDescriptor)}.
+ * The per storage type statistics are guarded by their own lock.
  */
 class DatanodeStats {
 
   private final StorageTypeStatsMap statsMap = new StorageTypeStatsMap();
-  private long capacityTotal = 0L;
-  private long capacityUsed = 0L;
-  private long capacityUsedNonDfs = 0L;
-  private long capacityRemaining = 0L;
-  private long blockPoolUsed = 0L;
-  private int xceiverCount = 0;
-  private long cacheCapacity = 0L;
-  private long cacheUsed = 0L;
-
-  private int nodesInService = 0;
-  private int nodesInServiceXceiverCount = 0;
-  private int nodesInServiceAvailableVolumeCount = 0;
-  private int expiredHeartbeats = 0;
-
-  synchronized void add(final DatanodeDescriptor node) {
-    xceiverCount += node.getXceiverCount();
-    if (node.isInService()) {
-      capacityUsed += node.getDfsUsed();
-      capacityUsedNonDfs += node.getNonDfsUsed();
-      blockPoolUsed += node.getBlockPoolUsed();
-      nodesInService++;
-      nodesInServiceXceiverCount += node.getXceiverCount();
-      capacityTotal += node.getCapacity();
-      capacityRemaining += node.getRemaining();
-      cacheCapacity += node.getCacheCapacity();
-      cacheUsed += node.getCacheUsed();
-      nodesInServiceAvailableVolumeCount += node.getNumVolumesAvailable();
-    } else if (node.isDecommissionInProgress() ||
-        node.isEnteringMaintenance()) {
-      cacheCapacity += node.getCacheCapacity();
-      cacheUsed += node.getCacheUsed();
-    }
-    Set<StorageType> storageTypes = new HashSet<>();
-    for (DatanodeStorageInfo storageInfo : node.getStorageInfos()) {
-      if (storageInfo.getState() != DatanodeStorage.State.FAILED) {
-        statsMap.addStorage(storageInfo, node);
-        storageTypes.add(storageInfo.getStorageType());
-      }
-    }
-    for (StorageType storageType : storageTypes) {
-      statsMap.addNode(storageType, node);
-    }
+  private final LongAdder capacityTotal = new LongAdder();
+  private final LongAdder capacityUsed = new LongAdder();
+  private final LongAdder capacityUsedNonDfs = new LongAdder();
+  private final LongAdder capacityRemaining = new LongAdder();
+  private final LongAdder blockPoolUsed = new LongAdder();
+  private final LongAdder xceiverCount = new LongAdder();
+  private final LongAdder cacheCapacity = new LongAdder();
+  private final LongAdder cacheUsed = new LongAdder();
+
+  private final LongAdder nodesInService = new LongAdder();
+  private final LongAdder nodesInServiceXceiverCount = new LongAdder();
+  private final LongAdder nodesInServiceAvailableVolumeCount =
+      new LongAdder();
+  private final LongAdder expiredHeartbeats = new LongAdder();
+
+  void add(final DatanodeDescriptor node) {
+    update(node, 1);
+  }
+
+  void subtract(final DatanodeDescriptor node) {
+    update(node, -1);
   }
 
-  synchronized void subtract(final DatanodeDescriptor node) {
-    xceiverCount -= node.getXceiverCount();
+  private void update(final DatanodeDescriptor node, final int sign) {
+    xceiverCount.add(sign * node.getXceiverCount());
     if (node.isInService()) {
-      capacityUsed -= node.getDfsUsed();
-      capacityUsedNonDfs -= node.getNonDfsUsed();
-      blockPoolUsed -= node.getBlockPoolUsed();
-      nodesInService--;
-      nodesInServiceXceiverCount -= node.getXceiverCount();
-      capacityTotal -= node.getCapacity();
-      capacityRemaining -= node.getRemaining();
-      cacheCapacity -= node.getCacheCapacity();
-      cacheUsed -= node.getCacheUsed();
-      nodesInServiceAvailableVolumeCount -= node.getNumVolumesAvailable();
+      capacityUsed.add(sign * node.getDfsUsed());
+      capacityUsedNonDfs.add(sign * node.getNonDfsUsed());
+      blockPoolUsed.add(sign * node.getBlockPoolUsed());
+      nodesInService.add(sign);
+      nodesInServiceXceiverCount.add(sign * node.getXceiverCount());
+      capacityTotal.add(sign * node.getCapacity());
+      capacityRemaining.add(sign * node.getRemaining());
+      cacheCapacity.add(sign * node.getCacheCapacity());
+      cacheUsed.add(sign * node.getCacheUsed());
+      nodesInServiceAvailableVolumeCount.add(
+          sign * node.getNumVolumesAvailable());
     } else if (node.isDecommissionInProgress() ||
         node.isEnteringMaintenance()) {
-      cacheCapacity -= node.getCacheCapacity();
-      cacheUsed -= node.getCacheUsed();
+      cacheCapacity.add(sign * node.getCacheCapacity());
+      cacheUsed.add(sign * node.getCacheUsed());
     }
     Set<StorageType> storageTypes = new HashSet<>();
-    for (DatanodeStorageInfo storageInfo : node.getStorageInfos()) {
-      if (storageInfo.getState() != DatanodeStorage.State.FAILED) {
-        statsMap.subtractStorage(storageInfo, node);
-        storageTypes.add(storageInfo.getStorageType());
+    synchronized (statsMap) {
+      for (DatanodeStorageInfo storageInfo : node.getStorageInfos()) {
+        if (storageInfo.getState() != DatanodeStorage.State.FAILED) {
+          if (sign > 0) {
+            statsMap.addStorage(storageInfo, node);
+          } else {
+            statsMap.subtractStorage(storageInfo, node);
+          }
+          storageTypes.add(storageInfo.getStorageType());
+        }
+      }
+      for (StorageType storageType : storageTypes) {
+        if (sign > 0) {
+          statsMap.addNode(storageType, node);
+        } else {
+          statsMap.subtractNode(storageType, node);
+        }
       }
-    }
-    for (StorageType storageType : storageTypes) {
-      statsMap.subtractNode(storageType, node);
     }
   }
 
   /** Increment expired heartbeat counter. */
   void incrExpiredHeartbeats() {
-    expiredHeartbeats++;
+    expiredHeartbeats.increment();
   }
 
-  synchronized Map<StorageType, StorageTypeStats> getStatsMap() {
-    return statsMap.get();
+  Map<StorageType, StorageTypeStats> getStatsMap() {
+    synchronized (statsMap) {
+      return statsMap.get();
+    }
   }
 
-  synchronized long getCapacityTotal() {
-    return capacityTotal;
+  long getCapacityTotal() {
+    return capacityTotal.sum();
   }
 
-  synchronized long getCapacityUsed() {
-    return capacityUsed;
+  long getCapacityUsed() {
+    return capacityUsed.sum();
   }
 
-  synchronized long getCapacityRemaining() {
-    return capacityRemaining;
+  long getCapacityRemaining() {
+    return capacityRemaining.sum();
   }
 
-  synchronized long getBlockPoolUsed() {
-    return blockPoolUsed;
+  long getBlockPoolUsed() {
+    return blockPoolUsed.sum();
   }
 
-  synchronized int getXceiverCount() {
-    return xceiverCount;
+  int getXceiverCount() {
+    return xceiverCount.intValue();
   }
 
-  synchronized long getCacheCapacity() {
-    return cacheCapacity;
+  long getCacheCapacity() {
+    return cacheCapacity.sum();
   }
 
-  synchronized long getCacheUsed() {
-    return cacheUsed;
+  long getCacheUsed() {
+    return cacheUsed.sum();
   }
 
-  synchronized int getNodesInService() {
-    return nodesInService;
+  int getNodesInService() {
+    return nodesInService.intValue();
   }
 
-  synchronized int getNodesInServiceXceiverCount() {
-    return nodesInServiceXceiverCount;
+  int getNodesInServiceXceiverCount() {
+    return nodesInServiceXceiverCount.intValue();
   }
 
-  synchronized int getNodesInServiceAvailableVolumeCount() {
-    return nodesInServiceAvailableVolumeCount;
+  int getNodesInServiceAvailableVolumeCount() {
+    return nodesInServiceAvailableVolumeCount.intValue();
   }
 
-  synchronized int getExpiredHeartbeats() {
-    return expiredHeartbeats;
+  int getExpiredHeartbeats() {
+    return expiredHeartbeats.intValue();
   }
 
-  synchronized float getCapacityRemainingPercent() {
-    return DFSUtilClient.getPercentRemaining(capacityRemaining, capacityTotal);
+  float getCapacityRemainingPercent() {
+    return DFSUtilClient.getPercentRemaining(getCapacityRemaining(),
+        getCapacityTotal());
   }
 
-  synchronized float getPercentBlockPoolUsed() {
-    return DFSUtilClient.getPercentUsed(blockPoolUsed, capacityTotal);
+  float getPercentBlockPoolUsed() {
+    return DFSUtilClient.getPercentUsed(getBlockPoolUsed(),
+        getCapacityTotal());
   }
 
-  synchronized long getCapacityUsedNonDFS() {
-    return capacityUsedNonDfs;
+  long getCapacityUsedNonDFS() {
+    return capacityUsedNonDfs.sum();
   }
 
-  synchronized float getCapacityUsedPercent() {
-    return DFSUtilClient.getPercentUsed(capacityUsed, capacityTotal);
+  float getCapacityUsedPercent() {
+    return DFSUtilClient.getPercentUsed(getCapacityUsed(), getCapacityTotal());
   }
 
   static final class StorageTypeStatsMap {
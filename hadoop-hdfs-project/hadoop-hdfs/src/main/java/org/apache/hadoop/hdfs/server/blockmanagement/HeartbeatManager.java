@@ -40,8 +40,11 @@
 
 /**
  * Manage the heartbeats received from datanodes.
- * The datanode list and statistics are synchronized
- * by the heartbeat manager lock.
+ * The datanode list is synchronized by the heartbeat manager lock.
+ * Heartbeats and lifelines only take one of {@link #NUM_NODE_LOCKS} striped
+ * node locks, so that heartbeats from different datanodes do not serialize
+ * on the heartbeat manager. Every other update of the statistics of a live
+ * node takes the node lock inside the heartbeat manager lock.
  */
 class HeartbeatManager implements DatanodeStatistics {
   static final Logger LOG = LoggerFactory.getLogger(HeartbeatManager.class);
@@ -54,6 +57,8 @@ class HeartbeatManager implements DatanodeStatistics {
   private static final String REPORT_REMOVE_STALE_NODE_ENTRY =
       "StaleNodes Report: [Remove StaleNode]: %s";
   private static final int REPORT_STALE_NODE_NODES_PER_LINE = 10;
+  /** The number of striped node locks, a power of two. */
+  private static final int NUM_NODE_LOCKS = 64;
   /**
    * Stores a subset of the datanodeMap in DatanodeManager,
    * containing nodes that are considered alive.
@@ -63,8 +68,13 @@ class HeartbeatManager implements DatanodeStatistics {
    */
   private final List<DatanodeDescriptor> datanodes = new ArrayList<>();
 
-  /** Statistics, which are synchronized by the heartbeat manager lock. */
+  /**
+   * Statistics. The contribution of a node is only changed while holding its
+   * node lock, see {@link #getNodeLock(DatanodeDescriptor)}.
+   */
   private final DatanodeStats stats = new DatanodeStats();
+  /** Striped locks guarding the subtract/add of a node's statistics. */
+  private final Object[] nodeLocks = new Object[NUM_NODE_LOCKS];
 
   /** The time period to check for expired datanodes. */
   private final long heartbeatRecheckInterval;
@@ -85,6 +95,9 @@ class HeartbeatManager implements DatanodeStatistics {
       final BlockManager blockManager, final Configuration conf) {
     this.namesystem = namesystem;
     this.blockManager = blockManager;
+    for (int i = 0; i < nodeLocks.length; i++) {
+      nodeLocks[i] = new Object();
+    }
     boolean avoidStaleDataNodesForWrite = conf.getBoolean(
         DFSConfigKeys.DFS_NAMENODE_AVOID_STALE_DATANODE_FOR_WRITE_KEY,
         DFSConfigKeys.DFS_NAMENODE_AVOID_STALE_DATANODE_FOR_WRITE_DEFAULT);
@@ -200,7 +213,7 @@ public long getCacheUsed() {
   }
 
   @Override
-  public synchronized long[] getStats() {
+  public long[] getStats() {
     return new long[] {getCapacityTotal(),
                        getCapacityUsed(),
                        getCapacityRemaining(),
@@ -227,13 +240,24 @@ public long getProvidedCapacity() {
     return blockManager.getProvidedCapacity();
   }
 
+  /**
+   * @return the striped lock serializing the statistics updates of the node.
+   * The identity hash is used since the node's ID may change on
+   * re-registration.
+   */
+  private Object getNodeLock(final DatanodeDescriptor node) {
+    return nodeLocks[System.identityHashCode(node) & (NUM_NODE_LOCKS - 1)];
+  }
+
   synchronized void register(final DatanodeDescriptor d) {
     if (!d.isAlive()) {
       addDatanode(d);
 
       //update its timestamp
-      d.updateHeartbeatState(StorageReport.EMPTY_ARRAY, 0L, 0L, 0, 0, null);
-      stats.add(d);
+      synchronized (getNodeLock(d)) {
+        d.updateHeartbeatState(StorageReport.EMPTY_ARRAY, 0L, 0L, 0, 0, null);
+        stats.add(d);
+      }
     }
   }
 
@@ -248,45 +272,53 @@ synchronized void addDatanode(final DatanodeDescriptor d) {
   }
 
   void updateDnStat(final DatanodeDescriptor d){
-    stats.add(d);
+    synchronized (getNodeLock(d)) {
+      stats.add(d);
+    }
   }
 
   synchronized void removeDatanode(DatanodeDescriptor node) {
     if (node.isAlive()) {
-      stats.subtract(node);
+      synchronized (getNodeLock(node)) {
+        stats.subtract(node);
+      }
       datanodes.remove(node);
       removeNodeFromStaleList(node);
       node.setAlive(false);
     }
   }
 
-  synchronized void updateHeartbeat(final DatanodeDescriptor node,
+  void updateHeartbeat(final DatanodeDescriptor node,
       StorageReport[] reports, long cacheCapacity, long cacheUsed,
       int xceiverCount, int failedVolumes,
       VolumeFailureSummary volumeFailureSummary) {
-    stats.subtract(node);
-    try {
-      blockManager.updateHeartbeat(node, reports, cacheCapacity, cacheUsed,
-          xceiverCount, failedVolumes, volumeFailureSummary);
-    } finally {
-      stats.add(node);
+    synchronized (getNodeLock(node)) {
+      stats.subtract(node);
+      try {
+        blockManager.updateHeartbeat(node, reports, cacheCapacity, cacheUsed,
+            xceiverCount, failedVolumes, volumeFailureSummary);
+      } finally {
+        stats.add(node);
+      }
     }
   }
 
-  synchronized void updateLifeline(final DatanodeDescriptor node,
+  void updateLifeline(final DatanodeDescriptor node,
       StorageReport[] reports, long cacheCapacity, long cacheUsed,
       int xceiverCount, int failedVolumes,
       VolumeFailureSummary volumeFailureSummary) {
-    stats.subtract(node);
-    try {
-      // This intentionally calls updateHeartbeatState instead of
-      // updateHeartbeat, because we don't want to modify the
-      // heartbeatedSinceRegistration flag.  Arrival of a lifeline message does
-      // not count as arrival of the first heartbeat.
-      blockManager.updateHeartbeatState(node, reports, cacheCapacity, cacheUsed,
-          xceiverCount, failedVolumes, volumeFailureSummary);
-    } finally {
-      stats.add(node);
+    synchronized (getNodeLock(node)) {
+      stats.subtract(node);
+      try {
+        // This intentionally calls updateHeartbeatState instead of
+        // updateHeartbeat, because we don't want to modify the
+        // heartbeatedSinceRegistration flag.  Arrival of a lifeline message
+        // does not count as arrival of the first heartbeat.
+        blockManager.updateHeartbeatState(node, reports, cacheCapacity,
+            cacheUsed, xceiverCount, failedVolumes, volumeFailureSummary);
+      } finally {
+        stats.add(node);
+      }
     }
   }
 
@@ -295,9 +327,11 @@ synchronized void startDecommission(final DatanodeDescriptor node) {
       LOG.info("Dead node {} is decommissioned immediately.", node);
       node.setDecommissioned();
     } else {
-      stats.subtract(node);
-      node.startDecommission();
-      stats.add(node);
+      synchronized (getNodeLock(node)) {
+        stats.subtract(node);
+        node.startDecommission();
+        stats.add(node);
+      }
     }
   }
 
@@ -306,19 +340,21 @@ synchronized void startMaintenance(final DatanodeDescriptor node) {
       LOG.info("Dead node {} is put in maintenance state immediately.", node);
       node.setInMaintenance();
     } else {
-      stats.subtract(node);
-      if (node.isDecommissioned()) {
-        LOG.info("Decommissioned node " + node + " is put in maintenance state"
-            + " immediately.");
-        node.setInMaintenance();
-      } else if (blockManager.getMinReplicationToBeInMaintenance() == 0) {
-        LOG.info("MinReplicationToBeInMaintenance is set to zero. " + node +
-            " is put in maintenance state" + " immediately.");
-        node.setInMaintenance();
-      } else {
-        node.startMaintenance();
+      synchronized (getNodeLock(node)) {
+        stats.subtract(node);
+        if (node.isDecommissioned()) {
+          LOG.info("Decommissioned node " + node + " is put in maintenance"
+              + " state immediately.");
+          node.setInMaintenance();
+        } else if (blockManager.getMinReplicationToBeInMaintenance() == 0) {
+          LOG.info("MinReplicationToBeInMaintenance is set to zero. " + node +
+              " is put in maintenance state" + " immediately.");
+          node.setInMaintenance();
+        } else {
+          node.startMaintenance();
+        }
+        stats.add(node);
       }
-      stats.add(node);
     }
   }
 
@@ -328,9 +364,11 @@ synchronized void stopMaintenance(final DatanodeDescriptor node) {
     if (!node.isAlive()) {
       node.stopMaintenance();
     } else {
-      stats.subtract(node);
-      node.stopMaintenance();
-      stats.add(node);
+      synchronized (getNodeLock(node)) {
+        stats.subtract(node);
+        node.stopMaintenance();
+        stats.add(node);
+      }
     }
   }
 
@@ -340,9 +378,11 @@ synchronized void stopDecommission(final DatanodeDescriptor node) {
     if (!node.isAlive()) {
       node.stopDecommission();
     } else {
-      stats.subtract(node);
-      node.stopDecommission();
-      stats.add(node);
+      synchronized (getNodeLock(node)) {
+        stats.subtract(node);
+        node.stopDecommission();
+        stats.add(node);
+      }
     }
   }
 
@@ -29,10 +29,13 @@
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.Checksum;
 
@@ -94,7 +97,16 @@ class BlockReceiver implements Closeable {
   private final int bytesPerChecksum;
   private final int checksumSize;
   
-  private final PacketReceiver packetReceiver = new PacketReceiver(false);
+  private PacketReceiver packetReceiver = new PacketReceiver(false);
+  /** Reused for the checksums of packets received without checksums. */
+  private ByteBuffer computedChecksumBuf;
+  /** Reused to write the checksums of packets in direct buffers. */
+  private ByteBuffer heapChecksumBuf;
+  /** The channels of the pipeline when packets are forwarded directly. */
+  private ReadableByteChannel inChannel;
+  private WritableByteChannel mirrorChannel;
+  /** Fraction of packets verified when not the last datanode. */
+  private final float checksumSampleRatio;
   
   protected final String inAddr;
   protected final String myAddr;
@@ -260,6 +272,8 @@ class BlockReceiver implements Closeable {
       this.syncBehindWrites = datanode.getDnConf().syncBehindWrites;
       this.syncBehindWritesInBackground = datanode.getDnConf().
           syncBehindWritesInBackground;
+      this.checksumSampleRatio = datanode.getDnConf().
+          pipelineChecksumSampleRatio;
       
       final boolean isCreate = isDatanode || isTransfer 
           || stage == BlockConstructionStage.PIPELINE_SETUP_CREATE;
@@ -545,13 +559,58 @@ private boolean shouldVerifyChecksum() {
     return (mirrorOut == null || isDatanode || needsChecksumTranslation);
   }
 
+  /**
+   * Check whether the checksums of the next packet are verified: always if
+   * {@link #shouldVerifyChecksum()}, otherwise for a sampled fraction of
+   * the packets configured by dfs.datanode.pipeline.checksum.sample.ratio.
+   */
+  private boolean shouldVerifyPacketChecksum() {
+    return shouldVerifyChecksum() || (checksumSampleRatio > 0
+        && ThreadLocalRandom.current().nextFloat() < checksumSampleRatio);
+  }
+
+  /**
+   * Forward the packets of the block directly: receive them from the
+   * upstream channel into pooled direct buffers, write them to the
+   * downstream channel and write their data to disk from the same buffer.
+   * Both channels must not be wrapped by SASL.
+   */
+  void setForwardingChannels(ReadableByteChannel upstream,
+      WritableByteChannel downstream) {
+    packetReceiver.close();
+    packetReceiver = new PacketReceiver(true);
+    inChannel = upstream;
+    mirrorChannel = downstream;
+  }
+
+  /**
+   * Copy the checksums of a packet in a direct buffer to a reused heap
+   * buffer. The checksums are small compared to the data.
+   */
+  private ByteBuffer copyToHeap(ByteBuffer checksums) {
+    final int checksumLen = checksums.remaining();
+    if (heapChecksumBuf == null || heapChecksumBuf.capacity() < checksumLen) {
+      heapChecksumBuf = ByteBuffer.allocate(checksumLen);
+    }
+    heapChecksumBuf.clear();
+    heapChecksumBuf.put(checksums.duplicate()).flip();
+    return heapChecksumBuf.slice();
+  }
+
   /** 
    * Receives and processes a packet. It can contain many chunks.
    * returns the number of data bytes that the packet has.
    */
   private int receivePacket() throws IOException {
     // read the next packet
-    packetReceiver.receiveNextPacket(in);
+    long readStart = System.nanoTime();
+    if (inChannel != null) {
+      packetReceiver.receiveNextPacket(inChannel);
+    } else {
+      packetReceiver.receiveNextPacket(in);
+    }
+    datanode.metrics.addReceivePacketNetworkReadNanos(
+        System.nanoTime() - readStart);
 
     PacketHeader header = packetReceiver.getHeader();
     long seqno = header.getSeqno();
@@ -591,8 +650,9 @@ private int receivePacket() throws IOException {
       replicaInfo.setNumBytes(offsetInBlock);
     }
     
+    final boolean verifyChecksum = shouldVerifyPacketChecksum();
     // put in queue for pending acks, unless sync was requested
-    if (responder != null && !syncBlock && !shouldVerifyChecksum()) {
+    if (responder != null && !syncBlock && !verifyChecksum) {
       ((PacketResponder) responder.getRunnable()).enqueue(seqno,
           lastPacketInBlock, offsetInBlock, Status.SUCCESS);
     }
@@ -610,10 +670,18 @@ private int receivePacket() throws IOException {
     if (mirrorOut != null && !mirrorError) {
       try {
         long begin = Time.monotonicNow();
+        long beginNanos = System.nanoTime();
         // For testing. Normally no-op.
         DataNodeFaultInjector.get().stopSendingPacketDownstream(mirrorAddr);
-        packetReceiver.mirrorPacketTo(mirrorOut);
-        mirrorOut.flush();
+        if (mirrorChannel != null) {
+          packetReceiver.mirrorPacketTo(mirrorChannel);
+          datanode.metrics.incrPacketsForwardedDirect();
+        } else {
+          packetReceiver.mirrorPacketTo(mirrorOut);
+          mirrorOut.flush();
+        }
+        datanode.metrics.addReceivePacketMirrorWriteNanos(
+            System.nanoTime() - beginNanos);
         long now = Time.monotonicNow();
         this.lastSentTime.set(now);
         long duration = now - begin;
@@ -656,7 +724,8 @@ private int receivePacket() throws IOException {
             + checksumReceivedLen + " but expected length is " + checksumLen);
       }
 
-      if (checksumReceivedLen > 0 && shouldVerifyChecksum()) {
+      if (checksumReceivedLen > 0 && verifyChecksum) {
+        long verifyStart = System.nanoTime();
         try {
           verifyChunks(dataBuf, checksumBuf);
         } catch (IOException ioe) {
@@ -679,11 +748,20 @@ private int receivePacket() throws IOException {
           // appropriate polynomial for the disk storage.
           translateChunks(dataBuf, checksumBuf);
         }
+        datanode.metrics.addReceivePacketChecksumNanos(
+            System.nanoTime() - verifyStart);
       }
 
       if (checksumReceivedLen == 0 && !streams.isTransientStorage()) {
         // checksum is missing, need to calculate it
-        checksumBuf = ByteBuffer.allocate(checksumLen);
+        if (computedChecksumBuf == null
+            || computedChecksumBuf.capacity() < checksumLen) {
+          computedChecksumBuf = dataBuf.isDirect() ?
+              ByteBuffer.allocateDirect(checksumLen) :
+              ByteBuffer.allocate(checksumLen);
+        }
+        computedChecksumBuf.clear().limit(checksumLen);
+        checksumBuf = computedChecksumBuf.slice();
         diskChecksum.calculateChunkedSums(dataBuf, checksumBuf);
       }
       
@@ -750,15 +828,18 @@ private int receivePacket() throws IOException {
           // data and on-disk data have no overlap, this will not be at the
           // beginning of the buffer.
           int startByteToDisk = (int)(onDiskLen-firstByteInBlock) 
-              + dataBuf.arrayOffset() + dataBuf.position();
+              + dataBuf.position();
 
           // Actual number of data bytes to write.
           int numBytesToDisk = (int)(offsetInBlock-onDiskLen);
           
           // Write data to disk.
           long begin = Time.monotonicNow();
-          streams.writeDataToDisk(dataBuf.array(),
-              startByteToDisk, numBytesToDisk);
+          long beginNanos = System.nanoTime();
+          ByteBuffer dataToDisk = dataBuf.duplicate();
+          dataToDisk.limit(startByteToDisk + numBytesToDisk);
+          dataToDisk.position(startByteToDisk);
+          streams.writeDataToDisk(dataToDisk);
           // no-op in prod
           DataNodeFaultInjector.get().delayWriteToDisk();
           long duration = Time.monotonicNow() - begin;
@@ -799,8 +880,17 @@ duration, datanodeSlowLogThresholdMs, getVolumeBaseUri(),
                 bytesToReadForRecalc = numBytesToDisk;
               }
 
-              partialCrc.update(dataBuf.array(), startByteToDisk,
-                  bytesToReadForRecalc);
+              if (dataBuf.hasArray()) {
+                partialCrc.update(dataBuf.array(),
+                    dataBuf.arrayOffset() + startByteToDisk,
+                    bytesToReadForRecalc);
+              } else {
+                byte[] partialChunk = new byte[bytesToReadForRecalc];
+                ByteBuffer chunk = dataBuf.duplicate();
+                chunk.position(startByteToDisk);
+                chunk.get(partialChunk);
+                partialCrc.update(partialChunk, 0, bytesToReadForRecalc);
+              }
               byte[] buf = FSOutputSummer.convertToByteStream(partialCrc,
                   checksumSize);
               crcBytes = copyLastChunkChecksum(buf, checksumSize, buf.length);
@@ -824,6 +914,9 @@ duration, datanodeSlowLogThresholdMs, getVolumeBaseUri(),
             }
             skip *= checksumSize; // Convert to number of bytes
 
+            if (!checksumBuf.hasArray()) {
+              checksumBuf = copyToHeap(checksumBuf);
+            }
             // write the rest of checksum
             final int offset = checksumBuf.arrayOffset() +
                 checksumBuf.position() + skip;
@@ -840,6 +933,8 @@ duration, datanodeSlowLogThresholdMs, getVolumeBaseUri(),
               checksumOut.write(checksumBuf.array(), offset, remainingBytes);
             }
           }
+          datanode.metrics.addReceivePacketDiskWriteNanos(
+              System.nanoTime() - beginNanos);
 
           /// flush entire packet, sync if requested
           flushOrSync(syncBlock, seqno);
@@ -859,7 +954,7 @@ duration, datanodeSlowLogThresholdMs, getVolumeBaseUri(),
 
     // if sync was requested, put in queue for pending acks here
     // (after the fsync finished)
-    if (responder != null && (syncBlock || shouldVerifyChecksum())) {
+    if (responder != null && (syncBlock || verifyChecksum)) {
       ((PacketResponder) responder.getRunnable()).enqueue(seqno,
           lastPacketInBlock, offsetInBlock, Status.SUCCESS);
     }
@@ -97,6 +97,8 @@ public class DNConf {
   final boolean dropCacheBehindWrites;
   final boolean syncBehindWrites;
   final boolean syncBehindWritesInBackground;
+  final boolean pipelineDirectForwarding;
+  final float pipelineChecksumSampleRatio;
   final boolean dropCacheBehindReads;
   final boolean syncOnClose;
   final boolean encryptDataTransfer;
@@ -183,6 +185,12 @@ public DNConf(final Configurable dn) {
     syncBehindWritesInBackground = getConf().getBoolean(
         DFSConfigKeys.DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_KEY,
         DFSConfigKeys.DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_DEFAULT);
+    pipelineDirectForwarding = getConf().getBoolean(
+        DFSConfigKeys.DFS_DATANODE_PIPELINE_DIRECT_FORWARDING_ENABLED_KEY,
+        DFSConfigKeys.DFS_DATANODE_PIPELINE_DIRECT_FORWARDING_ENABLED_DEFAULT);
+    pipelineChecksumSampleRatio = getConf().getFloat(
+        DFSConfigKeys.DFS_DATANODE_PIPELINE_CHECKSUM_SAMPLE_RATIO_KEY,
+        DFSConfigKeys.DFS_DATANODE_PIPELINE_CHECKSUM_SAMPLE_RATIO_DEFAULT);
     dropCacheBehindReads = getConf().getBoolean(
         DFSConfigKeys.DFS_DATANODE_DROP_CACHE_BEHIND_READS_KEY,
         DFSConfigKeys.DFS_DATANODE_DROP_CACHE_BEHIND_READS_DEFAULT);
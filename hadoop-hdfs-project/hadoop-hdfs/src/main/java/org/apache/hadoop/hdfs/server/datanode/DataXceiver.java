@@ -85,7 +85,10 @@
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
@@ -117,6 +120,8 @@ class DataXceiver extends Receiver implements Runnable {
   private final boolean connectToDnViaHostname;
   private long opStartTime; //the start time of receiving an Op
   private final InputStream socketIn;
+  /** The input as a channel, null if it is wrapped by SASL. */
+  private ReadableByteChannel inChannel;
   private OutputStream socketOut;
   private BlockReceiver blockReceiver = null;
   private final int ioFileBufferSize;
@@ -236,8 +241,17 @@ public void run() {
         IOStreamPair saslStreams = datanode.saslServer.receive(peer, socketOut,
           socketIn, datanode.getXferAddress().getPort(),
           datanode.getDatanodeId());
-        input = new BufferedInputStream(saslStreams.in,
-            smallBufferSize);
+        ReadableByteChannel socketInChannel = peer.getInputStreamChannel();
+        if (saslStreams.in == socketIn && socketInChannel != null) {
+          ChannelBufferedInputStream channelInput =
+              new ChannelBufferedInputStream(saslStreams.in, smallBufferSize,
+                  socketInChannel);
+          inChannel = channelInput;
+          input = channelInput;
+        } else {
+          input = new BufferedInputStream(saslStreams.in,
+              smallBufferSize);
+        }
         socketOut = saslStreams.out;
       } catch (InvalidMagicNumberException imne) {
         if (imne.isHandshake4Encryption()) {
@@ -762,6 +776,7 @@ public void writeBlock(final ExtendedBlock block,
     DataOutputStream mirrorOut = null;  // stream to next target
     DataInputStream mirrorIn = null;    // reply from next target
     Socket mirrorSock = null;           // socket to next target
+    WritableByteChannel mirrorChannel = null; // next target without SASL
     String mirrorNode = null;           // the name:port of next target
     String firstBadLink = "";           // first datanode that failed in connection setup
     Status mirrorInStatus = SUCCESS;
@@ -828,6 +843,10 @@ public void writeBlock(final ExtendedBlock block,
           IOStreamPair saslStreams = datanode.saslClient.socketSend(
               mirrorSock, unbufMirrorOut, unbufMirrorIn, keyFactory,
               blockToken, targets[0], secretKey);
+          if (saslStreams.out == unbufMirrorOut
+              && unbufMirrorOut instanceof WritableByteChannel) {
+            mirrorChannel = (WritableByteChannel) unbufMirrorOut;
+          }
           unbufMirrorOut = saslStreams.out;
           unbufMirrorIn = saslStreams.in;
           mirrorOut = new DataOutputStream(new BufferedOutputStream(unbufMirrorOut,
@@ -888,6 +907,7 @@ public void writeBlock(final ExtendedBlock block,
           mirrorIn = null;
           IOUtils.closeSocket(mirrorSock);
           mirrorSock = null;
+          mirrorChannel = null;
           if (isClient) {
             LOG.error("{}:Exception transferring block {} to mirror {}",
                 datanode, block, mirrorNode, e);
@@ -917,6 +937,10 @@ public void writeBlock(final ExtendedBlock block,
       // receive the block and mirror to the next target
       if (blockReceiver != null) {
         String mirrorAddr = (mirrorSock == null) ? null : mirrorNode;
+        if (dnConf.pipelineDirectForwarding && inChannel != null
+            && mirrorChannel != null) {
+          blockReceiver.setForwardingChannels(inChannel, mirrorChannel);
+        }
         blockReceiver.receiveBlock(mirrorOut, mirrorIn, replyOut, mirrorAddr,
             dataXceiverServer.getWriteThrottler(), targets, false);
 
@@ -1491,4 +1515,42 @@ private void decrReadWriteOpMetrics(Op op) {
       datanode.getMetrics().decrDataNodeWriteActiveXceiversCount();
     }
   }
+
+  /**
+   * A {@link BufferedInputStream} that can also be read as a channel. A
+   * channel read first returns the bytes already buffered by the stream.
+   */
+  private static final class ChannelBufferedInputStream
+      extends BufferedInputStream implements ReadableByteChannel {
+    private final ReadableByteChannel channel;
+
+    ChannelBufferedInputStream(InputStream in, int size,
+        ReadableByteChannel channel) {
+      super(in, size);
+      this.channel = channel;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+      // The bytes read from the channel are not buffered, so they cannot
+      // be returned again by a reset.
+      markpos = -1;
+      if (buf == null) {
+        throw new IOException("Stream closed");
+      }
+      final int buffered = count - pos;
+      if (buffered > 0) {
+        final int n = Math.min(buffered, dst.remaining());
+        dst.put(buf, pos, n);
+        pos += n;
+        return n;
+      }
+      return channel.read(dst);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+  }
 }
@@ -47,6 +47,7 @@
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
@@ -138,6 +139,33 @@ public void flush(
     }
   }
 
+  /**
+   * Write the remaining bytes of a buffer to the given
+   * {@link FileOutputStream} through its channel. A direct buffer is
+   * written without a copy to the heap.
+   *
+   * @param  volume target volume. null if unavailable.
+   * @param  fos file output stream to write to.
+   * @param  buf buffer whose remaining bytes are written.
+   * @throws IOException
+   */
+  public void write(@Nullable FsVolumeSpi volume, FileOutputStream fos,
+      ByteBuffer buf) throws IOException {
+    final long len = buf.remaining();
+    final long begin = profilingEventHook.beforeFileIo(volume, WRITE, len);
+    try {
+      faultInjectorEventHook.beforeFileIo(volume, WRITE, len);
+      final FileChannel channel = fos.getChannel();
+      while (buf.hasRemaining()) {
+        channel.write(buf);
+      }
+      profilingEventHook.afterFileIo(volume, WRITE, begin, len);
+    } catch (Exception e) {
+      onFailure(volume, begin);
+      throw e;
+    }
+  }
+
   /**
    * Sync the given {@link FileOutputStream}.
    *
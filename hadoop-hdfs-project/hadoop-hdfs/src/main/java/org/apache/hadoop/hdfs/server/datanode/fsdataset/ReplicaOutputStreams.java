@@ -22,6 +22,7 @@
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.hadoop.hdfs.server.datanode.DataNode;
 import org.apache.hadoop.hdfs.server.datanode.FileIoProvider;
@@ -148,6 +149,23 @@ public void writeDataToDisk(byte[] b, int off, int len)
     dataOut.write(b, off, len);
   }
 
+  /**
+   * Write the remaining bytes of the buffer to the data file. A direct
+   * buffer is written through the file channel without a copy.
+   */
+  public void writeDataToDisk(ByteBuffer b) throws IOException {
+    if (b.hasArray()) {
+      dataOut.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+      b.position(b.limit());
+    } else if (dataOut instanceof FileOutputStream) {
+      fileIoProvider.write(volume, (FileOutputStream) dataOut, b);
+    } else {
+      byte[] copy = new byte[b.remaining()];
+      b.get(copy);
+      dataOut.write(copy);
+    }
+  }
+
   public void syncFileRangeIfPossible(long offset, long nbytes,
       int flags) throws NativeIOException {
     fileIoProvider.syncFileRange(
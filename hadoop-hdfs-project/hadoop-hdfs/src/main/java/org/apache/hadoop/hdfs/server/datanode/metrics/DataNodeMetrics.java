@@ -31,7 +31,7 @@
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableQuantiles;
-import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.metrics2.lib.MutableStripedRate;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
 import org.apache.hadoop.metrics2.lib.MutableRatesWithAggregation;
@@ -61,7 +61,7 @@ public class DataNodeMetrics {
   @Metric MutableCounterLong bytesRead;
   @Metric("Milliseconds spent reading")
   MutableCounterLong totalReadTime;
-  @Metric private MutableRate readTransferRate;
+  @Metric private MutableStripedRate readTransferRate;
   final private MutableQuantiles[] readTransferRateQuantiles;
   @Metric MutableCounterLong blocksWritten;
   @Metric MutableCounterLong blocksRead;
@@ -90,7 +90,7 @@ public class DataNodeMetrics {
   // RamDisk metrics on eviction
   @Metric MutableCounterLong ramDiskBlocksEvicted;
   @Metric MutableCounterLong ramDiskBlocksEvictedWithoutRead;
-  @Metric MutableRate        ramDiskBlocksEvictionWindowMs;
+  @Metric MutableStripedRate ramDiskBlocksEvictionWindowMs;
   final MutableQuantiles[]   ramDiskBlocksEvictionWindowMsQuantiles;
 
 
@@ -98,7 +98,7 @@ public class DataNodeMetrics {
   @Metric MutableCounterLong ramDiskBlocksLazyPersisted;
   @Metric MutableCounterLong ramDiskBlocksDeletedBeforeLazyPersisted;
   @Metric MutableCounterLong ramDiskBytesLazyPersisted;
-  @Metric MutableRate        ramDiskBlocksLazyPersistWindowMs;
+  @Metric MutableStripedRate ramDiskBlocksLazyPersistWindowMs;
   final MutableQuantiles[]   ramDiskBlocksLazyPersistWindowMsQuantiles;
 
   @Metric MutableCounterLong fsyncCount;
@@ -123,32 +123,41 @@ public class DataNodeMetrics {
   @Metric("Count of active DataNode block recovery worker")
   private MutableGaugeInt dataNodeBlockRecoveryWorkerCount;
 
-  @Metric MutableRate readBlockOp;
-  @Metric MutableRate writeBlockOp;
-  @Metric MutableRate blockChecksumOp;
-  @Metric MutableRate copyBlockOp;
-  @Metric MutableRate replaceBlockOp;
-  @Metric MutableRate heartbeats;
-  @Metric MutableRate heartbeatsTotal;
-  @Metric MutableRate lifelines;
-  @Metric MutableRate blockReports;
-  @Metric private MutableRate blockReportsCreateCostMills;
-  @Metric MutableRate incrementalBlockReports;
-  @Metric MutableRate cacheReports;
-  @Metric MutableRate packetAckRoundTripTimeNanos;
+  @Metric MutableStripedRate readBlockOp;
+  @Metric MutableStripedRate writeBlockOp;
+  @Metric MutableStripedRate blockChecksumOp;
+  @Metric MutableStripedRate copyBlockOp;
+  @Metric MutableStripedRate replaceBlockOp;
+  @Metric MutableStripedRate heartbeats;
+  @Metric MutableStripedRate heartbeatsTotal;
+  @Metric MutableStripedRate lifelines;
+  @Metric MutableStripedRate blockReports;
+  @Metric private MutableStripedRate blockReportsCreateCostMills;
+  @Metric MutableStripedRate incrementalBlockReports;
+  @Metric MutableStripedRate cacheReports;
+  @Metric MutableStripedRate packetAckRoundTripTimeNanos;
   final MutableQuantiles[] packetAckRoundTripTimeNanosQuantiles;
   
-  @Metric MutableRate flushNanos;
+  @Metric MutableStripedRate flushNanos;
   final MutableQuantiles[] flushNanosQuantiles;
   
-  @Metric MutableRate fsyncNanos;
+  @Metric MutableStripedRate fsyncNanos;
   final MutableQuantiles[] fsyncNanosQuantiles;
   
-  @Metric MutableRate sendDataPacketBlockedOnNetworkNanos;
+  @Metric MutableStripedRate sendDataPacketBlockedOnNetworkNanos;
   final MutableQuantiles[] sendDataPacketBlockedOnNetworkNanosQuantiles;
-  @Metric MutableRate sendDataPacketTransferNanos;
+  @Metric MutableStripedRate sendDataPacketTransferNanos;
   final MutableQuantiles[] sendDataPacketTransferNanosQuantiles;
 
+  @Metric MutableStripedRate receivePacketNetworkReadNanos;
+  final MutableQuantiles[] receivePacketNetworkReadNanosQuantiles;
+  @Metric MutableStripedRate receivePacketMirrorWriteNanos;
+  final MutableQuantiles[] receivePacketMirrorWriteNanosQuantiles;
+  @Metric MutableStripedRate receivePacketChecksumNanos;
+  final MutableQuantiles[] receivePacketChecksumNanosQuantiles;
+  @Metric MutableStripedRate receivePacketDiskWriteNanos;
+  final MutableQuantiles[] receivePacketDiskWriteNanosQuantiles;
+
   @Metric("Count of blocks in pending IBR")
   private MutableGaugeLong blocksInPendingIBR;
   @Metric("Count of blocks at receiving status in pending IBR")
@@ -184,20 +193,22 @@ public class DataNodeMetrics {
   @Metric("Num of processed commands of all BPServiceActors")
   private MutableCounterLong numProcessedCommands;
   @Metric("Rate of processed commands of all BPServiceActors")
-  private MutableRate processedCommandsOp;
+  private MutableStripedRate processedCommandsOp;
 
   // FsDatasetImpl local file process metrics.
-  @Metric private MutableRate createRbwOp;
-  @Metric private MutableRate recoverRbwOp;
-  @Metric private MutableRate convertTemporaryToRbwOp;
-  @Metric private MutableRate createTemporaryOp;
-  @Metric private MutableRate finalizeBlockOp;
-  @Metric private MutableRate unfinalizeBlockOp;
-  @Metric private MutableRate checkAndUpdateOp;
-  @Metric private MutableRate updateReplicaUnderRecoveryOp;
+  @Metric private MutableStripedRate createRbwOp;
+  @Metric private MutableStripedRate recoverRbwOp;
+  @Metric private MutableStripedRate convertTemporaryToRbwOp;
+  @Metric private MutableStripedRate createTemporaryOp;
+  @Metric private MutableStripedRate finalizeBlockOp;
+  @Metric private MutableStripedRate unfinalizeBlockOp;
+  @Metric private MutableStripedRate checkAndUpdateOp;
+  @Metric private MutableStripedRate updateReplicaUnderRecoveryOp;
 
   @Metric MutableCounterLong packetsReceived;
   @Metric MutableCounterLong packetsSlowWriteToMirror;
+  @Metric("Packets forwarded downstream from direct buffers")
+  MutableCounterLong packetsForwardedDirect;
   @Metric MutableCounterLong packetsSlowWriteToDisk;
   @Metric MutableCounterLong packetsSlowWriteToOsCache;
   @Metric private MutableCounterLong slowFlushOrSyncCount;
@@ -234,34 +245,59 @@ public DataNodeMetrics(String name, String sessionId, int[] intervals,
     fsyncNanosQuantiles = new MutableQuantiles[len];
     sendDataPacketBlockedOnNetworkNanosQuantiles = new MutableQuantiles[len];
     sendDataPacketTransferNanosQuantiles = new MutableQuantiles[len];
+    receivePacketNetworkReadNanosQuantiles = new MutableQuantiles[len];
+    receivePacketMirrorWriteNanosQuantiles = new MutableQuantiles[len];
+    receivePacketChecksumNanosQuantiles = new MutableQuantiles[len];
+    receivePacketDiskWriteNanosQuantiles = new MutableQuantiles[len];
     ramDiskBlocksEvictionWindowMsQuantiles = new MutableQuantiles[len];
     ramDiskBlocksLazyPersistWindowMsQuantiles = new MutableQuantiles[len];
     readTransferRateQuantiles = new MutableQuantiles[len];
 
     for (int i = 0; i < len; i++) {
       int interval = intervals[i];
-      packetAckRoundTripTimeNanosQuantiles[i] = registry.newQuantiles(
+      packetAckRoundTripTimeNanosQuantiles[i] = registry.newHistogramQuantiles(
           "packetAckRoundTripTimeNanos" + interval + "s",
           "Packet Ack RTT in ns", "ops", "latency", interval);
-      flushNanosQuantiles[i] = registry.newQuantiles(
+      flushNanosQuantiles[i] = registry.newHistogramQuantiles(
           "flushNanos" + interval + "s", 
           "Disk flush latency in ns", "ops", "latency", interval);
-      fsyncNanosQuantiles[i] = registry.newQuantiles(
+      fsyncNanosQuantiles[i] = registry.newHistogramQuantiles(
           "fsyncNanos" + interval + "s", "Disk fsync latency in ns", 
           "ops", "latency", interval);
-      sendDataPacketBlockedOnNetworkNanosQuantiles[i] = registry.newQuantiles(
+      sendDataPacketBlockedOnNetworkNanosQuantiles[i] =
+          registry.newHistogramQuantiles(
           "sendDataPacketBlockedOnNetworkNanos" + interval + "s", 
           "Time blocked on network while sending a packet in ns",
           "ops", "latency", interval);
-      sendDataPacketTransferNanosQuantiles[i] = registry.newQuantiles(
+      sendDataPacketTransferNanosQuantiles[i] = registry.newHistogramQuantiles(
           "sendDataPacketTransferNanos" + interval + "s", 
           "Time reading from disk and writing to network while sending " +
           "a packet in ns", "ops", "latency", interval);
-      ramDiskBlocksEvictionWindowMsQuantiles[i] = registry.newQuantiles(
+      receivePacketNetworkReadNanosQuantiles[i] =
+          registry.newHistogramQuantiles(
+          "receivePacketNetworkReadNanos" + interval + "s",
+          "Time reading a packet from the network while receiving a block " +
+          "in ns", "ops", "latency", interval);
+      receivePacketMirrorWriteNanosQuantiles[i] =
+          registry.newHistogramQuantiles(
+          "receivePacketMirrorWriteNanos" + interval + "s",
+          "Time writing a packet to the downstream datanode in ns",
+          "ops", "latency", interval);
+      receivePacketChecksumNanosQuantiles[i] = registry.newHistogramQuantiles(
+          "receivePacketChecksumNanos" + interval + "s",
+          "Time verifying the checksums of a received packet in ns",
+          "ops", "latency", interval);
+      receivePacketDiskWriteNanosQuantiles[i] = registry.newHistogramQuantiles(
+          "receivePacketDiskWriteNanos" + interval + "s",
+          "Time writing the data and checksums of a received packet to " +
+          "disk in ns", "ops", "latency", interval);
+      ramDiskBlocksEvictionWindowMsQuantiles[i] =
+          registry.newHistogramQuantiles(
           "ramDiskBlocksEvictionWindows" + interval + "s",
           "Time between the RamDisk block write and eviction in ms",
           "ops", "latency", interval);
-      ramDiskBlocksLazyPersistWindowMsQuantiles[i] = registry.newQuantiles(
+      ramDiskBlocksLazyPersistWindowMsQuantiles[i] =
+          registry.newHistogramQuantiles(
           "ramDiskBlocksLazyPersistWindows" + interval + "s",
           "Time between the RamDisk block write and disk persist in ms",
           "ops", "latency", interval);
@@ -502,6 +538,34 @@ public void addSendDataPacketTransferNanos(long latencyNanos) {
     }
   }
 
+  public void addReceivePacketNetworkReadNanos(long latencyNanos) {
+    receivePacketNetworkReadNanos.add(latencyNanos);
+    for (MutableQuantiles q : receivePacketNetworkReadNanosQuantiles) {
+      q.add(latencyNanos);
+    }
+  }
+
+  public void addReceivePacketMirrorWriteNanos(long latencyNanos) {
+    receivePacketMirrorWriteNanos.add(latencyNanos);
+    for (MutableQuantiles q : receivePacketMirrorWriteNanosQuantiles) {
+      q.add(latencyNanos);
+    }
+  }
+
+  public void addReceivePacketChecksumNanos(long latencyNanos) {
+    receivePacketChecksumNanos.add(latencyNanos);
+    for (MutableQuantiles q : receivePacketChecksumNanosQuantiles) {
+      q.add(latencyNanos);
+    }
+  }
+
+  public void addReceivePacketDiskWriteNanos(long latencyNanos) {
+    receivePacketDiskWriteNanos.add(latencyNanos);
+    for (MutableQuantiles q : receivePacketDiskWriteNanosQuantiles) {
+      q.add(latencyNanos);
+    }
+  }
+
   public void incrRamDiskBlocksWrite() {
     ramDiskBlocksWrite.incr();
   }
@@ -792,6 +856,10 @@ public void incrPacketsSlowWriteToMirror() {
     packetsSlowWriteToMirror.incr();
   }
 
+  public void incrPacketsForwardedDirect() {
+    packetsForwardedDirect.incr();
+  }
+
   public void incrPacketsSlowWriteToDisk() {
     packetsSlowWriteToDisk.incr();
   }
@@ -142,6 +142,7 @@
 import static org.apache.hadoop.hdfs.server.namenode.top.metrics.TopMetrics.TOPMETRICS_METRICS_SOURCE_NAME;
 
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.DataInput;
 import java.io.DataOutputStream;
 import java.io.File;
@@ -437,16 +438,24 @@ private void logAuditEvent(boolean succeeded, String cmd, String src,
   private void logAuditEvent(boolean succeeded,
       UserGroupInformation ugi, InetAddress addr, String cmd, String src,
       String dst, FileStatus status) {
-    final String ugiStr = ugi.toString();
+    // Only formatted if a logger needs it
+    String ugiStr = null;
     for (AuditLogger logger : auditLoggers) {
       if (logger instanceof HdfsAuditLogger) {
         HdfsAuditLogger hdfsLogger = (HdfsAuditLogger) logger;
         if (auditLogWithRemotePort) {
           appendClientPortToCallerContextIfAbsent();
         }
-        hdfsLogger.logAuditEvent(succeeded, ugiStr, addr, cmd, src, dst,
+        if (ugiStr == null && hdfsLogger.needsUserName()) {
+          ugiStr = ugi.toString();
+        }
+        hdfsLogger.logAuditEvent(succeeded,
+            hdfsLogger.needsUserName() ? ugiStr : null, addr, cmd, src, dst,
             status, CallerContext.getCurrent(), ugi, dtSecretManager);
       } else {
+        if (ugiStr == null) {
+          ugiStr = ugi.toString();
+        }
         logger.logAuditEvent(succeeded, ugiStr, addr, cmd, src, dst, status);
       }
     }
@@ -5695,6 +5704,13 @@ void shutdown() {
         LOG.error("Failed to close provider.", e);
       }
     }
+    if (auditLoggers != null) {
+      for (AuditLogger logger : auditLoggers) {
+        if (logger instanceof Closeable) {
+          IOUtils.cleanupWithLogger(LOG, (Closeable) logger);
+        }
+      }
+    }
   }
 
   @Override // FSNamesystemMBean
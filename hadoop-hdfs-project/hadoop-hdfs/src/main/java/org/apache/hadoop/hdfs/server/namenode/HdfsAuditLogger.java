@@ -76,4 +76,16 @@ public abstract void logAuditEvent(boolean succeeded, String userName,
       InetAddress addr, String cmd, String src, String dst,
       FileStatus stat, UserGroupInformation ugi,
       DelegationTokenSecretManager dtSecretManager);
+
+  /**
+   * @return whether the user name has to be passed to
+   * {@link #logAuditEvent(boolean, String, InetAddress, String, String,
+   * String, FileStatus, CallerContext, UserGroupInformation,
+   * DelegationTokenSecretManager)}. If false, the user name may be null and
+   * the logger formats it from the {@link UserGroupInformation} instead, so
+   * that the RPC handler does not spend the time to format it.
+   */
+  public boolean needsUserName() {
+    return true;
+  }
 }
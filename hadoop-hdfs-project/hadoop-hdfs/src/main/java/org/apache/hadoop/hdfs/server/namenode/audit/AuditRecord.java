@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.audit;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.security.UserGroupInformation;
+
+/**
+ * A single audit event. Instances are preallocated by the
+ * {@link AuditRingBuffer} and reused, so the handler thread only copies
+ * references into a record and leaves all formatting to the writer thread.
+ */
+@InterfaceAudience.Private
+public class AuditRecord {
+  private long timestamp;
+  private boolean succeeded;
+  private String userName;
+  /** Formatted to the user name by the writer thread if that is null. */
+  private UserGroupInformation ugi;
+  private byte[] address;
+  private String cmd;
+  private String src;
+  private String dst;
+  private String owner;
+  private String group;
+  private short permission;
+  private boolean hasStatus;
+  private String callerContext;
+
+  void set(long time, boolean allowed, String user,
+      UserGroupInformation remoteUser, InetAddress addr, String command,
+      String source, String destination, FileStatus status, String context) {
+    this.timestamp = time;
+    this.succeeded = allowed;
+    this.userName = user;
+    this.ugi = remoteUser;
+    this.address = addr == null ? null : addr.getAddress();
+    this.cmd = command;
+    this.src = source;
+    this.dst = destination;
+    this.hasStatus = status != null;
+    if (hasStatus) {
+      this.owner = status.getOwner();
+      this.group = status.getGroup();
+      this.permission = status.getPermission().toShort();
+    } else {
+      this.owner = null;
+      this.group = null;
+      this.permission = 0;
+    }
+    this.callerContext = context;
+  }
+
+  void set(long time, boolean allowed, String user, byte[] addr,
+      String command, String source, String destination, String statusOwner,
+      String statusGroup, short statusPermission, boolean withStatus,
+      String context) {
+    this.timestamp = time;
+    this.succeeded = allowed;
+    this.userName = user;
+    this.ugi = null;
+    this.address = addr;
+    this.cmd = command;
+    this.src = source;
+    this.dst = destination;
+    this.owner = statusOwner;
+    this.group = statusGroup;
+    this.permission = statusPermission;
+    this.hasStatus = withStatus;
+    this.callerContext = context;
+  }
+
+  /** Drop the references held by this record once it has been written. */
+  void clear() {
+    set(0, false, null, (byte[]) null, null, null, null, null, null,
+        (short) 0, false, null);
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public boolean isSucceeded() {
+    return succeeded;
+  }
+
+  public String getUserName() {
+    if (userName == null && ugi != null) {
+      userName = ugi.toString();
+    }
+    return userName;
+  }
+
+  /** @return the raw IP address of the client, or null if unknown. */
+  public byte[] getAddress() {
+    return address;
+  }
+
+  public String getCmd() {
+    return cmd;
+  }
+
+  public String getSrc() {
+    return src;
+  }
+
+  public String getDst() {
+    return dst;
+  }
+
+  public boolean hasStatus() {
+    return hasStatus;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public String getGroup() {
+    return group;
+  }
+
+  public FsPermission getPermission() {
+    return hasStatus ? new FsPermission(permission) : null;
+  }
+
+  short getPermissionShort() {
+    return permission;
+  }
+
+  public String getCallerContext() {
+    return callerContext;
+  }
+
+  /**
+   * Format the record like the lines of the default text audit log.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    String ip;
+    try {
+      ip = address == null ? "null"
+          : "/" + InetAddress.getByAddress(address).getHostAddress();
+    } catch (UnknownHostException e) {
+      ip = "null";
+    }
+    sb.append("allowed=").append(succeeded).append("\t")
+        .append("ugi=").append(getUserName()).append("\t")
+        .append("ip=").append(ip).append("\t")
+        .append("cmd=").append(cmd).append("\t")
+        .append("src=").append(src).append("\t")
+        .append("dst=").append(dst).append("\t");
+    if (hasStatus) {
+      sb.append("perm=").append(owner).append(":").append(group).append(":")
+          .append(getPermission());
+    } else {
+      sb.append("perm=null");
+    }
+    if (callerContext != null) {
+      sb.append("\t").append("callerContext=").append(callerContext);
+    }
+    return sb.toString();
+  }
+}
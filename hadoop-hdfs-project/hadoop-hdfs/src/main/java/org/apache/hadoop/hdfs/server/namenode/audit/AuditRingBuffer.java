@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.util.Preconditions;
+
+/**
+ * A bounded, lock-free, multi-producer single-consumer ring of preallocated
+ * {@link AuditRecord}s.
+ * <p>
+ * Every slot carries a sequence number. A producer may claim position
+ * {@code p} when the sequence of its slot equals {@code p}, fills the record
+ * and publishes it by setting the sequence to {@code p + 1}. The consumer
+ * reads the slot at {@code head} once its sequence is {@code head + 1} and
+ * hands it back to the producers by setting it to {@code head + capacity}.
+ */
+@InterfaceAudience.Private
+class AuditRingBuffer {
+  private final AuditRecord[] records;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  /** Next position to be claimed by a producer. */
+  private final AtomicLong tail = new AtomicLong();
+  /** Next position to be read by the consumer; only the consumer updates it. */
+  private volatile long head;
+
+  AuditRingBuffer(int requestedCapacity) {
+    Preconditions.checkArgument(requestedCapacity > 0,
+        "Capacity must be positive: %s", requestedCapacity);
+    final int capacity =
+        Integer.highestOneBit(Math.max(2, requestedCapacity));
+    this.records = new AuditRecord[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      records[i] = new AuditRecord();
+      sequences.set(i, i);
+    }
+    this.mask = capacity - 1;
+  }
+
+  int getCapacity() {
+    return records.length;
+  }
+
+  /** @return the number of records claimed but not yet consumed. */
+  int size() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+  /**
+   * Claim the next free slot.
+   * @return the claimed position, or -1 if the ring is full.
+   */
+  long tryClaim() {
+    long pos = tail.get();
+    while (true) {
+      final long seq = sequences.get((int) pos & mask);
+      if (seq == pos) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          return pos;
+        }
+        pos = tail.get();
+      } else if (seq < pos) {
+        // The consumer has not released this slot from the previous round.
+        return -1;
+      } else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  /** @return the record of a position returned by {@link #tryClaim()}. */
+  AuditRecord get(long pos) {
+    return records[(int) pos & mask];
+  }
+
+  /** Make a claimed and filled record visible to the consumer. */
+  void publish(long pos) {
+    sequences.lazySet((int) pos & mask, pos + 1);
+  }
+
+  /**
+   * Called by the consumer only.
+   * @return the next published record, or null if there is none yet.
+   */
+  AuditRecord peek() {
+    final long h = head;
+    final int idx = (int) h & mask;
+    return sequences.get(idx) == h + 1 ? records[idx] : null;
+  }
+
+  /**
+   * Called by the consumer only, to return the record obtained from
+   * {@link #peek()} to the producers.
+   */
+  void release() {
+    final long h = head;
+    final int idx = (int) h & mask;
+    records[idx].clear();
+    sequences.lazySet(idx, h + records.length);
+    head = h + 1;
+  }
+}
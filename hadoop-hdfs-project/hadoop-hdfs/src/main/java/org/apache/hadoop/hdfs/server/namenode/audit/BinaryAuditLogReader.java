@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.audit;
+
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.DICT_LITERAL;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.DICT_NEW;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.FLAG_ADDRESS;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.FLAG_CALLER_CONTEXT;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.FLAG_DST;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.FLAG_SRC;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.FLAG_STATUS;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.FLAG_SUCCEEDED;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.MAGIC;
+import static org.apache.hadoop.hdfs.server.namenode.audit.BinaryAuditLogWriter.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Reads the files written by {@link BinaryAuditLogger}. A record truncated
+ * at the end of a file, e.g. because the NameNode was killed while writing,
+ * is treated as the end of the file.
+ * <p>
+ * Running this class prints the records of the given files in the format of
+ * the default text audit log, prefixed by the time of the event.
+ */
+@InterfaceAudience.Private
+public class BinaryAuditLogReader implements Closeable {
+  private final DataInputStream in;
+  private final List<String> dictionary = new ArrayList<>();
+  private long lastTimestamp;
+
+  public BinaryAuditLogReader(File file) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(file)));
+    boolean success = false;
+    try {
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!Arrays.equals(MAGIC, magic)) {
+        throw new IOException(file + " is not a binary audit log");
+      }
+      byte version = in.readByte();
+      if (version != VERSION) {
+        throw new IOException("Unsupported binary audit log version "
+            + version + " in " + file);
+      }
+      success = true;
+    } finally {
+      if (!success) {
+        in.close();
+      }
+    }
+  }
+
+  /**
+   * @return the next record of the file, or null at the end of the file.
+   * @throws IOException if the file is corrupt or cannot be read.
+   */
+  public AuditRecord next() throws IOException {
+    final long delta;
+    try {
+      delta = WritableUtils.readVLong(in);
+    } catch (EOFException e) {
+      return null;
+    }
+    try {
+      final long timestamp = lastTimestamp + delta;
+      final int flags = in.readUnsignedByte();
+      final String user = readDictionary();
+      byte[] address = null;
+      if ((flags & FLAG_ADDRESS) != 0) {
+        address = new byte[in.readUnsignedByte()];
+        in.readFully(address);
+      }
+      final String cmd = readDictionary();
+      final String src =
+          (flags & FLAG_SRC) != 0 ? Text.readString(in) : null;
+      final String dst =
+          (flags & FLAG_DST) != 0 ? Text.readString(in) : null;
+      String owner = null;
+      String group = null;
+      short permission = 0;
+      final boolean hasStatus = (flags & FLAG_STATUS) != 0;
+      if (hasStatus) {
+        owner = readDictionary();
+        group = readDictionary();
+        permission = (short) WritableUtils.readVInt(in);
+      }
+      final String callerContext =
+          (flags & FLAG_CALLER_CONTEXT) != 0 ? Text.readString(in) : null;
+      lastTimestamp = timestamp;
+      AuditRecord r = new AuditRecord();
+      r.set(timestamp, (flags & FLAG_SUCCEEDED) != 0, user, address, cmd, src,
+          dst, owner, group, permission, hasStatus, callerContext);
+      return r;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  private String readDictionary() throws IOException {
+    final int id = WritableUtils.readVInt(in);
+    if (id == DICT_NEW) {
+      String s = Text.readString(in);
+      dictionary.add(s);
+      return s;
+    } else if (id == DICT_LITERAL) {
+      return Text.readString(in);
+    } else if (id >= 0 && id < dictionary.size()) {
+      return dictionary.get(id);
+    }
+    throw new IOException("Invalid dictionary id " + id);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  static void print(File file, PrintStream out) throws IOException {
+    final SimpleDateFormat format =
+        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+    BinaryAuditLogReader reader = new BinaryAuditLogReader(file);
+    try {
+      for (AuditRecord r = reader.next(); r != null; r = reader.next()) {
+        out.println(format.format(new Date(r.getTimestamp())) + " " + r);
+      }
+    } finally {
+      IOUtils.closeStream(reader);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: BinaryAuditLogReader <file>...");
+      System.exit(1);
+    }
+    for (String arg : args) {
+      print(new File(arg), System.out);
+    }
+  }
+}
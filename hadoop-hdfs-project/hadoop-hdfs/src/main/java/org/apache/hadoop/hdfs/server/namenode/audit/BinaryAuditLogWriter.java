@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Writes {@link AuditRecord}s to a file in the binary audit log format.
+ * <p>
+ * A file starts with {@link #MAGIC} and {@link #VERSION}, followed by the
+ * records. Timestamps are stored as deltas to the previous record. User
+ * names, commands, owners and groups are dictionary encoded: the first
+ * occurrence in a file is written inline and assigned the next id, later
+ * occurrences only write the id. Not thread safe.
+ */
+@InterfaceAudience.Private
+class BinaryAuditLogWriter implements Closeable {
+  static final byte[] MAGIC = {'H', 'D', 'A', 'L'};
+  static final byte VERSION = 1;
+
+  static final int FLAG_SUCCEEDED = 1;
+  static final int FLAG_ADDRESS = 1 << 1;
+  static final int FLAG_SRC = 1 << 2;
+  static final int FLAG_DST = 1 << 3;
+  static final int FLAG_STATUS = 1 << 4;
+  static final int FLAG_CALLER_CONTEXT = 1 << 5;
+
+  /** Dictionary marker for a new string which is assigned the next id. */
+  static final int DICT_NEW = -1;
+  /** Dictionary marker for a string written inline without an id. */
+  static final int DICT_LITERAL = -2;
+
+  private final File file;
+  private final CountingDataOutputStream out;
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  private final int maxDictionarySize;
+  private long lastTimestamp;
+
+  BinaryAuditLogWriter(File file, int bufferSize, int maxDictionarySize)
+      throws IOException {
+    this.file = file;
+    this.maxDictionarySize = maxDictionarySize;
+    this.out = new CountingDataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(file), bufferSize));
+    out.write(MAGIC);
+    out.writeByte(VERSION);
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  /** @return the number of bytes written to the file so far. */
+  long getLength() {
+    return out.getLength();
+  }
+
+  void write(AuditRecord r) throws IOException {
+    int flags = 0;
+    if (r.isSucceeded()) {
+      flags |= FLAG_SUCCEEDED;
+    }
+    if (r.getAddress() != null) {
+      flags |= FLAG_ADDRESS;
+    }
+    if (r.getSrc() != null) {
+      flags |= FLAG_SRC;
+    }
+    if (r.getDst() != null) {
+      flags |= FLAG_DST;
+    }
+    if (r.hasStatus()) {
+      flags |= FLAG_STATUS;
+    }
+    if (r.getCallerContext() != null) {
+      flags |= FLAG_CALLER_CONTEXT;
+    }
+    WritableUtils.writeVLong(out, r.getTimestamp() - lastTimestamp);
+    lastTimestamp = r.getTimestamp();
+    out.writeByte(flags);
+    writeDictionary(r.getUserName());
+    if (r.getAddress() != null) {
+      out.writeByte(r.getAddress().length);
+      out.write(r.getAddress());
+    }
+    writeDictionary(r.getCmd());
+    if (r.getSrc() != null) {
+      Text.writeString(out, r.getSrc());
+    }
+    if (r.getDst() != null) {
+      Text.writeString(out, r.getDst());
+    }
+    if (r.hasStatus()) {
+      writeDictionary(r.getOwner());
+      writeDictionary(r.getGroup());
+      WritableUtils.writeVInt(out, r.getPermissionShort());
+    }
+    if (r.getCallerContext() != null) {
+      Text.writeString(out, r.getCallerContext());
+    }
+  }
+
+  private void writeDictionary(String s) throws IOException {
+    final String value = s == null ? "null" : s;
+    final Integer id = dictionary.get(value);
+    if (id != null) {
+      WritableUtils.writeVInt(out, id);
+    } else if (dictionary.size() < maxDictionarySize) {
+      WritableUtils.writeVInt(out, DICT_NEW);
+      Text.writeString(out, value);
+      dictionary.put(value, dictionary.size());
+    } else {
+      WritableUtils.writeVInt(out, DICT_LITERAL);
+      Text.writeString(out, value);
+    }
+  }
+
+  /** Push the buffered records to the file. */
+  void flush() throws IOException {
+    out.flush();
+  }
+
+  /**
+   * A {@link DataOutputStream} that counts the written bytes in a long,
+   * since {@link DataOutputStream#size()} saturates at 2 GB.
+   */
+  private static final class CountingDataOutputStream
+      extends DataOutputStream {
+    private long flushedLength;
+
+    CountingDataOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    long getLength() {
+      return flushedLength + written;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      // a batch is far smaller than 2 GB, so the int count cannot saturate
+      flushedLength += written;
+      written = 0;
+      super.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,326 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.audit;
+
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_CALLER_CONTEXT_ENABLED_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_CALLER_CONTEXT_ENABLED_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_BATCH_SIZE_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_BATCH_SIZE_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_DIR_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_OVERFLOW_POLICY_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_OVERFLOW_POLICY_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_QUEUE_CAPACITY_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_QUEUE_CAPACITY_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_ROLL_SIZE_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_ROLL_SIZE_KEY;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.hadoop.HadoopIllegalArgumentException;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenSecretManager;
+import org.apache.hadoop.hdfs.server.namenode.HdfsAuditLogger;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.ipc.CallerContext;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.util.Daemon;
+import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An audit logger that moves the cost of formatting and writing audit events
+ * off the RPC handler threads.
+ * <p>
+ * A handler only copies the event into a preallocated slot of a lock-free
+ * {@link AuditRingBuffer}; even the user name is formatted later. A single
+ * writer thread, parked while the ring is empty, drains the ring in batches
+ * of up to {@code dfs.namenode.audit.binary.log.batch.size} events, encodes
+ * them with {@link BinaryAuditLogWriter} and flushes once per batch. Files are
+ * rolled at {@code dfs.namenode.audit.binary.log.roll.size} and can be read
+ * with {@link BinaryAuditLogReader}.
+ * <p>
+ * When the ring is full, the event is either dropped or the handler waits
+ * for the writer, as configured by
+ * {@code dfs.namenode.audit.binary.log.overflow.policy}. Delegation token
+ * tracking ids are not recorded.
+ * <p>
+ * To enable it, add the class name to {@code dfs.namenode.audit.loggers}.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class BinaryAuditLogger extends HdfsAuditLogger implements Closeable {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(BinaryAuditLogger.class);
+
+  /** What to do with an event when the queue is full. */
+  public enum OverflowPolicy {
+    /** Discard the event. */
+    DROP,
+    /** Wait for the writer thread to make space. */
+    BLOCK
+  }
+
+  static final String FILE_PREFIX = "hdfs-audit.";
+  static final String FILE_SUFFIX = ".bin";
+
+  private static final long HANDLER_WAIT_NANOS = TimeUnit.MICROSECONDS
+      .toNanos(50);
+  private static final long WRITER_IDLE_NANOS = TimeUnit.MILLISECONDS
+      .toNanos(1);
+  private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+  private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+  private File dir;
+  private AuditRingBuffer ring;
+  private OverflowPolicy overflowPolicy;
+  private int batchSize;
+  private long rollSize;
+  private boolean callerContextEnabled;
+  private BinaryAuditLoggerMetrics metrics;
+
+  private BinaryAuditLogWriter writer;
+  private int fileIndex;
+  private Daemon writerThread;
+  private volatile boolean running;
+  /** Handlers that may still publish an event after close() was called. */
+  private final AtomicInteger activeHandlers = new AtomicInteger();
+  private volatile boolean writerParked;
+
+  @Override
+  public void initialize(Configuration conf) {
+    String dirName = conf.getTrimmed(DFS_NAMENODE_AUDIT_BINARY_LOG_DIR_KEY, "");
+    if (dirName.isEmpty()) {
+      dirName = System.getProperty("hadoop.log.dir");
+    }
+    if (dirName == null || dirName.isEmpty()) {
+      throw new HadoopIllegalArgumentException(
+          DFS_NAMENODE_AUDIT_BINARY_LOG_DIR_KEY + " is not set");
+    }
+    dir = new File(dirName);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new HadoopIllegalArgumentException(
+          "Cannot create binary audit log directory " + dir);
+    }
+    ring = new AuditRingBuffer(conf.getInt(
+        DFS_NAMENODE_AUDIT_BINARY_LOG_QUEUE_CAPACITY_KEY,
+        DFS_NAMENODE_AUDIT_BINARY_LOG_QUEUE_CAPACITY_DEFAULT));
+    overflowPolicy = OverflowPolicy.valueOf(StringUtils.toUpperCase(
+        conf.getTrimmed(DFS_NAMENODE_AUDIT_BINARY_LOG_OVERFLOW_POLICY_KEY,
+            DFS_NAMENODE_AUDIT_BINARY_LOG_OVERFLOW_POLICY_DEFAULT)));
+    batchSize = Math.max(1, conf.getInt(
+        DFS_NAMENODE_AUDIT_BINARY_LOG_BATCH_SIZE_KEY,
+        DFS_NAMENODE_AUDIT_BINARY_LOG_BATCH_SIZE_DEFAULT));
+    rollSize = conf.getLongBytes(DFS_NAMENODE_AUDIT_BINARY_LOG_ROLL_SIZE_KEY,
+        DFS_NAMENODE_AUDIT_BINARY_LOG_ROLL_SIZE_DEFAULT);
+    callerContextEnabled = conf.getBoolean(HADOOP_CALLER_CONTEXT_ENABLED_KEY,
+        HADOOP_CALLER_CONTEXT_ENABLED_DEFAULT);
+    try {
+      roll();
+    } catch (IOException e) {
+      throw new HadoopIllegalArgumentException(
+          "Cannot create binary audit log in " + dir + ": " + e);
+    }
+    metrics = BinaryAuditLoggerMetrics.create(this);
+    running = true;
+    writerThread = new Daemon(this::runWriter);
+    writerThread.setName("BinaryAuditLogWriter");
+    writerThread.start();
+    LOG.info("Binary audit log: dir={}, queueCapacity={}, overflowPolicy={},"
+        + " batchSize={}, rollSize={}", dir, ring.getCapacity(),
+        overflowPolicy, batchSize, rollSize);
+  }
+
+  @Override
+  public void logAuditEvent(boolean succeeded, String userName,
+      InetAddress addr, String cmd, String src, String dst,
+      FileStatus stat, CallerContext callerContext, UserGroupInformation ugi,
+      DelegationTokenSecretManager dtSecretManager) {
+    // Registered before running is checked, so that the writer does not
+    // exit before the event is published.
+    activeHandlers.incrementAndGet();
+    try {
+      if (!running) {
+        return;
+      }
+      long pos = ring.tryClaim();
+      while (pos < 0) {
+        if (overflowPolicy == OverflowPolicy.DROP || !running) {
+          metrics.eventsDropped.incr();
+          return;
+        }
+        metrics.handlerWaits.incr();
+        LockSupport.parkNanos(HANDLER_WAIT_NANOS);
+        pos = ring.tryClaim();
+      }
+      final String context = callerContextEnabled && callerContext != null
+          && callerContext.isContextValid() ? callerContext.getContext()
+          : null;
+      ring.get(pos).set(Time.now(), succeeded, userName,
+          userName == null ? ugi : null, addr, cmd, src, dst, stat, context);
+      ring.publish(pos);
+      metrics.eventsEnqueued.incr();
+    } finally {
+      // The decrement also orders the publish before the read of
+      // writerParked, so the writer cannot miss the event while parking.
+      activeHandlers.decrementAndGet();
+      if (writerParked) {
+        LockSupport.unpark(writerThread);
+      }
+    }
+  }
+
+  /**
+   * The user name is formatted from the {@link UserGroupInformation} by the
+   * writer thread.
+   */
+  @Override
+  public boolean needsUserName() {
+    return false;
+  }
+
+  @Override
+  public void logAuditEvent(boolean succeeded, String userName,
+      InetAddress addr, String cmd, String src, String dst,
+      FileStatus stat, UserGroupInformation ugi,
+      DelegationTokenSecretManager dtSecretManager) {
+    logAuditEvent(succeeded, userName, addr, cmd, src, dst, stat,
+        null /*CallerContext*/, ugi, dtSecretManager);
+  }
+
+  int getQueueSize() {
+    return ring.size();
+  }
+
+  @VisibleForTesting
+  BinaryAuditLoggerMetrics getMetrics() {
+    return metrics;
+  }
+
+  @VisibleForTesting
+  File getCurrentFile() {
+    return writer.getFile();
+  }
+
+  @VisibleForTesting
+  Thread getWriterThread() {
+    return writerThread;
+  }
+
+  /**
+   * Switch to a new file. If the new file cannot be created, the current
+   * file is kept open and the roll is retried after the next batch.
+   */
+  private void roll() throws IOException {
+    File file = new File(dir,
+        FILE_PREFIX + Time.now() + "." + (fileIndex++) + FILE_SUFFIX);
+    BinaryAuditLogWriter next = createWriter(file);
+    IOUtils.cleanupWithLogger(LOG, writer);
+    writer = next;
+  }
+
+  @VisibleForTesting
+  BinaryAuditLogWriter createWriter(File file) throws IOException {
+    return new BinaryAuditLogWriter(file, WRITE_BUFFER_SIZE,
+        MAX_DICTIONARY_SIZE);
+  }
+
+  private void runWriter() {
+    while (true) {
+      final long now = Time.now();
+      long oldest = now;
+      int n = 0;
+      for (AuditRecord r = ring.peek(); r != null && n < batchSize;
+           r = ring.peek()) {
+        oldest = Math.min(oldest, r.getTimestamp());
+        try {
+          writer.write(r);
+        } catch (IOException e) {
+          metrics.writeFailures.incr();
+          LOG.warn("Failed to write audit event to {}", writer.getFile(), e);
+        }
+        ring.release();
+        n++;
+      }
+      if (n > 0) {
+        try {
+          writer.flush();
+        } catch (IOException e) {
+          metrics.writeFailures.incr(n);
+          LOG.warn("Failed to flush audit events to {}", writer.getFile(), e);
+        }
+        if (writer.getLength() >= rollSize) {
+          try {
+            roll();
+          } catch (IOException e) {
+            LOG.warn("Failed to roll the binary audit log, still writing to {}",
+                writer.getFile(), e);
+          }
+        }
+        metrics.eventsWritten.incr(n);
+        metrics.batchWrites.add(Time.now() - now);
+        metrics.writeLagMillis.set(now - oldest);
+      } else if (!running) {
+        // Only exit once the events of all the handlers that saw running
+        // before close() are written.
+        if (activeHandlers.get() == 0 && ring.peek() == null) {
+          return;
+        }
+        LockSupport.parkNanos(WRITER_IDLE_NANOS);
+      } else {
+        // Park until a handler publishes an event or close() is called.
+        writerParked = true;
+        if (running && ring.peek() == null) {
+          LockSupport.park(this);
+        }
+        writerParked = false;
+      }
+    }
+  }
+
+  /**
+   * Stop accepting events, write the events still in the queue and close the
+   * current file.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!running) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(writerThread);
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    writer.close();
+    metrics.unregister();
+  }
+}
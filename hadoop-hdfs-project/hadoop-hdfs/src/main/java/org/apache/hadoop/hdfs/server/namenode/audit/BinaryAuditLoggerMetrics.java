@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.audit;
+
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+
+/**
+ * Metrics of the {@link BinaryAuditLogger} queue and writer thread.
+ */
+@Metrics(about="Binary audit logger metrics", context="dfs")
+class BinaryAuditLoggerMetrics {
+  static final String NAME = "BinaryAuditLogger";
+
+  final MetricsRegistry registry = new MetricsRegistry(NAME);
+
+  @Metric("Number of audit events enqueued")
+  MutableCounterLong eventsEnqueued;
+
+  @Metric("Number of audit events dropped because the queue was full")
+  MutableCounterLong eventsDropped;
+
+  @Metric("Number of times a handler waited for space in the queue")
+  MutableCounterLong handlerWaits;
+
+  @Metric("Number of audit events written")
+  MutableCounterLong eventsWritten;
+
+  @Metric("Number of audit events that could not be written")
+  MutableCounterLong writeFailures;
+
+  @Metric("Time to write and flush a batch of audit events")
+  MutableRate batchWrites;
+
+  @Metric("Age in milliseconds of the oldest event of the last batch " +
+      "when it was written")
+  MutableGaugeLong writeLagMillis;
+
+  private final BinaryAuditLogger logger;
+
+  BinaryAuditLoggerMetrics(BinaryAuditLogger logger) {
+    this.logger = logger;
+  }
+
+  static BinaryAuditLoggerMetrics create(BinaryAuditLogger logger) {
+    return DefaultMetricsSystem.instance().register(NAME, null,
+        new BinaryAuditLoggerMetrics(logger));
+  }
+
+  void unregister() {
+    DefaultMetricsSystem.instance().unregisterSource(NAME);
+  }
+
+  @Metric("Number of audit events waiting to be written")
+  public int getQueueSize() {
+    return logger.getQueueSize();
+  }
+}
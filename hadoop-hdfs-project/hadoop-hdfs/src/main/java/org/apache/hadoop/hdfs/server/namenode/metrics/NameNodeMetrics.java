@@ -32,6 +32,7 @@
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.metrics2.lib.MutableQuantiles;
 import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.metrics2.lib.MutableStripedRate;
 import org.apache.hadoop.metrics2.lib.MutableStat;
 import org.apache.hadoop.metrics2.source.JvmMetrics;
 
@@ -120,19 +121,19 @@ public long totalFileOps(){
   }
 
 
-  @Metric("Journal transactions") MutableRate transactions;
-  @Metric("Journal syncs") MutableRate syncs;
+  @Metric("Journal transactions") MutableStripedRate transactions;
+  @Metric("Journal syncs") MutableStripedRate syncs;
   final MutableQuantiles[] syncsQuantiles;
   @Metric("Journal transactions batched in sync")
   MutableCounterLong transactionsBatchedInSync;
   @Metric("Journal transactions batched in sync")
   final MutableQuantiles[] numTransactionsBatchedInSync;
   @Metric("Number of blockReports from individual storages")
-  MutableRate storageBlockReport;
+  MutableStripedRate storageBlockReport;
   final MutableQuantiles[] storageBlockReportQuantiles;
-  @Metric("Cache report") MutableRate cacheReport;
+  @Metric("Cache report") MutableStripedRate cacheReport;
   final MutableQuantiles[] cacheReportQuantiles;
-  @Metric("Generate EDEK time") private MutableRate generateEDEKTime;
+  @Metric("Generate EDEK time") private MutableStripedRate generateEDEKTime;
   private final MutableQuantiles[] generateEDEKTimeQuantiles;
   @Metric("Warm-up EDEK time") private MutableRate warmUpEDEKTime;
   private final MutableQuantiles[] warmUpEDEKTimeQuantiles;
@@ -187,38 +188,38 @@ public long totalFileOps(){
 
     for (int i = 0; i < len; i++) {
       int interval = intervals[i];
-      syncsQuantiles[i] = registry.newQuantiles(
+      syncsQuantiles[i] = registry.newHistogramQuantiles(
           "syncs" + interval + "s",
           "Journal syncs", "ops", "latency", interval);
-      numTransactionsBatchedInSync[i] = registry.newQuantiles(
+      numTransactionsBatchedInSync[i] = registry.newHistogramQuantiles(
           "numTransactionsBatchedInSync" + interval + "s",
           "Number of Transactions batched in sync", "ops",
           "count", interval);
-      storageBlockReportQuantiles[i] = registry.newQuantiles(
+      storageBlockReportQuantiles[i] = registry.newHistogramQuantiles(
           "storageBlockReport" + interval + "s",
           "Storage block report", "ops", "latency", interval);
-      cacheReportQuantiles[i] = registry.newQuantiles(
+      cacheReportQuantiles[i] = registry.newHistogramQuantiles(
           "cacheReport" + interval + "s",
           "Cache report", "ops", "latency", interval);
-      generateEDEKTimeQuantiles[i] = registry.newQuantiles(
+      generateEDEKTimeQuantiles[i] = registry.newHistogramQuantiles(
           "generateEDEKTime" + interval + "s",
           "Generate EDEK time", "ops", "latency", interval);
-      warmUpEDEKTimeQuantiles[i] = registry.newQuantiles(
+      warmUpEDEKTimeQuantiles[i] = registry.newHistogramQuantiles(
           "warmupEDEKTime" + interval + "s",
           "Warm up EDEK time", "ops", "latency", interval);
-      resourceCheckTimeQuantiles[i] = registry.newQuantiles(
+      resourceCheckTimeQuantiles[i] = registry.newHistogramQuantiles(
           "resourceCheckTime" + interval + "s",
           "resource check time", "ops", "latency", interval);
-      editLogTailTimeQuantiles[i] = registry.newQuantiles(
+      editLogTailTimeQuantiles[i] = registry.newHistogramQuantiles(
           "editLogTailTime" + interval + "s",
           "Edit log tailing time", "ops", "latency", interval);
-      editLogFetchTimeQuantiles[i] = registry.newQuantiles(
+      editLogFetchTimeQuantiles[i] = registry.newHistogramQuantiles(
           "editLogFetchTime" + interval + "s",
           "Edit log fetch time", "ops", "latency", interval);
-      numEditLogLoadedQuantiles[i] = registry.newQuantiles(
+      numEditLogLoadedQuantiles[i] = registry.newHistogramQuantiles(
           "numEditLogLoaded" + interval + "s",
           "Number of edits loaded", "ops", "count", interval);
-      editLogTailIntervalQuantiles[i] = registry.newQuantiles(
+      editLogTailIntervalQuantiles[i] = registry.newHistogramQuantiles(
           "editLogTailInterval" + interval + "s",
           "Edit log tailing interval", "ops", "latency", interval);
     }
@@ -25,6 +25,8 @@
 import java.util.List;
 import java.util.Set;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.hadoop.HadoopIllegalArgumentException;
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -60,6 +62,11 @@
 public class DirectorySnapshottableFeature extends DirectoryWithSnapshotFeature {
   /** Limit the number of snapshot per snapshottable directory. */
   static final int SNAPSHOT_QUOTA_DEFAULT = 1 << 16;
+  /**
+   * Stop forking new subtree diff tasks once this many tasks are queued
+   * beyond what the idle threads of the pool can steal.
+   */
+  private static final int MAX_SURPLUS_DIFF_TASKS = 3;
 
   /**
    * Snapshots of this directory in ascending order of snapshot names.
@@ -303,6 +310,30 @@ public void computeContentSummary4Snapshot(final BlockStoragePolicySuite bsps,
   SnapshotDiffInfo computeDiff(final INodeDirectory snapshotRootDir,
       final INodeDirectory snapshotDiffScopeDir, final String from,
       final String to) throws SnapshotException {
+    return computeDiff(snapshotRootDir, snapshotDiffScopeDir, from, to, null);
+  }
+
+  /**
+   * Compute the difference between two snapshots (or a snapshot and the current
+   * directory) of the directory, optionally traversing the subtrees in
+   * parallel.
+   *
+   * @param snapshotRootDir the snapshot root directory
+   * @param snapshotDiffScopeDir the descendant directory under snapshot root
+   *          to scope the diff calculation to.
+   * @param from The name of the start point of the comparison. Null indicating
+   *          the current tree.
+   * @param to The name of the end point. Null indicating the current tree.
+   * @param pool the pool used to compute the diff of subtrees in parallel.
+   *          Null indicates the diff is computed by the calling thread.
+   * @return The difference between the start/end points.
+   * @throws SnapshotException If there is no snapshot matching the starting
+   *           point, or if endSnapshotName is not null but cannot be identified
+   *           as a previous snapshot.
+   */
+  SnapshotDiffInfo computeDiff(final INodeDirectory snapshotRootDir,
+      final INodeDirectory snapshotDiffScopeDir, final String from,
+      final String to, final ForkJoinPool pool) throws SnapshotException {
     Preconditions.checkArgument(snapshotDiffScopeDir
         .isDescendantOfSnapshotRoot(snapshotRootDir));
     Snapshot fromSnapshot = getSnapshotByName(snapshotRootDir, from);
@@ -316,8 +347,18 @@ SnapshotDiffInfo computeDiff(final INodeDirectory snapshotRootDir,
     // The snapshot diff scope dir is passed in as the snapshot dir
     // so that the file paths in the diff report are relative to the
     // snapshot scope dir.
-    computeDiffRecursively(snapshotDiffScopeDir, snapshotDiffScopeDir,
-        new ArrayList<>(), diffs);
+    if (pool == null) {
+      computeDiffRecursively(snapshotDiffScopeDir, snapshotDiffScopeDir,
+          new ArrayList<>(), diffs);
+    } else {
+      // The caller holds the namesystem read lock for the duration of the
+      // call, so the pool threads can safely walk the tree on its behalf.
+      for (SnapshotDiffInfo partial : pool.invoke(new SubtreeDiffTask(
+          snapshotDiffScopeDir, snapshotDiffScopeDir, new byte[0][],
+          diffs))) {
+        diffs.merge(partial);
+      }
+    }
     return diffs;
   }
 
@@ -351,6 +392,27 @@ SnapshotDiffListingInfo computeDiff(final INodeDirectory snapshotRootDir,
       final INodeDirectory snapshotDiffScopeDir, final String from,
       final String to, byte[] startPath, int index,
       int snapshotDiffReportEntriesLimit) throws SnapshotException {
+    return computeDiff(snapshotRootDir, snapshotDiffScopeDir, from, to,
+        startPath, index, snapshotDiffReportEntriesLimit, null);
+  }
+
+  /**
+   * Compute the partial difference between two snapshots (or a snapshot and
+   * the current directory) of the directory, optionally traversing the
+   * subtrees in parallel. The subtrees are diffed in parallel once the
+   * computation is past startPath and their entries are added to the listing
+   * in traversal order, so the listing is the same as with a single thread.
+   *
+   * @param pool the pool used to compute the diff of subtrees in parallel.
+   *          Null indicates the diff is computed by the calling thread.
+   * @see #computeDiff(INodeDirectory, INodeDirectory, String, String, byte[],
+   *      int, int)
+   */
+  SnapshotDiffListingInfo computeDiff(final INodeDirectory snapshotRootDir,
+      final INodeDirectory snapshotDiffScopeDir, final String from,
+      final String to, byte[] startPath, int index,
+      int snapshotDiffReportEntriesLimit, final ForkJoinPool pool)
+      throws SnapshotException {
     Preconditions.checkArgument(
         snapshotDiffScopeDir.isDescendantOfSnapshotRoot(snapshotRootDir));
     Snapshot fromSnapshot = getSnapshotByName(snapshotRootDir, from);
@@ -365,7 +427,7 @@ SnapshotDiffListingInfo computeDiff(final INodeDirectory snapshotRootDir,
             fromSnapshot, toSnapshot, snapshotDiffReportEntriesLimit);
     diffs.setLastIndex(index);
     computeDiffRecursively(snapshotDiffScopeDir, snapshotDiffScopeDir,
-        new ArrayList<byte[]>(), diffs, resumePath, 0, toProcess);
+        new ArrayList<byte[]>(), diffs, resumePath, 0, toProcess, pool);
     return diffs;
   }
 
@@ -405,48 +467,73 @@ public Snapshot getSnapshotByName(INodeDirectory snapshotRoot,
    */
   private void computeDiffRecursively(final INodeDirectory snapshotDir,
       INode node, List<byte[]> parentPath, SnapshotDiffInfo diffReport) {
+    byte[][] relativePath = parentPath.toArray(new byte[parentPath.size()][]);
+    if (node.isDirectory()) {
+      for (INode child : computeDirDiff(snapshotDir, node.asDirectory(),
+          relativePath, diffReport)) {
+        parentPath.add(child.getLocalNameBytes());
+        computeDiffRecursively(snapshotDir, child, parentPath, diffReport);
+        parentPath.remove(parentPath.size() - 1);
+      }
+    } else {
+      computeFileDiff(node, relativePath, diffReport);
+    }
+  }
+
+  /**
+   * Compute the difference between snapshots of a single directory and
+   * determine the children that need to be traversed further.
+   * @return the children of the directory whose subtrees have to be diffed.
+   */
+  private List<INode> computeDirDiff(final INodeDirectory snapshotDir,
+      INodeDirectory dir, byte[][] relativePath, SnapshotDiffInfo diffReport) {
     final Snapshot earlierSnapshot = diffReport.isFromEarlier() ?
         diffReport.getFrom() : diffReport.getTo();
     final Snapshot laterSnapshot = diffReport.isFromEarlier() ?
         diffReport.getTo() : diffReport.getFrom();
-    byte[][] relativePath = parentPath.toArray(new byte[parentPath.size()][]);
-    if (node.isDirectory()) {
-      final ChildrenDiff diff = new ChildrenDiff();
-      INodeDirectory dir = node.asDirectory();
-      DirectoryWithSnapshotFeature sf = dir.getDirectoryWithSnapshotFeature();
-      if (sf != null) {
-        boolean change = sf.computeDiffBetweenSnapshots(earlierSnapshot,
-            laterSnapshot, diff, dir);
-        if (change) {
-          diffReport.addDirDiff(dir, relativePath, diff);
-        }
-      } else {
-        diffReport.incrementDirsProcessed();
+    final ChildrenDiff diff = new ChildrenDiff();
+    DirectoryWithSnapshotFeature sf = dir.getDirectoryWithSnapshotFeature();
+    if (sf != null) {
+      boolean change = sf.computeDiffBetweenSnapshots(earlierSnapshot,
+          laterSnapshot, diff, dir);
+      if (change) {
+        diffReport.addDirDiff(dir, relativePath, diff);
       }
-      long startTime = Time.monotonicNow();
-      ReadOnlyList<INode> children = dir.getChildrenList(earlierSnapshot
-          .getId());
-      diffReport.addChildrenListingTime(Time.monotonicNow() - startTime);
-      for (INode child : children) {
-        final byte[] name = child.getLocalNameBytes();
-        boolean toProcess = !diff.containsDeleted(name);
-        if (!toProcess && child instanceof INodeReference.WithName) {
-          byte[][] renameTargetPath = findRenameTargetPath(
-              snapshotDir, (WithName) child,
-              laterSnapshot == null ? Snapshot.CURRENT_STATE_ID :
-                laterSnapshot.getId());
-          if (renameTargetPath != null) {
-            toProcess = true;
-            diffReport.setRenameTarget(child.getId(), renameTargetPath);
-          }
-        }
-        if (toProcess) {
-          parentPath.add(name);
-          computeDiffRecursively(snapshotDir, child, parentPath, diffReport);
-          parentPath.remove(parentPath.size() - 1);
+    } else {
+      diffReport.incrementDirsProcessed();
+    }
+    long startTime = Time.monotonicNow();
+    ReadOnlyList<INode> children = dir.getChildrenList(earlierSnapshot
+        .getId());
+    diffReport.addChildrenListingTime(Time.monotonicNow() - startTime);
+    final List<INode> toTraverse = new ArrayList<>(children.size());
+    for (INode child : children) {
+      final byte[] name = child.getLocalNameBytes();
+      boolean toProcess = !diff.containsDeleted(name);
+      if (!toProcess && child instanceof INodeReference.WithName) {
+        byte[][] renameTargetPath = findRenameTargetPath(
+            snapshotDir, (WithName) child,
+            laterSnapshot == null ? Snapshot.CURRENT_STATE_ID :
+              laterSnapshot.getId());
+        if (renameTargetPath != null) {
+          toProcess = true;
+          diffReport.setRenameTarget(child.getId(), renameTargetPath);
         }
       }
-    } else if (node.isFile() && node.asFile().isWithSnapshot()) {
+      if (toProcess) {
+        toTraverse.add(child);
+      }
+    }
+    return toTraverse;
+  }
+
+  private void computeFileDiff(INode node, byte[][] relativePath,
+      SnapshotDiffInfo diffReport) {
+    if (node.isFile() && node.asFile().isWithSnapshot()) {
+      final Snapshot earlierSnapshot = diffReport.isFromEarlier() ?
+          diffReport.getFrom() : diffReport.getTo();
+      final Snapshot laterSnapshot = diffReport.isFromEarlier() ?
+          diffReport.getTo() : diffReport.getFrom();
       INodeFile file = node.asFile();
       boolean change = file.getFileWithSnapshotFeature()
           .changedBetweenSnapshots(file, earlierSnapshot, laterSnapshot);
@@ -457,6 +544,69 @@ private void computeDiffRecursively(final INodeDirectory snapshotDir,
     }
   }
 
+  /**
+   * Computes the diff of a subtree, forking the subtrees of child directories
+   * as separate tasks while the pool has spare capacity. The result is the
+   * list of partial diffs in depth-first traversal order, so that merging
+   * them sequentially gives the same report as a single-threaded traversal.
+   */
+  private final class SubtreeDiffTask
+      extends RecursiveTask<List<SnapshotDiffInfo>> {
+    private static final long serialVersionUID = 1L;
+
+    private final INodeDirectory snapshotDir;
+    private final INode node;
+    private final byte[][] relativePath;
+    private final SnapshotDiffInfo template;
+
+    SubtreeDiffTask(INodeDirectory snapshotDir, INode node,
+        byte[][] relativePath, SnapshotDiffInfo template) {
+      this.snapshotDir = snapshotDir;
+      this.node = node;
+      this.relativePath = relativePath;
+      this.template = template;
+    }
+
+    @Override
+    protected List<SnapshotDiffInfo> compute() {
+      SnapshotDiffInfo current = template.newPartial();
+      if (!node.isDirectory()
+          || getSurplusQueuedTaskCount() > MAX_SURPLUS_DIFF_TASKS) {
+        computeDiffRecursively(snapshotDir, node,
+            new ArrayList<>(Arrays.asList(relativePath)), current);
+        return Collections.singletonList(current);
+      }
+      // Local diffs and forked subtrees alternate in traversal order:
+      // locals[0], forked[0], locals[1], ..., forked[n-1], locals[n].
+      final List<SnapshotDiffInfo> locals = new ArrayList<>();
+      final List<SubtreeDiffTask> forked = new ArrayList<>();
+      locals.add(current);
+      for (INode child : computeDirDiff(snapshotDir, node.asDirectory(),
+          relativePath, current)) {
+        byte[][] childPath = Arrays.copyOf(relativePath,
+            relativePath.length + 1);
+        childPath[relativePath.length] = child.getLocalNameBytes();
+        if (child.isDirectory()) {
+          SubtreeDiffTask task =
+              new SubtreeDiffTask(snapshotDir, child, childPath, template);
+          task.fork();
+          forked.add(task);
+          current = template.newPartial();
+          locals.add(current);
+        } else {
+          computeFileDiff(child, childPath, current);
+        }
+      }
+      final List<SnapshotDiffInfo> partials = new ArrayList<>();
+      for (int i = 0; i < forked.size(); i++) {
+        partials.add(locals.get(i));
+        partials.addAll(forked.get(i).join());
+      }
+      partials.add(locals.get(forked.size()));
+      return partials;
+    }
+  }
+
   /**
    * Recursively compute the difference between snapshots under a given
    * directory/file partially.
@@ -473,10 +623,13 @@ private void computeDiffRecursively(final INodeDirectory snapshotDir,
    *                    snapshotRoot.
    * @param processFlag indicates that the dir/file where the snapshotdiff
    *                    computation has to start is processed or not.
+   * @param pool the pool used to diff the subtrees after the resume point in
+   *             parallel, null to diff them in the calling thread.
    */
   private boolean computeDiffRecursively(final INodeDirectory snapshotDir,
        INode node, List<byte[]> parentPath, SnapshotDiffListingInfo diffReport,
-       final byte[][] resume, int level, boolean processFlag) {
+       final byte[][] resume, int level, boolean processFlag,
+       final ForkJoinPool pool) {
     final Snapshot earlier = diffReport.getEarlier();
     final Snapshot later = diffReport.getLater();
     byte[][] relativePath = parentPath.toArray(new byte[parentPath.size()][]);
@@ -485,6 +638,21 @@ private boolean computeDiffRecursively(final INodeDirectory snapshotDir,
       processFlag = true;
     }
 
+    if (pool != null && processFlag && node.isDirectory()
+        && diffReport.getLastIndex() == -1) {
+      // The whole subtree goes in the listing until the limit. The caller
+      // holds the namesystem read lock for the duration of the call, so the
+      // pool threads can safely walk the tree on its behalf.
+      for (ListingDiff diff : pool.invoke(new SubtreeListingTask(snapshotDir,
+          node, relativePath, earlier, later,
+          diffReport.getRemainingEntries()))) {
+        if (!diff.addTo(diffReport)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     if (node.isDirectory()) {
       final ChildrenDiff diff = new ChildrenDiff();
       INodeDirectory dir = node.asDirectory();
@@ -521,7 +689,7 @@ private boolean computeDiffRecursively(final INodeDirectory snapshotDir,
         if (toProcess) {
           parentPath.add(name);
           processFlag = computeDiffRecursively(snapshotDir, child, parentPath,
-              diffReport, resume, level, processFlag);
+              diffReport, resume, level, processFlag, pool);
           parentPath.remove(parentPath.size() - 1);
           if (!processFlag) {
             return false;
@@ -541,6 +709,125 @@ private boolean computeDiffRecursively(final INodeDirectory snapshotDir,
     return true;
   }
 
+  /**
+   * The diff of a directory or a file to add to a partial diff listing.
+   */
+  private static final class ListingDiff {
+    private final INode node;
+    private final byte[][] relativePath;
+    /** The diff of the children of a directory, null for a file. */
+    private final ChildrenDiff diff;
+
+    ListingDiff(INode node, byte[][] relativePath, ChildrenDiff diff) {
+      this.node = node;
+      this.relativePath = relativePath;
+      this.diff = diff;
+    }
+
+    /** @return the number of entries this diff adds to the listing. */
+    int getNumEntries() {
+      return diff == null ? 1 : 1 + diff.getCreatedUnmodifiable().size()
+          + diff.getDeletedUnmodifiable().size();
+    }
+
+    /** @return false if the listing reached its limit. */
+    boolean addTo(SnapshotDiffListingInfo diffReport) {
+      return diff == null
+          ? diffReport.addFileDiff(node.asFile(), relativePath)
+          : diffReport.addDirDiff(node.getId(), relativePath, diff);
+    }
+  }
+
+  /**
+   * Computes the diffs of a subtree for a partial diff listing, forking the
+   * subtrees of child directories as separate tasks while the pool has spare
+   * capacity. The result is in depth-first traversal order. It stops once it
+   * has more entries than the listing has room for, as the listing cannot
+   * get past them.
+   */
+  private final class SubtreeListingTask
+      extends RecursiveTask<List<ListingDiff>> {
+    private static final long serialVersionUID = 1L;
+
+    private final INodeDirectory snapshotDir;
+    private final INode node;
+    private final byte[][] relativePath;
+    private final Snapshot earlier;
+    private final Snapshot later;
+    private final int limit;
+    private boolean forked = false;
+
+    SubtreeListingTask(INodeDirectory snapshotDir, INode node,
+        byte[][] relativePath, Snapshot earlier, Snapshot later, int limit) {
+      this.snapshotDir = snapshotDir;
+      this.node = node;
+      this.relativePath = relativePath;
+      this.earlier = earlier;
+      this.later = later;
+      this.limit = limit;
+    }
+
+    @Override
+    protected List<ListingDiff> compute() {
+      final List<ListingDiff> diffs = new ArrayList<>();
+      if (!node.isDirectory()) {
+        if (node.isFile() && node.asFile().isWithSnapshot()) {
+          INodeFile file = node.asFile();
+          if (file.getFileWithSnapshotFeature()
+              .changedBetweenSnapshots(file, earlier, later)) {
+            diffs.add(new ListingDiff(file, relativePath, null));
+          }
+        }
+        return diffs;
+      }
+      final INodeDirectory dir = node.asDirectory();
+      final ChildrenDiff diff = new ChildrenDiff();
+      int numEntries = 0;
+      DirectoryWithSnapshotFeature sf = dir.getDirectoryWithSnapshotFeature();
+      if (sf != null
+          && sf.computeDiffBetweenSnapshots(earlier, later, diff, dir)) {
+        ListingDiff dirDiff = new ListingDiff(dir, relativePath, diff);
+        diffs.add(dirDiff);
+        numEntries += dirDiff.getNumEntries();
+      }
+      final List<SubtreeListingTask> children = new ArrayList<>();
+      for (INode child : dir.getChildrenList(earlier.getId())) {
+        final byte[] name = child.getLocalNameBytes();
+        boolean toProcess = !diff.containsDeleted(name);
+        if (!toProcess && child instanceof INodeReference.WithName) {
+          toProcess = findRenameTargetPath(snapshotDir, (WithName) child,
+              Snapshot.getSnapshotId(later)) != null;
+        }
+        if (toProcess) {
+          byte[][] childPath = Arrays.copyOf(relativePath,
+              relativePath.length + 1);
+          childPath[relativePath.length] = name;
+          SubtreeListingTask task = new SubtreeListingTask(snapshotDir,
+              child, childPath, earlier, later, limit);
+          if (child.isDirectory()
+              && getSurplusQueuedTaskCount() <= MAX_SURPLUS_DIFF_TASKS) {
+            task.forked = true;
+            task.fork();
+          }
+          children.add(task);
+        }
+      }
+      for (SubtreeListingTask task : children) {
+        if (numEntries > limit) {
+          // The listing stops before the rest of the subtree
+          task.cancel(false);
+          continue;
+        }
+        for (ListingDiff childDiff : task.forked ? task.join()
+            : task.compute()) {
+          diffs.add(childDiff);
+          numEntries += childDiff.getNumEntries();
+        }
+      }
+      return diffs;
+    }
+  }
+
   /**
    * We just found a deleted WithName node as the source of a rename operation.
    * However, we should include it in our snapshot diff report as rename only
@@ -19,9 +19,9 @@
 
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.hadoop.hdfs.protocol.SnapshotDiffReport;
@@ -64,6 +64,12 @@ public int compare(INode left, INode right) {
   static class RenameEntry {
     private byte[][] sourcePath;
     private byte[][] targetPath;
+    /**
+     * Whether the target path was set explicitly while traversing the
+     * deleted children, which takes precedence over a target path derived
+     * from the created list of a directory diff.
+     */
+    private boolean targetResolved;
 
     void setSource(INode source, byte[][] sourceParentPath) {
       Preconditions.checkState(sourcePath == null);
@@ -82,6 +88,24 @@ void setTarget(INode target, byte[][] targetParentPath) {
 
     void setTarget(byte[][] targetPath) {
       this.targetPath = targetPath;
+      this.targetResolved = true;
+    }
+
+    /**
+     * Merge an entry computed for a later part of the tree traversal into
+     * this entry, following the same precedence as if both parts had been
+     * traversed by a single thread.
+     */
+    void merge(RenameEntry later) {
+      if (later.sourcePath != null) {
+        Preconditions.checkState(sourcePath == null);
+        sourcePath = later.sourcePath;
+      }
+      if (later.targetResolved) {
+        setTarget(later.targetPath);
+      } else if (targetPath == null) {
+        targetPath = later.targetPath;
+      }
     }
 
     boolean isRename() {
@@ -110,9 +134,10 @@ byte[][] getTargetPath() {
   /**
    * A map recording modified INodeFile and INodeDirectory and their relative
    * path corresponding to the snapshot root. Sorted based on their names.
+   * For a partial diff the entries are kept in insertion order instead, so
+   * that merging replays the insertions of a sequential traversal.
    */
-  private final SortedMap<INode, byte[][]> diffMap =
-      new TreeMap<INode, byte[][]>(INODE_COMPARATOR);
+  private final Map<INode, byte[][]> diffMap;
   /**
    * A map capturing the detailed difference about file creation/deletion.
    * Each key indicates a directory whose children have been changed between
@@ -142,12 +167,20 @@ byte[][] getTargetPath() {
 
   SnapshotDiffInfo(INodeDirectory snapshotRootDir,
       INodeDirectory snapshotDiffScopeDir, Snapshot start, Snapshot end) {
+    this(snapshotRootDir, snapshotDiffScopeDir, start, end,
+        new TreeMap<INode, byte[][]>(INODE_COMPARATOR));
+  }
+
+  private SnapshotDiffInfo(INodeDirectory snapshotRootDir,
+      INodeDirectory snapshotDiffScopeDir, Snapshot start, Snapshot end,
+      Map<INode, byte[][]> diffMap) {
     Preconditions.checkArgument(snapshotRootDir.isSnapshottable() &&
         snapshotDiffScopeDir.isDescendantOfSnapshotRoot(snapshotRootDir));
     this.snapshotRoot = snapshotRootDir;
     this.snapshotDiffScopeDir = snapshotDiffScopeDir;
     this.from = start;
     this.to = end;
+    this.diffMap = diffMap;
     this.totalDirsCompared = 0;
     this.totalDirsProcessed = 0;
     this.totalFilesCompared = 0;
@@ -224,6 +257,39 @@ void addFileDiff(INodeFile file, byte[][] relativePath) {
     diffMap.put(file, relativePath);
   }
 
+  /**
+   * @return an empty {@link SnapshotDiffInfo} with the same snapshot root,
+   *         scope and end points, used to collect the diff of a subtree
+   *         computed in parallel.
+   */
+  SnapshotDiffInfo newPartial() {
+    return new SnapshotDiffInfo(snapshotRoot, snapshotDiffScopeDir, from, to,
+        new LinkedHashMap<INode, byte[][]>());
+  }
+
+  /**
+   * Merge the diff collected for a subtree into this diff. Partial diffs
+   * must be merged in the order in which a sequential depth-first traversal
+   * would have visited them.
+   */
+  void merge(SnapshotDiffInfo partial) {
+    // INODE_COMPARATOR treats distinct inodes with the same relative path as
+    // equal, so the insertions are replayed in traversal order to keep the
+    // same entries as a sequential traversal.
+    for (Map.Entry<INode, byte[][]> e : partial.diffMap.entrySet()) {
+      diffMap.put(e.getKey(), e.getValue());
+    }
+    dirDiffMap.putAll(partial.dirDiffMap);
+    for (Map.Entry<Long, RenameEntry> e : partial.renameMap.entrySet()) {
+      getEntry(e.getKey()).merge(e.getValue());
+    }
+    totalDirsCompared += partial.totalDirsCompared;
+    totalDirsProcessed += partial.totalDirsProcessed;
+    totalFilesCompared += partial.totalFilesCompared;
+    totalFilesProcessed += partial.totalFilesProcessed;
+    childrenListingTime += partial.childrenListingTime;
+  }
+
   /** @return True if {@link #from} is earlier than {@link #to} */
   boolean isFromEarlier() {
     return Snapshot.ID_COMPARATOR.compare(from, to) < 0;
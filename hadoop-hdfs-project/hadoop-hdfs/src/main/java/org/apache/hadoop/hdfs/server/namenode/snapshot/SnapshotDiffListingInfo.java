@@ -177,6 +177,15 @@ public void setLastIndex(int idx) {
     this.lastIndex = idx;
   }
 
+  int getLastIndex() {
+    return lastIndex;
+  }
+
+  /** @return the number of entries that can still be added. */
+  int getRemainingEntries() {
+    return maxEntries - getTotalEntries();
+  }
+
   boolean addFileDiff(INodeFile file, byte[][] relativePath) {
     if (getTotalEntries() < maxEntries) {
       modifiedList.add(new DiffReportListingEntry(file.getId(),
@@ -32,6 +32,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.ObjectName;
@@ -125,6 +126,11 @@ public void initThreadLocals() {
    * directory.
    */
   private final boolean snapshotDiffAllowSnapRootDescendant;
+  /**
+   * Pool used to compute snapshot diff reports over subtrees in parallel.
+   * Null if the diff is computed by the calling thread.
+   */
+  private final ForkJoinPool snapshotDiffPool;
 
   private final AtomicInteger numSnapshots = new AtomicInteger();
   private static final int SNAPSHOT_ID_BIT_WIDTH = 28;
@@ -152,6 +158,11 @@ public SnapshotManager(final Configuration conf, final FSDirectory fsdir)
         DFSConfigKeys.DFS_NAMENODE_SNAPSHOT_DIFF_ALLOW_SNAP_ROOT_DESCENDANT,
         DFSConfigKeys.
             DFS_NAMENODE_SNAPSHOT_DIFF_ALLOW_SNAP_ROOT_DESCENDANT_DEFAULT);
+    final int snapshotDiffThreads = conf.getInt(
+        DFSConfigKeys.DFS_NAMENODE_SNAPSHOT_DIFF_PARALLEL_THREADS,
+        DFSConfigKeys.DFS_NAMENODE_SNAPSHOT_DIFF_PARALLEL_THREADS_DEFAULT);
+    this.snapshotDiffPool = snapshotDiffThreads > 1 ?
+        new ForkJoinPool(snapshotDiffThreads) : null;
     this.maxSnapshotLimit = conf.getInt(
         DFSConfigKeys.
             DFS_NAMENODE_SNAPSHOT_MAX_LIMIT,
@@ -165,6 +176,8 @@ public SnapshotManager(final Configuration conf, final FSDirectory fsdir)
         + skipCaptureAccessTimeOnlyChange
         + ", snapshotDiffAllowSnapRootDescendant: "
         + snapshotDiffAllowSnapRootDescendant
+        + ", snapshotDiffThreads: "
+        + snapshotDiffThreads
         + ", maxSnapshotFSLimit: "
         + maxSnapshotFSLimit
         + ", maxSnapshotLimit: "
@@ -718,7 +731,8 @@ public SnapshotDiffReport diff(final INodesInPath iip,
     }
     final SnapshotDiffInfo diffs = snapshotRootDir
         .getDirectorySnapshottableFeature().computeDiff(
-            snapshotRootDir, snapshotDescendantDir, from, to);
+            snapshotRootDir, snapshotDescendantDir, from, to,
+            snapshotDiffPool);
     return diffs != null ? diffs.generateReport() : new SnapshotDiffReport(
         snapshotPath, from, to, Collections.<DiffReportEntry> emptyList());
   }
@@ -745,7 +759,7 @@ public SnapshotDiffReportListing diff(final INodesInPath iip,
     final SnapshotDiffListingInfo diffs =
         snapshotRootDir.getDirectorySnapshottableFeature()
             .computeDiff(snapshotRootDir, snapshotDescendantDir, from, to,
-                startPath, index, snapshotDiffReportLimit);
+                startPath, index, snapshotDiffReportLimit, snapshotDiffPool);
     return diffs != null ? diffs.generateReport() :
         new SnapshotDiffReportListing();
   }
@@ -777,6 +791,9 @@ public void registerMXBean() {
   public void shutdown() {
     MBeans.unregister(mxBeanName);
     mxBeanName = null;
+    if (snapshotDiffPool != null) {
+      snapshotDiffPool.shutdownNow();
+    }
   }
 
   @Override // SnapshotStatsMXBean
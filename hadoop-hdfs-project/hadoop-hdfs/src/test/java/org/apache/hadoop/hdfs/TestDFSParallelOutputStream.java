@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.StreamCapabilities;
+import org.apache.hadoop.hdfs.protocol.HdfsConstants;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.test.LambdaTestUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test writing a file through {@link DFSParallelOutputStream}.
+ */
+public class TestDFSParallelOutputStream {
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  private static MiniDFSCluster cluster;
+  private static DistributedFileSystem fs;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, BLOCK_SIZE);
+    cluster = new MiniDFSCluster.Builder(conf).numDataNodes(3).build();
+    cluster.waitActive();
+    fs = cluster.getFileSystem();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  private static byte[] writeFile(Path path, int length, int streams)
+      throws Exception {
+    byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    try (FSDataOutputStream out = fs.createFile(path).recursive()
+        .replication((short) 2)
+        .parallelStreams(streams).build()) {
+      assertFalse(out.hasCapability(StreamCapabilities.HSYNC));
+      assertFalse(out.hasCapability("hflush"));
+      // odd sized writes crossing the block boundaries
+      for (int off = 0; off < length; off += 100001) {
+        out.write(data, off, Math.min(100001, length - off));
+      }
+    }
+    return data;
+  }
+
+  private static void verifyFile(Path path, byte[] expected)
+      throws Exception {
+    FileStatus status = fs.getFileStatus(path);
+    assertEquals(expected.length, status.getLen());
+    assertEquals(2, status.getReplication());
+    byte[] actual = DFSTestUtil.readFileAsBytes(fs, path);
+    assertArrayEquals(expected, actual);
+
+    LocatedBlocks blocks = fs.getClient().getLocatedBlocks(
+        path.toString(), 0, expected.length);
+    assertEquals((expected.length + BLOCK_SIZE - 1) / BLOCK_SIZE,
+        blocks.locatedBlockCount());
+    // the segment files were concatenated to the target
+    for (FileStatus child : fs.listStatus(path.getParent())) {
+      assertFalse(child.getPath().getName(), child.getPath().getName()
+          .contains(DFSParallelOutputStream.SEGMENT_SUFFIX));
+    }
+  }
+
+  @Test(timeout = 120000)
+  public void testWriteMoreBlocksThanStreams() throws Exception {
+    Path path = new Path("/testWriteMoreBlocksThanStreams/file");
+    byte[] data = writeFile(path, 7 * BLOCK_SIZE + 12345, 3);
+    verifyFile(path, data);
+  }
+
+  @Test(timeout = 120000)
+  public void testWriteFullBlocks() throws Exception {
+    Path path = new Path("/testWriteFullBlocks/file");
+    byte[] data = writeFile(path, 2 * BLOCK_SIZE, 4);
+    verifyFile(path, data);
+  }
+
+  @Test(timeout = 120000)
+  public void testWriteSmallAndEmptyFiles() throws Exception {
+    Path path = new Path("/testWriteSmallAndEmptyFiles/file");
+    verifyFile(path, writeFile(path, 1000, 4));
+    // overwrite the file
+    verifyFile(path, writeFile(path, 0, 4));
+  }
+
+  @Test(timeout = 120000)
+  public void testFailedSegmentIsCleanedUp() throws Exception {
+    Path dir = new Path("/testFailedSegmentIsCleanedUp");
+    Path path = new Path(dir, "file");
+    fs.mkdirs(dir);
+    // the segment files can not be created in a directory at its quota
+    fs.setQuota(dir, 3, HdfsConstants.QUOTA_DONT_SET);
+    LambdaTestUtils.intercept(Exception.class,
+        () -> writeFile(path, 3 * BLOCK_SIZE, 2));
+    // neither the segments nor the partial target are left behind
+    assertEquals(0, fs.listStatus(dir).length);
+  }
+
+  @Test(timeout = 120000)
+  public void testSnapshotBeforeCloseKeepsFiles() throws Exception {
+    Path dir = new Path("/testSnapshotBeforeCloseKeepsFiles");
+    Path path = new Path(dir, "file");
+    Path segment = new Path(
+        DFSParallelOutputStream.getSegmentPath(path.toString(), 1));
+    fs.mkdirs(dir);
+    fs.allowSnapshot(dir);
+    byte[] data = new byte[2 * BLOCK_SIZE + 1000];
+    new Random(0).nextBytes(data);
+    FSDataOutputStream out = fs.createFile(path).replication((short) 2)
+        .parallelStreams(2).build();
+    out.write(data);
+    GenericTestUtils.waitFor(() -> {
+      try {
+        return fs.exists(segment);
+      } catch (Exception e) {
+        return false;
+      }
+    }, 100, 60000);
+    // the segments cannot be concatenated once they are in a snapshot
+    fs.createSnapshot(dir, "s0");
+    LambdaTestUtils.intercept(IOException.class, segment.toString(),
+        out::close);
+
+    // no data is lost: the target holds the first block, the segment
+    // files the others
+    assertEquals(BLOCK_SIZE, fs.getFileStatus(path).getLen());
+    byte[] actual = DFSTestUtil.readFileAsBytes(fs, path);
+    for (int i = 1; i < 3; i++) {
+      Path segmentPath = new Path(
+          DFSParallelOutputStream.getSegmentPath(path.toString(), i));
+      assertTrue(fs.exists(segmentPath));
+      byte[] segmentData = DFSTestUtil.readFileAsBytes(fs, segmentPath);
+      byte[] joined = new byte[actual.length + segmentData.length];
+      System.arraycopy(actual, 0, joined, 0, actual.length);
+      System.arraycopy(segmentData, 0, joined, actual.length,
+          segmentData.length);
+      actual = joined;
+    }
+    assertArrayEquals(data, actual);
+    fs.deleteSnapshot(dir, "s0");
+  }
+
+  @Test(timeout = 120000)
+  public void testExistingSegmentIsNotOverwritten() throws Exception {
+    Path dir = new Path("/testExistingSegmentIsNotOverwritten");
+    Path path = new Path(dir, "file");
+    Path segment = new Path(
+        DFSParallelOutputStream.getSegmentPath(path.toString(), 1));
+    byte[] existing = DFSTestUtil.generateSequentialBytes(0, 1000);
+    DFSTestUtil.writeFile(fs, segment, existing);
+    LambdaTestUtils.intercept(FileAlreadyExistsException.class,
+        () -> writeFile(path, 3 * BLOCK_SIZE, 2));
+    assertFalse(fs.exists(path));
+    assertArrayEquals(existing, DFSTestUtil.readFileAsBytes(fs, segment));
+  }
+
+  @Test(timeout = 120000)
+  public void testHflushIsRejected() throws Exception {
+    Path path = new Path("/testHflushIsRejected");
+    try (FSDataOutputStream out = fs.createFile(path)
+        .parallelStreams(2).build()) {
+      out.write(1);
+      LambdaTestUtils.intercept(UnsupportedOperationException.class,
+          out::hflush);
+      LambdaTestUtils.intercept(UnsupportedOperationException.class,
+          out::hsync);
+    }
+    assertEquals(1, fs.getFileStatus(path).getLen());
+  }
+
+  @Test
+  public void testSegmentPath() {
+    assertEquals("/dir/.file._PARALLEL_3",
+        DFSParallelOutputStream.getSegmentPath("/dir/file", 3));
+  }
+}
@@ -718,6 +718,53 @@ public void testGetListingLimit() throws Exception {
     }
   }
 
+  /**
+   * Test that listings are complete and in order when the next batch is
+   * prefetched, see
+   * {@link HdfsClientConfigKeys.Listing#PREFETCH_THREADPOOL_SIZE_KEY}.
+   */
+  @Test
+  public void testGetListingWithPrefetch() throws Exception {
+    final Configuration conf = getTestConfiguration();
+    conf.setInt(DFSConfigKeys.DFS_LIST_LIMIT, 3);
+    conf.setInt(HdfsClientConfigKeys.Listing.PREFETCH_THREADPOOL_SIZE_KEY, 2);
+    try (MiniDFSCluster cluster =
+             new MiniDFSCluster.Builder(conf).numDataNodes(1).build()) {
+      cluster.waitActive();
+      final DistributedFileSystem fs = cluster.getFileSystem();
+      assertNotNull(fs.dfs.getListingPrefetchThreadPool());
+      fs.dfs = spy(fs.dfs);
+      final Path dir = new Path("/testPrefetch");
+      final int numFiles = 10;
+      for (int i = 0; i < numFiles; i++) {
+        DFSTestUtil.createFile(fs, new Path(dir, String.format("f%02d", i)),
+            1024L, (short) 1, 1);
+      }
+
+      List<FileStatus> statuses =
+          RemoteIterators.toList(fs.listStatusIterator(dir));
+      assertEquals(numFiles, statuses.size());
+      for (int i = 0; i < numFiles; i++) {
+        assertEquals(String.format("f%02d", i),
+            statuses.get(i).getPath().getName());
+      }
+      // every batch is fetched exactly once
+      Mockito.verify(fs.dfs, Mockito.times(4)).listPaths(anyString(), any(),
+          anyBoolean());
+
+      List<LocatedFileStatus> located =
+          RemoteIterators.toList(fs.listLocatedStatus(dir));
+      assertEquals(numFiles, located.size());
+      for (int i = 0; i < numFiles; i++) {
+        assertEquals(String.format("f%02d", i),
+            located.get(i).getPath().getName());
+        assertEquals(1, located.get(i).getBlockLocations().length);
+      }
+      Mockito.verify(fs.dfs, Mockito.times(8)).listPaths(anyString(), any(),
+          anyBoolean());
+    }
+  }
+
   @Test
   public void testStatistics() throws IOException {
     FileSystem.getStatistics(HdfsConstants.HDFS_URI_SCHEME,
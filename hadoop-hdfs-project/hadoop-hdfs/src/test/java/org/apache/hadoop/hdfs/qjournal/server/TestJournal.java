@@ -29,6 +29,11 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileUtil;
@@ -49,7 +54,10 @@
 import org.apache.hadoop.hdfs.server.namenode.NameNodeLayoutVersion;
 import org.apache.hadoop.hdfs.server.protocol.NamespaceInfo;
 import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
 import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.test.MetricsAsserts;
+import org.apache.hadoop.util.Time;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Assume;
@@ -505,6 +513,121 @@ public void testReadFromCache() throws Exception {
     journal.journal(makeRI(7), 16, 16, 5, QJMTestUtil.createTxnData(16, 5));
 
     assertJournaledEditsTxnCountAndContents(16, 10, 20, newLayoutVersion);
+
+    MetricsRecordBuilder metrics =
+        MetricsAsserts.getMetrics(journal.getMetrics().getName());
+    MetricsAsserts.assertCounter("RpcRequestCacheHits", 3L, metrics);
+    assertTrue(MetricsAsserts.getLongGauge("EditCacheUsed", metrics) > 0);
+  }
+
+  @Test(timeout = 60000)
+  public void testLongPollForEdits() throws Exception {
+    journal.close();
+    conf.setTimeDuration(
+        DFSConfigKeys.DFS_JOURNALNODE_TAIL_EDITS_LONG_POLL_TIMEOUT_KEY, 30,
+        TimeUnit.SECONDS);
+    journal = new Journal(conf, TEST_LOG_DIR, JID, StartupOption.REGULAR,
+        mockErrorReporter);
+    journal.newEpoch(FAKE_NSINFO, 1);
+    journal.startLogSegment(makeRI(1), 1,
+        NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
+    journal.journal(makeRI(2), 1, 1, 5, QJMTestUtil.createTxnData(1, 5));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // The request for the next txn waits until it is written
+      Future<GetJournaledEditsResponseProto> result =
+          executor.submit(() -> journal.getJournaledEdits(6, 10));
+      Thread.sleep(500);
+      assertFalse(result.isDone());
+      journal.journal(makeRI(3), 1, 6, 5, QJMTestUtil.createTxnData(6, 5));
+      assertEquals(5, result.get(10, TimeUnit.SECONDS).getTxnCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testLongPollTimeout() throws Exception {
+    journal.close();
+    conf.setTimeDuration(
+        DFSConfigKeys.DFS_JOURNALNODE_TAIL_EDITS_LONG_POLL_TIMEOUT_KEY, 100,
+        TimeUnit.MILLISECONDS);
+    journal = new Journal(conf, TEST_LOG_DIR, JID, StartupOption.REGULAR,
+        mockErrorReporter);
+    journal.newEpoch(FAKE_NSINFO, 1);
+    journal.startLogSegment(makeRI(1), 1,
+        NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
+    journal.journal(makeRI(2), 1, 1, 5, QJMTestUtil.createTxnData(1, 5));
+    long start = Time.monotonicNow();
+    assertEquals(0, journal.getJournaledEdits(6, 10).getTxnCount());
+    assertTrue(Time.monotonicNow() - start >= 100);
+  }
+
+  @Test(timeout = 60000)
+  public void testLongPollPermitsShared() throws Exception {
+    journal.close();
+    conf.setTimeDuration(
+        DFSConfigKeys.DFS_JOURNALNODE_TAIL_EDITS_LONG_POLL_TIMEOUT_KEY, 30,
+        TimeUnit.SECONDS);
+    Semaphore permits = new Semaphore(1);
+    journal = new Journal(conf, TEST_LOG_DIR, JID, StartupOption.REGULAR,
+        mockErrorReporter, permits);
+    File logDir2 = new File(
+        new File(MiniDFSCluster.getBaseDirectory()), "TestJournal2");
+    FileUtil.fullyDelete(logDir2);
+    Journal journal2 = new Journal(conf, logDir2, JID + "2",
+        StartupOption.REGULAR, mockErrorReporter, permits);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      journal2.format(FAKE_NSINFO, false);
+      for (Journal j : new Journal[] {journal, journal2}) {
+        j.newEpoch(FAKE_NSINFO, 1);
+        j.startLogSegment(makeRI(1), 1,
+            NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
+        j.journal(makeRI(2), 1, 1, 5, QJMTestUtil.createTxnData(1, 5));
+      }
+
+      // The long-poll on the first journal takes the only permit
+      Future<GetJournaledEditsResponseProto> result =
+          executor.submit(() -> journal.getJournaledEdits(6, 10));
+      GenericTestUtils.waitFor(() -> permits.availablePermits() == 0,
+          10, 10000);
+      // so the second journal answers at once
+      long start = Time.monotonicNow();
+      assertEquals(0, journal2.getJournaledEdits(6, 10).getTxnCount());
+      assertTrue(Time.monotonicNow() - start < 10000);
+
+      journal.journal(makeRI(3), 1, 6, 5, QJMTestUtil.createTxnData(6, 5));
+      assertEquals(5, result.get(10, TimeUnit.SECONDS).getTxnCount());
+      assertEquals(1, permits.availablePermits());
+    } finally {
+      executor.shutdownNow();
+      journal2.close();
+    }
+  }
+
+  @Test
+  public void testTailerLag() throws Exception {
+    journal.newEpoch(FAKE_NSINFO, 1);
+    journal.startLogSegment(makeRI(1), 1,
+        NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
+    journal.journal(makeRI(2), 1, 1, 5, QJMTestUtil.createTxnData(1, 5));
+    journal.journal(makeRI(3), 1, 6, 5, QJMTestUtil.createTxnData(6, 5));
+    journal.journal(makeRI(4), 1, 11, 5, QJMTestUtil.createTxnData(11, 5));
+
+    journal.getJournaledEdits("nn1.example.com", 6, 5);
+    journal.getJournaledEdits("nn2.example.com", 16, 5);
+    assertEquals(10, journal.getTailers().get("nn1.example.com").getLagTxns());
+    assertEquals(0, journal.getTailers().get("nn2.example.com").getLagTxns());
+    assertEquals(0, journal.getTailers().get("nn2.example.com").getLagMs());
+    MetricsRecordBuilder metrics =
+        MetricsAsserts.getMetrics(journal.getMetrics().getName());
+    MetricsAsserts.assertGauge("MaxTailerLagTxns", 10L, metrics);
+
+    // A request without a caller address is not tracked
+    journal.getJournaledEdits(1, 5);
+    assertEquals(2, journal.getTailers().size());
   }
 
   private void assertJournaledEditsTxnCountAndContents(int startTxn,
@@ -109,6 +109,9 @@ public void testJournalNodeMXBean() throws Exception {
     assertEquals(jn.getJNStartedTimeInMillis(), startTime);
     String version = (String) mbs.getAttribute(mxbeanName, "Version");
     assertEquals(jn.getVersion(), version);
+    String tailersStatus =
+        (String) mbs.getAttribute(mxbeanName, "EditLogTailersStatus");
+    assertEquals(jn.getEditLogTailersStatus(), tailersStatus);
     String[] journalStorageInfos = (String[]) mbs.getAttribute(mxbeanName, "StorageInfos");
     assertEquals(jn.getStorageInfos().size(), journalStorageInfos.length);
     assertTrue(journalStorageInfos[1].contains("ClusterId=mycluster"));
@@ -242,6 +242,59 @@ public void testCacheSizeConfigs() {
     assertEquals((int) (Runtime.getRuntime().maxMemory() * 0.1f), cache.getCapacity());
   }
 
+  @Test
+  public void testAdaptiveCapacity() throws Exception {
+    int capacity = createTxnData(1, 1).length * EDITS_CAPACITY;
+    Configuration conf = new Configuration();
+    conf.setInt(DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_KEY, capacity);
+    conf.setBoolean(
+        DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_KEY, true);
+    conf.setLong(
+        DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_ADAPTIVE_INTERVAL_KEY, 0);
+    cache = new JournaledEditsCache(conf);
+    cache.setMinAdaptiveCapacity(1);
+    assertEquals(capacity, cache.getEffectiveCapacity());
+
+    // Without readers only the latest batch is kept
+    for (int txn = 1; txn <= 30; txn++) {
+      storeEdits(txn, txn);
+    }
+    assertEquals(1, cache.getEffectiveCapacity());
+    assertEquals(createTxnData(30, 1).length, cache.getTotalSize());
+    assertCacheMiss(29);
+
+    // The edits of a lagging reader are kept
+    assertTxnCountAndContents(30, 10, 30);
+    for (int txn = 31; txn <= 40; txn++) {
+      storeEdits(txn, txn);
+      assertTxnCountAndContents(30, 50, txn);
+    }
+    int effectiveCapacity = cache.getEffectiveCapacity();
+    assertTrue(effectiveCapacity >= createTxnData(30, 11).length);
+    assertTrue(effectiveCapacity <= 2 * createTxnData(30, 11).length);
+
+    // A reader behind the cache grows it up to all the edits since txn 1
+    assertCacheMiss(1);
+    storeEdits(41, 41);
+    assertTrue(cache.getEffectiveCapacity() >= createTxnData(1, 40).length);
+    assertTrue(cache.getEffectiveCapacity() <= capacity);
+
+    // Shrink once nobody reads
+    storeEdits(42, 42);
+    assertEquals(1, cache.getEffectiveCapacity());
+    storeEdits(43, 43);
+    assertCacheMiss(42);
+  }
+
+  private void assertCacheMiss(long txn) throws Exception {
+    try {
+      cache.retrieveEdits(txn, 10, new ArrayList<>());
+      fail("Expected a cache miss for txn " + txn);
+    } catch (JournaledEditsCache.CacheMissException cme) {
+      // expected
+    }
+  }
+
   private void storeEdits(int startTxn, int endTxn) throws Exception {
     cache.storeEdits(createTxnData(startTxn, endTxn - startTxn + 1), startTxn,
         endTxn, NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
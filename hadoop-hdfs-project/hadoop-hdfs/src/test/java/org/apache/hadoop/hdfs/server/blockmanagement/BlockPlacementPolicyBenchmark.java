@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.blockmanagement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.StorageType;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.TestBlockStoragePolicy;
+import org.apache.hadoop.hdfs.net.DFSNetworkTopology;
+import org.apache.hadoop.hdfs.server.common.HdfsServerConstants;
+import org.apache.hadoop.net.NetworkTopology;
+import org.apache.hadoop.net.Node;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Benchmark for {@link BlockPlacementPolicy#chooseTarget} without a NameNode.
+ * <p>
+ * {@code -nodes} simulated datanodes on {@code -racks} racks are added to a
+ * {@link DFSNetworkTopology}. The fraction {@code -full} of them has no
+ * remaining space, and each call excludes a random fraction
+ * {@code -excluded} of them, as a client that excludes bad datanodes or a
+ * rebalancing would. The throughput of choosing {@code -replicas} targets is
+ * reported for every policy given by {@code -policies}.
+ * <pre>
+ * BlockPlacementPolicyBenchmark [-nodes 10000] [-racks 200] [-full 0.9]
+ *     [-excluded 0.5] [-replicas 3] [-ops 100000]
+ *     [-policies BlockPlacementPolicyDefault,CostBasedBlockPlacementPolicy]
+ * </pre>
+ */
+public class BlockPlacementPolicyBenchmark extends Configured implements Tool {
+  private static final int BLOCK_SIZE = 1024;
+  private static final long CAPACITY =
+      100L * HdfsServerConstants.MIN_BLOCKS_FOR_WRITE * BLOCK_SIZE;
+  private static final int NUM_EXCLUDED_SETS = 16;
+
+  private int numNodes = 10000;
+  private int numRacks = 200;
+  private double fullRatio = 0.9;
+  private double excludedRatio = 0.5;
+  private int replicas = 3;
+  private int ops = 100000;
+  private String[] policies = {BlockPlacementPolicyDefault.class.getName(),
+      CostBasedBlockPlacementPolicy.class.getName()};
+
+  private static void printUsage() {
+    System.err.println("Usage: BlockPlacementPolicyBenchmark [-nodes N]"
+        + " [-racks N] [-full r] [-excluded r] [-replicas N] [-ops N]"
+        + " [-policies class1,class2,...]");
+    ToolRunner.printGenericCommandUsage(System.err);
+  }
+
+  private boolean parseArgs(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        return false;
+      }
+      String value = args[++i];
+      switch (args[i - 1]) {
+      case "-nodes":
+        numNodes = Integer.parseInt(value);
+        break;
+      case "-racks":
+        numRacks = Integer.parseInt(value);
+        break;
+      case "-full":
+        fullRatio = Double.parseDouble(value);
+        break;
+      case "-excluded":
+        excludedRatio = Double.parseDouble(value);
+        break;
+      case "-replicas":
+        replicas = Integer.parseInt(value);
+        break;
+      case "-ops":
+        ops = Integer.parseInt(value);
+        break;
+      case "-policies":
+        policies = value.split(",");
+        break;
+      default:
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int run(String[] args) throws Exception {
+    if (!parseArgs(args)) {
+      printUsage();
+      return -1;
+    }
+    String[] racks = new String[numNodes];
+    for (int i = 0; i < numNodes; i++) {
+      racks[i] = "/rack" + (i % numRacks);
+    }
+    DatanodeDescriptor[] nodes = DFSTestUtil.toDatanodeDescriptor(
+        DFSTestUtil.createDatanodeStorageInfos(racks));
+    Random random = new Random(0);
+    for (DatanodeDescriptor dn : nodes) {
+      long remaining = random.nextDouble() < fullRatio ? 0 : CAPACITY;
+      dn.getStorageInfos()[0].setUtilizationForTesting(
+          CAPACITY, CAPACITY - remaining, remaining, 0L);
+      dn.updateHeartbeat(BlockManagerTestUtil.getStorageReportsForDatanode(dn),
+          0L, 0L, 0, 0, null);
+      dn.setAlive(true);
+    }
+    List<Set<Node>> excludedSets = new ArrayList<>(NUM_EXCLUDED_SETS);
+    List<Node> shuffled = new ArrayList<>(nodes.length);
+    Collections.addAll(shuffled, nodes);
+    for (int i = 0; i < NUM_EXCLUDED_SETS; i++) {
+      Collections.shuffle(shuffled, random);
+      excludedSets.add(new HashSet<>(
+          shuffled.subList(0, (int) (excludedRatio * nodes.length))));
+    }
+
+    for (String policyName : policies) {
+      Configuration conf = new HdfsConfiguration(getConf());
+      NetworkTopology topology = DFSNetworkTopology.getInstance(conf);
+      for (DatanodeDescriptor dn : nodes) {
+        topology.add(dn);
+      }
+      Class<? extends BlockPlacementPolicy> clazz = conf.getClassByName(
+          policyName.contains(".") ? policyName
+              : BlockPlacementPolicy.class.getPackage().getName() + "."
+              + policyName).asSubclass(BlockPlacementPolicy.class);
+      conf.setBoolean(
+          DFSConfigKeys.DFS_NAMENODE_REDUNDANCY_CONSIDERLOAD_KEY, false);
+      BlockPlacementPolicy policy = ReflectionUtils.newInstance(clazz, conf);
+      policy.initialize(conf, new NoLoadClusterStats(numNodes), topology,
+          new Host2NodesMap());
+
+      // warm up, then measure
+      runOps(policy, excludedSets, Math.min(ops, 1000));
+      long start = System.nanoTime();
+      long elapsed = runOps(policy, excludedSets, ops);
+      long wall = System.nanoTime() - start;
+      System.out.println(String.format("%s: nodes=%d racks=%d full=%.2f"
+          + " excluded=%.2f replicas=%d ops=%d: %.0f ops/s, avg %.1f us"
+          + " (wall %d ms)", clazz.getSimpleName(), numNodes, numRacks,
+          fullRatio, excludedRatio, replicas, ops,
+          ops * 1e9 / Math.max(1, elapsed), elapsed / 1e3 / ops,
+          wall / 1000000));
+    }
+    return 0;
+  }
+
+  /** @return the total nanoseconds spent in chooseTarget. */
+  private long runOps(BlockPlacementPolicy policy, List<Set<Node>> excludedSets,
+      int count) {
+    long elapsed = 0;
+    for (int i = 0; i < count; i++) {
+      Set<Node> excluded =
+          new HashSet<>(excludedSets.get(i % excludedSets.size()));
+      long start = System.nanoTime();
+      policy.chooseTarget("/benchmark", replicas, null, new ArrayList<>(),
+          false, excluded, BLOCK_SIZE,
+          TestBlockStoragePolicy.DEFAULT_STORAGE_POLICY, null);
+      elapsed += System.nanoTime() - start;
+    }
+    return elapsed;
+  }
+
+  /** Cluster statistics of idle datanodes. */
+  private static final class NoLoadClusterStats implements FSClusterStats {
+    private final int numNodes;
+
+    NoLoadClusterStats(int numNodes) {
+      this.numNodes = numNodes;
+    }
+
+    @Override
+    public int getTotalLoad() {
+      return 0;
+    }
+
+    @Override
+    public boolean isAvoidingStaleDataNodesForWrite() {
+      return false;
+    }
+
+    @Override
+    public int getNumDatanodesInService() {
+      return numNodes;
+    }
+
+    @Override
+    public double getInServiceXceiverAverage() {
+      return 0;
+    }
+
+    @Override
+    public double getInServiceXceiverAverageForVolume() {
+      return 0;
+    }
+
+    @Override
+    public Map<StorageType, StorageTypeStats> getStorageTypeStats() {
+      return Collections.emptyMap();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int res = ToolRunner.run(new HdfsConfiguration(),
+        new BlockPlacementPolicyBenchmark(), args);
+    System.exit(res);
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.blockmanagement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.StorageType;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.TestBlockStoragePolicy;
+import org.apache.hadoop.hdfs.server.common.HdfsServerConstants;
+import org.apache.hadoop.hdfs.server.namenode.NameNode;
+import org.apache.hadoop.net.Node;
+import org.apache.hadoop.test.PathUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCostBasedBlockPlacementPolicy {
+  private static final int NUM_RACKS = 4;
+  private static final int NODES_PER_RACK = 5;
+  private static final int BLOCK_SIZE = 1024;
+  private static final long CAPACITY =
+      2L * HdfsServerConstants.MIN_BLOCKS_FOR_WRITE * BLOCK_SIZE;
+
+  private DatanodeDescriptor[] dataNodes;
+  private NameNode namenode;
+  private CostBasedBlockPlacementPolicy policy;
+
+  @Before
+  public void setupCluster() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    String[] racks = new String[NUM_RACKS * NODES_PER_RACK];
+    for (int i = 0; i < racks.length; i++) {
+      racks[i] = "/rack" + (i % NUM_RACKS);
+    }
+    dataNodes = DFSTestUtil.toDatanodeDescriptor(
+        DFSTestUtil.createDatanodeStorageInfos(racks));
+
+    FileSystem.setDefaultUri(conf, "hdfs://localhost:0");
+    conf.set(DFSConfigKeys.DFS_NAMENODE_HTTP_ADDRESS_KEY, "0.0.0.0:0");
+    File baseDir = PathUtils.getTestDir(getClass());
+    conf.set(DFSConfigKeys.DFS_NAMENODE_NAME_DIR_KEY,
+        new File(baseDir, "name").getPath());
+    conf.set(DFSConfigKeys.DFS_BLOCK_REPLICATOR_CLASSNAME_KEY,
+        CostBasedBlockPlacementPolicy.class.getName());
+    DFSTestUtil.formatNameNode(conf);
+    namenode = new NameNode(conf);
+
+    BlockManager bm = namenode.getNamesystem().getBlockManager();
+    policy = (CostBasedBlockPlacementPolicy) bm.getBlockPlacementPolicy();
+    for (DatanodeDescriptor dn : dataNodes) {
+      bm.getDatanodeManager().getNetworkTopology().add(dn);
+      dn.setAlive(true);
+      // remaining 100% on the even nodes, 50% on the odd nodes
+      updateHeartbeat(dn, CAPACITY);
+    }
+    for (int i = 1; i < dataNodes.length; i += 2) {
+      updateHeartbeat(dataNodes[i], CAPACITY / 2);
+    }
+    policy.refresh();
+  }
+
+  @After
+  public void tearDown() {
+    if (namenode != null) {
+      namenode.stop();
+    }
+  }
+
+  private static void updateHeartbeat(DatanodeDescriptor dn, long remaining) {
+    dn.getStorageInfos()[0].setUtilizationForTesting(
+        CAPACITY, CAPACITY - remaining, remaining, 0L);
+    dn.updateHeartbeat(BlockManagerTestUtil.getStorageReportsForDatanode(dn),
+        0L, 0L, 0, 0, null);
+  }
+
+  private DatanodeStorageInfo[] chooseTarget(int replicas) {
+    return policy.chooseTarget("/file", replicas, null, new ArrayList<>(),
+        false, null, BLOCK_SIZE, TestBlockStoragePolicy.DEFAULT_STORAGE_POLICY,
+        null);
+  }
+
+  @Test
+  public void testChooseTargetPrefersRemainingSpace() {
+    int total = 0;
+    int moreRemaining = 0;
+    for (int i = 0; i < 5000; i++) {
+      DatanodeStorageInfo[] targets = chooseTarget(3);
+      assertEquals(3, targets.length);
+      Set<String> racks = new HashSet<>();
+      for (DatanodeStorageInfo target : targets) {
+        racks.add(target.getDatanodeDescriptor().getNetworkLocation());
+        total++;
+        if (target.getDatanodeDescriptor().getRemainingPercent() > 60) {
+          moreRemaining++;
+        }
+      }
+      assertEquals(2, racks.size());
+    }
+    // weights 1.2 and 1.0 with the default preference of 0.6
+    double fraction = (double) moreRemaining / total;
+    assertTrue("fraction " + fraction, fraction > 0.5 && fraction < 0.6);
+  }
+
+  @Test
+  public void testEmptyNodeIsNotAHotspot() {
+    DatanodeDescriptor empty = dataNodes[0];
+    for (DatanodeDescriptor dn : dataNodes) {
+      updateHeartbeat(dn, dn == empty ? CAPACITY : CAPACITY / 100);
+    }
+    policy.refresh();
+    int chosen = 0;
+    int total = 20000;
+    for (int i = 0; i < total; i++) {
+      if (policy.chooseDataNode("", null, StorageType.DEFAULT) == empty) {
+        chosen++;
+      }
+    }
+    // Weighting by remaining space alone would choose the empty node for
+    // 84% of the targets. With the default preference of 0.6 its weight is
+    // 1.2 against about 0.8 for each of the 19 full nodes, i.e. 7.3%.
+    double fraction = (double) chosen / total;
+    assertTrue("fraction " + fraction, fraction > 0.06 && fraction < 0.09);
+  }
+
+  @Test
+  public void testChooseDataNodeWithinScope() {
+    Set<Node> excluded = new HashSet<>();
+    for (int i = 0; i < 200; i++) {
+      DatanodeDescriptor dn =
+          policy.chooseDataNode("/rack1", excluded, StorageType.DEFAULT);
+      assertEquals("/rack1", dn.getNetworkLocation());
+      dn = policy.chooseDataNode("~/rack1", excluded, StorageType.DEFAULT);
+      assertNotEquals("/rack1", dn.getNetworkLocation());
+    }
+    CostBasedBlockPlacementPolicy.CandidateIndex index =
+        policy.getCandidateIndex(StorageType.DEFAULT);
+    assertEquals(0, index.getRanges("/rack").length);
+    assertEquals(1, index.getRanges("~/rack").length);
+    assertEquals(2, index.getRanges("~/rack2").length);
+  }
+
+  @Test
+  public void testChooseDataNodeWithMostNodesExcluded() {
+    Set<Node> excluded = new HashSet<>();
+    DatanodeDescriptor remaining = dataNodes[dataNodes.length - 1];
+    for (DatanodeDescriptor dn : dataNodes) {
+      if (dn != remaining) {
+        excluded.add(dn);
+      }
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(remaining,
+          policy.chooseDataNode("", excluded, StorageType.DEFAULT));
+      assertEquals(remaining, policy.chooseDataNode(
+          remaining.getNetworkLocation(), excluded, StorageType.DEFAULT));
+    }
+    excluded.add(remaining);
+    assertNull(policy.chooseDataNode("", excluded, StorageType.DEFAULT));
+  }
+
+  @Test
+  public void testFullAndDeadNodesAreNotChosen() {
+    for (int i = 0; i < dataNodes.length; i += 2) {
+      updateHeartbeat(dataNodes[i], 0);
+    }
+    policy.refresh();
+    assertEquals(dataNodes.length / 2,
+        policy.getCandidateIndex(StorageType.DEFAULT).size());
+
+    // a node that died after the rebuild is skipped
+    dataNodes[1].setAlive(false);
+    Set<Node> excluded = new HashSet<>();
+    for (int i = 0; i < 200; i++) {
+      DatanodeDescriptor dn =
+          policy.chooseDataNode("", excluded, StorageType.DEFAULT);
+      assertEquals(1, indexOf(dn) % 2);
+      assertNotEquals(dataNodes[1], dn);
+    }
+  }
+
+  @Test
+  public void testNodeRegisteredAfterRebuildIsChosen() {
+    DatanodeDescriptor added = DFSTestUtil.createDatanodeStorageInfo(
+        "s-added", "10.0.0.1", "/rack1", "added").getDatanodeDescriptor();
+    namenode.getNamesystem().getBlockManager().getDatanodeManager()
+        .getNetworkTopology().add(added);
+    added.setAlive(true);
+    updateHeartbeat(added, CAPACITY);
+
+    // every indexed node is excluded, the new node is not indexed yet
+    Set<Node> excluded = new HashSet<>();
+    for (DatanodeDescriptor dn : dataNodes) {
+      excluded.add(dn);
+    }
+    assertEquals(dataNodes.length,
+        policy.getCandidateIndex(StorageType.DEFAULT).size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(added,
+          policy.chooseDataNode("", excluded, StorageType.DEFAULT));
+      assertEquals(added,
+          policy.chooseDataNode("/rack1", excluded, StorageType.DEFAULT));
+    }
+  }
+
+  private int indexOf(DatanodeDescriptor dn) {
+    for (int i = 0; i < dataNodes.length; i++) {
+      if (dataNodes[i] == dn) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -35,6 +35,7 @@
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
+import java.util.Random;
 import java.util.function.Supplier;
 
 import net.jcip.annotations.NotThreadSafe;
@@ -169,6 +170,86 @@ public void testReceivePacketMetrics() throws Exception {
     }
   }
 
+  @Test
+  public void testReceivePacketStageMetrics() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    final int interval = 1;
+    conf.setInt(DFSConfigKeys.DFS_METRICS_PERCENTILES_INTERVALS_KEY, interval);
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(2).build();
+    try {
+      cluster.waitActive();
+      DistributedFileSystem fs = cluster.getFileSystem();
+      // One data packet and the empty packet signaling the end of the block
+      DFSTestUtil.createFile(fs, new Path("/testReceivePacketStages.txt"),
+          1L, (short) 2, 1L);
+
+      long networkReads = 0;
+      long mirrorWrites = 0;
+      long checksums = 0;
+      long diskWrites = 0;
+      for (DataNode datanode : cluster.getDataNodes()) {
+        MetricsRecordBuilder dnMetrics =
+            getMetrics(datanode.getMetrics().name());
+        networkReads +=
+            getLongCounter("ReceivePacketNetworkReadNanosNumOps", dnMetrics);
+        mirrorWrites +=
+            getLongCounter("ReceivePacketMirrorWriteNanosNumOps", dnMetrics);
+        checksums +=
+            getLongCounter("ReceivePacketChecksumNanosNumOps", dnMetrics);
+        diskWrites +=
+            getLongCounter("ReceivePacketDiskWriteNanosNumOps", dnMetrics);
+      }
+      assertEquals(4, networkReads);
+      // Only the first datanode mirrors, only the last one verifies
+      assertEquals(2, mirrorWrites);
+      assertEquals(1, checksums);
+      assertEquals(2, diskWrites);
+    } finally {
+      if (cluster != null) {cluster.shutdown();}
+    }
+  }
+
+  @Test
+  public void testReceivePacketDirectForwarding() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(
+        DFSConfigKeys.DFS_DATANODE_PIPELINE_DIRECT_FORWARDING_ENABLED_KEY,
+        true);
+    conf.setFloat(DFSConfigKeys.DFS_DATANODE_PIPELINE_CHECKSUM_SAMPLE_RATIO_KEY,
+        1.0f);
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(3).build();
+    try {
+      cluster.waitActive();
+      DistributedFileSystem fs = cluster.getFileSystem();
+      Path testFile = new Path("/testReceivePacketDirectForwarding.txt");
+      byte[] data = new byte[300 * 1024 + 1];
+      new Random(0).nextBytes(data);
+      // The flush ends a packet in the middle of a checksum chunk
+      try (FSDataOutputStream out = fs.create(testFile, (short) 3)) {
+        out.write(data, 0, 1000);
+        out.hflush();
+        out.write(data, 1000, data.length - 1000);
+      }
+      assertArrayEquals(data, DFSTestUtil.readFileAsBytes(fs, testFile));
+
+      long forwarded = 0;
+      for (DataNode datanode : cluster.getDataNodes()) {
+        MetricsRecordBuilder dnMetrics =
+            getMetrics(datanode.getMetrics().name());
+        forwarded += getLongCounter("PacketsForwardedDirect", dnMetrics);
+        // Every datanode verifies with a sample ratio of 1
+        assertTrue(getLongCounter("ReceivePacketChecksumNanosNumOps",
+            dnMetrics) > 0);
+      }
+      // The first two datanodes forward the packets
+      assertTrue(forwarded > 0);
+    } finally {
+      if (cluster != null) {cluster.shutdown();}
+    }
+  }
+
   @Test
   public void testReceivePacketSlowMetrics() throws Exception {
     Configuration conf = new HdfsConfiguration();
@@ -1368,6 +1368,93 @@ void printResults() {
     }
   }   // end BlockReportStats
 
+  /**
+   * Heartbeat statistics.
+   *
+   * Simulates a heartbeat storm: a number of data-nodes is registered and
+   * the heartbeats of all of them are sent by several threads concurrently,
+   * each thread walking the data-nodes round robin.
+   */
+  class HeartbeatStats extends OperationStatsBase {
+    static final String OP_HEARTBEAT_NAME = "heartbeat";
+    static final String OP_HEARTBEAT_USAGE =
+        "-op heartbeat [-threads T] [-datanodes N] [-heartbeats H]";
+
+    private int numDatanodes;
+    private TinyDatanode[] datanodes;
+
+    HeartbeatStats(List<String> args) {
+      super();
+      numThreads = 10;
+      numOpsRequired = 1000;
+      numDatanodes = 100;
+      // set heartbeat interval to 3 min, so that expiration were 40 min
+      config.setLong(DFSConfigKeys.DFS_HEARTBEAT_INTERVAL_KEY, 3 * 60);
+      parseArguments(args);
+    }
+
+    @Override
+    String getOpName() {
+      return OP_HEARTBEAT_NAME;
+    }
+
+    @Override
+    void parseArguments(List<String> args) {
+      boolean ignoreUnrelatedOptions = verifyOpArgument(args);
+      for (int i = 2; i < args.size(); i++) {       // parse command line
+        if(args.get(i).equals("-heartbeats")) {
+          if(i+1 == args.size())  printUsage();
+          numOpsRequired = Integer.parseInt(args.get(++i));
+        } else if(args.get(i).equals("-datanodes")) {
+          if(i+1 == args.size())  printUsage();
+          numDatanodes = Integer.parseInt(args.get(++i));
+        } else if(args.get(i).equals("-threads")) {
+          if(i+1 == args.size())  printUsage();
+          numThreads = Integer.parseInt(args.get(++i));
+        } else if(!ignoreUnrelatedOptions)
+          printUsage();
+      }
+    }
+
+    @Override
+    void generateInputs(int[] ignore) throws IOException {
+      datanodes = new TinyDatanode[numDatanodes];
+      for(int idx=0; idx < numDatanodes; idx++) {
+        datanodes[idx] = new TinyDatanode(idx, 0);
+        datanodes[idx].register();
+        datanodes[idx].sendHeartbeat();
+      }
+    }
+
+    /**
+     * Does not require the argument
+     */
+    @Override
+    String getExecutionArgument(int daemonId) {
+      return null;
+    }
+
+    @Override
+    long executeOp(int daemonId, int inputIdx, String ignore)
+        throws IOException {
+      TinyDatanode dn =
+          datanodes[(inputIdx * numThreads + daemonId) % numDatanodes];
+      long start = Time.now();
+      dn.sendHeartbeat();
+      long end = Time.now();
+      return end-start;
+    }
+
+    @Override
+    void printResults() {
+      LOG.info("--- " + getOpName() + " inputs ---");
+      LOG.info("heartbeats = " + numOpsRequired);
+      LOG.info("datanodes = " + numDatanodes);
+      LOG.info("nrThreads = " + numThreads);
+      printStats();
+    }
+  }   // end HeartbeatStats
+
   /**
    * Measures how fast redundancy monitor can compute data-node work.
    *
@@ -1551,6 +1638,7 @@ static void printUsage() {
         + " | \n\t" + RenameFileStats.OP_RENAME_USAGE
         + " | \n\t" + BlockReportStats.OP_BLOCK_REPORT_USAGE
         + " | \n\t" + ReplicationStats.OP_REPLICATION_USAGE
+        + " | \n\t" + HeartbeatStats.OP_HEARTBEAT_USAGE
         + " | \n\t" + CleanAllStats.OP_CLEAN_USAGE
         + " | \n\t" + GENERAL_OPTIONS_USAGE
     );
@@ -1634,6 +1722,10 @@ public int run(String[] aArgs) throws Exception {
           ops.add(opStat);
         }
       }
+      if(runAll || HeartbeatStats.OP_HEARTBEAT_NAME.equals(type)) {
+        opStat = new HeartbeatStats(args);
+        ops.add(opStat);
+      }
       if(runAll || CleanAllStats.OP_CLEAN_NAME.equals(type)) {
         opStat = new CleanAllStats(args);
         ops.add(opStat);
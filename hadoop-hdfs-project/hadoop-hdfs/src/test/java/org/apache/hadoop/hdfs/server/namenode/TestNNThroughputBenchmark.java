@@ -190,6 +190,25 @@ public void testNNThroughputForBlockReportOp() throws Exception {
     }
   }
 
+  /**
+   * This test runs {@link NNThroughputBenchmark} against a mini DFS cluster
+   * for heartbeat operation.
+   */
+  @Test(timeout = 120000)
+  public void testNNThroughputForHeartbeatOp() throws Exception {
+    final Configuration conf = new HdfsConfiguration();
+    try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).
+        numDataNodes(0).build()) {
+      cluster.waitActive();
+      final Configuration benchConf = new HdfsConfiguration();
+      NNThroughputBenchmark.runBenchmark(benchConf,
+          new String[]{"-fs", cluster.getURI().toString(), "-op",
+              "heartbeat", "-datanodes", "8", "-threads", "4",
+              "-heartbeats", "64"});
+      Assert.assertEquals(8, cluster.getNamesystem().getNumLiveDataNodes());
+    }
+  }
+
   /**
    * This test runs {@link NNThroughputBenchmark} against a mini DFS cluster
    * with explicit -baseDirName option.
@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.audit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.ipc.CallerContext;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BinaryAuditLogger} and {@link BinaryAuditLogReader}.
+ */
+public class TestBinaryAuditLogger {
+  private File dir;
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    dir = GenericTestUtils.getRandomizedTestDir();
+    conf = new Configuration();
+    conf.set(DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_DIR_KEY,
+        dir.getAbsolutePath());
+    conf.setBoolean(
+        CommonConfigurationKeysPublic.HADOOP_CALLER_CONTEXT_ENABLED_KEY, true);
+  }
+
+  @After
+  public void tearDown() {
+    FileUtil.fullyDelete(dir);
+  }
+
+  private List<AuditRecord> readAll() throws Exception {
+    List<AuditRecord> records = new ArrayList<>();
+    File[] files = dir.listFiles();
+    assertTrue(files != null && files.length > 0);
+    for (File f : files) {
+      try (BinaryAuditLogReader reader = new BinaryAuditLogReader(f)) {
+        for (AuditRecord r = reader.next(); r != null; r = reader.next()) {
+          records.add(r);
+        }
+      }
+    }
+    return records;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    BinaryAuditLogger logger = new BinaryAuditLogger();
+    logger.initialize(conf);
+    InetAddress addr = InetAddress.getByName("192.168.1.10");
+    FileStatus stat = new FileStatus(0, false, 3, 128, 1, 1,
+        new FsPermission((short) 0640), "alice", "staff", null,
+        new Path("/a"));
+    logger.logAuditEvent(true, "alice", addr, "create", "/a", null, stat,
+        new CallerContext.Builder("job_1").build(), null, null);
+    logger.logAuditEvent(false, "bob (auth:SIMPLE)", null, "rename", "/a",
+        "/b", null, null, null, null);
+    logger.close();
+
+    List<AuditRecord> records = readAll();
+    assertEquals(2, records.size());
+    AuditRecord r = records.get(0);
+    assertTrue(r.isSucceeded());
+    assertEquals("alice", r.getUserName());
+    assertArrayEquals(addr.getAddress(), r.getAddress());
+    assertEquals("create", r.getCmd());
+    assertEquals("/a", r.getSrc());
+    assertNull(r.getDst());
+    assertEquals("alice", r.getOwner());
+    assertEquals("staff", r.getGroup());
+    assertEquals(new FsPermission((short) 0640), r.getPermission());
+    assertEquals("job_1", r.getCallerContext());
+    assertEquals("allowed=true\tugi=alice\tip=/192.168.1.10\tcmd=create\t"
+        + "src=/a\tdst=null\tperm=alice:staff:rw-r-----\t"
+        + "callerContext=job_1", r.toString());
+
+    r = records.get(1);
+    assertFalse(r.isSucceeded());
+    assertEquals("bob (auth:SIMPLE)", r.getUserName());
+    assertNull(r.getAddress());
+    assertEquals("/b", r.getDst());
+    assertNull(r.getPermission());
+    assertTrue(r.getTimestamp() >= records.get(0).getTimestamp());
+  }
+
+  @Test(timeout = 60000)
+  public void testConcurrentHandlersWithRolling() throws Exception {
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_QUEUE_CAPACITY_KEY,
+        64);
+    conf.set(DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_OVERFLOW_POLICY_KEY,
+        "block");
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_BATCH_SIZE_KEY, 16);
+    conf.setLong(DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_ROLL_SIZE_KEY,
+        16 * 1024);
+    final BinaryAuditLogger logger = new BinaryAuditLogger();
+    logger.initialize(conf);
+    final int threads = 8;
+    final int eventsPerThread = 5000;
+    List<Thread> handlers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final String user = "user" + t;
+      Thread handler = new Thread(() -> {
+        for (int i = 0; i < eventsPerThread; i++) {
+          logger.logAuditEvent(true, user, null, "open", "/f" + i, null,
+              null, null, null, null);
+        }
+      });
+      handler.start();
+      handlers.add(handler);
+    }
+    for (Thread handler : handlers) {
+      handler.join();
+    }
+    logger.close();
+
+    assertEquals(0, logger.getMetrics().eventsDropped.value());
+    assertEquals((long) threads * eventsPerThread,
+        logger.getMetrics().eventsWritten.value());
+    assertTrue(dir.listFiles().length > 1);
+    Set<String> seen = new HashSet<>();
+    for (AuditRecord r : readAll()) {
+      assertTrue(seen.add(r.getUserName() + r.getSrc()));
+    }
+    assertEquals(threads * eventsPerThread, seen.size());
+  }
+
+  @Test
+  public void testUserNameFormattedByWriter() throws Exception {
+    BinaryAuditLogger logger = new BinaryAuditLogger();
+    logger.initialize(conf);
+    assertFalse(logger.needsUserName());
+    UserGroupInformation ugi = UserGroupInformation.createRemoteUser("carol");
+    logger.logAuditEvent(true, null, null, "open", "/a", null, null, null,
+        ugi, null);
+    logger.close();
+
+    List<AuditRecord> records = readAll();
+    assertEquals(1, records.size());
+    assertEquals(ugi.toString(), records.get(0).getUserName());
+  }
+
+  @Test(timeout = 60000)
+  public void testWriterParksUntilEventIsPublished() throws Exception {
+    final BinaryAuditLogger logger = new BinaryAuditLogger();
+    logger.initialize(conf);
+    // parked without a timeout while the queue is empty
+    GenericTestUtils.waitFor(() -> logger.getWriterThread().getState()
+        == Thread.State.WAITING, 10, 10000);
+    logger.logAuditEvent(true, "u", null, "open", "/a", null, null, null,
+        null, null);
+    GenericTestUtils.waitFor(
+        () -> logger.getMetrics().eventsWritten.value() == 1, 10, 10000);
+    logger.close();
+    assertEquals(1, readAll().size());
+  }
+
+  @Test(timeout = 60000)
+  public void testFailedRollKeepsCurrentFile() throws Exception {
+    conf.setLong(DFSConfigKeys.DFS_NAMENODE_AUDIT_BINARY_LOG_ROLL_SIZE_KEY, 1);
+    final AtomicBoolean failRoll = new AtomicBoolean();
+    final BinaryAuditLogger logger = new BinaryAuditLogger() {
+      @Override
+      BinaryAuditLogWriter createWriter(File file) throws IOException {
+        if (failRoll.getAndSet(false)) {
+          throw new IOException("Injected roll failure");
+        }
+        return super.createWriter(file);
+      }
+    };
+    logger.initialize(conf);
+    File first = logger.getCurrentFile();
+    failRoll.set(true);
+    logger.logAuditEvent(true, "u", null, "open", "/a", null, null, null,
+        null, null);
+    GenericTestUtils.waitFor(
+        () -> logger.getMetrics().eventsWritten.value() == 1, 10, 10000);
+    assertEquals(first, logger.getCurrentFile());
+
+    // the next batch is still written to the first file, then rolled
+    logger.logAuditEvent(true, "u", null, "open", "/b", null, null, null,
+        null, null);
+    GenericTestUtils.waitFor(
+        () -> logger.getMetrics().eventsWritten.value() == 2, 10, 10000);
+    assertTrue(!first.equals(logger.getCurrentFile()));
+    logger.close();
+
+    assertEquals(0, logger.getMetrics().writeFailures.value());
+    List<AuditRecord> records = new ArrayList<>();
+    try (BinaryAuditLogReader reader = new BinaryAuditLogReader(first)) {
+      for (AuditRecord r = reader.next(); r != null; r = reader.next()) {
+        records.add(r);
+      }
+    }
+    assertEquals(2, records.size());
+    assertEquals("/b", records.get(1).getSrc());
+  }
+
+  @Test(timeout = 60000)
+  public void testCloseWithConcurrentHandlers() throws Exception {
+    final BinaryAuditLogger logger = new BinaryAuditLogger();
+    logger.initialize(conf);
+    final AtomicBoolean stop = new AtomicBoolean();
+    List<Thread> handlers = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread handler = new Thread(() -> {
+        while (!stop.get()) {
+          logger.logAuditEvent(true, "u", null, "open", "/f", null, null,
+              null, null, null);
+        }
+      });
+      handler.start();
+      handlers.add(handler);
+    }
+    Thread.sleep(100);
+    logger.close();
+    stop.set(true);
+    for (Thread handler : handlers) {
+      handler.join();
+    }
+
+    // every event enqueued concurrently with close() is written
+    long written = logger.getMetrics().eventsWritten.value();
+    assertEquals(logger.getMetrics().eventsEnqueued.value(), written);
+    assertEquals(written, readAll().size());
+  }
+
+  @Test
+  public void testRingBufferOverflow() {
+    AuditRingBuffer ring = new AuditRingBuffer(5);
+    assertEquals(4, ring.getCapacity());
+    for (int i = 0; i < 4; i++) {
+      long pos = ring.tryClaim();
+      assertEquals(i, pos);
+      ring.get(pos).set(i, true, "u", null, (InetAddress) null, "cmd",
+          null, null, null, null);
+      ring.publish(pos);
+    }
+    assertEquals(-1, ring.tryClaim());
+    assertEquals(4, ring.size());
+
+    assertEquals(0, ring.peek().getTimestamp());
+    ring.release();
+    assertEquals(4, ring.tryClaim());
+    // A claimed slot is not visible to the consumer until it is published.
+    for (int i = 1; i < 4; i++) {
+      assertEquals(i, ring.peek().getTimestamp());
+      ring.release();
+    }
+    assertNull(ring.peek());
+    ring.get(4).set(4, true, "u", null, (InetAddress) null, "cmd", null, null,
+        null, null);
+    ring.publish(4);
+    assertEquals("cmd", ring.peek().getCmd());
+  }
+}
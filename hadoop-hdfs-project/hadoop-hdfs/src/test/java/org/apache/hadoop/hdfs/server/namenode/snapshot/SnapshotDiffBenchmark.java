@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.snapshot;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.protocol.SnapshotDiffReport;
+import org.apache.hadoop.hdfs.protocol.SnapshotDiffReportListing;
+import org.apache.hadoop.util.Time;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Benchmark for the snapshot diff computation on the NameNode.
+ * <p>
+ * A synthetic namespace of {@code -dirs} directories with {@code -files}
+ * empty files each is created on a {@link MiniDFSCluster} without DataNodes.
+ * For every change ratio given by {@code -changes}, a snapshot is taken, the
+ * given fraction of files is modified, deleted, renamed or complemented by a
+ * new file, and a second snapshot is taken. The time to compute the full
+ * {@link SnapshotDiffReport} and to iterate over the paginated
+ * {@link SnapshotDiffReportListing} is reported for every value of
+ * {@code -threads}.
+ * <pre>
+ * SnapshotDiffBenchmark [-dirs 100] [-files 1000] [-changes 0.01,0.1,0.5]
+ *     [-threads 1,4,16] [-iterations 3]
+ * </pre>
+ */
+public class SnapshotDiffBenchmark extends Configured implements Tool {
+  private static final Path ROOT = new Path("/snapshotDiffBenchmark");
+
+  private int numDirs = 100;
+  private int numFiles = 1000;
+  private double[] changeRatios = {0.01, 0.1, 0.5};
+  private int[] threads = {1, 4, 16};
+  private int iterations = 3;
+
+  private static void printUsage() {
+    System.err.println("Usage: SnapshotDiffBenchmark [-dirs N] [-files N]"
+        + " [-changes r1,r2,...] [-threads t1,t2,...] [-iterations N]");
+    ToolRunner.printGenericCommandUsage(System.err);
+  }
+
+  private boolean parseArgs(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        return false;
+      }
+      String value = args[++i];
+      switch (args[i - 1]) {
+      case "-dirs":
+        numDirs = Integer.parseInt(value);
+        break;
+      case "-files":
+        numFiles = Integer.parseInt(value);
+        break;
+      case "-changes":
+        String[] ratios = value.split(",");
+        changeRatios = new double[ratios.length];
+        for (int j = 0; j < ratios.length; j++) {
+          changeRatios[j] = Double.parseDouble(ratios[j]);
+        }
+        break;
+      case "-threads":
+        String[] counts = value.split(",");
+        threads = new int[counts.length];
+        for (int j = 0; j < counts.length; j++) {
+          threads[j] = Integer.parseInt(counts[j]);
+        }
+        break;
+      case "-iterations":
+        iterations = Integer.parseInt(value);
+        break;
+      default:
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int run(String[] args) throws Exception {
+    if (!parseArgs(args)) {
+      printUsage();
+      return -1;
+    }
+    for (int t : threads) {
+      Configuration conf = new HdfsConfiguration(getConf());
+      conf.setInt(DFSConfigKeys.DFS_NAMENODE_SNAPSHOT_DIFF_PARALLEL_THREADS,
+          t);
+      MiniDFSCluster cluster =
+          new MiniDFSCluster.Builder(conf).numDataNodes(0).build();
+      try {
+        cluster.waitActive();
+        runWithCluster(cluster.getFileSystem(), t);
+      } finally {
+        cluster.shutdown();
+      }
+    }
+    return 0;
+  }
+
+  private Path file(int d, int f) {
+    return new Path(new Path(ROOT, "d" + d), "f" + f);
+  }
+
+  private void runWithCluster(DistributedFileSystem dfs, int numThreads)
+      throws IOException {
+    for (int d = 0; d < numDirs; d++) {
+      dfs.mkdirs(new Path(ROOT, "d" + d));
+      for (int f = 0; f < numFiles; f++) {
+        dfs.create(file(d, f), (short) 1).close();
+      }
+    }
+    dfs.allowSnapshot(ROOT);
+    Random random = new Random(0);
+    for (int c = 0; c < changeRatios.length; c++) {
+      String from = "c" + c + "-from";
+      String to = "c" + c + "-to";
+      dfs.createSnapshot(ROOT, from);
+      long changes = 0;
+      for (int d = 0; d < numDirs; d++) {
+        for (int f = 0; f < numFiles; f++) {
+          if (random.nextDouble() >= changeRatios[c]) {
+            continue;
+          }
+          Path p = file(d, f);
+          if (!dfs.exists(p)) {
+            dfs.create(p, (short) 1).close();
+          } else if (f % 3 == 0) {
+            dfs.setReplication(p, (short) (dfs.getFileStatus(p)
+                .getReplication() % 3 + 1));
+          } else if (f % 3 == 1) {
+            dfs.delete(p, false);
+          } else {
+            dfs.rename(p, file((d + 1) % numDirs, f).suffix("." + c));
+          }
+          changes++;
+        }
+      }
+      dfs.createSnapshot(ROOT, to);
+
+      for (int i = 0; i < iterations; i++) {
+        long start = Time.monotonicNow();
+        SnapshotDiffReport report = dfs.getSnapshotDiffReport(ROOT, from, to);
+        long reportTime = Time.monotonicNow() - start;
+
+        start = Time.monotonicNow();
+        long listed = 0;
+        RemoteIterator<SnapshotDiffReportListing> it =
+            dfs.snapshotDiffReportListingRemoteIterator(ROOT, from, to);
+        while (it.hasNext()) {
+          SnapshotDiffReportListing l = it.next();
+          listed += l.getModifyList().size() + l.getCreateList().size()
+              + l.getDeleteList().size();
+        }
+        long listingTime = Time.monotonicNow() - start;
+
+        System.out.println(String.format("threads=%d files=%d changes=%d"
+            + " (%.3f) iteration=%d: report entries=%d time=%dms,"
+            + " listing entries=%d time=%dms", numThreads,
+            (long) numDirs * numFiles, changes, changeRatios[c], i,
+            report.getDiffList().size(), reportTime, listed, listingTime));
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int res = ToolRunner.run(new HdfsConfiguration(),
+        new SnapshotDiffBenchmark(), args);
+    System.exit(res);
+  }
+}
@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.DFSUtilClient;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.protocol.SnapshotDiffReport;
+import org.apache.hadoop.hdfs.protocol.SnapshotDiffReportListing;
+import org.apache.hadoop.hdfs.protocol.SnapshotDiffReportListing.DiffReportListingEntry;
+import org.apache.hadoop.hdfs.server.namenode.FSNamesystem;
+import org.apache.hadoop.hdfs.server.namenode.INodeDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Verify that the snapshot diff report and the partial diff listing computed
+ * with {@link DFSConfigKeys#DFS_NAMENODE_SNAPSHOT_DIFF_PARALLEL_THREADS} are
+ * identical to the ones computed by a single thread.
+ */
+public class TestParallelSnapshotDiff {
+  {
+    SnapshotTestHelper.disableLogs();
+  }
+
+  private static final int NUM_DIRS = 8;
+  private static final int NUM_FILES = 20;
+  private static final int LISTING_LIMIT = 10;
+
+  private final Path root = new Path("/" + getClass().getSimpleName());
+
+  private MiniDFSCluster cluster;
+  private DistributedFileSystem hdfs;
+  private FSNamesystem fsn;
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_SNAPSHOT_DIFF_PARALLEL_THREADS, 4);
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_SNAPSHOT_DIFF_LISTING_LIMIT,
+        LISTING_LIMIT);
+    cluster = new MiniDFSCluster.Builder(conf).numDataNodes(0).build();
+    cluster.waitActive();
+    hdfs = cluster.getFileSystem();
+    fsn = cluster.getNamesystem();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (cluster != null) {
+      cluster.shutdown();
+      cluster = null;
+    }
+  }
+
+  private Path file(int d, int f) {
+    return new Path(new Path(new Path(root, "d" + d), "sub"), "f" + f);
+  }
+
+  @Test(timeout = 120000)
+  public void testParallelDiffMatchesSerialDiff() throws Exception {
+    for (int d = 0; d < NUM_DIRS; d++) {
+      for (int f = 0; f < NUM_FILES; f++) {
+        DFSTestUtil.createFile(hdfs, file(d, f), 0, (short) 1, 0L);
+      }
+    }
+    hdfs.allowSnapshot(root);
+    hdfs.createSnapshot(root, "s0");
+
+    Random random = new Random(0);
+    for (int d = 0; d < NUM_DIRS; d++) {
+      for (int f = 0; f < NUM_FILES; f++) {
+        Path p = file(d, f);
+        switch (random.nextInt(5)) {
+        case 0:
+          hdfs.setReplication(p, (short) 2);
+          break;
+        case 1:
+          hdfs.delete(p, false);
+          break;
+        case 2:
+          // rename across the subtrees diffed by different tasks
+          hdfs.rename(p, new Path(file((d + 1) % NUM_DIRS, f) + ".r" + d));
+          break;
+        case 3:
+          hdfs.rename(p, new Path(p + ".r"));
+          break;
+        default:
+          DFSTestUtil.createFile(hdfs, new Path(p + ".new"), 0, (short) 1, 0L);
+        }
+      }
+    }
+    hdfs.rename(new Path(root, "d0"), new Path(root, "d0.renamed"));
+    hdfs.createSnapshot(root, "s1");
+    hdfs.delete(new Path(root, "d1"), true);
+
+    assertSameDiff("s0", "s1", NUM_DIRS * NUM_FILES / 2);
+    assertSameDiff("s1", "s0", NUM_DIRS * NUM_FILES / 2);
+    assertSameDiff("s0", "", NUM_DIRS * NUM_FILES / 2);
+    // only the deletion of d1
+    assertSameDiff("s1", "", 2);
+  }
+
+  private void assertSameDiff(String from, String to, int minEntries)
+      throws Exception {
+    // DistributedFileSystem would use the paginated listing for snapshots
+    SnapshotDiffReport parallel = cluster.getNameNodeRpc()
+        .getSnapshotDiffReport(root.toString(), from, to);
+    SnapshotDiffReport serial;
+    fsn.readLock();
+    try {
+      INodeDirectory dir =
+          fsn.getFSDirectory().getINode(root.toString()).asDirectory();
+      serial = dir.getDirectorySnapshottableFeature()
+          .computeDiff(dir, dir, from, to).generateReport();
+    } finally {
+      fsn.readUnlock();
+    }
+    assertTrue(serial.getDiffList().size() >= minEntries);
+    assertEquals(serial.getDiffList(), parallel.getDiffList());
+
+    // The paginated listing used by DistributedFileSystem and DistCp
+    byte[] startPath = DFSUtilClient.EMPTY_BYTES;
+    int index = -1;
+    int numEntries = 0;
+    do {
+      SnapshotDiffReportListing parallelPage = cluster.getNameNodeRpc()
+          .getSnapshotDiffReportListing(root.toString(), from, to,
+              startPath, index);
+      SnapshotDiffReportListing serialPage;
+      fsn.readLock();
+      try {
+        INodeDirectory dir =
+            fsn.getFSDirectory().getINode(root.toString()).asDirectory();
+        serialPage = dir.getDirectorySnapshottableFeature()
+            .computeDiff(dir, dir, from, to, startPath, index,
+                LISTING_LIMIT).generateReport();
+      } finally {
+        fsn.readUnlock();
+      }
+      assertEquals(toString(serialPage), toString(parallelPage));
+      numEntries += serialPage.getModifyList().size()
+          + serialPage.getCreateList().size()
+          + serialPage.getDeleteList().size();
+      startPath = serialPage.getLastPath();
+      index = serialPage.getLastIndex();
+    } while (!(Arrays.equals(startPath, DFSUtilClient.EMPTY_BYTES)
+        && index == -1));
+    assertTrue(numEntries >= minEntries);
+  }
+
+  private static String toString(SnapshotDiffReportListing listing) {
+    StringBuilder b = new StringBuilder();
+    b.append("modified:").append(toString(listing.getModifyList()))
+        .append(" created:").append(toString(listing.getCreateList()))
+        .append(" deleted:").append(toString(listing.getDeleteList()))
+        .append(" lastPath:")
+        .append(DFSUtilClient.bytes2String(listing.getLastPath()))
+        .append(" lastIndex:").append(listing.getLastIndex());
+    return b.toString();
+  }
+
+  private static String toString(List<DiffReportListingEntry> entries) {
+    StringBuilder b = new StringBuilder();
+    for (DiffReportListingEntry e : entries) {
+      b.append('[').append(e.getDirId()).append(',').append(e.getFileId())
+          .append(',').append(Arrays.deepToString(e.getSourcePath()))
+          .append(',').append(e.isReference()).append(',')
+          .append(Arrays.deepToString(e.getTargetPath())).append(']');
+    }
+    return b.toString();
+  }
+}
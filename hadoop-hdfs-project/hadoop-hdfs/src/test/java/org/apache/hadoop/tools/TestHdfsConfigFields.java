@@ -46,6 +46,7 @@ public void initializeMemberVariables() {
         HdfsClientConfigKeys.BlockWrite.class, HdfsClientConfigKeys.Write.class,
         HdfsClientConfigKeys.Read.class, HdfsClientConfigKeys.HedgedRead.class,
         HdfsClientConfigKeys.ShortCircuit.class,
+        HdfsClientConfigKeys.Listing.class,
         HdfsClientConfigKeys.Retry.class, HdfsClientConfigKeys.Mmap.class,
         HdfsClientConfigKeys.BlockWrite.ReplaceDatanodeOnFailure.class };
 
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.Lz4Codec;
+import org.apache.hadoop.io.compress.ZStandardCodec;
+import org.apache.hadoop.io.compress.zstd.ZStandardCompressor;
+import org.apache.hadoop.io.compress.zstd.ZStandardDecompressor;
+import org.apache.hadoop.io.compress.zstd.ZStandardJniCompressor;
+import org.apache.hadoop.io.compress.zstd.ZStandardJniDecompressor;
+
+/**
+ * Benchmark of the compression codecs through their streams.
+ *
+ * zstd-native needs libhadoop built with zstd in java.library.path, the
+ * other engines do not. The compression ratio of each engine is printed
+ * when its trial ends.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompressionCodecBenchmark {
+
+  static final int DATA_SIZE = 4 * 1024 * 1024;
+
+  @State(Scope.Thread)
+  public static class CodecChoice {
+
+    @Param({"zstd-native", "zstd-jni", "lz4"})
+    private String engine;
+
+    @Param({"1", "3"})
+    private int zstdLevel;
+
+    private CompressionCodec codec;
+    private Compressor compressor;
+    private Decompressor decompressor;
+    private byte[] data;
+    private byte[] compressed;
+    private byte[] buffer = new byte[64 * 1024];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      Configuration conf = new Configuration();
+      conf.setInt(CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_LEVEL_KEY,
+          zstdLevel);
+      switch (engine) {
+      case "zstd-native":
+        if (!ZStandardCodec.isNativeCodeLoaded()) {
+          throw new IllegalStateException(
+              "libhadoop with zstd is not loaded");
+        }
+        codec = newCodec(new ZStandardCodec(), conf);
+        compressor = new ZStandardCompressor(zstdLevel,
+            ZStandardCompressor.getRecommendedBufferSize());
+        decompressor = new ZStandardDecompressor(
+            ZStandardDecompressor.getRecommendedBufferSize());
+        break;
+      case "zstd-jni":
+        codec = newCodec(new ZStandardCodec(), conf);
+        compressor = new ZStandardJniCompressor(zstdLevel,
+            ZStandardJniCompressor.getRecommendedBufferSize());
+        decompressor = new ZStandardJniDecompressor(
+            ZStandardJniDecompressor.getRecommendedBufferSize());
+        break;
+      default:
+        codec = newCodec(new Lz4Codec(), conf);
+        compressor = codec.createCompressor();
+        decompressor = codec.createDecompressor();
+        break;
+      }
+      data = generateData();
+      compressed = compress(this);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      System.out.printf("%n%s level %d compression ratio: %.3f%n", engine,
+          zstdLevel, (double) data.length / compressed.length);
+      compressor.end();
+      decompressor.end();
+    }
+  }
+
+  private static CompressionCodec newCodec(CompressionCodec codec,
+      Configuration conf) {
+    ((Configurable) codec).setConf(conf);
+    return codec;
+  }
+
+  /**
+   * @return text like data, words of a small vocabulary in random order.
+   */
+  private static byte[] generateData() {
+    Random random = new Random(0);
+    String[] words = new String[1000];
+    for (int i = 0; i < words.length; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 2 + random.nextInt(10);
+      for (int j = 0; j < length; j++) {
+        word.append((char) ('a' + random.nextInt(26)));
+      }
+      words[i] = word.toString();
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(DATA_SIZE);
+    while (out.size() < DATA_SIZE) {
+      byte[] word = words[random.nextInt(words.length)].getBytes();
+      out.write(word, 0, word.length);
+      out.write(random.nextInt(10) == 0 ? '\n' : ' ');
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] compress(CodecChoice choice) throws IOException {
+    choice.compressor.reset();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(DATA_SIZE);
+    try (OutputStream out =
+        choice.codec.createOutputStream(bytes, choice.compressor)) {
+      out.write(choice.data);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  public void compress(CodecChoice choice, Blackhole blackhole)
+      throws IOException {
+    blackhole.consume(compress(choice));
+  }
+
+  @Benchmark
+  public void decompress(CodecChoice choice, Blackhole blackhole)
+      throws IOException {
+    choice.decompressor.reset();
+    long total = 0;
+    try (InputStream in = choice.codec.createInputStream(
+        new ByteArrayInputStream(choice.compressed), choice.decompressor)) {
+      int n;
+      while ((n = in.read(choice.buffer)) > 0) {
+        total += n;
+      }
+    }
+    if (total != choice.data.length) {
+      throw new IOException("Decompressed " + total + " bytes instead of "
+          + choice.data.length);
+    }
+    blackhole.consume(total);
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args optional directory with libhadoop to benchmark the native
+   *             zstd codec.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("CompressionCodecBenchmark");
+    if (args.length > 0) {
+      opts.jvmArgs("-server", "-Xms256m", "-Xmx2g",
+          "-Djava.library.path=" + args[0]);
+    } else {
+      opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    }
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
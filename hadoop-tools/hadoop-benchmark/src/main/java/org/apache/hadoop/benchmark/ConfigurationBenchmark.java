@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.FrozenConfiguration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+
+/**
+ * Benchmark of the configuration reads from concurrent threads, with a
+ * {@link Configuration} or a {@link FrozenConfiguration}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class ConfigurationBenchmark {
+
+  /** Keys of string properties, some of them with variables. */
+  private static final String[] KEYS = {
+      CommonConfigurationKeys.FS_DEFAULT_NAME_KEY,
+      CommonConfigurationKeys.HADOOP_SECURITY_AUTHENTICATION,
+      CommonConfigurationKeys.HADOOP_TMP_DIR,
+      CommonConfigurationKeys.IO_SERIALIZATIONS_KEY,
+  };
+
+  /** Keys of integer properties. */
+  private static final String[] INT_KEYS = {
+      CommonConfigurationKeys.IO_FILE_BUFFER_SIZE_KEY,
+      CommonConfigurationKeys.IPC_CLIENT_CONNECT_TIMEOUT_KEY,
+      CommonConfigurationKeys.IPC_CLIENT_CONNECT_MAX_RETRIES_KEY,
+      CommonConfigurationKeys.IPC_SERVER_HANDLER_QUEUE_SIZE_KEY,
+  };
+
+  @State(Scope.Benchmark)
+  public static class ConfChoice {
+
+    @Param({"plain", "frozen"})
+    private String mode;
+
+    private Configuration conf;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      Configuration plain = new Configuration();
+      for (String key : INT_KEYS) {
+        plain.setInt(key, plain.getInt(key, 0));
+      }
+      conf = "frozen".equals(mode) ? new FrozenConfiguration(plain) : plain;
+    }
+  }
+
+  /** The next key read by a thread. */
+  @State(Scope.Thread)
+  public static class KeyIndex {
+    private int index;
+
+    int next() {
+      index = (index + 1) & 3;
+      return index;
+    }
+  }
+
+  @Benchmark
+  public String get(ConfChoice choice, KeyIndex index) {
+    return choice.conf.get(KEYS[index.next()]);
+  }
+
+  @Benchmark
+  public String getTrimmed(ConfChoice choice, KeyIndex index) {
+    return choice.conf.getTrimmed(KEYS[index.next()]);
+  }
+
+  @Benchmark
+  public int getInt(ConfChoice choice, KeyIndex index) {
+    return choice.conf.getInt(INT_KEYS[index.next()], 0);
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("ConfigurationBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
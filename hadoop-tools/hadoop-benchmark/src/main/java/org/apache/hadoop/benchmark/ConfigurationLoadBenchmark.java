@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Benchmark of the loading of the default resources of {@link Configuration},
+ * parsing the XML or using the cache of the parsed resources.
+ *
+ * The first load runs in a new JVM each time, like the first load of a
+ * task. With the cache, it reads the binary cache written by the previous
+ * JVMs.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigurationLoadBenchmark {
+
+  /** System properties of the cache, see {@link Configuration}. */
+  private static final String CACHE_DIR = "hadoop.conf.cache.dir";
+  private static final String CACHE_ENABLED = "hadoop.conf.cache.enabled";
+
+  @State(Scope.Benchmark)
+  public static class CacheChoice {
+
+    @Param({"false", "true"})
+    private boolean cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      System.setProperty(CACHE_ENABLED, Boolean.toString(cache));
+      if (cache) {
+        File dir = new File(System.getProperty("java.io.tmpdir"),
+            "hadoop-conf-cache-benchmark");
+        System.setProperty(CACHE_DIR, dir.getAbsolutePath());
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(20)
+  public int firstLoad(CacheChoice choice) {
+    return new Configuration().size();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  public int load(CacheChoice choice) {
+    return new Configuration().size();
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("ConfigurationLoadBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.crypto.CryptoCodec;
+import org.apache.hadoop.crypto.CryptoInputStream;
+import org.apache.hadoop.crypto.CryptoOutputStream;
+import org.apache.hadoop.crypto.JceAesCtrCryptoCodec;
+import org.apache.hadoop.crypto.OpensslAesCtrCryptoCodec;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+
+/**
+ * Benchmark of the throughput of the crypto streams with the AES/CTR codecs
+ * of the JCE and of OpenSSL: sequential and positioned reads of an
+ * encrypted local file, and writes. The positioned reads can be decrypted in
+ * parallel chunks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CryptoStreamBenchmark {
+
+  private static final byte[] KEY = new byte[16];
+  private static final byte[] IV = new byte[16];
+
+  @State(Scope.Benchmark)
+  public static class CryptoChoice {
+
+    @Param({"jce", "openssl"})
+    private String codecName;
+
+    @Param({"0", "1048576"})
+    private int parallelDecryptionSize;
+
+    @Param({"67108864"})
+    private int fileSize;
+
+    @Param({"4194304"})
+    private int readSize;
+
+    private CryptoCodec codec;
+    private FileSystem fs;
+    private File dir;
+    private Path file;
+    private byte[] data;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      Configuration conf = new Configuration();
+      conf.set(CommonConfigurationKeysPublic
+              .HADOOP_SECURITY_CRYPTO_CODEC_CLASSES_AES_CTR_NOPADDING_KEY,
+          "jce".equals(codecName) ? JceAesCtrCryptoCodec.class.getName() :
+              OpensslAesCtrCryptoCodec.class.getName());
+      conf.setInt(CommonConfigurationKeysPublic
+              .HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPTION_SIZE_KEY,
+          parallelDecryptionSize);
+      codec = CryptoCodec.getInstance(conf);
+      if (codec == null) {
+        throw new IllegalStateException(
+            "The " + codecName + " codec is not available");
+      }
+      data = new byte[readSize];
+      new Random(1).nextBytes(data);
+      buffer = new byte[readSize];
+
+      dir = File.createTempFile("crypto", "");
+      dir.delete();
+      dir.mkdirs();
+      fs = FileSystem.getLocal(conf).getRaw();
+      file = new Path(dir.getPath(), "data");
+      try (OutputStream out = new CryptoOutputStream(fs.create(file), codec,
+          KEY, IV)) {
+        for (int i = 0; i < fileSize / readSize; i++) {
+          out.write(data);
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
+  @Benchmark
+  public void read(CryptoChoice choice, Blackhole blackhole)
+      throws IOException {
+    try (CryptoInputStream in = new CryptoInputStream(
+        choice.fs.open(choice.file), choice.codec, KEY, IV)) {
+      int n;
+      while ((n = in.read(choice.buffer)) > 0) {
+        blackhole.consume(n);
+      }
+    }
+  }
+
+  @Benchmark
+  public void pread(CryptoChoice choice, Blackhole blackhole)
+      throws IOException {
+    try (CryptoInputStream in = new CryptoInputStream(
+        choice.fs.open(choice.file), choice.codec, KEY, IV)) {
+      for (long pos = 0; pos < choice.fileSize; pos += choice.readSize) {
+        in.readFully(pos, choice.buffer);
+        blackhole.consume(choice.buffer);
+      }
+    }
+  }
+
+  @Benchmark
+  public void write(CryptoChoice choice) throws IOException {
+    try (OutputStream out = new CryptoOutputStream(
+        new IOUtils.NullOutputStream(), choice.codec, KEY, IV)) {
+      for (int i = 0; i < choice.fileSize / choice.readSize; i++) {
+        out.write(choice.data);
+      }
+    }
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("CryptoStreamBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Checksum;
+
+import org.apache.hadoop.fs.ChecksumException;
+import org.apache.hadoop.util.DataChecksum;
+import org.apache.hadoop.util.PureJavaCrc32;
+import org.apache.hadoop.util.PureJavaCrc32C;
+
+/**
+ * Benchmark of the bulk checksum operations of {@link DataChecksum}.
+ *
+ * The bulk operations use libhadoop when it is loaded and the JDK CRC32 and
+ * CRC32C otherwise. Run the benchmark with and without libhadoop in
+ * java.library.path to compare the native and JDK paths, the pure Java
+ * implementations are the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataChecksumBenchmark {
+
+  @State(Scope.Thread)
+  public static class ChecksumChoice {
+
+    @Param({"CRC32", "CRC32C"})
+    private String type;
+
+    @Param({"512", "4096", "65536"})
+    private int bytesPerChecksum;
+
+    @Param({"65536", "8388608"})
+    private int dataSize;
+
+    @Param({"direct", "array"})
+    private String bufferKind;
+
+    private DataChecksum checksum;
+    private Checksum pureJava;
+    private ByteBuffer data;
+    private ByteBuffer sums;
+
+    @Setup(Level.Trial)
+    public void setup() throws ChecksumException {
+      DataChecksum.Type checksumType = DataChecksum.Type.valueOf(type);
+      checksum = DataChecksum.newDataChecksum(checksumType, bytesPerChecksum);
+      pureJava = checksumType == DataChecksum.Type.CRC32C
+          ? new PureJavaCrc32C() : new PureJavaCrc32();
+      int sumsSize = (dataSize - 1) / bytesPerChecksum + 1;
+      sumsSize *= checksum.getChecksumSize();
+      if ("direct".equals(bufferKind)) {
+        data = ByteBuffer.allocateDirect(dataSize);
+        sums = ByteBuffer.allocateDirect(sumsSize);
+      } else {
+        data = ByteBuffer.allocate(dataSize);
+        sums = ByteBuffer.allocate(sumsSize);
+      }
+      byte[] bytes = new byte[dataSize];
+      new Random(0).nextBytes(bytes);
+      data.put(bytes);
+      data.flip();
+      checksum.calculateChunkedSums(data, sums);
+      checksum.verifyChunkedSums(data, sums, "benchmark", 0);
+    }
+  }
+
+  @Benchmark
+  public void calculate(ChecksumChoice choice, Blackhole blackhole) {
+    choice.checksum.calculateChunkedSums(choice.data, choice.sums);
+    blackhole.consume(choice.sums);
+  }
+
+  @Benchmark
+  public void verify(ChecksumChoice choice) throws ChecksumException {
+    choice.checksum.verifyChunkedSums(choice.data, choice.sums, "benchmark",
+        0);
+  }
+
+  @Benchmark
+  public void calculatePureJava(ChecksumChoice choice, Blackhole blackhole) {
+    ByteBuffer data = choice.data.duplicate();
+    byte[] chunk = new byte[choice.bytesPerChecksum];
+    while (data.hasRemaining()) {
+      int n = Math.min(data.remaining(), chunk.length);
+      data.get(chunk, 0, n);
+      choice.pureJava.reset();
+      choice.pureJava.update(chunk, 0, n);
+      blackhole.consume(choice.pureJava.getValue());
+    }
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args optional directory with libhadoop to benchmark the native
+   *             checksums.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("DataChecksumBenchmark");
+    if (args.length > 0) {
+      opts.jvmArgs("-server", "-Xms256m", "-Xmx2g",
+          "-Djava.library.path=" + args[0]);
+    } else {
+      opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    }
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.security.GroupMappingServiceProvider;
+import org.apache.hadoop.security.Groups;
+
+/**
+ * Benchmark of the group resolution of many users on a cold cache, e.g.
+ * after a NameNode failover: the users looked up one by one, together, or
+ * prewarmed from a snapshot of the cache. The directory is simulated by a
+ * group mapping taking a fixed latency per request, and looking up to 100
+ * users per request like LdapGroupsMapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GroupsLookupBenchmark {
+
+  private static final int BULK_SEARCH_SIZE = 100;
+
+  /**
+   * Group mapping with a fixed latency per request.
+   */
+  public static class SlowGroupsMapping
+      implements GroupMappingServiceProvider {
+    private static volatile long latencyMs;
+
+    private static void sleep() throws IOException {
+      try {
+        Thread.sleep(latencyMs);
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+    }
+
+    private static Set<String> groups(String user) {
+      return Collections.singleton("group-" + user.hashCode() % 10);
+    }
+
+    @Override
+    public List<String> getGroups(String user) throws IOException {
+      return new ArrayList<>(getGroupsSet(user));
+    }
+
+    @Override
+    public Set<String> getGroupsSet(String user) throws IOException {
+      sleep();
+      return groups(user);
+    }
+
+    @Override
+    public Map<String, Set<String>> getGroupsSets(Collection<String> users)
+        throws IOException {
+      Map<String, Set<String>> result = new LinkedHashMap<>();
+      for (String user : users) {
+        if (result.size() % BULK_SEARCH_SIZE == 0) {
+          sleep();
+        }
+        result.put(user, groups(user));
+      }
+      return result;
+    }
+
+    @Override
+    public void cacheGroupsRefresh() {
+    }
+
+    @Override
+    public void cacheGroupsAdd(List<String> groups) {
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class GroupsChoice {
+
+    @Param({"1000"})
+    private int users;
+
+    @Param({"1"})
+    private long latencyMs;
+
+    private Configuration conf;
+    private Configuration snapshotConf;
+    private File dir;
+    private List<String> names;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      SlowGroupsMapping.latencyMs = latencyMs;
+      conf = new Configuration();
+      conf.setClass(CommonConfigurationKeys.HADOOP_SECURITY_GROUP_MAPPING,
+          SlowGroupsMapping.class, GroupMappingServiceProvider.class);
+      names = new ArrayList<>();
+      for (int i = 0; i < users; i++) {
+        names.add("user" + i);
+      }
+
+      dir = File.createTempFile("groups", "");
+      dir.delete();
+      dir.mkdirs();
+      snapshotConf = new Configuration(conf);
+      snapshotConf.set(
+          CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_FILE,
+          new File(dir, "groups.snapshot").getPath());
+      snapshotConf.setLong(CommonConfigurationKeys.
+          HADOOP_SECURITY_GROUPS_CACHE_SNAPSHOT_INTERVAL_SECS, 0);
+      // The snapshot of the prewarmed lookups: user TAB group
+      try (Writer writer = Files.newBufferedWriter(
+          new File(dir, "groups.snapshot").toPath(),
+          StandardCharsets.UTF_8)) {
+        for (String user : names) {
+          for (String group : SlowGroupsMapping.groups(user)) {
+            writer.write(user + "\t" + group + "\n");
+          }
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
+  @Benchmark
+  public void single(GroupsChoice choice, Blackhole blackhole)
+      throws IOException {
+    Groups groups = new Groups(choice.conf);
+    for (String user : choice.names) {
+      blackhole.consume(groups.getGroupsSet(user));
+    }
+  }
+
+  @Benchmark
+  public void bulk(GroupsChoice choice, Blackhole blackhole)
+      throws IOException {
+    Groups groups = new Groups(choice.conf);
+    blackhole.consume(groups.getGroupsSets(choice.names));
+    for (String user : choice.names) {
+      blackhole.consume(groups.getGroupsSet(user));
+    }
+  }
+
+  @Benchmark
+  public void prewarmed(GroupsChoice choice, Blackhole blackhole)
+      throws IOException {
+    Groups groups = new Groups(choice.snapshotConf);
+    for (String user : choice.names) {
+      blackhole.consume(groups.getGroupsSet(user));
+    }
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("GroupsLookupBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableQuantiles;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+
+/**
+ * Benchmark of the updates of the RPC metrics by many threads: the rates
+ * with a lock or striped, and the quantiles estimated from a sample with a
+ * lock or from a histogram without lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class MetricsUpdateBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class MetricsChoice {
+
+    @Param({"plain", "striped"})
+    private String mode;
+
+    private MutableRate rate;
+    private MutableQuantiles quantiles;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      MetricsRegistry registry = new MetricsRegistry("benchmark");
+      if ("striped".equals(mode)) {
+        rate = registry.newStripedRate("Rate", "Rate", false);
+        quantiles = registry.newHistogramQuantiles("Quantiles", "Quantiles",
+            "Ops", "Latency", 60);
+      } else {
+        rate = registry.newRate("Rate", "Rate", false);
+        quantiles = registry.newQuantiles("Quantiles", "Quantiles", "Ops",
+            "Latency", 60);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      quantiles.stop();
+    }
+  }
+
+  @Benchmark
+  public void rate(MetricsChoice choice) {
+    choice.rate.add(ThreadLocalRandom.current().nextInt(1000));
+  }
+
+  @Benchmark
+  public void quantiles(MetricsChoice choice) {
+    choice.quantiles.add(ThreadLocalRandom.current().nextInt(1000));
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("MetricsUpdateBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.io.compress.ZStandardCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Benchmark of the single stream throughput of the gzip and zstd output
+ * streams, compressing on the writer thread (0 threads) or in parallel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelCompressionBenchmark {
+
+  static final int DATA_SIZE = 32 * 1024 * 1024;
+  static final int WRITE_SIZE = 64 * 1024;
+
+  @State(Scope.Thread)
+  public static class CodecChoice {
+
+    @Param({"gzip", "zstd"})
+    private String codecName;
+
+    @Param({"0", "2", "4", "8"})
+    private int threads;
+
+    private CompressionCodec codec;
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      Configuration conf = new Configuration();
+      conf.setInt(
+          CommonConfigurationKeys.IO_COMPRESSION_CODEC_PARALLEL_THREADS_KEY,
+          threads);
+      Class<? extends CompressionCodec> codecClass =
+          "zstd".equals(codecName) ? ZStandardCodec.class : GzipCodec.class;
+      codec = ReflectionUtils.newInstance(codecClass, conf);
+      data = generateData();
+    }
+  }
+
+  /**
+   * @return text like data, words of a small vocabulary in random order.
+   */
+  private static byte[] generateData() {
+    Random random = new Random(0);
+    String[] words = new String[1000];
+    for (int i = 0; i < words.length; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 2 + random.nextInt(10);
+      for (int j = 0; j < length; j++) {
+        word.append((char) ('a' + random.nextInt(26)));
+      }
+      words[i] = word.toString();
+    }
+    byte[] data = new byte[DATA_SIZE];
+    int off = 0;
+    while (off < data.length) {
+      byte[] word = (words[random.nextInt(words.length)]
+          + (random.nextInt(10) == 0 ? '\n' : ' '))
+          .getBytes(StandardCharsets.US_ASCII);
+      int len = Math.min(word.length, data.length - off);
+      System.arraycopy(word, 0, data, off, len);
+      off += len;
+    }
+    return data;
+  }
+
+  /** Counts the compressed bytes. */
+  private static final class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+
+  @Benchmark
+  public void compress(CodecChoice choice, Blackhole blackhole)
+      throws IOException {
+    CountingOutputStream counter = new CountingOutputStream();
+    try (CompressionOutputStream out =
+        choice.codec.createOutputStream(counter)) {
+      for (int off = 0; off < choice.data.length; off += WRITE_SIZE) {
+        out.write(choice.data, off,
+            Math.min(WRITE_SIZE, choice.data.length - off));
+      }
+    }
+    blackhole.consume(counter.count);
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("ParallelCompressionBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.compress.DefaultCodec;
+
+/**
+ * Benchmark of the full scan of a {@link SequenceFile}, reading the records
+ * one by one or in batches, with or without prefetching the next batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SequenceFileReadBenchmark {
+
+  private static final int RECORDS = 100_000;
+
+  @State(Scope.Benchmark)
+  public static class FileChoice {
+
+    @Param({"NONE", "RECORD", "BLOCK"})
+    private CompressionType compression;
+
+    private Configuration conf;
+    private File dir;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      conf = new Configuration();
+      dir = File.createTempFile("seqread", "");
+      dir.delete();
+      dir.mkdirs();
+      file = new Path(dir.getAbsolutePath(), "data.seq");
+      Random random = new Random(1);
+      LongWritable key = new LongWritable();
+      BytesWritable value = new BytesWritable();
+      try (SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+          SequenceFile.Writer.file(file),
+          SequenceFile.Writer.keyClass(LongWritable.class),
+          SequenceFile.Writer.valueClass(BytesWritable.class),
+          SequenceFile.Writer.compression(compression, new DefaultCodec()))) {
+        // Compressible values of 50 to 250 bytes
+        byte[] bytes = new byte[250];
+        for (int i = 0; i < RECORDS; i++) {
+          for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = (byte) ('a' + random.nextInt(8));
+          }
+          key.set(i);
+          value.set(bytes, 0, 50 + random.nextInt(200));
+          writer.append(key, value);
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      FileSystem.getLocal(conf).delete(new Path(dir.getAbsolutePath()), true);
+    }
+
+    SequenceFile.Reader open() throws IOException {
+      return new SequenceFile.Reader(conf, SequenceFile.Reader.file(file));
+    }
+  }
+
+  @Benchmark
+  public void next(FileChoice choice, Blackhole blackhole)
+      throws IOException {
+    DataOutputBuffer key = new DataOutputBuffer();
+    DataOutputBuffer value = new DataOutputBuffer();
+    try (SequenceFile.Reader reader = choice.open()) {
+      SequenceFile.ValueBytes raw = reader.createValueBytes();
+      while (reader.nextRaw(key, raw) != -1) {
+        raw.writeUncompressedBytes(value);
+        blackhole.consume(key.getData());
+        blackhole.consume(value.getData());
+        key.reset();
+        value.reset();
+      }
+    }
+  }
+
+  @Benchmark
+  public void batch(FileChoice choice, Blackhole blackhole)
+      throws IOException {
+    scan(new SequenceFile.BatchReader(choice.open(), false), blackhole);
+  }
+
+  @Benchmark
+  public void prefetch(FileChoice choice, Blackhole blackhole)
+      throws IOException {
+    scan(new SequenceFile.BatchReader(choice.open(), true), blackhole);
+  }
+
+  private static void scan(SequenceFile.BatchReader batches,
+      Blackhole blackhole) throws IOException {
+    try {
+      SequenceFile.RecordBatch batch;
+      while ((batch = batches.next()) != null) {
+        for (int i = 0; i < batch.size(); i++) {
+          blackhole.consume(batch.getKeyOffset(i));
+          blackhole.consume(batch.getValueLength(i));
+        }
+        blackhole.consume(batch.getKeyData());
+        blackhole.consume(batch.getValueData());
+      }
+    } finally {
+      batches.close();
+    }
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("SequenceFileReadBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
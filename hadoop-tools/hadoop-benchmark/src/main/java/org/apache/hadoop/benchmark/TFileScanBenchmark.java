@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.file.tfile.TFile;
+
+/**
+ * Benchmark of the full scan of a TFile laid out like the aggregated logs of
+ * an application: one record per container log, in blocks of 256KB. The
+ * file is scanned with a single scanner, with a single scanner reading the
+ * next block ahead, or with parallel scanners over ranges of blocks. The
+ * open benchmarks read the first record of the file, with and without
+ * the index cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TFileScanBenchmark {
+
+  private static final int MIN_BLOCK_SIZE = 256 * 1024;
+
+  @State(Scope.Benchmark)
+  public static class FileChoice {
+
+    @Param({"256"})
+    private int sizeMb;
+
+    @Param({TFile.COMPRESSION_NONE, TFile.COMPRESSION_GZ})
+    private String compression;
+
+    @Param({"4"})
+    private int threads;
+
+    private Configuration conf;
+    private Configuration readaheadConf;
+    private Configuration uncachedConf;
+    private FileSystem fs;
+    private File dir;
+    private Path file;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      conf = new Configuration();
+      conf.setInt(
+          CommonConfigurationKeysPublic.TFILE_INDEX_CACHE_SIZE_KEY, 256);
+      readaheadConf = new Configuration(conf);
+      readaheadConf.setInt(
+          CommonConfigurationKeysPublic.TFILE_FS_READAHEAD_SIZE_KEY,
+          16 * MIN_BLOCK_SIZE);
+      uncachedConf = new Configuration(conf);
+      uncachedConf.setInt(
+          CommonConfigurationKeysPublic.TFILE_INDEX_CACHE_SIZE_KEY, 0);
+      fs = FileSystem.getLocal(conf);
+      dir = File.createTempFile("tfilescan", "");
+      dir.delete();
+      dir.mkdirs();
+      file = new Path(dir.getAbsolutePath(), "logs.tfile");
+      executor = Executors.newFixedThreadPool(threads);
+
+      Random random = new Random(1);
+      String[] words = {"INFO", "WARN", "container", "allocated", "memory",
+          "released", "block", "heartbeat", "node", "task", "attempt"};
+      long size = (long) sizeMb * 1024 * 1024;
+      try (FSDataOutputStream out = fs.create(file, true);
+          TFile.Writer writer = new TFile.Writer(out, MIN_BLOCK_SIZE,
+              compression, null, conf)) {
+        long written = 0;
+        for (int container = 0; written < size; container++) {
+          try (DataOutputStream key = writer.prepareAppendKey(-1)) {
+            key.writeUTF(String.format("container_1_0001_01_%06d", container));
+          }
+          // Container logs of 64KB to 1MB of text lines
+          int logSize = 64 * 1024 + random.nextInt(960 * 1024);
+          try (DataOutputStream value = writer.prepareAppendValue(-1)) {
+            StringBuilder line = new StringBuilder();
+            for (int n = 0; n < logSize; n += line.length()) {
+              line.setLength(0);
+              line.append(container).append(' ').append(n);
+              for (int w = 0; w < 12; w++) {
+                line.append(' ').append(words[random.nextInt(words.length)]);
+              }
+              line.append('\n');
+              value.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+          }
+          written += logSize;
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      executor.shutdownNow();
+      fs.delete(new Path(dir.getAbsolutePath()), true);
+    }
+
+    TFile.Reader open(Configuration readConf) throws IOException {
+      FileStatus status = fs.getFileStatus(file);
+      FSDataInputStream in = fs.open(file);
+      return new TFile.Reader(in, status, readConf);
+    }
+  }
+
+  private static long scan(TFile.Reader.Scanner scanner, Blackhole blackhole)
+      throws IOException {
+    byte[] buffer = new byte[64 * 1024];
+    long bytes = 0;
+    try {
+      for (; !scanner.atEnd(); scanner.advance()) {
+        TFile.Reader.Scanner.Entry entry = scanner.entry();
+        blackhole.consume(entry.getKeyLength());
+        try (DataInputStream value = entry.getValueStream()) {
+          for (int n; (n = value.read(buffer)) > 0;) {
+            bytes += n;
+          }
+        }
+      }
+    } finally {
+      scanner.close();
+    }
+    return bytes;
+  }
+
+  private static long scan(FileChoice choice, Configuration readConf,
+      Blackhole blackhole) throws IOException {
+    try (TFile.Reader reader = choice.open(readConf)) {
+      return scan(reader.createScanner(), blackhole);
+    }
+  }
+
+  private static int first(FileChoice choice, Configuration readConf)
+      throws IOException {
+    try (TFile.Reader reader = choice.open(readConf);
+        TFile.Reader.Scanner scanner = reader.createScanner()) {
+      return scanner.entry().getKeyLength();
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int openCached(FileChoice choice) throws IOException {
+    return first(choice, choice.conf);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int openUncached(FileChoice choice) throws IOException {
+    return first(choice, choice.uncachedConf);
+  }
+
+  @Benchmark
+  public long serial(FileChoice choice, Blackhole blackhole)
+      throws IOException {
+    return scan(choice, choice.conf, blackhole);
+  }
+
+  @Benchmark
+  public long readahead(FileChoice choice, Blackhole blackhole)
+      throws IOException {
+    return scan(choice, choice.readaheadConf, blackhole);
+  }
+
+  @Benchmark
+  public long parallel(FileChoice choice, Blackhole blackhole)
+      throws Exception {
+    try (TFile.Reader reader = choice.open(choice.readaheadConf)) {
+      List<Future<Long>> scans = new ArrayList<>();
+      for (TFile.Reader.Scanner scanner :
+          reader.createScannersByBlockRanges(choice.threads)) {
+        scans.add(choice.executor.submit(() -> scan(scanner, blackhole)));
+      }
+      long bytes = 0;
+      for (Future<Long> scan : scans) {
+        bytes += scan.get();
+      }
+      return bytes;
+    }
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args unused.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("TFileScanBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
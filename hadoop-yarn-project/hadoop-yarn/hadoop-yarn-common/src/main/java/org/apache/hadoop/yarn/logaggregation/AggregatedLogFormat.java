@@ -590,8 +590,7 @@ public LogReader(Configuration conf, Path remoteAppLogFile)
                 .optLong(FS_OPTION_OPENFILE_LENGTH,
                     status.getLen())   // file length hint for object stores
                 .build());
-        reader = new TFile.Reader(this.fsDataIStream,
-            status.getLen(), conf);
+        reader = new TFile.Reader(this.fsDataIStream, status, conf);
         this.scanner = reader.createScanner();
       } catch (IOException ioe) {
         close();